@@ -0,0 +1,80 @@
+package minigames.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.GameMetadata;
+import minigames.rendering.NativeCommands.LoadClient;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * The cost of encoding and decoding RenderingPackages and CommandPackages, with each codec.
+ *
+ * The RenderingPackage is shaped like a Mario frame, with the given number of enemies. This replaces the
+ * hand-run WireCodecBenchmark for timings; that one still reports bytes per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({ "json", "binary" })
+    String codecName;
+
+    @Param({ "5", "50" })
+    int enemies;
+
+    WireCodec codec;
+    RenderingPackage frame;
+    Buffer encodedFrame;
+    CommandPackage input;
+    Buffer encodedInput;
+
+    @Setup
+    public void setUp() {
+        codec = "binary".equals(codecName) ? WireCodec.BINARY : WireCodec.JSON;
+
+        ArrayList<JsonObject> commands = new ArrayList<>();
+        commands.add(new LoadClient("Mario", "Mario", "game", "alice").toJson());
+        commands.add(new JsonObject().put("command", "updatePosition").put("x", 50).put("y", 425)
+            .put("onGround", true).put("direction", "right").put("health", 3).put("score", 2000));
+        for (int i = 0; i < enemies; i++) {
+            commands.add(new JsonObject().put("command", "updateEnemy").put("index", i)
+                .put("x", 1100 - i * 37).put("y", 415).put("active", i % 3 != 0));
+        }
+        frame = new RenderingPackage(new GameMetadata("Mario", "game", new String[] { "alice", "bob" }, true), commands);
+        encodedFrame = codec.encode(frame);
+
+        input = new CommandPackage("Mario", "game", "alice", List.of(
+            new JsonObject().put("type", "move").put("direction", "left"),
+            new JsonObject().put("type", "ack").put("ack", 41L)));
+        encodedInput = codec.encode(input);
+    }
+
+    @Benchmark
+    public Buffer encodeRenderingPackage() {
+        return codec.encode(frame);
+    }
+
+    @Benchmark
+    public RenderingPackage decodeRenderingPackage() {
+        return codec.decodeRenderingPackage(encodedFrame);
+    }
+
+    @Benchmark
+    public Buffer encodeCommandPackage() {
+        return codec.encode(input);
+    }
+
+    @Benchmark
+    public CommandPackage decodeCommandPackage() {
+        return codec.decodeCommandPackage(encodedInput);
+    }
+
+}
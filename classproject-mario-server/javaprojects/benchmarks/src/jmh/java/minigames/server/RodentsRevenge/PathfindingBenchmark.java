@@ -0,0 +1,42 @@
+package minigames.server.RodentsRevenge;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The cost of a cat finding its way to a mouse, on the starting board.
+ *
+ * "near" is a few squares across open floor. "around" has to go round the block of movable blocks in the
+ * middle of the board, and "far" crosses the whole board corner to corner.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PathfindingBenchmark {
+
+    @Param({ "near", "around", "far" })
+    String route;
+
+    Pathfinding pathfinding;
+    int sX, sY, eX, eY;
+
+    @Setup
+    public void setUp() {
+        int[][] board = new RodentsRevenge("benchmark").boardState;
+        pathfinding = new Pathfinding(board, RodentsRevenge.colSize, RodentsRevenge.rowSize);
+
+        switch (route) {
+            case "near" -> { sX = 1; sY = 1; eX = 5; eY = 2; }
+            case "around" -> { sX = 12; sY = 2; eX = 12; eY = RodentsRevenge.rowSize - 2; }
+            default -> { sX = 1; sY = 1; eX = RodentsRevenge.colSize - 2; eY = RodentsRevenge.rowSize - 2; }
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Pathfinding.PathNode> findPath() {
+        return pathfinding.findPath(sX, sY, eX, eY);
+    }
+
+}
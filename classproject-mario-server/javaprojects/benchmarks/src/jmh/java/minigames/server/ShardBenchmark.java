@@ -0,0 +1,104 @@
+package minigames.server;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import minigames.commands.CommandPackage;
+import minigames.rendering.GameMetadata;
+import minigames.rendering.GameServerDetails;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * /command throughput at different numbers of ShardVerticles.
+ *
+ * Each trial deploys the given number of shards on a port of its own. Each invocation then sends IN_FLIGHT
+ * commands at once, spread over GAMES games of a trivial game server, and waits for every reply. The game does
+ * no work, so this measures the server's own overhead - routing, decoding and encoding. Shard counts above the
+ * number of cores only add contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ShardBenchmark {
+
+    static final int BASE_PORT = 18080;
+    static final int GAMES = 256;
+    static final int IN_FLIGHT = 256;
+
+    /** Answers every command with the same small package */
+    static class BenchServer implements GameServer {
+        final RenderingPackage rp = new RenderingPackage(
+            new GameMetadata("Bench", "game", new String[] { "p" }, true),
+            List.of(new JsonObject().put("command", "ok")));
+
+        public GameServerDetails getDetails() { return new GameServerDetails("Bench", "Benchmark"); }
+        public ClientType[] getSupportedClients() { return new ClientType[0]; }
+        public GameMetadata[] getGamesInProgress() { return new GameMetadata[0]; }
+        public Future<RenderingPackage> newGame(String playerName) { return Future.succeededFuture(rp); }
+        public Future<RenderingPackage> joinGame(String game, String player) { return Future.succeededFuture(rp); }
+        public Future<RenderingPackage> callGame(CommandPackage commands) { return Future.succeededFuture(rp); }
+    }
+
+    @Param({ "1", "2", "4", "8" })
+    int shards;
+
+    Vertx serverVertx;
+    Vertx clientVertx;
+    WebClient client;
+    int port;
+    CommandPackage[] commands;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Main.gameRegistry.registerGameServer("Bench", new BenchServer());
+        commands = new CommandPackage[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            // Commands only reach games that have been created
+            Main.gameContexts.created("Bench", "game" + i);
+            commands[i] = new CommandPackage("Bench", "game" + i, "p", List.of(new JsonObject().put("command", "go")));
+        }
+
+        port = BASE_PORT + shards;
+        serverVertx = Vertx.vertx();
+        serverVertx.deployVerticle(ShardVerticle.class.getName(), new DeploymentOptions()
+                .setInstances(shards)
+                .setConfig(new JsonObject().put("port", port).put("shards", shards)))
+            .toCompletionStage().toCompletableFuture().get();
+
+        clientVertx = Vertx.vertx();
+        client = WebClient.create(clientVertx, new WebClientOptions().setMaxPoolSize(IN_FLIGHT).setKeepAlive(true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        clientVertx.close().toCompletionStage().toCompletableFuture().get();
+        serverVertx.close().toCompletionStage().toCompletableFuture().get();
+        for (int i = 0; i < GAMES; i++) {
+            Main.gameContexts.remove("Bench", "game" + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void command() throws InterruptedException {
+        CountDownLatch replies = new CountDownLatch(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            client.post(port, "localhost", "/command").sendJson(commands[i % GAMES])
+                .onComplete((ar) -> replies.countDown());
+        }
+        if (!replies.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Commands didn't all come back");
+        }
+    }
+
+}
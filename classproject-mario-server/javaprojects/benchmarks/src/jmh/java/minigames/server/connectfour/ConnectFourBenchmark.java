@@ -0,0 +1,54 @@
+package minigames.server.connectfour;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The cost of checking a Connect Four grid for a win, as happens after every move.
+ *
+ * "empty" and "midgame" have no four in a row, so every check scans the whole grid. "win" has four in a row
+ * along the bottom, so the first check finds it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ConnectFourBenchmark {
+
+    @Param({ "empty", "midgame", "win" })
+    String position;
+
+    ConnectFourGame game;
+
+    @Setup
+    public void setUp() {
+        game = new ConnectFourGame("benchmark");
+        String[][] grid = game.grid;
+        switch (position) {
+            case "midgame" -> {
+                // The bottom two rows filled, alternating between players so nothing lines up
+                for (int j = 0; j < grid[0].length; j++) {
+                    grid[0][j] = j % 2 == 0 ? "a" : "b";
+                    grid[1][j] = j % 2 == 0 ? "b" : "a";
+                }
+            }
+            case "win" -> {
+                for (int j = 0; j < 4; j++) {
+                    grid[0][j] = "a";
+                }
+            }
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    public boolean isFourInARow() {
+        return game.isFourInARow();
+    }
+
+    @Benchmark
+    public boolean checkDiagonalMatch() {
+        return game.checkDiagonalMatch();
+    }
+
+}
@@ -0,0 +1,56 @@
+package minigames.server.mario;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The cost of checking every player against the enemies and herbs, with the enemies spread across the map.
+ *
+ * Players stand above the enemies' lane, so nothing is hit, the listener is never called and the state doesn't
+ * change between invocations: this measures the checking, which is what every tick pays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CollisionDetectionBenchmark {
+
+    @Param({ "5", "20", "100", "500" })
+    int enemies;
+
+    @Param({ "1", "4" })
+    int players;
+
+    CollisionDetection collisions = new CollisionDetection(new CollisionListener() {
+        @Override
+        public void enemyStomped(Player player, int enemy) {}
+
+        @Override
+        public void playerHit(Player player, int enemy) {}
+
+        @Override
+        public void herbTouched(Player player, int herb) {}
+    });
+    Map<String, Player> playerMap = new HashMap<>();
+    MarioEntities entities = new MarioEntities();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < players; i++) {
+            playerMap.put("player" + i, new Player("player" + i, 50 + i * 300, 100, 32, 64, 4));
+        }
+        for (int i = 0; i < enemies; i++) {
+            entities.spawnEnemy(100 + (i * 37) % 1150, 50, 50, 5);
+        }
+        entities.spawnHerb(300, 0, 30, 30);
+        entities.spawnHerb(900, 0, 30, 30);
+    }
+
+    @Benchmark
+    public boolean checkCollisions() {
+        return collisions.checkCollisions(playerMap, entities);
+    }
+
+}
@@ -0,0 +1,47 @@
+package minigames.server.mario;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The cost of one tick of a Mario game, at different numbers of enemies.
+ *
+ * Each invocation runs TICKS ticks of a freshly set up game, so the enemy count stays where it was put -
+ * below the wave interval, and above the count at which new enemies are spawned. The game is seeded, so every
+ * invocation plays out the same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MarioGameBenchmark {
+
+    static final int TICKS = 100;
+
+    @Param({ "5", "20", "100", "500" })
+    int enemies;
+
+    @Param({ "1", "4" })
+    int players;
+
+    MarioGame game;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        game = new MarioGame("benchmark", 42, TickClock.SIMULATED);
+        for (int i = 0; i < players; i++) {
+            game.joinGame("player" + i);
+        }
+        for (int i = 0; i < enemies; i++) {
+            game.addEnemy(100 + (i * 37) % 1150, 5 + i % 6);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public MarioGame updateGame() {
+        game.advance(TICKS);
+        return game;
+    }
+
+}
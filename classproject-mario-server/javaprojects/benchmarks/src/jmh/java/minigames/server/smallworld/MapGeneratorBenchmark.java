@@ -0,0 +1,35 @@
+package minigames.server.smallworld;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import minigames.smallworld.WorldMap;
+
+/**
+ * The cost of generating a SmallWorld map, at the size games use and at larger sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MapGeneratorBenchmark {
+
+    @Param({ "250x30", "1000x60" })
+    String size;
+
+    int width;
+    int height;
+
+    @Setup
+    public void setUp() {
+        String[] dims = size.split("x");
+        width = Integer.parseInt(dims[0]);
+        height = Integer.parseInt(dims[1]);
+    }
+
+    @Benchmark
+    public WorldMap generateMap() {
+        return new MapGenerator(new WorldMap(width, height)).generateMap();
+    }
+
+}
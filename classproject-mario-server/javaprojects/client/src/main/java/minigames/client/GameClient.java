@@ -1,5 +1,7 @@
 package minigames.client;
 
+import java.util.List;
+
 import io.vertx.core.json.JsonObject;
 import minigames.rendering.GameMetadata;
 import minigames.rendering.RenderingPackage;
@@ -35,5 +37,22 @@ public interface GameClient {
      * Usually this is at the end of the game 
      */
     public void closeGame();
-    
+
+    /**
+     * For clients registered as being for WebSockets: the commands the server should poll the game with to
+     * push this client its state.
+     */
+    public default List<JsonObject> subscriptionCommands() {
+        return defaultSubscriptionCommands();
+    }
+
+    /** The commands WebSocket games are polled with, unless their client says otherwise */
+    public static List<JsonObject> defaultSubscriptionCommands() {
+        return List.of(
+            new JsonObject().put("command", "getState"),
+            new JsonObject().put("command", "getPlayerName"),
+            new JsonObject().put("command", "getTimeRemain")
+        );
+    }
+
 }
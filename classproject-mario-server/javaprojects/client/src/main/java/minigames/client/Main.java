@@ -57,7 +57,7 @@ public class Main extends AbstractVerticle {
         clientRegistry.registerGameClient("Gwent", new Gwent());
         clientRegistry.registerGameClient("GeoWars", new GeoWars());
         clientRegistry.registerGameClient("DeepFried", new DeepFried());
-        clientRegistry.registerGameClient("Mario", new MarioClient());
+        clientRegistry.registerGameClient("Mario", new MarioClient(), true);
 
 
     }
@@ -81,6 +81,11 @@ public class Main extends AbstractVerticle {
             }
         }
 
+        // A second argument of "binary" asks the server for the compact binary codec rather than JSON
+        if (args.length > 1 && "binary".equals(args[1])) {
+            MinigameNetworkClient.useBinaryCodec = true;
+        }
+
         // Register games and services
         doWiring();
 
@@ -7,6 +7,7 @@ import java.util.Optional;
 import javax.swing.JLabel;
 
 import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketConnectOptions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -18,6 +19,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.core.http.HttpClient;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.HttpResponse;
+import minigames.codec.WireCodec;
 import minigames.commands.CommandPackage;
 import minigames.rendering.GameMetadata;
 import minigames.rendering.GameServerDetails;
@@ -50,6 +52,11 @@ public class MinigameNetworkClient {
      */
     public static int port = 8080;
 
+    /**
+     * Whether to ask the server for the compact binary codec instead of JSON. Updated from Main.
+     */
+    public static boolean useBinaryCodec = false;
+
     Vertx vertx;
     WebClient webClient;
     MinigameNetworkClientWindow mainWindow;
@@ -58,6 +65,9 @@ public class MinigameNetworkClient {
 
     Optional<GameClient> gameClient;
 
+    /** The WebSocket the current game is being pushed over, if it is played over one */
+    WebSocket webSocket;
+
     String storedToken;
 
     public MinigameNetworkClient(Vertx vertx) {
@@ -73,6 +83,11 @@ public class MinigameNetworkClient {
         mainWindow.show();
     }
 
+    /** The codec game traffic is sent and received in */
+    WireCodec wireCodec() {
+        return useBinaryCodec ? WireCodec.BINARY : WireCodec.JSON;
+    }
+
     /** Get a reference to the Vertx instance */
     public Vertx getVertx() {
         return this.vertx;
@@ -171,14 +186,12 @@ public class MinigameNetworkClient {
     /** Creates a new game on the server, running any commands that come back */
     public Future<RenderingPackage> newGame(String gameServer, String playerName) {
         return webClient.post(port, host, "/newGame/" + gameServer)
+                .putHeader("Accept", wireCodec().contentType())
                 .sendBuffer(Buffer.buffer(playerName))
                 .onSuccess((resp) -> {
-                    logger.info(resp.bodyAsString());
-                })
-                .map((resp) -> {
-                    JsonObject rpj = resp.bodyAsJsonObject();
-                    return RenderingPackage.fromJson(rpj);
+                    logger.info("Received {} bytes", resp.body().length());
                 })
+                .map((resp) -> WireCodec.forContentType(resp.getHeader("Content-Type")).decodeRenderingPackage(resp.body()))
                 .onSuccess((rp) -> {
                     runRenderingPackage(rp);
                     if (Main.clientRegistry.isForWebSockets(gameServer)) {
@@ -195,14 +208,12 @@ public class MinigameNetworkClient {
         logger.info("Joining game {} on server {}", game, gameServer);
         logger.info("Player name: {}", playerName);
         return webClient.post(port, host, "/joinGame/" + gameServer + "/" + game)
+                .putHeader("Accept", wireCodec().contentType())
                 .sendBuffer(Buffer.buffer(playerName))
                 .onSuccess((resp) -> {
-                    logger.info(resp.bodyAsString());
-                })
-                .map((resp) -> {
-                    JsonObject rpj = resp.bodyAsJsonObject();
-                    return RenderingPackage.fromJson(rpj);
+                    logger.info("Received {} bytes", resp.body().length());
                 })
+                .map((resp) -> WireCodec.forContentType(resp.getHeader("Content-Type")).decodeRenderingPackage(resp.body()))
                 .onSuccess((rp) -> {
                     runRenderingPackage(rp);
                     if (Main.clientRegistry.isForWebSockets(gameServer)) { // if the game wants to use websocket
@@ -216,21 +227,33 @@ public class MinigameNetworkClient {
 
     /** Sends a CommandPackage to the server, running any commands that come back */
     public Future<RenderingPackage> send(CommandPackage cp) {
+        WireCodec codec = wireCodec();
         return webClient.post(port, host, "/command")
-                .sendJson(cp)
+                .putHeader("Content-Type", codec.contentType())
+                .putHeader("Accept", codec.contentType())
+                .sendBuffer(codec.encode(cp))
                 .onSuccess((resp) -> {
-                    logger.info(resp.bodyAsString());
-                })
-                .map((resp) -> {
-                    JsonObject rpj = resp.bodyAsJsonObject();
-                    return RenderingPackage.fromJson(rpj);
+                    logger.info("Received {} bytes", resp.body().length());
                 })
+                .map((resp) -> WireCodec.forContentType(resp.getHeader("Content-Type")).decodeRenderingPackage(resp.body()))
                 .onSuccess((rp) -> runRenderingPackage(rp))
                 .onFailure((resp) -> {
                     logger.error("Failed: {} ", resp.getMessage());
                 });
     }
 
+    /**
+     * Sends a CommandPackage up the current game's WebSocket. Nothing comes back directly - the effect shows
+     * up in the state the server pushes. If there is no WebSocket open, it is sent over HTTP instead.
+     */
+    public void sendOverWebSocket(CommandPackage cp) {
+        if (webSocket == null || webSocket.isClosed()) {
+            send(cp);
+            return;
+        }
+        webSocket.write(wireCodec().encode(cp));
+    }
+
     /**
      * Runs the sequence that opens the main menu - starting with a title card
      * before communicating with
@@ -253,10 +276,22 @@ public class MinigameNetworkClient {
     public void execute(QuitToMenu qtm) {
         gameClient.ifPresent((gc) -> gc.closeGame());
         gameClient = Optional.empty();
+        closeWebSocket();
 
         runMainMenuSequence();
     }
 
+    /**
+     * Closes the current game's WebSocket, if it is played over one, so that the server stops pushing its state.
+     * Game clients call this when their game finishes without going back to the menu.
+     */
+    public void closeWebSocket() {
+        if (webSocket != null) {
+            webSocket.close();
+            webSocket = null;
+        }
+    }
+
     /** Executes a LoadClient command */
     private void execute(GameMetadata metadata, LoadClient lc) {
         logger.info("Loading client {} ", lc);
@@ -469,6 +504,19 @@ public class MinigameNetworkClient {
                 });
     }
 
+    // Returns a user's profile, achievements and best scores in one request, for profile screens
+    public Future<JsonObject> getUserSummary(String username) {
+        return webClient.get(port, host, "/api/users/" + username + "/summary")
+                .send()
+                .map(HttpResponse::bodyAsJsonObject)
+                .onSuccess(summary -> {
+                    logger.info("User summary retrieved successfully for {}", username);
+                })
+                .onFailure(err -> {
+                    logger.error("Error retrieving user summary: {}", err.getMessage());
+                });
+    }
+
     public Future<JsonObject> getUserProfile(String username) {
         return webClient.get(port, host, "/api/profile/" + username)
                 .send()
@@ -500,25 +548,31 @@ public class MinigameNetworkClient {
 
     /**
      * Establish the websocket connection between the client and the server
-     * create the command "getState"
-     * write the command to the server
+     * ask the game client what commands its game should be polled with
+     * write the commands to the server, subscribing to its state
      * add a binary message handler to listen to the server
      * 
      * @param rp
      * @param playerName
      */
     private void handleWebSocketRequest(RenderingPackage rp, String playerName) {
-        client.webSocket(port, host, "/", (ctx) -> { // Establish the websocket connection between the client and the
-                                                     // server
-
-            JsonObject getState = new JsonObject().put("command", "getState");
-            JsonObject getPlayerName = new JsonObject().put("command", "getPlayerName");
-            JsonObject getTimeRemain = new JsonObject().put("command", "getTimeRemain");
-
-            List<JsonObject> jsonList = new ArrayList<JsonObject>();
-            jsonList.add(getState);
-            jsonList.add(getPlayerName);
-            jsonList.add(getTimeRemain);
+        WireCodec codec = wireCodec();
+        WebSocketConnectOptions options = new WebSocketConnectOptions()
+                .setPort(port)
+                .setHost(host)
+                .setURI("/")
+                .addHeader("Accept", codec.contentType()); // the codec is negotiated once, on the handshake
+
+        client.webSocket(options, (ctx) -> { // Establish the websocket connection between the client and the server
+            if (ctx.failed()) {
+                logger.error("Failed to open WebSocket: {}", ctx.cause().getMessage());
+                return;
+            }
+            webSocket = ctx.result();
+
+            // The game client says what the server should poll its game with
+            List<JsonObject> jsonList = gameClient.map(GameClient::subscriptionCommands)
+                    .orElseGet(GameClient::defaultSubscriptionCommands);
 
             logger.info("Web Socket jsonList {}", jsonList);
 
@@ -527,10 +581,10 @@ public class MinigameNetworkClient {
                     playerName,
                     jsonList);
 
-            ctx.result().write(JsonObject.mapFrom(comms).toBuffer()); // write the command to the server
+            webSocket.write(codec.encode(comms)); // write the command to the server
 
-            ctx.result().binaryMessageHandler(bin -> { // add a binary message handler to listen to the server
-                var gameStateRP = RenderingPackage.fromJson(new JsonObject(bin));
+            webSocket.binaryMessageHandler(bin -> { // add a binary message handler to listen to the server
+                var gameStateRP = codec.decodeRenderingPackage(bin);
                 runRenderingPackage(gameStateRP);
             });
 
@@ -0,0 +1,125 @@
+package minigames.client.mario;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Smooths out the movement of enemies and herbs between the server's snapshots.
+ *
+ * Each snapshot is stamped with the server's tick and the time it ran. Positions are kept by the server time they
+ * were true at, and drawn as they were a little in the past (DELAY_MS), between the two snapshots either side of
+ * that time. So however often snapshots arrive, as long as it's more than once per DELAY_MS, things glide at the
+ * frame rate rather than jumping once per snapshot.
+ *
+ * Snapshots arrive on the network thread and frames are drawn on the Swing thread, so everything is synchronized.
+ */
+public class EntityInterpolator {
+
+    /** How far behind the server things are drawn: two ticks, so one late snapshot doesn't leave a gap */
+    static final long DELAY_MS = 100;
+
+    /** An entity that moves further than this in one go (e.g. an enemy coming back in on the right) jumps there */
+    static final int TELEPORT_DISTANCE = 200;
+
+    /** Positions older than the one being drawn are dropped, but no entity keeps more than this many */
+    private static final int MAX_SAMPLES = 16;
+
+    private record Sample(long tick, long time, int x, int y) {}
+
+    private final Map<String, ArrayDeque<Sample>> samples = new HashMap<>();
+
+    /** The latest tick the server has told us about, and when it ran and when we heard */
+    private long tick = -1;
+    private long serverTime = 0;
+    private long receivedAt = 0;
+    /** How long a server tick has been taking, for filling in ticks where an entity didn't change */
+    private long tickMillis = 50;
+    /** The server time last drawn, so that a late snapshot can't make things go backwards */
+    private long lastRenderTime = Long.MIN_VALUE;
+
+    /**
+     * Records the tick and time a snapshot was taken at. Positions that arrive after this are taken to be as of it.
+     *
+     * @param now the local time it was received, in ms
+     */
+    public synchronized void clock(long tick, long serverTime, long now) {
+        if (tick <= this.tick) {
+            return;
+        }
+        if (this.tick >= 0) {
+            tickMillis = Math.max(1, (serverTime - this.serverTime) / (tick - this.tick));
+        }
+        this.tick = tick;
+        this.serverTime = serverTime;
+        this.receivedAt = now;
+    }
+
+    /** Records where an entity is as of the latest tick */
+    public synchronized void update(String id, int x, int y) {
+        ArrayDeque<Sample> history = samples.computeIfAbsent(id, (k) -> new ArrayDeque<>());
+        Sample last = history.peekLast();
+        if (last != null) {
+            if (Math.abs(x - last.x()) > TELEPORT_DISTANCE || Math.abs(y - last.y()) > TELEPORT_DISTANCE) {
+                history.clear();
+            } else if (last.tick() == tick) {
+                history.removeLast();
+            } else if (last.tick() < tick - 1) {
+                // It was still until the tick before this one, rather than moving slowly all that time
+                history.addLast(new Sample(tick - 1, serverTime - tickMillis, last.x(), last.y()));
+            }
+        }
+        history.addLast(new Sample(tick, serverTime, x, y));
+        while (history.size() > MAX_SAMPLES) {
+            history.removeFirst();
+        }
+    }
+
+    public synchronized void remove(String id) {
+        samples.remove(id);
+    }
+
+    /**
+     * The server time to draw things at: the latest snapshot's time, moved on by how long ago it arrived, less
+     * the delay.
+     *
+     * @param now the local time, in ms
+     */
+    public synchronized long renderTime(long now) {
+        long renderTime = serverTime + (now - receivedAt) - DELAY_MS;
+        lastRenderTime = Math.max(lastRenderTime, renderTime);
+        return lastRenderTime;
+    }
+
+    /**
+     * Where to draw an entity at the given server time, between its positions either side of it. Before its
+     * first position it is drawn there, and after its last it stays there.
+     *
+     * @return the x and y, or null if the entity isn't known
+     */
+    public synchronized int[] position(String id, long renderTime) {
+        ArrayDeque<Sample> history = samples.get(id);
+        if (history == null || history.isEmpty()) {
+            return null;
+        }
+
+        // Positions behind the one before renderTime won't be drawn again, so they are dropped as we go
+        while (true) {
+            Sample before = history.pollFirst();
+            Sample after = history.peekFirst();
+            if (after == null || after.time() > renderTime) {
+                history.addFirst(before);
+                if (after == null) {
+                    return new int[] { before.x(), before.y() };
+                }
+                double t = (double)(renderTime - before.time()) / (after.time() - before.time());
+                t = Math.max(0, Math.min(1, t));
+                return new int[] {
+                    (int)Math.round(before.x() + (after.x() - before.x()) * t),
+                    (int)Math.round(before.y() + (after.y() - before.y()) * t)
+                };
+            }
+        }
+    }
+
+}
@@ -11,6 +11,9 @@ import java.io.IOException;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import io.vertx.core.json.JsonObject;
 import minigames.client.*;
 import org.apache.logging.log4j.*;
 
@@ -22,14 +25,19 @@ public class Game extends JPanel implements KeyListener, ActionListener {
 
     private MarioClient marioClient;
     private Player player;
+    /** Where our player is, as predicted from our own input and corrected by the server */
+    private final PredictedPlayer predicted;
     private boolean onGround = true;
     private int score = 0;
     private int playerHealth = 0;
     private BufferedImage heartImage;
 
-    private List<Enemy> enemies = new ArrayList<>();
+    /** Enemies and herbs keyed by the stable id the server gives them, so deltas can update or remove them */
+    private Map<Integer, Enemy> enemies = new ConcurrentHashMap<>();
 
-    private List<Herb> herbs = new ArrayList<>();
+    private Map<Integer, Herb> herbs = new ConcurrentHashMap<>();
+    /** Moves enemies and herbs smoothly between the server's snapshots, rather than jumping once per snapshot */
+    private final EntityInterpolator interpolator = new EntityInterpolator();
     private BufferedImage backgroundImage; // Field to store the background image
 
     /**
@@ -40,6 +48,7 @@ public class Game extends JPanel implements KeyListener, ActionListener {
     public Game(MarioClient marioClient, Player player) {
         this.marioClient = marioClient;
         this.player = player;
+        this.predicted = new PredictedPlayer(player.getX(), player.getY(), 32, 64);
         setFocusable(true);
         requestFocusInWindow();
         setDoubleBuffered(true);
@@ -55,6 +64,7 @@ public class Game extends JPanel implements KeyListener, ActionListener {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        interpolate();
         drawBackground(g);
         drawPlayer(g);
         drawScore(g);
@@ -71,28 +81,61 @@ public class Game extends JPanel implements KeyListener, ActionListener {
         }
     }
 
-    public void updateEnemy(int index, int x, int y, boolean active) {
-        if (index >= 0 && index < enemies.size()) {
-            Enemy enemy = enemies.get(index);
-            enemy.updatePosition(x, y);
+    /**
+     * Records the server tick that the updates which follow are from.
+     *
+     * @param tick the server's tick number
+     * @param time when that tick ran on the server, in ms
+     */
+    public void serverTick(long tick, long time) {
+        interpolator.clock(tick, time, System.currentTimeMillis());
+    }
+
+    /** Where an enemy or herb is. It is drawn moving there from where it was, at the frame rate. */
+    public void updateEnemy(int id, int x, int y, boolean active) {
+        interpolator.update("enemy:" + id, x, y);
+        Enemy enemy = enemies.get(id);
+        if (enemy != null) {
             enemy.setActive(active);
         } else {
-            Enemy newEnemy = new Enemy(x, y, 50, 50, active);
-            enemies.add(newEnemy);
+            enemies.put(id, new Enemy(x, y, 50, 50, active));
         }
     }
 
-    public void updateHerb(int index, int x, int y, boolean active) {
-        // Ensure the herb list is properly initialized and contains the herb to update
-        if (index >= 0 && index < herbs.size()) {
-            Herb herb = herbs.get(index);
-            herb.updatePosition(x, y); // Method to update position
+    public void removeEnemy(int id) {
+        enemies.remove(id);
+        interpolator.remove("enemy:" + id);
+    }
+
+    public void updateHerb(int id, int x, int y, boolean active) {
+        interpolator.update("herb:" + id, x, y);
+        Herb herb = herbs.get(id);
+        if (herb != null) {
             herb.setActive(active); // Method to update active state
+        } else {
+            herbs.put(id, new Herb(x, y, 30, 30, active)); // Example dimensions: 30x30
+        }
+    }
+
+    public void removeHerb(int id) {
+        herbs.remove(id);
+        interpolator.remove("herb:" + id);
+    }
+
+    /** Moves the enemies and herbs to where they are at this frame */
+    private void interpolate() {
+        long renderTime = interpolator.renderTime(System.currentTimeMillis());
+        for (Map.Entry<Integer, Enemy> entry : enemies.entrySet()) {
+            int[] position = interpolator.position("enemy:" + entry.getKey(), renderTime);
+            if (position != null) {
+                entry.getValue().updatePosition(position[0], position[1]);
+            }
         }
-        else  {
-            // If the index is greater than the current size, add a new instance of Herb
-            Herb newHerb = new Herb(x, y, 30, 30, active); // Example dimensions: 30x30
-            herbs.add(newHerb);
+        for (Map.Entry<Integer, Herb> entry : herbs.entrySet()) {
+            int[] position = interpolator.position("herb:" + entry.getKey(), renderTime);
+            if (position != null) {
+                entry.getValue().updatePosition(position[0], position[1]);
+            }
         }
     }
 
@@ -103,18 +146,15 @@ public class Game extends JPanel implements KeyListener, ActionListener {
 
         switch (key) {
             case KeyEvent.VK_LEFT:
-                player.setDirection("left");
-                marioClient.sendCommand("move", "left", "left");
+                move("left");
                 break;
 
             case KeyEvent.VK_RIGHT:
-                player.setDirection("right");
-                marioClient.sendCommand("move", "right", "right");
+                move("right");
                 break;
 
             case KeyEvent.VK_UP:
-                player.setDirection("up");
-                marioClient.sendCommand("move", "up", "up");
+                move("up");
                 break;
 
             default:
@@ -128,11 +168,9 @@ public class Game extends JPanel implements KeyListener, ActionListener {
 
         switch (key) {
             case KeyEvent.VK_LEFT:
-                player.setDirection("idleL");
-                marioClient.sendCommand("move", "idleL", "idleL");
+                move("idleL");
             case KeyEvent.VK_RIGHT:
-                player.setDirection("idleR");
-                marioClient.sendCommand("move", "idleR", "idleR");
+                move("idleR");
                 break;
 
             default:
@@ -140,6 +178,30 @@ public class Game extends JPanel implements KeyListener, ActionListener {
         }
     }
 
+    /**
+     * Moves our player straight away, and sends the move to the server to be applied there too.
+     */
+    private void move(String direction) {
+        long seq = predicted.input(direction);
+        marioClient.sendInput("move", direction, seq);
+        showPredicted();
+    }
+
+    /**
+     * Takes the server's state for our player, keeping any moves it hasn't applied yet.
+     *
+     * @param state the player's updatePosition
+     */
+    public void reconcilePlayer(JsonObject state) {
+        predicted.reconcile(state);
+        showPredicted();
+    }
+
+    private void showPredicted() {
+        player.updatePosition(predicted.getX(), predicted.getY(), predicted.isOnGround(), predicted.getDirection());
+        repaint();
+    }
+
     @Override
     public void keyTyped(KeyEvent e) {
         // Not used
@@ -194,13 +256,13 @@ public class Game extends JPanel implements KeyListener, ActionListener {
     }
 
     private void drawEnemies(Graphics g) {
-        for (Enemy enemy : enemies) {
+        for (Enemy enemy : enemies.values()) {
             enemy.draw(g);
         }
     }
     private void drawHerbs(Graphics g)
     {
-        for(Herb herb : herbs)
+        for(Herb herb : herbs.values())
         {
             herb.draw(g);
         }
@@ -232,7 +294,7 @@ public class Game extends JPanel implements KeyListener, ActionListener {
     }
 
     public List<Enemy> getEnemies() {
-        return enemies;
+        return new ArrayList<>(enemies.values());
     }
 
     public Player getPlayer() {
@@ -5,12 +5,15 @@ import io.vertx.core.json.JsonObject;
 import minigames.client.*;
 import minigames.commands.CommandPackage;
 import minigames.rendering.GameMetadata;
+import minigames.rendering.SnapshotDecoder;
+import minigames.rendering.SnapshotDelta;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.swing.*;
 import java.awt.Dimension;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * MarioClient represents the client-side logic for the Mario game.
@@ -27,6 +30,14 @@ public class MarioClient implements GameClient, Tickable {
     Animator animator;
     private boolean end = false;
 
+    /** Rebuilds the scene from the deltas the server sends; its latest seq is acknowledged with each UPDATE */
+    private SnapshotDecoder snapshots = new SnapshotDecoder();
+    /** The last snapshot we told the server we have */
+    private long ackSent = SnapshotDelta.FULL;
+
+    /** Input since the last frame, sent up the WebSocket together once per tick */
+    private final List<JsonObject> pendingInputs = new ArrayList<>();
+
     /**
      * Constructs a new MarioClient instance and initializes the Game (UI) component.
      */
@@ -42,11 +53,40 @@ public class MarioClient implements GameClient, Tickable {
 
     @Override
     public void tick(Animator al, long now, long delta) {
-        this.sendCommand("UPDATE", null, null); // send update request every tick - is this too process-intensive?
-        gameInstance.repaint();
+        // The server pushes us state at its own tick rate, so all we send is this frame's input
+        flushInputs();
+        if (gameInstance != null) gameInstance.repaint();
         if (this.ticking) al.requestTick(this);
     }
 
+    /**
+     * Sends everything input since the last frame as one message, along with an acknowledgement of the latest
+     * snapshot we've applied if that has moved on. Sends nothing if there's nothing new.
+     */
+    private void flushInputs() {
+        ArrayList<JsonObject> commands;
+        synchronized (pendingInputs) {
+            commands = new ArrayList<>(pendingInputs);
+            pendingInputs.clear();
+        }
+
+        long seq = snapshots.latestSeq();
+        if (seq != ackSent) {
+            commands.add(new JsonObject().put("type", "ack").put("ack", seq));
+            ackSent = seq;
+        }
+
+        if (!commands.isEmpty() && mnClient != null && gm != null) {
+            mnClient.sendOverWebSocket(new CommandPackage(gm.gameServer(), gm.name(), player, commands));
+        }
+    }
+
+    /** Mario is played over a WebSocket; the server is polled for this player's view of the game */
+    @Override
+    public List<JsonObject> subscriptionCommands() {
+        return List.of(new JsonObject().put("type", "UPDATE"));
+    }
+
     /**
      * Loads the game into the client by connecting to the server and displaying the game UI.
      *
@@ -61,6 +101,11 @@ public class MarioClient implements GameClient, Tickable {
         this.player = playerName;
         this.ticking = true;
         this.last = System.nanoTime();
+        this.snapshots = new SnapshotDecoder();
+        this.ackSent = SnapshotDelta.FULL;
+        synchronized (pendingInputs) {
+            pendingInputs.clear();
+        }
 
         System.out.println("Loaded game client for player: " + playerName);
 
@@ -85,7 +130,7 @@ public class MarioClient implements GameClient, Tickable {
 
 
     /**
-     * Sends a command to the server, such as movement or jump actions.
+     * Queues a command for the server, such as movement or jump actions. It goes up with the rest of the frame's input.
      *
      * @param commandType The type of command (e.g., "move", "jump").
      * @param direction   The direction for movement ("left" or "right").
@@ -104,9 +149,28 @@ public class MarioClient implements GameClient, Tickable {
             json.put("strength", strength);
         }
 
-        // Send the command to the server
-        //System.out.println("Sending update command to server: " + json.encodePrettily());
-        mnClient.send(new CommandPackage(gm.gameServer(), gm.name(), player, Collections.singletonList(json)));
+        synchronized (pendingInputs) {
+            pendingInputs.add(json);
+        }
+    }
+
+    /**
+     * Queues an input that has already been applied locally. The server tells us the sequence number of the last
+     * input it has applied, so we know which ones to replay on top of its state.
+     *
+     * @param commandType The type of command (e.g., "move").
+     * @param direction   The direction for movement.
+     * @param seq         The input's sequence number.
+     */
+    public void sendInput(String commandType, String direction, long seq) {
+        JsonObject json = new JsonObject()
+                .put("type", commandType)
+                .put("direction", direction)
+                .put("seq", seq);
+
+        synchronized (pendingInputs) {
+            pendingInputs.add(json);
+        }
     }
 
     //  Add a new sendPositionUpdate method for updating the player's x and y coordinates:
@@ -118,9 +182,9 @@ public class MarioClient implements GameClient, Tickable {
         json.put("y", y);
         json.put("onGround", onGround);
 
-        // Send the position update to the server
-        //System.out.println("Sending position update to server: " + json.encodePrettily());
-        mnClient.send(new CommandPackage(gm.gameServer(), gm.name(), player, Collections.singletonList(json)));
+        synchronized (pendingInputs) {
+            pendingInputs.add(json);
+        }
     }
 
     /**
@@ -133,12 +197,27 @@ public class MarioClient implements GameClient, Tickable {
     public void execute(GameMetadata game, JsonObject command) {
         String cmd = command.getString("command");
 
-        if ("updatePosition".equals(cmd)) {
+        if (SnapshotDelta.COMMAND.equals(cmd)) {
+            SnapshotDelta.tryParsing(command).flatMap(snapshots::apply).ifPresent((changes) -> {
+                for (String id : changes.removed()) {
+                    removeEntity(id);
+                }
+                for (JsonObject entity : changes.updated()) {
+                    if (gameInstance == null) return;
+                    execute(game, entity);
+                }
+            });
+            return;
+        }
+        else if ("updatePosition".equals(cmd)) {
+            String id = command.getString("id");
+            if (id != null && !id.equals("player:" + player)) {
+                // Another player. Only our own is drawn, and their state mustn't be mixed into our predictions.
+                return;
+            }
             int x = command.getInteger("x");
             int y = command.getInteger("y");
-            boolean onGround = command.getBoolean("onGround", false);
             int health = command.getInteger("health" );
-            String direction = command.getString("direction");
             int score = command.getInteger("score");
             gameInstance.setScore(score);
             // Check if the Player object exists in Game, otherwise instantiate it
@@ -148,8 +227,8 @@ public class MarioClient implements GameClient, Tickable {
                 gameInstance.setPlayer(new Player(x, y, 32, 64));  // Example player dimensions, adjust as needed
             }
 
-            // Update the player's position in Game
-            gameInstance.updatePlayerPosition(x, y, onGround , direction);
+            // Correct our prediction of where the player is with the server's state
+            gameInstance.reconcilePlayer(command);
             if(health <=3) {
                 gameInstance.updatePlayerHealth(health);
             }
@@ -163,6 +242,11 @@ public class MarioClient implements GameClient, Tickable {
             }
 
 
+        }
+        else if ("tick".equals(cmd)) {
+            // Comes before the entities in the same snapshot, which are as of this tick
+            gameInstance.serverTick(command.getLong("tick"), command.getLong("time"));
+            return;
         }
         else if ("updateEnemy".equals(cmd)) {
             int index = command.getInteger("index");
@@ -170,8 +254,9 @@ public class MarioClient implements GameClient, Tickable {
             int y = command.getInteger("y");
             boolean active = command.getBoolean("active");
 
-            // Update the enemy's position and state
+            // Update the enemy's position and state. It is drawn there on the next frame.
             gameInstance.updateEnemy(index, x, y, active);
+            return;
         }
         else if ("updateHerb".equals(cmd)) {
             int index = command.getInteger("index");
@@ -181,6 +266,7 @@ public class MarioClient implements GameClient, Tickable {
 
             // Update the herb's position and state
             gameInstance.updateHerb(index, x, y, active);
+            return;
         }
         else if ("waveUpdate".equals(cmd))
         {
@@ -200,6 +286,33 @@ public class MarioClient implements GameClient, Tickable {
     }
 
 
+    /**
+     * Removes an entity the server has told us is gone. Ids are "kind:rest", e.g. "enemy:12" or "player:alice";
+     * only enemies and herbs are numbered, and anything else is ignored.
+     */
+    private void removeEntity(String id) {
+        if (gameInstance == null) return;
+        int colon = id.indexOf(':');
+        if (colon < 0) {
+            return;
+        }
+        String kind = id.substring(0, colon);
+        if (!"enemy".equals(kind) && !"herb".equals(kind)) {
+            return;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(id.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if ("enemy".equals(kind)) {
+            gameInstance.removeEnemy(number);
+        } else {
+            gameInstance.removeHerb(number);
+        }
+    }
+
     // FIXME:
     /**
      * Closes the game for the current player.
@@ -215,6 +328,11 @@ public class MarioClient implements GameClient, Tickable {
 
 
 
+        // Stop the server pushing frames for a game that is over
+        if (mnClient != null) {
+            mnClient.closeWebSocket();
+        }
+
         // Set the game instance and player to null to release references
         gameInstance = null;
         player = null;
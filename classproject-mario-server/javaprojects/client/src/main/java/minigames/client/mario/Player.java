@@ -143,7 +143,6 @@ public class Player {
         this.y = y;
         this.onGround = onGround;  // Update the player's ground status
         this.direction = direction;  // Update the player's direction
-        System.out.println("Client: Player updated to position: x=" + x + ", y=" + y + ", direction=" + direction);
     }
 
     // Getter and setter methods for position and state
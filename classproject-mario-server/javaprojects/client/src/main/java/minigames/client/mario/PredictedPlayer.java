@@ -0,0 +1,81 @@
+package minigames.client.mario;
+
+import java.util.ArrayDeque;
+
+import io.vertx.core.json.JsonObject;
+import minigames.mario.PlayerPhysics;
+
+/**
+ * Where this client's own player is, moved as soon as a key is pressed rather than a round trip later.
+ *
+ * Each input is numbered and applied here with the same PlayerPhysics the server uses, then sent to the server.
+ * The server stays in charge: when its state for the player arrives, saying which input it got up to, we take its
+ * position and apply again the inputs it hasn't seen yet. If nothing unexpected happened, that puts the player
+ * back where they already were.
+ *
+ * Keys are pressed on the Swing thread and the server's state arrives on another, so everything is synchronized.
+ */
+public class PredictedPlayer {
+
+    private record Input(long seq, String direction) {}
+
+    private final PlayerPhysics physics;
+    /** Inputs sent but not yet applied by the server, oldest first */
+    private final ArrayDeque<Input> unacknowledged = new ArrayDeque<>();
+    private long lastSeq = 0;
+
+    public PredictedPlayer(int x, int y, int width, int height) {
+        this.physics = new PlayerPhysics(x, y, width, height);
+    }
+
+    /**
+     * Applies a move straight away.
+     *
+     * @return the sequence number to send it to the server with
+     */
+    public synchronized long input(String direction) {
+        long seq = ++lastSeq;
+        physics.move(direction);
+        unacknowledged.addLast(new Input(seq, direction));
+        return seq;
+    }
+
+    /**
+     * Takes the server's state for the player, as sent in an updatePosition, and replays on top of it the inputs
+     * the server hadn't applied yet.
+     */
+    public synchronized void reconcile(JsonObject state) {
+        long applied = state.getLong("lastInput", 0L);
+        while (!unacknowledged.isEmpty() && unacknowledged.peekFirst().seq() <= applied) {
+            unacknowledged.removeFirst();
+        }
+
+        physics.setState(state.getInteger("x"), state.getInteger("y"), state.getDouble("dy", 0.0),
+                state.getBoolean("jumping", false), state.getBoolean("onGround", true),
+                state.getString("direction", physics.getDirection()));
+        for (Input input : unacknowledged) {
+            physics.move(input.direction());
+        }
+    }
+
+    /** How many inputs the server hasn't applied yet */
+    public synchronized int pending() {
+        return unacknowledged.size();
+    }
+
+    public synchronized int getX() {
+        return physics.getX();
+    }
+
+    public synchronized int getY() {
+        return physics.getY();
+    }
+
+    public synchronized boolean isOnGround() {
+        return physics.isOnGround();
+    }
+
+    public synchronized String getDirection() {
+        return physics.getDirection();
+    }
+}
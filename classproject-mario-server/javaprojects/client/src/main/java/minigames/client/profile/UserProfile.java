@@ -34,35 +34,15 @@ public class UserProfile {
 
 
     public Future<JsonObject> fetchUserProfile(MinigameNetworkClient networkClient) {
-        // TO DO: make this return networkClient.getCurrentUserProfile(); when auth is fixed.
-
-        // getUserPrincipal() - requires logged in
-        // getUserDetails(String username) - requires logged in
-        // getCurrentUserProfile() - requires logged in
-        // getUserProfile(String username) - login NOT REQUIRED
-
-        
-        // JSON objects to be stitched together
-        Future<JsonObject> userDetailsFuture = networkClient.getUserDetails("jane_smith");
-        Future<JsonObject> userProfileFuture = networkClient.getUserProfile("jane_smith");
-
-        // Stitch the JSON objects together
-        userData = userDetailsFuture.compose(userDetails -> {
-            // Merge the user details and user profile JSON objects
-            userDetails.mergeIn(userProfileFuture.result());
-            // Return the merged JSON object
-            //System.out.println("User Details JSON inside fetchUserProfile(): " + userDetails.encodePrettily());
-            logger.info("User Details JSON inside fetchUserProfile(): " + userDetails.encodePrettily());
-            //return Future.succeededFuture(userDetails);
-            return networkClient.getUserProfile("jane_smith");
-        });
-
-        //return networkClient.getCurrentUserProfile(); // This returns profile of User when looged in
-        return networkClient.getUserProfile("john_doe");
+        // TO DO: make this fetch the logged in user's summary when auth is fixed.
+
+        // getUserSummary(String username) - login NOT REQUIRED. One request for the user's details, profile,
+        // achievements and best scores, rather than one request for each.
+        userData = networkClient.getUserSummary("john_doe").map(UserProfile::flatten);
+        return userData;
         /*
          * {
       "username": "john_doe",
-      "password": "password123",
       "email": "john@example.com",
       "profile": {
         "first_name": "John",
@@ -71,14 +51,30 @@ public class UserProfile {
         "bio": "Gamer extraordinaire",
         "favorite_game": "Chess",
         "total_play_time_minutes": "1200"
-      }
+      },
+      "totalPlayTimeMinutes": 1200,
+      "achievements": [ ... ],
+      "bestScores": [ ... ]
          */
 
     }
 
     public Future<JsonObject> fetchOtherUserProfile(MinigameNetworkClient networkClient, String name) {
-        // TO DO: make this return networkClient.getCurrentUserProfile(); when auth is fixed.
-        return networkClient.getUserProfile(name);
+        return networkClient.getUserSummary(name).map(UserProfile::flatten);
+    }
+
+    /**
+     * Lifts the profile fields in a summary up beside the user's details, which is the shape the controller and
+     * view read. The achievements and best scores come along as they are.
+     */
+    private static JsonObject flatten(JsonObject summary) {
+        JsonObject flat = summary.copy();
+        JsonObject profile = flat.getJsonObject("profile");
+        if (profile != null) {
+            flat.remove("profile");
+            flat.mergeIn(profile);
+        }
+        return flat;
     }
 
 
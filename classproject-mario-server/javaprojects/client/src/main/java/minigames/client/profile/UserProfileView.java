@@ -7,6 +7,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 import java.awt.*;
@@ -26,6 +27,7 @@ public class UserProfileView extends JPanel{
     private String dobData;
     private String aboutMeData;
     private String favoriteGameData;
+    private String achievementsData;
 
     public UserProfileView(JsonObject profile) { 
 
@@ -39,6 +41,7 @@ public class UserProfileView extends JPanel{
         dobData = profile.getString("date_of_birth");
         aboutMeData = profile.getString("bio");
         favoriteGameData = profile.getString("favorite_game");
+        achievementsData = achievementNames(profile.getJsonArray("achievements"));
 
         // Set the layout of the panel
         setLayout(new GridBagLayout());
@@ -245,7 +248,7 @@ public class UserProfileView extends JPanel{
         gbc.anchor = GridBagConstraints.WEST;
         gbc.insets = new Insets(0,10,10,10); // Top, Left, Bottom, Right padding
         // To Do:  change this from a text field to maybe seperate tiles for achievements
-        JTextField achievmentField = new JTextField("Achievements", 50);
+        JTextField achievmentField = new JTextField(achievementsData, 50);
         achievmentField.setEditable(false);
         //JLabel achievmentData = new JLabel("Achievements");
         achievmentField.setBackground(new Color(224, 224, 224));
@@ -254,5 +257,19 @@ public class UserProfileView extends JPanel{
 
     }
 
+    // The names of the achievements in a user summary, or a placeholder if there are none
+    private static String achievementNames(JsonArray achievements) {
+        if (achievements == null || achievements.isEmpty()) {
+            return "No achievements yet";
+        }
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < achievements.size(); i++) {
+            if (i > 0) {
+                names.append(", ");
+            }
+            names.append(achievements.getJsonObject(i).getString("name"));
+        }
+        return names.toString();
+    }
+
 }
-         
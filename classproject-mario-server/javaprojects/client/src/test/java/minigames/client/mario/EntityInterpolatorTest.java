@@ -0,0 +1,88 @@
+package minigames.client.mario;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EntityInterpolatorTest {
+    private EntityInterpolator interpolator;
+
+    @BeforeEach
+    public void setUp() {
+        interpolator = new EntityInterpolator();
+    }
+
+    /** A snapshot from the server at the given tick, 50ms apart, with one enemy in it */
+    private void snapshot(long tick, int x, int y) {
+        interpolator.clock(tick, tick * 50, tick * 50);
+        interpolator.update("enemy:1", x, y);
+    }
+
+    @Test
+    public void testDrawnBetweenSnapshots() {
+        snapshot(1, 100, 400);
+        snapshot(2, 110, 400);
+
+        assertArrayEquals(new int[] { 100, 400 }, interpolator.position("enemy:1", 50));
+        assertArrayEquals(new int[] { 105, 400 }, interpolator.position("enemy:1", 75));
+        assertArrayEquals(new int[] { 110, 400 }, interpolator.position("enemy:1", 100));
+    }
+
+    @Test
+    public void testStaysAtLastPosition() {
+        snapshot(1, 100, 400);
+        snapshot(2, 110, 400);
+
+        assertArrayEquals(new int[] { 110, 400 }, interpolator.position("enemy:1", 500));
+    }
+
+    @Test
+    public void testUnknownEntity() {
+        snapshot(1, 100, 400);
+        assertNull(interpolator.position("enemy:2", 50));
+
+        interpolator.remove("enemy:1");
+        assertNull(interpolator.position("enemy:1", 50));
+    }
+
+    @Test
+    public void testTeleportJumps() {
+        snapshot(1, 0, 400);
+        snapshot(2, 1200, 400);
+
+        // Coming back in on the right, rather than sliding across the screen
+        assertArrayEquals(new int[] { 1200, 400 }, interpolator.position("enemy:1", 75));
+    }
+
+    @Test
+    public void testStillUntilItMoves() {
+        snapshot(1, 100, 400);
+        // The enemy didn't change for a few ticks, so wasn't in those deltas
+        interpolator.clock(2, 100, 100);
+        interpolator.clock(3, 150, 150);
+        interpolator.clock(4, 200, 200);
+        interpolator.update("enemy:1", 110, 400);
+
+        assertArrayEquals(new int[] { 100, 400 }, interpolator.position("enemy:1", 125));
+        assertArrayEquals(new int[] { 105, 400 }, interpolator.position("enemy:1", 175));
+    }
+
+    @Test
+    public void testRenderTimeIsBehindTheServer() {
+        interpolator.clock(10, 500, 1000);
+        assertEquals(500 - EntityInterpolator.DELAY_MS, interpolator.renderTime(1000));
+        assertEquals(520 - EntityInterpolator.DELAY_MS, interpolator.renderTime(1020));
+    }
+
+    @Test
+    public void testRenderTimeNeverGoesBack() {
+        interpolator.clock(10, 500, 1000);
+        long drawn = interpolator.renderTime(1040);
+
+        // The next snapshot arrives late, which would put the render time back
+        interpolator.clock(11, 550, 1100);
+        assertEquals(drawn, interpolator.renderTime(1060));
+    }
+}
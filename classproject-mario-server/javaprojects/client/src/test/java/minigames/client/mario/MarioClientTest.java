@@ -42,5 +42,6 @@ public class MarioClientTest {
     public void testCloseGame() {
         marioClient.closeGame();
         // Verify that resources are cleaned up correctly
+        Mockito.verify(mnClient).closeWebSocket();
     }
 }
\ No newline at end of file
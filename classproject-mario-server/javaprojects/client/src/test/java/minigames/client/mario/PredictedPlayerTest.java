@@ -0,0 +1,66 @@
+package minigames.client.mario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.JsonObject;
+import minigames.mario.PlayerPhysics;
+
+public class PredictedPlayerTest {
+    private PredictedPlayer player;
+
+    @BeforeEach
+    public void setUp() {
+        player = new PredictedPlayer(50, PlayerPhysics.GROUND_LEVEL, 32, 64);
+    }
+
+    /** The server's state for the player, having applied inputs up to lastInput */
+    private static JsonObject serverState(int x, int y, long lastInput) {
+        return new JsonObject()
+                .put("command", "updatePosition")
+                .put("x", x)
+                .put("y", y)
+                .put("dy", 0.0)
+                .put("jumping", false)
+                .put("onGround", true)
+                .put("direction", "right")
+                .put("lastInput", lastInput);
+    }
+
+    @Test
+    public void testInputMovesStraightAway() {
+        long seq = player.input("right");
+        assertEquals(1, seq);
+        assertEquals(55, player.getX());
+        assertEquals(1, player.pending());
+    }
+
+    @Test
+    public void testReconcileReplaysUnappliedInputs() {
+        player.input("right");
+        player.input("right");
+        player.input("right");
+        assertEquals(65, player.getX());
+
+        // The server has applied the first two, so the third is replayed on top of its position
+        player.reconcile(serverState(60, PlayerPhysics.GROUND_LEVEL, 2));
+        assertEquals(65, player.getX());
+        assertEquals(1, player.pending());
+
+        player.reconcile(serverState(65, PlayerPhysics.GROUND_LEVEL, 3));
+        assertEquals(65, player.getX());
+        assertEquals(0, player.pending());
+    }
+
+    @Test
+    public void testServerCorrectionWins() {
+        player.input("right");
+        // Something we didn't predict moved the player, e.g. a bounce off an enemy
+        player.reconcile(serverState(200, 300, 1).put("jumping", true).put("onGround", false));
+        assertEquals(200, player.getX());
+        assertEquals(300, player.getY());
+        assertFalse(player.isOnGround());
+    }
+}
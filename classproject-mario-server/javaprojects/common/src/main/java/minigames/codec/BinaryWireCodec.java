@@ -0,0 +1,409 @@
+package minigames.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.GameMetadata;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * A compact binary encoding of packages, without any reflection.
+ *
+ * Packages are written field by field. The JsonObjects inside them are written schema-lessly as tagged values,
+ * so games can keep putting whatever they like in their commands. Integers (and lengths) are zigzag varints,
+ * so small numbers like coordinates take one or two bytes.
+ *
+ * Strings go through a string table. Each string is written as a varint reference: 0 means a new string follows
+ * (and is added to the table), anything else refers to a string already in the table. The table starts with the
+ * keys and command names that turn up in nearly every frame, and grows with each new string seen in the
+ * message - so a key like "x" is one byte, and a game's own repeated keys only cost their length once per message.
+ *
+ * Values that are not JSON primitives, objects or arrays fall back to being embedded as JSON text.
+ *
+ * Messages come from clients, so decoding trusts nothing in them: every count and length is checked against
+ * the bytes left (each element takes at least one), and anything that doesn't add up is a WireFormatException.
+ * So is a null where there can't be one: an object key, or a CommandPackage's game server, game or player.
+ */
+public class BinaryWireCodec implements WireCodec {
+
+    public static final String CONTENT_TYPE = "application/x-minigames-binary";
+
+    /** First byte of every message, so a JSON message sent by mistake fails fast */
+    private static final byte MAGIC = (byte)0xB1;
+
+    private static final byte RENDERING_PACKAGE = 1;
+    private static final byte COMMAND_PACKAGE = 2;
+
+    // Value tags
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte OBJECT = 6;
+    private static final byte ARRAY = 7;
+    private static final byte JSON_TEXT = 8;
+
+    /**
+     * Strings both ends know before a message starts. Only ever append to this - reordering it changes the wire format.
+     */
+    static final List<String> PRELOADED = List.of(
+        "command", "nativeCommand", "type", "id", "index", "x", "y", "active",
+        "direction", "onGround", "health", "score", "wave", "player", "message",
+        "seq", "base", "updated", "removed", "ack",
+        "updatePosition", "updateEnemy", "updateHerb", "waveUpdate", "snapshotDelta",
+        "getState", "getPlayerName", "getTimeRemain", "move", "UPDATE", "left", "right"
+    );
+
+    /** How deeply objects and arrays may nest in a message being decoded */
+    static final int MAX_DEPTH = 64;
+
+    private static final Map<String, Integer> PRELOADED_INDEX = new HashMap<>();
+    static {
+        for (int i = 0; i < PRELOADED.size(); i++) {
+            PRELOADED_INDEX.put(PRELOADED.get(i), i);
+        }
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Buffer encode(RenderingPackage rp) {
+        Writer w = new Writer(RENDERING_PACKAGE);
+        GameMetadata gm = rp.metadata();
+        w.string(gm.gameServer());
+        w.string(gm.name());
+        String[] players = gm.players() == null ? new String[0] : gm.players();
+        w.varint(players.length);
+        for (String p : players) {
+            w.string(p);
+        }
+        w.buffer.appendByte(gm.joinable() ? TRUE : FALSE);
+        w.objects(rp.renderingCommands());
+        return w.buffer;
+    }
+
+    @Override
+    public RenderingPackage decodeRenderingPackage(Buffer buffer) {
+        Reader r = new Reader(buffer, RENDERING_PACKAGE);
+        String gameServer = r.string();
+        String name = r.string();
+        String[] players = new String[r.count(1)];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = r.string();
+        }
+        boolean joinable = r.nextByte() == TRUE;
+        return new RenderingPackage(new GameMetadata(gameServer, name, players, joinable), r.objects());
+    }
+
+    @Override
+    public Buffer encode(CommandPackage cp) {
+        Writer w = new Writer(COMMAND_PACKAGE);
+        w.string(cp.gameServer());
+        w.string(cp.gameId());
+        w.string(cp.player());
+        w.objects(cp.commands());
+        return w.buffer;
+    }
+
+    @Override
+    public CommandPackage decodeCommandPackage(Buffer buffer) {
+        Reader r = new Reader(buffer, COMMAND_PACKAGE);
+        return new CommandPackage(r.requiredString("game server"), r.requiredString("game"),
+                r.requiredString("player"), r.objects());
+    }
+
+    /** Writes one message, keeping the strings it has seen so far */
+    private static class Writer {
+        final Buffer buffer = Buffer.buffer(256);
+        final HashMap<String, Integer> table = new HashMap<>();
+        int nextRef = PRELOADED.size() + 1;
+
+        Writer(byte kind) {
+            buffer.appendByte(MAGIC).appendByte(kind);
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                buffer.appendByte((byte)((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.appendByte((byte)v);
+        }
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        /** Writes a nullable string as a table reference, or a new entry if it hasn't been seen */
+        void string(String s) {
+            if (s == null) {
+                varint(0);
+                varint(0);
+                return;
+            }
+            Integer pre = PRELOADED_INDEX.get(s);
+            if (pre != null) {
+                varint(pre + 1);
+                return;
+            }
+            Integer ref = table.get(s);
+            if (ref != null) {
+                varint(ref);
+                return;
+            }
+            table.put(s, nextRef++);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(0);
+            varint(bytes.length + 1);
+            buffer.appendBytes(bytes);
+        }
+
+        void objects(List<JsonObject> objects) {
+            varint(objects.size());
+            for (JsonObject o : objects) {
+                object(o.getMap());
+            }
+        }
+
+        void object(Map<String, Object> map) {
+            varint(map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                string(entry.getKey());
+                value(entry.getValue());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void value(Object v) {
+            if (v == null) {
+                buffer.appendByte(NULL);
+            } else if (v instanceof Boolean b) {
+                buffer.appendByte(b ? TRUE : FALSE);
+            } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+                buffer.appendByte(INT);
+                zigzag(((Number)v).longValue());
+            } else if (v instanceof Double || v instanceof Float) {
+                buffer.appendByte(DOUBLE);
+                buffer.appendDouble(((Number)v).doubleValue());
+            } else if (v instanceof String s) {
+                buffer.appendByte(STRING);
+                string(s);
+            } else if (v instanceof JsonObject o) {
+                buffer.appendByte(OBJECT);
+                object(o.getMap());
+            } else if (v instanceof Map<?, ?> m) {
+                buffer.appendByte(OBJECT);
+                object((Map<String, Object>)m);
+            } else if (v instanceof JsonArray a) {
+                array(a.getList());
+            } else if (v instanceof List<?> l) {
+                array(l);
+            } else {
+                // Anything else (enums, binary, big numbers...) goes however Jackson would put it in JSON
+                buffer.appendByte(JSON_TEXT);
+                byte[] bytes = Json.encode(v).getBytes(StandardCharsets.UTF_8);
+                varint(bytes.length);
+                buffer.appendBytes(bytes);
+            }
+        }
+
+        void array(List<?> list) {
+            buffer.appendByte(ARRAY);
+            varint(list.size());
+            for (Object o : list) {
+                value(o);
+            }
+        }
+    }
+
+    /** Reads one message, rebuilding its string table as it goes */
+    private static class Reader {
+        final Buffer buffer;
+        final ArrayList<String> table = new ArrayList<>(PRELOADED);
+        int pos = 0;
+
+        /** How deeply nested the object or array being read is */
+        int depth = 0;
+
+        Reader(Buffer buffer, byte kind) {
+            this.buffer = buffer;
+            if (buffer == null || buffer.length() < 2 || buffer.getByte(0) != MAGIC || buffer.getByte(1) != kind) {
+                throw new WireFormatException("Not a binary-encoded " + (kind == RENDERING_PACKAGE ? "RenderingPackage" : "CommandPackage"));
+            }
+            pos = 2;
+        }
+
+        int remaining() {
+            return buffer.length() - pos;
+        }
+
+        byte nextByte() {
+            if (pos >= buffer.length()) {
+                throw new WireFormatException("Message ends early, at byte " + pos);
+            }
+            return buffer.getByte(pos++);
+        }
+
+        long varint() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new WireFormatException("Varint too long at byte " + pos);
+                }
+                b = nextByte();
+                result |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        /**
+         * Reads a count of things that each take at least minBytes, failing if there aren't enough bytes left
+         * for that many - so a message can't make us allocate more than it could possibly fill.
+         */
+        int count(int minBytes) {
+            long count = varint();
+            if (count < 0 || count > remaining() / minBytes) {
+                throw new WireFormatException("Count " + count + " at byte " + pos + " is more than the "
+                    + remaining() + " bytes left could hold");
+            }
+            return (int)count;
+        }
+
+        /** Reads a length in bytes, failing if it runs past the end of the message */
+        int length(long length) {
+            if (length < 0 || length > remaining()) {
+                throw new WireFormatException("Length " + length + " at byte " + pos + " runs past the end of the message");
+            }
+            return (int)length;
+        }
+
+        void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw new WireFormatException("Nested more than " + MAX_DEPTH + " deep at byte " + pos);
+            }
+        }
+
+        long zigzag() {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String string() {
+            long ref = varint();
+            if (ref != 0) {
+                if (ref < 0 || ref > table.size()) {
+                    throw new WireFormatException("Unknown string reference " + ref + " at byte " + pos);
+                }
+                return table.get((int)ref - 1);
+            }
+            long stored = varint();
+            if (stored == 0) {
+                return null;
+            }
+            int length = length(stored - 1);
+            String s = buffer.getString(pos, pos + length, "UTF-8");
+            pos += length;
+            table.add(s);
+            return s;
+        }
+
+        /** A string that mustn't be null, e.g. an object key */
+        String requiredString(String what) {
+            int at = pos;
+            String s = string();
+            if (s == null) {
+                throw new WireFormatException("Missing " + what + " at byte " + at);
+            }
+            return s;
+        }
+
+        List<JsonObject> objects() {
+            int count = count(1);
+            ArrayList<JsonObject> objects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                objects.add(object());
+            }
+            return objects;
+        }
+
+        JsonObject object() {
+            enter();
+            // Each entry is at least a key reference and a value tag
+            int size = count(2);
+            JsonObject json = new JsonObject();
+            for (int i = 0; i < size; i++) {
+                String key = requiredString("key");
+                json.put(key, value());
+            }
+            depth--;
+            return json;
+        }
+
+        Object value() {
+            byte tag = nextByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return false;
+                case TRUE:
+                    return true;
+                case INT: {
+                    // Small numbers come back as Integers, as they would from JSON
+                    long v = zigzag();
+                    return (v == (int)v) ? (Object)(int)v : (Object)v;
+                }
+                case DOUBLE: {
+                    length(8);
+                    double d = buffer.getDouble(pos);
+                    pos += 8;
+                    return d;
+                }
+                case STRING:
+                    return string();
+                case OBJECT:
+                    return object();
+                case ARRAY: {
+                    enter();
+                    int size = count(1);
+                    JsonArray array = new JsonArray(new ArrayList<>(size));
+                    for (int i = 0; i < size; i++) {
+                        array.add(value());
+                    }
+                    depth--;
+                    return array;
+                }
+                case JSON_TEXT: {
+                    int length = length(varint());
+                    String text = buffer.getString(pos, pos + length, "UTF-8");
+                    pos += length;
+                    try {
+                        return Json.decodeValue(text);
+                    } catch (DecodeException ex) {
+                        throw new WireFormatException("Bad JSON text at byte " + (pos - length), ex);
+                    }
+                }
+                default:
+                    throw new WireFormatException("Unknown value tag " + tag + " at byte " + (pos - 1));
+            }
+        }
+    }
+
+}
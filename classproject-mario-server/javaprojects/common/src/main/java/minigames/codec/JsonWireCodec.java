@@ -0,0 +1,58 @@
+package minigames.codec;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * The JSON encoding packages have always been sent in.
+ */
+public class JsonWireCodec implements WireCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Buffer encode(RenderingPackage rp) {
+        return JsonObject.mapFrom(rp).toBuffer();
+    }
+
+    @Override
+    public RenderingPackage decodeRenderingPackage(Buffer buffer) {
+        try {
+            return RenderingPackage.fromJson(new JsonObject(buffer));
+        } catch (DecodeException | ClassCastException | IllegalArgumentException | NullPointerException ex) {
+            throw new WireFormatException("Not a JSON RenderingPackage", ex);
+        }
+    }
+
+    @Override
+    public Buffer encode(CommandPackage cp) {
+        return JsonObject.mapFrom(cp).toBuffer();
+    }
+
+    /**
+     * Fails with a WireFormatException if the body isn't JSON, isn't shaped like a CommandPackage, or is missing
+     * its game server, game or player
+     */
+    @Override
+    public CommandPackage decodeCommandPackage(Buffer buffer) {
+        CommandPackage cp;
+        try {
+            cp = CommandPackage.fromJson(new JsonObject(buffer));
+        } catch (DecodeException | ClassCastException | NullPointerException ex) {
+            throw new WireFormatException("Not a JSON CommandPackage", ex);
+        }
+        if (cp.gameServer() == null || cp.gameId() == null || cp.player() == null) {
+            throw new WireFormatException("A JSON CommandPackage is missing its game server, game or player");
+        }
+        return cp;
+    }
+
+}
@@ -0,0 +1,48 @@
+package minigames.codec;
+
+import io.vertx.core.buffer.Buffer;
+import minigames.commands.CommandPackage;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * Turns the packages that go between client and server into bytes and back.
+ *
+ * JSON is the default. A client can ask for a different codec per connection by naming its content type in the
+ * Accept header (and the Content-Type header, for what it sends). A server that doesn't recognise the content
+ * type falls back to JSON, so older clients and servers keep working.
+ */
+public interface WireCodec {
+
+    /** The content type this codec is negotiated by */
+    String contentType();
+
+    Buffer encode(RenderingPackage rp);
+
+    RenderingPackage decodeRenderingPackage(Buffer buffer);
+
+    Buffer encode(CommandPackage cp);
+
+    /**
+     * Decodes what a client sent.
+     *
+     * @throws WireFormatException if it isn't a CommandPackage in this codec
+     */
+    CommandPackage decodeCommandPackage(Buffer buffer);
+
+    /** The default codec */
+    WireCodec JSON = new JsonWireCodec();
+
+    /** The compact binary codec */
+    WireCodec BINARY = new BinaryWireCodec();
+
+    /**
+     * Finds the codec for a Content-Type or Accept header value, falling back to JSON if it is missing or unknown.
+     */
+    static WireCodec forContentType(String header) {
+        if (header != null && header.contains(BinaryWireCodec.CONTENT_TYPE)) {
+            return BINARY;
+        }
+        return JSON;
+    }
+
+}
@@ -0,0 +1,17 @@
+package minigames.codec;
+
+/**
+ * Thrown when bytes that should be a package can't be decoded: truncated, malformed, or claiming to hold more
+ * than they do. They come from clients, so servers should treat this as a bad request rather than a failure.
+ */
+public class WireFormatException extends IllegalArgumentException {
+
+    public WireFormatException(String message) {
+        super(message);
+    }
+
+    public WireFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,231 @@
+package minigames.mario;
+
+/**
+ * How a Mario player moves: walking left and right, jumping, and falling back to the ground.
+ *
+ * The server runs this to decide where each player is. The client runs the same code on its own player, so that
+ * it can show the result of a key press straight away rather than waiting for the server, and only has to correct
+ * itself when something it couldn't know about (such as bouncing off an enemy) happens.
+ *
+ * Everything here must give the same result on both sides, so it depends only on the player's state and the
+ * input, never on the time or anything random.
+ */
+public class PlayerPhysics {
+
+    /** The width of the play area; players can't walk off either side */
+    public static final int SCREEN_WIDTH = 1200;
+    /** How far one move takes a player */
+    public static final int SPEED = 5;
+    public static final int JUMP_STRENGTH = -15;
+    public static final double GRAVITY = 1;
+    /** The y a player stands at */
+    public static final int GROUND_LEVEL = 425;
+    /** How high a player bounces after landing on an enemy */
+    public static final double BOUNCE_STRENGTH = -8;
+
+    protected int x, y;     // Player's position
+    protected int playerWidth = 32;
+    protected int playerHeight = 64; // Player's size
+    protected int dx;  // Horizontal movement speed
+    protected double dy;  // Vertical movement speed
+    protected boolean jumping;  // Whether the player is jumping
+    protected boolean onGround;  // Whether the player is on the ground
+    protected String direction;  // Direction the player is facing (idleR, idleL, left, right)
+
+    /**
+     * Creates a player standing still, facing right.
+     */
+    public PlayerPhysics(int x, int y, int playerWidth, int playerHeight) {
+        this.x = x;
+        this.y = y;
+        this.playerWidth = playerWidth;
+        this.playerHeight = playerHeight;
+        this.jumping = false;
+        this.onGround = true;
+        this.direction = "idleR";  // Initial state is idle facing right
+    }
+
+    /**
+     * Replaces the whole of the player's movement state, e.g. with the server's.
+     */
+    public void setState(int x, int y, double dy, boolean jumping, boolean onGround, String direction) {
+        this.x = x;
+        this.y = y;
+        this.dx = 0;
+        this.dy = dy;
+        this.jumping = jumping;
+        this.onGround = onGround;
+        this.direction = direction;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void setY(int y) {
+        this.y = y;
+    }
+
+    public int getPlayerWidth() {
+        return playerWidth;
+    }
+
+    public void setPlayerWidth(int width) {
+        this.playerWidth = width;
+    }
+
+    public int getPlayerHeight() {
+        return playerHeight;
+    }
+
+    public void setPlayerHeight(int height) {
+        this.playerHeight = height;
+    }
+
+    public int getDx() {
+        return dx;
+    }
+
+    public void setDx(int dx) {
+        this.dx = dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+
+    public void setDy(double dy) {
+        this.dy = dy;
+    }
+
+    public boolean isJumping() {
+        return jumping;
+    }
+
+    public void setJumping(boolean jumping) {
+        this.jumping = jumping;
+    }
+
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    public void setOnGround(boolean onGround) {
+        this.onGround = onGround;
+    }
+
+    public int getJumpStrength() {
+        return JUMP_STRENGTH;
+    }
+
+    public double getGravity() {
+        return GRAVITY;
+    }
+
+    public int getGroundLevel() {
+        return GROUND_LEVEL;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * Moves the player horizontally based on the provided direction.
+     */
+    public void move(String direction) {
+        switch (direction) {
+            case "left":
+                dx = -SPEED;
+                setDirection("left");
+                break;
+            case "right":
+                dx = SPEED;
+                setDirection("right");
+                break;
+            case "up":
+                if (onGround) {
+                    jump();
+                }
+                break;
+            case "down":
+                dy = SPEED;
+                setDirection("down");
+                while (y < 475) {
+                    y += dy;
+                }
+                jumping = false;
+                onGround = true;
+                break;
+            default:
+                dx = 0;
+                setIdleState();
+                break;
+        }
+
+        // Apply movement
+        x += dx;
+        constrainWithinScreen();
+    }
+
+    /**
+     * Sets the player to the correct idle state based on the last direction faced.
+     */
+    private void setIdleState() {
+        if (direction.equals("left") || direction.equals("idleL")) {
+            setDirection("idleL");
+        } else {
+            setDirection("idleR");
+        }
+    }
+
+    private void constrainWithinScreen() {
+        if (x < 0) {
+            x = 0;
+        } else if (x > SCREEN_WIDTH - playerWidth) {
+            x = SCREEN_WIDTH - playerWidth;
+        }
+        dx = 0;
+    }
+
+    /**
+     * Starts a jump if the player is on the ground, and moves a jumping player one tick further through it.
+     */
+    public void jump() {
+        if (!jumping && onGround) {
+            jumping = true;
+            onGround = false;
+            dy = JUMP_STRENGTH;
+        }
+
+        if (jumping) {
+            dy += GRAVITY;
+            y += dy;
+
+            if (y >= GROUND_LEVEL) {
+                y = GROUND_LEVEL;
+                jumping = false;
+                onGround = true;
+                dy = 0;
+            }
+        }
+    }
+
+    public void applyBounce() {
+        this.dy = BOUNCE_STRENGTH;
+        this.jumping = true;
+        this.onGround = false;
+    }
+}
@@ -0,0 +1,80 @@
+package minigames.rendering;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Client-side half of delta-compressed rendering.
+ *
+ * Keeps the snapshots the client has rebuilt, so that a delta against any of them can be applied. Applying a
+ * delta tells the client which entities differ from what it is currently showing, so it only has to touch those.
+ * The client sends latestSeq() back to the server as its acknowledgement.
+ */
+public class SnapshotDecoder {
+
+    /** The entities that differ between what the client was showing and the snapshot it has just applied */
+    public record Changes(List<JsonObject> updated, List<String> removed) {}
+
+    /** Snapshots by sequence number, oldest first. Kept as long as the server's history so its bases are always here */
+    private final LinkedHashMap<Long, Map<String, JsonObject>> history = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Map<String, JsonObject>> eldest) {
+            return size() > SnapshotEncoder.HISTORY;
+        }
+    };
+
+    private long latestSeq = SnapshotDelta.FULL;
+
+    /**
+     * Applies a delta. Returns empty if the delta is older than what is already showing (e.g. an HTTP response
+     * that arrived late) or if its base snapshot is not held, in which case the client should wait for the next one.
+     */
+    public synchronized Optional<Changes> apply(SnapshotDelta delta) {
+        if (delta.seq() <= latestSeq) return Optional.empty();
+
+        Map<String, JsonObject> base;
+        if (delta.baseSeq() == SnapshotDelta.FULL) {
+            base = Map.of();
+        } else {
+            base = history.get(delta.baseSeq());
+            if (base == null) return Optional.empty();
+        }
+
+        LinkedHashMap<String, JsonObject> next = new LinkedHashMap<>(base);
+        for (String id : delta.removed()) {
+            next.remove(id);
+        }
+        for (JsonObject entity : delta.updated()) {
+            next.put(entity.getString("id"), entity);
+        }
+
+        Map<String, JsonObject> showing = history.getOrDefault(latestSeq, Map.of());
+        ArrayList<JsonObject> updated = new ArrayList<>();
+        for (Map.Entry<String, JsonObject> entry : next.entrySet()) {
+            if (!Objects.equals(showing.get(entry.getKey()), entry.getValue())) {
+                updated.add(entry.getValue());
+            }
+        }
+        ArrayList<String> removed = new ArrayList<>();
+        for (String id : showing.keySet()) {
+            if (!next.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+
+        history.put(delta.seq(), next);
+        latestSeq = delta.seq();
+        return Optional.of(new Changes(updated, removed));
+    }
+
+    /** The sequence number of the latest snapshot applied, or -1 if none has been */
+    public synchronized long latestSeq() {
+        return latestSeq;
+    }
+
+}
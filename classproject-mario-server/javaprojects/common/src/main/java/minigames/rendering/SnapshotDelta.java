@@ -0,0 +1,56 @@
+package minigames.rendering;
+
+import java.util.List;
+import java.util.Optional;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A rendering command carrying only the entities that changed since a snapshot the client has acknowledged.
+ *
+ * Each entity is a JsonObject with a stable "id". "updated" holds the full state of every entity that was
+ * added or changed since the base snapshot; "removed" holds the ids of entities that have gone. A baseSeq of
+ * -1 means the delta is against nothing, i.e. it is a full snapshot.
+ *
+ * Produced on the server by a SnapshotEncoder and applied on the client by a SnapshotDecoder.
+ */
+public record SnapshotDelta(
+    long seq,
+    long baseSeq,
+    List<JsonObject> updated,
+    List<String> removed
+) implements RenderingCommand {
+
+    /** The "command" value this is sent down the wire with */
+    public static final String COMMAND = "snapshotDelta";
+
+    /** The baseSeq of a delta that is a full snapshot */
+    public static final long FULL = -1;
+
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("command", COMMAND)
+            .put("seq", seq)
+            .put("base", baseSeq)
+            .put("updated", new JsonArray(updated))
+            .put("removed", new JsonArray(removed));
+    }
+
+    /** True if nothing changed since the base snapshot */
+    public boolean isEmpty() {
+        return updated.isEmpty() && removed.isEmpty();
+    }
+
+    /** Attempts to parse a json object, returning a filled Optional if it found a SnapshotDelta, and an empty one otherwise */
+    public static Optional<SnapshotDelta> tryParsing(JsonObject json) {
+        if (!COMMAND.equals(json.getString("command"))) return Optional.empty();
+
+        return Optional.of(new SnapshotDelta(
+            json.getLong("seq"),
+            json.getLong("base", FULL),
+            json.getJsonArray("updated").stream().map((o) -> (JsonObject)o).toList(),
+            json.getJsonArray("removed").stream().map((o) -> (String)o).toList()
+        ));
+    }
+
+}
@@ -0,0 +1,94 @@
+package minigames.rendering;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Server-side half of delta-compressed rendering. Any GameServer can opt into it by keeping one of these per game.
+ *
+ * The game describes its scene as a map of entity id to JsonObject. The encoder keeps a short history of those
+ * snapshots and remembers, for each client, the most recent one that client has acknowledged. Each client is
+ * then sent only the entities that were added, changed or removed since its acknowledged snapshot. If a client
+ * has never acknowledged anything, or its snapshot has fallen out of the history, it gets a full snapshot.
+ *
+ * Entity JsonObjects must not be modified once handed to the encoder - build a fresh one each snapshot.
+ */
+public class SnapshotEncoder {
+
+    /** How many snapshots are kept for clients to be diffed against */
+    public static final int HISTORY = 32;
+
+    /** Snapshots by sequence number, oldest first */
+    private final LinkedHashMap<Long, Map<String, JsonObject>> history = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Map<String, JsonObject>> eldest) {
+            return size() > HISTORY;
+        }
+    };
+
+    /** The latest snapshot each client has acknowledged */
+    private final HashMap<String, Long> acknowledged = new HashMap<>();
+
+    private long seq = 0;
+    private long latestVersion = Long.MIN_VALUE;
+
+    /**
+     * Records that a client has applied the snapshot with this sequence number.
+     * Acknowledgements that are older than one already received, or for snapshots no longer held, are ignored.
+     */
+    public synchronized void acknowledge(String client, long ackSeq) {
+        Long current = acknowledged.get(client);
+        if (history.containsKey(ackSeq) && (current == null || ackSeq > current)) {
+            acknowledged.put(client, ackSeq);
+        }
+    }
+
+    /**
+     * Produces the delta a client needs to bring it up to date.
+     *
+     * @param client  identifies the client, e.g. the player name
+     * @param version the game's state version (e.g. its tick). A new snapshot is only taken when this changes,
+     *                so many clients polling the same tick share one snapshot.
+     * @param scene   builds the current entities, keyed by stable id. Only called when a new snapshot is needed.
+     */
+    public synchronized SnapshotDelta encode(String client, long version, Supplier<Map<String, JsonObject>> scene) {
+        if (version != latestVersion || history.isEmpty()) {
+            seq++;
+            history.put(seq, scene.get());
+            latestVersion = version;
+        }
+        Map<String, JsonObject> current = history.get(seq);
+
+        Long ackSeq = acknowledged.get(client);
+        Map<String, JsonObject> base = ackSeq == null ? null : history.get(ackSeq);
+        if (base == null) {
+            return new SnapshotDelta(seq, SnapshotDelta.FULL, new ArrayList<>(current.values()), List.of());
+        }
+
+        ArrayList<JsonObject> updated = new ArrayList<>();
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            if (!Objects.equals(base.get(entry.getKey()), entry.getValue())) {
+                updated.add(entry.getValue());
+            }
+        }
+        ArrayList<String> removed = new ArrayList<>();
+        for (String id : base.keySet()) {
+            if (!current.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        return new SnapshotDelta(seq, ackSeq, updated, removed);
+    }
+
+    /** Forgets a client, e.g. when they leave the game */
+    public synchronized void forget(String client) {
+        acknowledged.remove(client);
+    }
+
+}
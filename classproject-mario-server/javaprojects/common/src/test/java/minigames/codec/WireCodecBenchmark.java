@@ -0,0 +1,44 @@
+package minigames.codec;
+
+import io.vertx.core.buffer.Buffer;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * A rough comparison of the binary codec against the JSON path, run by hand with its main method.
+ *
+ * It encodes and decodes a Mario-sized frame many times over with each codec, after a warm-up, and prints the
+ * bytes per frame and the time per round trip.
+ */
+public class WireCodecBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String... args) {
+        int enemies = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        RenderingPackage rp = WireCodecTests.marioFrame(enemies);
+
+        for (WireCodec codec : new WireCodec[] { WireCodec.JSON, WireCodec.BINARY }) {
+            run(codec, rp, WARMUP);
+            long start = System.nanoTime();
+            long bytes = run(codec, rp, ITERATIONS);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-32s %6d bytes/frame %8.2f us/round trip%n",
+                codec.contentType(), bytes / ITERATIONS, elapsed / 1000.0 / ITERATIONS);
+        }
+    }
+
+    private static long run(WireCodec codec, RenderingPackage rp, int iterations) {
+        long bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            Buffer buffer = codec.encode(rp);
+            bytes += buffer.length();
+            if (codec.decodeRenderingPackage(buffer).renderingCommands().isEmpty()) {
+                throw new IllegalStateException("Lost the rendering commands");
+            }
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,187 @@
+package minigames.codec;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.GameMetadata;
+import minigames.rendering.NativeCommands.LoadClient;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * Round-trip tests of the wire codecs
+ */
+public class WireCodecTests {
+
+    /** A frame like the ones Mario sends */
+    static RenderingPackage marioFrame(int enemies) {
+        ArrayList<JsonObject> commands = new ArrayList<>();
+        commands.add(new LoadClient("Mario", "Mario", "game", "alice").toJson());
+        commands.add(new JsonObject().put("command", "updatePosition").put("x", 50).put("y", 425)
+            .put("onGround", true).put("direction", "right").put("health", 3).put("score", 2000));
+        for (int i = 0; i < enemies; i++) {
+            commands.add(new JsonObject().put("command", "updateEnemy").put("index", i)
+                .put("x", 1100 - i * 37).put("y", 415).put("active", i % 3 != 0));
+        }
+        commands.add(new JsonObject().put("command", "waveUpdate").put("wave", 0));
+        return new RenderingPackage(new GameMetadata("Mario", "game", new String[] { "alice", "bob" }, true), commands);
+    }
+
+    private static void assertSamePackage(RenderingPackage expected, RenderingPackage actual) {
+        assertEquals(expected.metadata().gameServer(), actual.metadata().gameServer());
+        assertEquals(expected.metadata().name(), actual.metadata().name());
+        assertArrayEquals(expected.metadata().players(), actual.metadata().players());
+        assertEquals(expected.metadata().joinable(), actual.metadata().joinable());
+        assertEquals(expected.renderingCommands(), actual.renderingCommands());
+    }
+
+    @Test
+    @DisplayName("RenderingPackages survive a round trip through both codecs")
+    public void renderingPackageRoundTrip() {
+        RenderingPackage rp = marioFrame(20);
+        assertSamePackage(rp, WireCodec.JSON.decodeRenderingPackage(WireCodec.JSON.encode(rp)));
+        assertSamePackage(rp, WireCodec.BINARY.decodeRenderingPackage(WireCodec.BINARY.encode(rp)));
+    }
+
+    @Test
+    @DisplayName("CommandPackages survive a round trip through the binary codec")
+    public void commandPackageRoundTrip() {
+        CommandPackage cp = new CommandPackage("Mario", "game", "alice", List.of(
+            new JsonObject().put("type", "move").put("direction", "left").put("ack", 41L)));
+
+        CommandPackage decoded = WireCodec.BINARY.decodeCommandPackage(WireCodec.BINARY.encode(cp));
+        assertEquals(cp, decoded);
+    }
+
+    @Test
+    @DisplayName("Arbitrary JSON payloads round trip schema-lessly")
+    public void arbitraryPayloads() {
+        JsonObject payload = new JsonObject()
+            .put("nothing", (Object)null)
+            .put("negative", -123456)
+            .put("big", Long.MAX_VALUE)
+            .put("small", Long.MIN_VALUE)
+            .put("fraction", 0.25)
+            .put("empty", "")
+            .put("unicode", "ネズミ 🐭")
+            .put("nested", new JsonObject().put("board", new JsonArray().add(new JsonArray().add(1).add(2)).add("x")))
+            .put("bytes", new byte[] { 1, 2, 3 });
+        RenderingPackage rp = new RenderingPackage(new GameMetadata("Any", "game", new String[0], false), List.of(payload));
+
+        JsonObject decoded = WireCodec.BINARY.decodeRenderingPackage(WireCodec.BINARY.encode(rp)).renderingCommands().get(0);
+        assertNull(decoded.getValue("nothing"));
+        assertTrue(decoded.containsKey("nothing"));
+        assertEquals(-123456, decoded.getInteger("negative"));
+        assertEquals(Long.MAX_VALUE, decoded.getLong("big"));
+        assertEquals(Long.MIN_VALUE, decoded.getLong("small"));
+        assertEquals(0.25, decoded.getDouble("fraction"));
+        assertEquals("", decoded.getString("empty"));
+        assertEquals("ネズミ 🐭", decoded.getString("unicode"));
+        assertEquals(payload.getJsonObject("nested"), decoded.getJsonObject("nested"));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, decoded.getBinary("bytes"));
+    }
+
+    @Test
+    @DisplayName("The binary encoding is smaller than JSON for a typical frame")
+    public void binaryIsSmaller() {
+        RenderingPackage rp = marioFrame(20);
+        assertTrue(WireCodec.BINARY.encode(rp).length() * 2 < WireCodec.JSON.encode(rp).length());
+    }
+
+    @Test
+    @DisplayName("Codecs are picked by content type, falling back to JSON")
+    public void negotiation() {
+        assertSame(WireCodec.BINARY, WireCodec.forContentType(BinaryWireCodec.CONTENT_TYPE));
+        assertSame(WireCodec.JSON, WireCodec.forContentType("application/json"));
+        assertSame(WireCodec.JSON, WireCodec.forContentType(null));
+        assertThrows(IllegalArgumentException.class,
+            () -> WireCodec.BINARY.decodeRenderingPackage(Buffer.buffer("{\"metadata\":{}}")));
+    }
+
+    /** The start of a binary CommandPackage with null server, game and player, ready for its commands */
+    private static Buffer commandHeader() {
+        Buffer buffer = Buffer.buffer().appendByte((byte)0xB1).appendByte((byte)2);
+        for (int i = 0; i < 3; i++) {
+            // A reference to the first preloaded string, for each of the game server, game and player
+            buffer.appendByte((byte)1);
+        }
+        return buffer;
+    }
+
+    @Test
+    @DisplayName("Truncated binary messages are rejected rather than read past their end")
+    public void truncatedMessages() {
+        Buffer whole = WireCodec.BINARY.encode(new CommandPackage("Mario", "game", "alice", List.of(
+            new JsonObject().put("type", "move").put("direction", "left").put("seq", 7).put("dy", 0.5))));
+        for (int length = 0; length < whole.length(); length++) {
+            Buffer part = whole.getBuffer(0, length);
+            assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(part));
+        }
+    }
+
+    @Test
+    @DisplayName("Counts and lengths bigger than the message are rejected before anything is allocated")
+    public void hostileCounts() {
+        // Billions of commands, in a message with no room for any
+        Buffer huge = commandHeader().appendBytes(new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F });
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(huge));
+
+        // A count that comes out negative
+        Buffer negative = commandHeader();
+        for (int i = 0; i < 9; i++) {
+            negative.appendByte((byte)0xFF);
+        }
+        negative.appendByte((byte)0x01);
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(negative));
+
+        // One command, holding an array that claims a million elements
+        Buffer array = commandHeader().appendBytes(new byte[] { 1, 1, 1, 7, (byte)0xC0, (byte)0x84, 0x3D });
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(array));
+
+        // A string reference to a string that was never sent
+        Buffer reference = commandHeader().appendBytes(new byte[] { 1, 1, 0x7F, 0 });
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(reference));
+    }
+
+    @Test
+    @DisplayName("Deeply nested binary messages are rejected")
+    public void deepNesting() {
+        // One command, whose first key holds arrays within arrays
+        Buffer nested = commandHeader().appendBytes(new byte[] { 1, 1, 1 });
+        for (int i = 0; i <= BinaryWireCodec.MAX_DEPTH; i++) {
+            nested.appendBytes(new byte[] { 7, 1 });
+        }
+        nested.appendByte((byte)0);
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(nested));
+    }
+
+    @Test
+    @DisplayName("Binary messages with a null key or package field are rejected")
+    public void nullStrings() {
+        Buffer noPlayer = WireCodec.BINARY.encode(new CommandPackage("Mario", "game", null, List.of()));
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(noPlayer));
+
+        // One command, whose only key is a null string
+        Buffer nullKey = commandHeader().appendBytes(new byte[] { 1, 1, 0, 0, 0 });
+        assertThrows(WireFormatException.class, () -> WireCodec.BINARY.decodeCommandPackage(nullKey));
+
+        // The same command with a real key decodes
+        Buffer realKey = commandHeader().appendBytes(new byte[] { 1, 1, 1, 0 });
+        assertEquals(1, WireCodec.BINARY.decodeCommandPackage(realKey).commands().size());
+    }
+
+    @Test
+    @DisplayName("Malformed JSON command packages are rejected")
+    public void malformedJson() {
+        assertThrows(WireFormatException.class, () -> WireCodec.JSON.decodeCommandPackage(Buffer.buffer("{\"gameId\":")));
+        assertThrows(WireFormatException.class, () -> WireCodec.JSON.decodeCommandPackage(Buffer.buffer("{\"commands\":[1]}")));
+        assertThrows(WireFormatException.class, () -> WireCodec.JSON.decodeCommandPackage(Buffer.buffer("{\"commands\":[]}")));
+    }
+
+}
@@ -0,0 +1,74 @@
+package minigames.mario;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the player movement shared by the Mario server and client
+ */
+public class PlayerPhysicsTests {
+
+    @Test
+    @DisplayName("Moves walk a player, but not off either side of the screen")
+    public void walking() {
+        PlayerPhysics player = new PlayerPhysics(3, PlayerPhysics.GROUND_LEVEL, 32, 64);
+        player.move("right");
+        assertEquals(3 + PlayerPhysics.SPEED, player.getX());
+        assertEquals("right", player.getDirection());
+
+        player.move("left");
+        player.move("left");
+        assertEquals(0, player.getX());
+
+        player.move("idleL");
+        assertEquals("idleL", player.getDirection());
+        assertEquals(0, player.getX());
+
+        player.setX(PlayerPhysics.SCREEN_WIDTH);
+        player.move("right");
+        assertEquals(PlayerPhysics.SCREEN_WIDTH - 32, player.getX());
+    }
+
+    @Test
+    @DisplayName("A jump goes up and comes back down to the ground")
+    public void jumping() {
+        PlayerPhysics player = new PlayerPhysics(50, PlayerPhysics.GROUND_LEVEL, 32, 64);
+        player.move("up");
+        assertTrue(player.isJumping());
+        assertFalse(player.isOnGround());
+        assertEquals(PlayerPhysics.GROUND_LEVEL + PlayerPhysics.JUMP_STRENGTH + 1, player.getY());
+
+        // Can't jump again in the air
+        int y = player.getY();
+        player.move("up");
+        assertEquals(y, player.getY());
+
+        int ticks = 0;
+        while (player.isJumping() && ticks < 100) {
+            player.jump();
+            ticks++;
+        }
+        assertTrue(player.isOnGround());
+        assertEquals(PlayerPhysics.GROUND_LEVEL, player.getY());
+        assertEquals(28, ticks);
+    }
+
+    @Test
+    @DisplayName("The same inputs from the same state end up in the same place")
+    public void deterministic() {
+        PlayerPhysics a = new PlayerPhysics(100, PlayerPhysics.GROUND_LEVEL, 32, 64);
+        PlayerPhysics b = new PlayerPhysics(0, 0, 32, 64);
+        b.setState(a.getX(), a.getY(), a.getDy(), a.isJumping(), a.isOnGround(), a.getDirection());
+
+        String[] inputs = { "right", "up", "right", "left", "idleL", "up", "right" };
+        for (String input : inputs) {
+            a.move(input);
+            b.move(input);
+        }
+        assertEquals(a.getX(), b.getX());
+        assertEquals(a.getY(), b.getY());
+        assertEquals(a.getDy(), b.getDy());
+        assertEquals(a.getDirection(), b.getDirection());
+    }
+
+}
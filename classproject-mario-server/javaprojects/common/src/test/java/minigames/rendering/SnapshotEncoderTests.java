@@ -0,0 +1,97 @@
+package minigames.rendering;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests of delta-compressed snapshots, encoded on the server and decoded on the client
+ */
+public class SnapshotEncoderTests {
+
+    private static JsonObject entity(String id, int x) {
+        return new JsonObject().put("command", "update").put("id", id).put("x", x);
+    }
+
+    private static Map<String, JsonObject> scene(JsonObject... entities) {
+        LinkedHashMap<String, JsonObject> scene = new LinkedHashMap<>();
+        for (JsonObject e : entities) {
+            scene.put(e.getString("id"), e);
+        }
+        return scene;
+    }
+
+    /** Sends a delta over the "wire" and back, as a client would receive it */
+    private static SnapshotDelta roundTrip(SnapshotDelta delta) {
+        return SnapshotDelta.tryParsing(new JsonObject(delta.toJson().encode())).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("A client that has acknowledged nothing gets a full snapshot")
+    public void fullWithoutAck() {
+        SnapshotEncoder encoder = new SnapshotEncoder();
+        SnapshotDelta delta = encoder.encode("a", 1, () -> scene(entity("e:1", 0), entity("e:2", 0)));
+
+        assertEquals(SnapshotDelta.FULL, delta.baseSeq());
+        assertEquals(2, delta.updated().size());
+    }
+
+    @Test
+    @DisplayName("After an ack, only added, changed and removed entities are sent")
+    public void onlyChanges() {
+        SnapshotEncoder encoder = new SnapshotEncoder();
+        SnapshotDecoder decoder = new SnapshotDecoder();
+
+        SnapshotDelta first = roundTrip(encoder.encode("a", 1, () -> scene(entity("e:1", 0), entity("e:2", 0))));
+        assertEquals(2, decoder.apply(first).orElseThrow().updated().size());
+        encoder.acknowledge("a", decoder.latestSeq());
+
+        SnapshotDelta second = roundTrip(encoder.encode("a", 2, () -> scene(entity("e:1", 5), entity("e:3", 0))));
+        assertEquals(first.seq(), second.baseSeq());
+        assertEquals(List.of("e:1", "e:3"), second.updated().stream().map((e) -> e.getString("id")).toList());
+        assertEquals(List.of("e:2"), second.removed());
+
+        SnapshotDecoder.Changes changes = decoder.apply(second).orElseThrow();
+        assertEquals(2, changes.updated().size());
+        assertEquals(List.of("e:2"), changes.removed());
+    }
+
+    @Test
+    @DisplayName("Nothing is sent when nothing has changed")
+    public void emptyWhenIdle() {
+        SnapshotEncoder encoder = new SnapshotEncoder();
+        SnapshotDelta first = encoder.encode("a", 1, () -> scene(entity("e:1", 0)));
+        encoder.acknowledge("a", first.seq());
+
+        assertTrue(encoder.encode("a", 2, () -> scene(entity("e:1", 0))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Clients polling the same version share a snapshot")
+    public void sharedSnapshotPerVersion() {
+        SnapshotEncoder encoder = new SnapshotEncoder();
+        int[] built = { 0 };
+
+        SnapshotDelta a = encoder.encode("a", 7, () -> { built[0]++; return scene(entity("e:1", 0)); });
+        SnapshotDelta b = encoder.encode("b", 7, () -> { built[0]++; return scene(entity("e:1", 0)); });
+
+        assertEquals(1, built[0]);
+        assertEquals(a.seq(), b.seq());
+    }
+
+    @Test
+    @DisplayName("Late deltas and deltas against unknown bases are ignored by the client")
+    public void decoderIgnoresStale() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        assertTrue(decoder.apply(new SnapshotDelta(2, SnapshotDelta.FULL, List.of(entity("e:1", 0)), List.of())).isPresent());
+        assertTrue(decoder.apply(new SnapshotDelta(1, SnapshotDelta.FULL, List.of(), List.of())).isEmpty());
+        assertTrue(decoder.apply(new SnapshotDelta(5, 4, List.of(), List.of())).isEmpty());
+        assertEquals(2, decoder.latestSeq());
+    }
+
+}
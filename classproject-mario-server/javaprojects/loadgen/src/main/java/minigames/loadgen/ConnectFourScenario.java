@@ -0,0 +1,44 @@
+package minigames.loadgen;
+
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.json.JsonObject;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * Plays Connect Four the way ConnectFourClient does: two players to a game, over HTTP, polling for the state
+ * and dropping a disk in a random column every few polls. Moves out of turn are answered with an error
+ * command, as they would be for a real client.
+ */
+public class ConnectFourScenario implements Scenario {
+
+    @Override
+    public String gameServer() {
+        return "ConnectFour";
+    }
+
+    @Override
+    public int playersPerGame() {
+        return 2;
+    }
+
+    @Override
+    public boolean usesWebSocket() {
+        return false;
+    }
+
+    @Override
+    public long thinkTimeMillis() {
+        return 500;
+    }
+
+    @Override
+    public List<JsonObject> nextInput(int step, Random random, RenderingPackage lastFrame) {
+        if (random.nextInt(4) == 0) {
+            return List.of(new JsonObject().put("command", "putDisk").put("column", random.nextInt(7)));
+        }
+        return List.of(new JsonObject().put("command", "getState"));
+    }
+
+}
@@ -0,0 +1,85 @@
+package minigames.loadgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies (in microseconds) from many threads at once, and reports percentiles.
+ *
+ * Buckets are log-linear: exact below 64us, and above that 32 buckets per power of two, so any percentile is
+ * reported to within about 3% of the true value, from microseconds up to days, in about a thousand counters.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one latency */
+    public void record(long micros) {
+        long v = Math.max(0, micros);
+        counts.incrementAndGet(index(v));
+        total.incrementAndGet();
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /** Records the time since a System.nanoTime() reading */
+    public void recordSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * The latency at or below which the given fraction (e.g. 0.99) of latencies fell, in microseconds.
+     * Reported as the top of the bucket it falls in, so it errs on the high side. 0 if nothing was recorded.
+     */
+    public long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long)Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long v) {
+        if (v < LINEAR) {
+            return (int)v;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(v), MAX_EXPONENT);
+        int shift = exponent - 5;
+        long sub = Math.min(v >>> shift, 2 * SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + (int)(sub - SUB_BUCKETS);
+    }
+
+    /** The largest value that falls in a bucket */
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int k = index - LINEAR;
+        int shift = k / SUB_BUCKETS + 1;
+        long sub = k % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+}
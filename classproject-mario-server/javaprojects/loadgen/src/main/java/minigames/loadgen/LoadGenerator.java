@@ -0,0 +1,227 @@
+package minigames.loadgen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import io.vertx.core.Context;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import minigames.codec.WireCodec;
+
+/**
+ * Runs virtual players against a running server, and reports throughput, latency percentiles and error rates
+ * for each kind of operation.
+ *
+ * Options:
+ * <pre>
+ *   --host localhost          the server to play against
+ *   --port 8080
+ *   --players Mario=200,...   how many players of each game type (rounded up to whole games)
+ *   --duration 60             how many seconds to measure for, after the ramp-up
+ *   --ramp 10                 how many seconds to spread the players' arrival over. Nothing is measured until
+ *                             every player has arrived.
+ *   --codec json|binary       which wire codec players ask for
+ *   --script file.json        a ScriptedScenario, playable by naming its game server in --players
+ *   --json report.json        also writes the report as JSON, e.g. for comparing runs in CI
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final Vertx vertx;
+    private final WebClient webClient;
+    private final HttpClient httpClient;
+    private final String host;
+    private final int port;
+    private final WireCodec codec;
+
+    private volatile boolean running = true;
+    private volatile boolean measuring = false;
+
+    /** Operations are sorted by name, so each game type's operations are reported together */
+    private final Map<String, OperationStats> stats = new ConcurrentSkipListMap<>();
+
+    public LoadGenerator(String host, int port, WireCodec codec, int players) {
+        this.vertx = Vertx.vertx();
+        this.host = host;
+        this.port = port;
+        this.codec = codec;
+
+        // Every player holds a connection open much of the time, so the pools need to be as big as the run
+        this.webClient = WebClient.create(vertx, new WebClientOptions()
+            .setMaxPoolSize(Math.max(5, players))
+            .setKeepAlive(true));
+        this.httpClient = vertx.createHttpClient(new HttpClientOptions()
+            .setMaxWebSockets(Math.max(50, players)));
+    }
+
+    Vertx vertx() {
+        return vertx;
+    }
+
+    WebClient webClient() {
+        return webClient;
+    }
+
+    HttpClient httpClient() {
+        return httpClient;
+    }
+
+    String host() {
+        return host;
+    }
+
+    int port() {
+        return port;
+    }
+
+    WireCodec codec() {
+        return codec;
+    }
+
+    /** Whether players should keep playing */
+    boolean running() {
+        return running;
+    }
+
+    /** Whether the ramp-up is over, so operations should be recorded */
+    boolean measuring() {
+        return measuring;
+    }
+
+    OperationStats stats(String operation) {
+        return stats.computeIfAbsent(operation, OperationStats::new);
+    }
+
+    /**
+     * Starts the players for one game, on a context of their own, after the given delay.
+     */
+    void startGame(Scenario scenario, String prefix, int players, long delayMillis) {
+        vertx.setTimer(Math.max(1, delayMillis), (t) -> {
+            Context context = vertx.getOrCreateContext();
+            Promise<String> game = Promise.promise();
+            for (int i = 0; i < players; i++) {
+                VirtualPlayer player = new VirtualPlayer(this, scenario, prefix + "-" + i, game, i == 0);
+                context.runOnContext((v) -> player.start());
+            }
+        });
+    }
+
+    /**
+     * Ramps the players in, measures for the duration, then stops them.
+     */
+    public void run(Map<Scenario, Integer> players, long rampSeconds, long durationSeconds) throws InterruptedException {
+        for (Map.Entry<Scenario, Integer> entry : players.entrySet()) {
+            Scenario scenario = entry.getKey();
+            int perGame = Math.max(1, scenario.playersPerGame());
+            int games = (entry.getValue() + perGame - 1) / perGame;
+            for (int g = 0; g < games; g++) {
+                long delay = rampSeconds * 1000 * g / games;
+                startGame(scenario, "loadgen-" + scenario.gameServer() + "-" + g, perGame, delay);
+            }
+        }
+
+        Thread.sleep(rampSeconds * 1000);
+        System.out.println("Ramped up. Measuring for " + durationSeconds + "s...");
+        measuring = true;
+        Thread.sleep(durationSeconds * 1000);
+        measuring = false;
+        running = false;
+    }
+
+    public void printReport(long durationSeconds) {
+        System.out.println(OperationStats.header());
+        for (OperationStats s : stats.values()) {
+            System.out.println(s.toRow(durationSeconds));
+        }
+    }
+
+    public JsonObject toJson(long durationSeconds) {
+        JsonArray operations = new JsonArray();
+        for (OperationStats s : stats.values()) {
+            operations.add(s.toJson(durationSeconds));
+        }
+        return new JsonObject()
+            .put("host", host)
+            .put("port", port)
+            .put("codec", codec.contentType())
+            .put("durationSeconds", durationSeconds)
+            .put("operations", operations);
+    }
+
+    public void close() {
+        vertx.close();
+    }
+
+    /** The scenarios that can be named in --players */
+    static Map<String, Scenario> builtInScenarios() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        for (Scenario s : new Scenario[] { new MarioScenario(), new ConnectFourScenario() }) {
+            scenarios.put(s.gameServer(), s);
+        }
+        return scenarios;
+    }
+
+    public static void main(String... args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 8080;
+        String playerCounts = "Mario=100,ConnectFour=100";
+        long duration = 60;
+        long ramp = 10;
+        WireCodec codec = WireCodec.JSON;
+        Path jsonReport = null;
+        Map<String, Scenario> scenarios = builtInScenarios();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host" -> host = value;
+                case "--port" -> port = Integer.parseInt(value);
+                case "--players" -> playerCounts = value;
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--ramp" -> ramp = Long.parseLong(value);
+                case "--codec" -> codec = "binary".equals(value) ? WireCodec.BINARY : WireCodec.JSON;
+                case "--script" -> {
+                    Scenario s = ScriptedScenario.load(Path.of(value));
+                    scenarios.put(s.gameServer(), s);
+                }
+                case "--json" -> jsonReport = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Map<Scenario, Integer> players = new LinkedHashMap<>();
+        int total = 0;
+        for (String part : playerCounts.split(",")) {
+            String[] kv = part.split("=");
+            Scenario s = scenarios.get(kv[0].trim());
+            if (s == null) {
+                throw new IllegalArgumentException("No scenario for " + kv[0] + " (known: " + scenarios.keySet() + ")");
+            }
+            int n = Integer.parseInt(kv[1].trim());
+            players.put(s, n);
+            total += n;
+        }
+
+        System.out.println("Running " + total + " players against " + host + ":" + port
+            + " (" + playerCounts + "), " + ramp + "s ramp-up, " + duration + "s measured");
+
+        LoadGenerator generator = new LoadGenerator(host, port, codec, total);
+        generator.run(players, ramp, duration);
+        generator.printReport(duration);
+        if (jsonReport != null) {
+            Files.writeString(jsonReport, generator.toJson(duration).encodePrettily());
+        }
+        generator.close();
+    }
+
+}
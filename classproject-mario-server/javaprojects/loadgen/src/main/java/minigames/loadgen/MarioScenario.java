@@ -0,0 +1,82 @@
+package minigames.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.json.JsonObject;
+import minigames.rendering.RenderingPackage;
+import minigames.rendering.SnapshotDelta;
+
+/**
+ * Plays Mario the way MarioClient does: subscribed over a WebSocket, sending one package of input a tick.
+ *
+ * Players run right for a while, stand still, run left, and so on, jumping now and then. Every package
+ * acknowledges the last snapshot received, so the server keeps sending small deltas, as it would to a real client.
+ */
+public class MarioScenario implements Scenario {
+
+    /** Matches the server's tick rate, as MarioClient flushes its input once a tick */
+    private static final long TICK_MILLIS = 50;
+    /** How many ticks each run (or pause) lasts */
+    private static final int PHASE_TICKS = 30;
+    private static final String[] PHASES = { "right", null, "left", "right", null };
+
+    @Override
+    public String gameServer() {
+        return "Mario";
+    }
+
+    @Override
+    public int playersPerGame() {
+        return 2;
+    }
+
+    @Override
+    public boolean usesWebSocket() {
+        return true;
+    }
+
+    @Override
+    public List<JsonObject> subscriptionCommands() {
+        return List.of(new JsonObject().put("type", "UPDATE"));
+    }
+
+    @Override
+    public long thinkTimeMillis() {
+        return TICK_MILLIS;
+    }
+
+    @Override
+    public List<JsonObject> nextInput(int step, Random random, RenderingPackage lastFrame) {
+        ArrayList<JsonObject> commands = new ArrayList<>();
+        String direction = PHASES[(step / PHASE_TICKS) % PHASES.length];
+        if (direction != null) {
+            commands.add(new JsonObject().put("type", "move").put("direction", direction));
+        }
+        if (random.nextInt(20) == 0) {
+            commands.add(new JsonObject().put("type", "jump"));
+        }
+
+        long seq = lastSeq(lastFrame);
+        if (seq != SnapshotDelta.FULL) {
+            commands.add(new JsonObject().put("type", "ack").put("ack", seq));
+        }
+        return commands;
+    }
+
+    /** The sequence number of the snapshot in a frame, or FULL if it has none */
+    private static long lastSeq(RenderingPackage frame) {
+        if (frame == null) {
+            return SnapshotDelta.FULL;
+        }
+        for (JsonObject command : frame.renderingCommands()) {
+            var delta = SnapshotDelta.tryParsing(command);
+            if (delta.isPresent()) {
+                return delta.get().seq();
+            }
+        }
+        return SnapshotDelta.FULL;
+    }
+
+}
@@ -0,0 +1,75 @@
+package minigames.loadgen;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * What happened to one kind of operation (e.g. "Mario command") over a run: its latencies and its errors.
+ */
+public class OperationStats {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void success(long startNanos) {
+        latency.recordSince(startNanos);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public long successes() {
+        return latency.count();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public double errorRate() {
+        long all = successes() + errors();
+        return all == 0 ? 0 : errors() / (double)all;
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /** One row of the report, for a run that measured for the given number of seconds */
+    public String toRow(double seconds) {
+        return String.format("%-28s %9d %10.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f",
+            name, successes(), successes() / seconds, errorRate() * 100,
+            latency.percentile(0.5) / 1000.0, latency.percentile(0.99) / 1000.0,
+            latency.percentile(0.999) / 1000.0, latency.max() / 1000.0);
+    }
+
+    public static String header() {
+        return String.format("%-28s %9s %10s %8s %9s %9s %9s %9s",
+            "operation", "ok", "ok/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    }
+
+    public JsonObject toJson(double seconds) {
+        return new JsonObject()
+            .put("operation", name)
+            .put("successes", successes())
+            .put("errors", errors())
+            .put("throughput", successes() / seconds)
+            .put("errorRate", errorRate())
+            .put("p50Micros", latency.percentile(0.5))
+            .put("p99Micros", latency.percentile(0.99))
+            .put("p999Micros", latency.percentile(0.999))
+            .put("maxMicros", latency.max());
+    }
+
+}
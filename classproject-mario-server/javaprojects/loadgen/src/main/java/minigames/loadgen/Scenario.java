@@ -0,0 +1,48 @@
+package minigames.loadgen;
+
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.json.JsonObject;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * How virtual players play one kind of game: how many share a game, how they talk to the server, and what
+ * input they send.
+ *
+ * A scenario is shared by every player of its game type, so it should keep no state of its own - anything a
+ * player needs to decide its next input is passed in.
+ */
+public interface Scenario {
+
+    /** The name of the GameServer to play on */
+    String gameServer();
+
+    /** How many players share a game. The first creates it, the rest join it. */
+    int playersPerGame();
+
+    /**
+     * Whether players subscribe to the game over a WebSocket, sending input up it and having state pushed
+     * back, rather than sending commands over HTTP.
+     */
+    boolean usesWebSocket();
+
+    /** The commands a WebSocket subscription is made with. Only used if usesWebSocket() */
+    default List<JsonObject> subscriptionCommands() {
+        return List.of(new JsonObject().put("command", "getState"));
+    }
+
+    /** How long a player waits between inputs */
+    long thinkTimeMillis();
+
+    /**
+     * The next commands a player sends.
+     *
+     * @param step how many inputs this player has sent before
+     * @param random the player's own source of randomness
+     * @param lastFrame the last RenderingPackage the player received (null if none yet)
+     * @return the commands to send, or an empty list to send nothing this time
+     */
+    List<JsonObject> nextInput(int step, Random random, RenderingPackage lastFrame);
+
+}
@@ -0,0 +1,111 @@
+package minigames.loadgen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * A scenario read from a JSON file, so new game types can be load tested without writing code. For example:
+ *
+ * <pre>
+ * {
+ *   "gameServer": "Hangman",
+ *   "playersPerGame": 1,
+ *   "webSocket": false,
+ *   "thinkMillis": 1000,
+ *   "random": false,
+ *   "subscription": [ { "command": "getState" } ],
+ *   "inputs": [
+ *     [ { "command": "guess", "letter": "e" } ],
+ *     [ { "command": "getState" } ]
+ *   ]
+ * }
+ * </pre>
+ *
+ * Each element of "inputs" is one package of commands. Players step through them in order (starting at a random
+ * one, so players don't move in lockstep), or pick one at random each time if "random" is true.
+ */
+public class ScriptedScenario implements Scenario {
+
+    private final String gameServer;
+    private final int playersPerGame;
+    private final boolean webSocket;
+    private final long thinkMillis;
+    private final boolean random;
+    private final List<JsonObject> subscription;
+    private final List<List<JsonObject>> inputs = new ArrayList<>();
+
+    public ScriptedScenario(JsonObject script) {
+        this.gameServer = script.getString("gameServer");
+        if (gameServer == null) {
+            throw new IllegalArgumentException("A script needs a gameServer");
+        }
+        this.playersPerGame = script.getInteger("playersPerGame", 1);
+        this.webSocket = script.getBoolean("webSocket", false);
+        this.thinkMillis = script.getLong("thinkMillis", 1000L);
+        this.random = script.getBoolean("random", false);
+        this.subscription = objects(script.getJsonArray("subscription",
+            new JsonArray().add(new JsonObject().put("command", "getState"))));
+
+        for (Object input : script.getJsonArray("inputs", new JsonArray())) {
+            inputs.add(objects((JsonArray)input));
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("A script needs at least one input");
+        }
+    }
+
+    /** Reads a scenario from a file */
+    public static ScriptedScenario load(Path path) throws IOException {
+        return new ScriptedScenario(new JsonObject(Files.readString(path)));
+    }
+
+    private static List<JsonObject> objects(JsonArray array) {
+        List<JsonObject> list = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++) {
+            list.add(array.getJsonObject(i));
+        }
+        return list;
+    }
+
+    @Override
+    public String gameServer() {
+        return gameServer;
+    }
+
+    @Override
+    public int playersPerGame() {
+        return playersPerGame;
+    }
+
+    @Override
+    public boolean usesWebSocket() {
+        return webSocket;
+    }
+
+    @Override
+    public List<JsonObject> subscriptionCommands() {
+        return subscription;
+    }
+
+    @Override
+    public long thinkTimeMillis() {
+        return thinkMillis;
+    }
+
+    @Override
+    public List<JsonObject> nextInput(int step, Random rnd, RenderingPackage lastFrame) {
+        if (random) {
+            return inputs.get(rnd.nextInt(inputs.size()));
+        }
+        return inputs.get(step % inputs.size());
+    }
+
+}
@@ -0,0 +1,240 @@
+package minigames.loadgen;
+
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketConnectOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import minigames.codec.WireCodec;
+import minigames.commands.CommandPackage;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * One simulated client. It creates (or waits for, then joins) a game, then plays it according to its Scenario
+ * until the run stops - over HTTP, sending a command and waiting for the reply each time, or over a WebSocket,
+ * sending input every think time while state is pushed back.
+ *
+ * All the players of one game share a Vert.x context, so their callbacks never run at the same time.
+ */
+public class VirtualPlayer {
+
+    /** How long to wait before retrying a failed newGame or joinGame */
+    private static final long RETRY_MILLIS = 1000;
+
+    private final LoadGenerator run;
+    private final Vertx vertx;
+    private final WebClient webClient;
+    private final HttpClient httpClient;
+    private final Scenario scenario;
+    private final WireCodec codec;
+    private final String playerName;
+    private final Random random;
+
+    /** Completed with the game's name once the player creating it has done so */
+    private final Promise<String> game;
+    private final boolean creator;
+
+    private RenderingPackage lastFrame;
+    private int step = 0;
+
+    /* WebSocket players only */
+    private WebSocket webSocket;
+    private long lastFrameNanos = 0;
+    /** When the oldest input not yet followed by a pushed frame was sent, or 0 if there is none */
+    private long inputSentNanos = 0;
+
+    VirtualPlayer(LoadGenerator run, Scenario scenario, String playerName, Promise<String> game, boolean creator) {
+        this.run = run;
+        this.vertx = run.vertx();
+        this.webClient = run.webClient();
+        this.httpClient = run.httpClient();
+        this.scenario = scenario;
+        this.codec = run.codec();
+        this.playerName = playerName;
+        this.random = new Random(playerName.hashCode());
+        this.game = game;
+        this.creator = creator;
+    }
+
+    /** Starts the player off. Must be called on the game's context. */
+    public void start() {
+        if (creator) {
+            newGame();
+        } else {
+            game.future().onSuccess(this::joinGame);
+        }
+    }
+
+    private OperationStats stats(String operation) {
+        return run.stats(scenario.gameServer() + " " + operation);
+    }
+
+    /**
+     * Records how an operation went, if the run is past its ramp-up. Returns the RenderingPackage the server
+     * replied with, or null if the operation failed.
+     */
+    private RenderingPackage record(String operation, long start, Future<HttpResponse<Buffer>> result) {
+        boolean measuring = run.measuring();
+        if (result.failed() || result.result().statusCode() != 200) {
+            if (measuring) {
+                stats(operation).error();
+            }
+            return null;
+        }
+        if (measuring) {
+            stats(operation).success(start);
+        }
+        HttpResponse<Buffer> resp = result.result();
+        return WireCodec.forContentType(resp.getHeader("Content-Type")).decodeRenderingPackage(resp.body());
+    }
+
+    private void newGame() {
+        if (!run.running()) {
+            return;
+        }
+        long start = System.nanoTime();
+        webClient.post(run.port(), run.host(), "/newGame/" + scenario.gameServer())
+            .putHeader("Accept", codec.contentType())
+            .sendBuffer(Buffer.buffer(playerName))
+            .onComplete((result) -> {
+                RenderingPackage rp = record("newGame", start, result);
+                if (rp == null) {
+                    vertx.setTimer(RETRY_MILLIS, (t) -> newGame());
+                    return;
+                }
+                lastFrame = rp;
+                game.complete(rp.metadata().name());
+                play(rp.metadata().name());
+            });
+    }
+
+    private void joinGame(String gameName) {
+        if (!run.running()) {
+            return;
+        }
+        long start = System.nanoTime();
+        webClient.post(run.port(), run.host(), "/joinGame/" + scenario.gameServer() + "/" + gameName)
+            .putHeader("Accept", codec.contentType())
+            .sendBuffer(Buffer.buffer(playerName))
+            .onComplete((result) -> {
+                RenderingPackage rp = record("joinGame", start, result);
+                if (rp == null) {
+                    vertx.setTimer(RETRY_MILLIS, (t) -> joinGame(gameName));
+                    return;
+                }
+                lastFrame = rp;
+                play(gameName);
+            });
+    }
+
+    private void play(String gameName) {
+        if (scenario.usesWebSocket()) {
+            subscribe(gameName);
+        } else {
+            // Start at a random point in the think time, so players don't all send at once
+            vertx.setTimer(1 + random.nextInt((int)Math.max(1, scenario.thinkTimeMillis())), (t) -> command(gameName));
+        }
+    }
+
+    private CommandPackage nextInput(String gameName) {
+        List<JsonObject> commands = scenario.nextInput(step++, random, lastFrame);
+        return commands.isEmpty() ? null : new CommandPackage(scenario.gameServer(), gameName, playerName, commands);
+    }
+
+    /** Sends one command over HTTP, then (after the think time) the next */
+    private void command(String gameName) {
+        if (!run.running()) {
+            return;
+        }
+        CommandPackage cp = nextInput(gameName);
+        if (cp == null) {
+            vertx.setTimer(scenario.thinkTimeMillis(), (t) -> command(gameName));
+            return;
+        }
+        long start = System.nanoTime();
+        webClient.post(run.port(), run.host(), "/command")
+            .putHeader("Content-Type", codec.contentType())
+            .putHeader("Accept", codec.contentType())
+            .sendBuffer(codec.encode(cp))
+            .onComplete((result) -> {
+                RenderingPackage rp = record("command", start, result);
+                if (rp != null) {
+                    lastFrame = rp;
+                }
+                vertx.setTimer(scenario.thinkTimeMillis(), (t) -> command(gameName));
+            });
+    }
+
+    /** Subscribes to the game over a WebSocket, then sends input up it every think time */
+    private void subscribe(String gameName) {
+        WebSocketConnectOptions options = new WebSocketConnectOptions()
+            .setPort(run.port())
+            .setHost(run.host())
+            .setURI("/")
+            .addHeader("Accept", codec.contentType());
+
+        long start = System.nanoTime();
+        httpClient.webSocket(options, (ws) -> {
+            if (ws.failed()) {
+                if (run.measuring()) {
+                    stats("wsConnect").error();
+                }
+                vertx.setTimer(RETRY_MILLIS, (t) -> subscribe(gameName));
+                return;
+            }
+            if (run.measuring()) {
+                stats("wsConnect").success(start);
+            }
+            webSocket = ws.result();
+            webSocket.binaryMessageHandler(this::framePushed);
+            webSocket.write(codec.encode(new CommandPackage(scenario.gameServer(), gameName, playerName,
+                scenario.subscriptionCommands())));
+
+            vertx.setPeriodic(scenario.thinkTimeMillis(), (timer) -> {
+                if (!run.running() || webSocket.isClosed()) {
+                    vertx.cancelTimer(timer);
+                    webSocket.close();
+                    return;
+                }
+                CommandPackage cp = nextInput(gameName);
+                if (cp != null) {
+                    webSocket.write(codec.encode(cp));
+                    if (inputSentNanos == 0) {
+                        inputSentNanos = System.nanoTime();
+                    }
+                }
+            });
+        });
+    }
+
+    private void framePushed(Buffer bin) {
+        long now = System.nanoTime();
+        try {
+            lastFrame = codec.decodeRenderingPackage(bin);
+        } catch (RuntimeException e) {
+            if (run.measuring()) {
+                stats("wsFrame").error();
+            }
+            return;
+        }
+        if (run.measuring()) {
+            if (lastFrameNanos != 0) {
+                stats("wsFrame").success(lastFrameNanos);
+            }
+            if (inputSentNanos != 0) {
+                stats("wsInputToFrame").success(inputSentNanos);
+            }
+        }
+        lastFrameNanos = now;
+        inputSentNanos = 0;
+    }
+
+}
@@ -0,0 +1,47 @@
+package minigames.loadgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the load generator's latency histogram
+ */
+public class LatencyHistogramTests {
+
+    @DisplayName("Every value falls in a bucket whose upper bound is at least the value, and within 4% of it")
+    @Test
+    public void bucketsBoundTheirValues() {
+        for (long v = 0; v < 10_000_000; v = v < 1000 ? v + 1 : v + v / 97) {
+            int i = LatencyHistogram.index(v);
+            long upper = LatencyHistogram.upperBound(i);
+            assertTrue(upper >= v, v + " is above its bucket's bound " + upper);
+            assertTrue(upper <= v * 1.04 + 1, v + " is too far below its bucket's bound " + upper);
+            if (i > 0) {
+                assertTrue(LatencyHistogram.upperBound(i - 1) < v, v + " belongs in an earlier bucket");
+            }
+        }
+    }
+
+    @DisplayName("Percentiles are reported to within the bucket width")
+    @Test
+    public void percentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 100);
+        }
+        assertEquals(1000, h.count());
+        assertEquals(100_000, h.max());
+        assertEquals(50_000, h.percentile(0.5), 50_000 * 0.04);
+        assertEquals(99_000, h.percentile(0.99), 99_000 * 0.04);
+        assertEquals(100_000, h.percentile(1.0));
+    }
+
+    @DisplayName("An empty histogram reports zero")
+    @Test
+    public void empty() {
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+
+}
@@ -0,0 +1,189 @@
+package minigames.server;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import minigames.server.metrics.ServerMetrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Somewhere to run blocking work (JDBC, bcrypt) so that it doesn't stall the Vert.x event loops that game
+ * traffic is served on.
+ *
+ * Each pool runs at most a fixed number of tasks at once, and holds at most a fixed number more waiting. When
+ * it is full, work is refused straight away with a RejectedExecutionException rather than queued without limit,
+ * so a burst of logins fails fast (the routes answer 503) instead of piling up behind itself. How long work
+ * waits before it starts is recorded per pool, as is how often it is refused.
+ *
+ * Futures returned by submit complete back on the Vert.x context that submitted the work, if there was one.
+ */
+public class BlockingPool {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(BlockingPool.class);
+
+    /**
+     * Runs work on the calling thread. For code (and tests) that is not running on an event loop and is
+     * happy to block, e.g. seeding the database at start-up.
+     */
+    public static final BlockingPool INLINE = new BlockingPool();
+
+    private final String name;
+    private final ExecutorService executor;
+    /** Held by every task from submission until it finishes, so at most threads + queue are ever admitted */
+    private final Semaphore admitted;
+    /** Held by every task while it runs. Only used with virtual threads, where the executor itself is unbounded. */
+    private final Semaphore running;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejections = new LongAdder();
+
+    private BlockingPool() {
+        this.name = "inline";
+        this.executor = null;
+        this.admitted = null;
+        this.running = null;
+    }
+
+    /**
+     * @param name what the pool is called in thread names and metrics
+     * @param threads how many tasks can run at once
+     * @param queueCapacity how many more can wait to run before work is refused
+     * @param virtual whether tasks run on virtual threads (for I/O) or a fixed set of platform threads (for CPU)
+     */
+    public BlockingPool(String name, int threads, int queueCapacity, boolean virtual) {
+        if (threads <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("A pool needs at least one thread and a non-negative queue");
+        }
+        this.name = name;
+        this.admitted = new Semaphore(threads + queueCapacity);
+        if (virtual) {
+            this.running = new Semaphore(threads, true);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        } else {
+            this.running = null;
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = (r) -> {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            this.executor = Executors.newFixedThreadPool(threads, factory);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** How many tasks have been admitted but not yet started */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /** How many tasks have been refused because the pool was full */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Runs blocking work on the pool. The returned Future fails with a RejectedExecutionException if the
+     * pool is full, or with whatever the work throws.
+     */
+    public <T> Future<T> submit(Callable<T> work) {
+        if (executor == null) {
+            try {
+                return Future.succeededFuture(work.call());
+            } catch (Exception ex) {
+                return Future.failedFuture(ex);
+            }
+        }
+
+        if (!admitted.tryAcquire()) {
+            rejections.increment();
+            ServerMetrics.blockingRejected(name).inc();
+            return Future.failedFuture(new RejectedExecutionException("The " + name + " pool is saturated"));
+        }
+
+        Context context = Vertx.currentContext();
+        Promise<T> promise = Promise.promise();
+        long queuedAt = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            executor.execute(() -> run(work, queuedAt, context, promise));
+        } catch (RejectedExecutionException ex) {
+            waiting.decrementAndGet();
+            admitted.release();
+            return Future.failedFuture(ex);
+        }
+        return promise.future();
+    }
+
+    private <T> void run(Callable<T> work, long queuedAt, Context context, Promise<T> promise) {
+        boolean holdsRunning = false;
+        try {
+            if (running != null) {
+                running.acquire();
+                holdsRunning = true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        T result = null;
+        Exception failure = null;
+        try {
+            if (running != null && !holdsRunning) {
+                throw new RejectedExecutionException("The " + name + " pool was interrupted");
+            }
+            ServerMetrics.blockingQueueWait(name).recordSince(queuedAt);
+            result = work.call();
+        } catch (Exception ex) {
+            logger.debug("Blocking work on {} failed", name, ex);
+            failure = ex;
+        } finally {
+            if (holdsRunning) {
+                running.release();
+            }
+            admitted.release();
+        }
+
+        // Only completed once the work's permits are back, so whoever is waiting on it can submit more straight away
+        if (failure == null) {
+            T value = result;
+            complete(context, () -> promise.complete(value));
+        } else {
+            Exception cause = failure;
+            complete(context, () -> promise.fail(cause));
+        }
+    }
+
+    private static void complete(Context context, Runnable completion) {
+        if (context == null) {
+            completion.run();
+        } else {
+            context.runOnContext((v) -> completion.run());
+        }
+    }
+
+    /** Stops accepting work. Work already admitted still runs. */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+}
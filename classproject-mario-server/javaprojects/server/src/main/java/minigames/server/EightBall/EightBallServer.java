@@ -1,6 +1,6 @@
 package minigames.server.EightBall;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,7 +27,7 @@ public class EightBallServer implements GameServer{
     // Logging
     Logger logger = LogManager.getLogger(EightBallServer.class);
     //Stores games in progress
-    HashMap<String, EightBallGame> games = new HashMap<>();
+    ConcurrentHashMap<String, EightBallGame> games = new ConcurrentHashMap<>();
 
     /**
      * Just used for the Network menu description
@@ -96,4 +96,9 @@ public class EightBallServer implements GameServer{
         EightBallGame game = games.get(commands.gameId());
         return Future.succeededFuture(game.runCommands(commands));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
 }
@@ -0,0 +1,214 @@
+package minigames.server;
+
+import java.util.Arrays;
+
+/**
+ * The moving things in a game (enemies, pickups, projectiles...), kept in parallel arrays of ints rather than as
+ * an object each.
+ *
+ * Each entity lives in a slot, and its position, velocity, size, kind and flags are read and written by slot.
+ * Removing an entity frees its slot for the next one added, so a game that spawns and removes things every tick
+ * stops allocating once the store has grown to the most it has ever held at once. Updating every entity is one
+ * loop over the arrays, from slot 0 up to slots(), skipping those that aren't live.
+ *
+ * What the kinds and flags mean is up to the game. Each entity also gets an id that is never reused, to identify
+ * it to clients, as a slot can hold several entities over its life.
+ *
+ * Like the rest of a game's state, a store should only be used from the game's context.
+ */
+public class EntityStore {
+
+    /** The kind of a slot that holds nothing */
+    public static final int FREE = -1;
+
+    private int[] kinds;
+    private int[] ids;
+    private int[] xs;
+    private int[] ys;
+    private int[] dxs;
+    private int[] dys;
+    private int[] widths;
+    private int[] heights;
+    private int[] flags;
+
+    /** Slots that have been freed, to be reused before any new ones */
+    private int[] free;
+    private int freeCount = 0;
+    /** How many slots have ever been used. Everything from here up is free. */
+    private int used = 0;
+    private int size = 0;
+    private int nextId = 0;
+
+    public EntityStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        kinds = new int[capacity];
+        ids = new int[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        dxs = new int[capacity];
+        dys = new int[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+        flags = new int[capacity];
+        free = new int[capacity];
+        Arrays.fill(kinds, FREE);
+    }
+
+    /**
+     * Adds an entity, reusing a free slot if there is one.
+     *
+     * @param kind what sort of entity it is; any number but FREE
+     * @return the slot it is in
+     */
+    public int add(int kind, int x, int y, int width, int height, int dx, int dy, int flags) {
+        if (kind == FREE) {
+            throw new IllegalArgumentException("An entity must have a kind");
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (used == kinds.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        kinds[slot] = kind;
+        ids[slot] = ++nextId;
+        xs[slot] = x;
+        ys[slot] = y;
+        widths[slot] = width;
+        heights[slot] = height;
+        dxs[slot] = dx;
+        dys[slot] = dy;
+        this.flags[slot] = flags;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Removes the entity in a slot, so the slot can be reused. Removing from a free slot does nothing, so it's safe
+     * to remove things while looping over the slots.
+     */
+    public void remove(int slot) {
+        if (kinds[slot] == FREE) {
+            return;
+        }
+        kinds[slot] = FREE;
+        // A free slot has no area, so anything that looks for overlaps won't find it
+        widths[slot] = 0;
+        heights[slot] = 0;
+        flags[slot] = 0;
+        free[freeCount++] = slot;
+        size--;
+    }
+
+    /** Removes every entity. The store keeps its capacity. */
+    public void clear() {
+        Arrays.fill(kinds, 0, used, FREE);
+        Arrays.fill(widths, 0, used, 0);
+        Arrays.fill(heights, 0, used, 0);
+        Arrays.fill(flags, 0, used, 0);
+        used = 0;
+        freeCount = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        Arrays.fill(kinds, used, capacity, FREE);
+        ids = Arrays.copyOf(ids, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        dxs = Arrays.copyOf(dxs, capacity);
+        dys = Arrays.copyOf(dys, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+
+    /** One more than the highest slot in use: loop from 0 up to this to visit every entity */
+    public int slots() {
+        return used;
+    }
+
+    /** How many entities there are */
+    public int size() {
+        return size;
+    }
+
+    /** How many entities the store can hold before it has to grow */
+    public int capacity() {
+        return kinds.length;
+    }
+
+    public boolean isLive(int slot) {
+        return kinds[slot] != FREE;
+    }
+
+    /** The kind of entity in a slot, or FREE */
+    public int kind(int slot) {
+        return kinds[slot];
+    }
+
+    /** The id of the entity in a slot, which no other entity in this store has had */
+    public int id(int slot) {
+        return ids[slot];
+    }
+
+    public int x(int slot) {
+        return xs[slot];
+    }
+
+    public int y(int slot) {
+        return ys[slot];
+    }
+
+    public void moveTo(int slot, int x, int y) {
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    /** Moves an entity by its velocity */
+    public void step(int slot) {
+        xs[slot] += dxs[slot];
+        ys[slot] += dys[slot];
+    }
+
+    public int dx(int slot) {
+        return dxs[slot];
+    }
+
+    public int dy(int slot) {
+        return dys[slot];
+    }
+
+    public void setVelocity(int slot, int dx, int dy) {
+        dxs[slot] = dx;
+        dys[slot] = dy;
+    }
+
+    public int width(int slot) {
+        return widths[slot];
+    }
+
+    public int height(int slot) {
+        return heights[slot];
+    }
+
+    /** Whether an entity has all of the given flags */
+    public boolean is(int slot, int flag) {
+        return (flags[slot] & flag) == flag;
+    }
+
+    public void set(int slot, int flag) {
+        flags[slot] |= flag;
+    }
+
+    public void clear(int slot, int flag) {
+        flags[slot] &= ~flag;
+    }
+
+}
@@ -0,0 +1,160 @@
+package minigames.server;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Gives every game in progress its own execution context, so that game code never needs locks.
+ *
+ * Each game (identified by its GameServer's name and the game's id) gets a sequential executor: everything
+ * submitted to it - commands, joins, ticks, timers - runs one at a time, in the order it was submitted.
+ *
+ * There is one thread ("lane") per core. Each game is pinned to a lane by hashing its id (ShardVerticle.shardOf),
+ * so a game's work always runs on the same thread, whichever shard it came in on, while different games run in
+ * parallel on different cores.
+ *
+ * Game creation runs on the GameServer's own context (the game id being ""), as the game doesn't exist yet.
+ *
+ * A game's context is made when the game is created (or first binds a task), never by a call to it, so ids that
+ * clients make up don't each leave a context behind. Calls to a game without one fail with NoSuchElementException.
+ */
+public class GameContexts {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(GameContexts.class);
+
+    private final ExecutorService[] lanes;
+    private final Map<String, Executor> contexts = new ConcurrentHashMap<>();
+
+    /** Creates contexts with a lane per core */
+    public GameContexts() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameContexts(int threads) {
+        lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "game-context-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor((r) -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** The number of lanes, i.e. the number of games that can run at once */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /** Gives a game that has just been created its context, if it doesn't have one already */
+    public void created(String gameServer, String gameId) {
+        contextFor(gameServer, gameId);
+    }
+
+    /** Whether a game has a context, i.e. has been created and hasn't ended */
+    public boolean has(String gameServer, String gameId) {
+        return contexts.containsKey(key(gameServer, gameId));
+    }
+
+    /** The context a game's work runs on, created if need be */
+    private Executor contextFor(String gameServer, String gameId) {
+        return contexts.computeIfAbsent(key(gameServer, gameId),
+            (k) -> MoreExecutors.newSequentialExecutor(lanes[ShardVerticle.shardOf(gameId, lanes.length)]));
+    }
+
+    /**
+     * Runs the creation of a new game on its GameServer's own context. The caller must have checked that the
+     * GameServer is registered, as this makes the context if need be.
+     */
+    public <T> Future<T> submitNew(String gameServer, Supplier<Future<T>> call) {
+        return submit(gameServer, "", contextFor(gameServer, ""), call);
+    }
+
+    /**
+     * Runs a call to a game on its context, completing with whatever the call's Future completes with.
+     * If the call throws, the returned Future fails. If the game has no context, it fails without running.
+     */
+    public <T> Future<T> submit(String gameServer, String gameId, Supplier<Future<T>> call) {
+        Executor context = contexts.get(key(gameServer, gameId));
+        if (context == null) {
+            return Future.failedFuture(new NoSuchElementException("No game " + key(gameServer, gameId)));
+        }
+        return submit(gameServer, gameId, context, call);
+    }
+
+    private <T> Future<T> submit(String gameServer, String gameId, Executor context, Supplier<Future<T>> call) {
+        Promise<T> promise = Promise.promise();
+        context.execute(() -> {
+            try {
+                call.get().onComplete(promise);
+            } catch (Exception ex) {
+                logger.error("Call to {} failed", key(gameServer, gameId), ex);
+                promise.tryFail(ex);
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * Wraps a task so that, wherever it is run from (e.g. the GameLoopScheduler), it actually runs on the game's context.
+     *
+     * While a run of the task is queued or running, running it again does nothing. A game whose ticks take longer
+     * than the tick period just misses ticks, rather than building up a backlog that all runs back to back once
+     * it catches up.
+     */
+    public Runnable bind(String gameServer, String gameId, Runnable task) {
+        Executor context = contextFor(gameServer, gameId);
+        AtomicBoolean pending = new AtomicBoolean();
+        return () -> {
+            if (!pending.compareAndSet(false, true)) {
+                logger.debug("Skipping a run of a task for {}, as the last one hasn't finished", key(gameServer, gameId));
+                return;
+            }
+            try {
+                context.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (Exception ex) {
+                        logger.error("Task for {} failed", key(gameServer, gameId), ex);
+                    } finally {
+                        pending.set(false);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                pending.set(false);
+                throw ex;
+            }
+        };
+    }
+
+    /** Forgets a game's context once the game has ended. Anything already queued on it still runs. */
+    public void remove(String gameServer, String gameId) {
+        contexts.remove(key(gameServer, gameId));
+    }
+
+    /** The number of games that currently have a context */
+    public int size() {
+        return contexts.size();
+    }
+
+    private static String key(String gameServer, String gameId) {
+        return gameServer + "/" + gameId;
+    }
+
+}
@@ -0,0 +1,192 @@
+package minigames.server;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the number of games in memory bounded.
+ *
+ * Games are tracked from when they are created, and every join, command or WebSocket input counts as activity.
+ * Every REAP_INTERVAL_SECONDS, games that have been idle for longer than the idle TTL are removed from their
+ * GameServer (which stops their loops and timers), and their execution contexts are released. Eviction runs on
+ * the game's own context, so it never interleaves with a command or tick.
+ *
+ * Each GameServer may also only have a limited number of live games. A new game takes a slot with reserve()
+ * before it is created, which the game keeps once created() is called (or gives back with release() if creating
+ * it fails). Once live games and reserved slots reach the cap, reserve() refuses new games until some are evicted.
+ */
+public class GameLifecycleManager {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(GameLifecycleManager.class);
+
+    /** How long a game can go without activity before it is evicted, unless configured otherwise */
+    public static final long DEFAULT_IDLE_TTL_MINUTES = 30;
+
+    /** How many live games each GameServer may have, unless configured otherwise */
+    public static final int DEFAULT_MAX_GAMES_PER_SERVER = 1000;
+
+    /** How often idle games are looked for */
+    public static final long REAP_INTERVAL_SECONDS = 30;
+
+    private final long idleTtlNanos;
+    private final int maxGamesPerServer;
+    private final LongSupplier clock;
+
+    /** For each GameServer, the last time (in clock nanos) each of its games saw activity */
+    private final Map<String, Map<String, Long>> lastActive = new ConcurrentHashMap<>();
+
+    /** For each GameServer, how many slots are reserved for games still being created. Guarded by this. */
+    private final Map<String, Integer> reserved = new HashMap<>();
+
+    private final List<BiConsumer<String, String>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refusals = new LongAdder();
+    private ScheduledFuture<?> reaper;
+
+    /** Creates a manager with the default TTL and cap */
+    public GameLifecycleManager() {
+        this(DEFAULT_IDLE_TTL_MINUTES, TimeUnit.MINUTES, DEFAULT_MAX_GAMES_PER_SERVER);
+    }
+
+    public GameLifecycleManager(long idleTtl, TimeUnit unit, int maxGamesPerServer) {
+        this(idleTtl, unit, maxGamesPerServer, System::nanoTime);
+    }
+
+    /** Creates a manager that reads the time from the given clock, so tests don't have to wait out the TTL */
+    GameLifecycleManager(long idleTtl, TimeUnit unit, int maxGamesPerServer, LongSupplier clock) {
+        this.idleTtlNanos = unit.toNanos(idleTtl);
+        this.maxGamesPerServer = maxGamesPerServer;
+        this.clock = clock;
+    }
+
+    /** Starts looking for idle games on the game loop scheduler */
+    public synchronized void start() {
+        if (reaper == null) {
+            reaper = Main.gameLoopScheduler.scheduleAtFixedRate(REAP_INTERVAL_SECONDS, TimeUnit.SECONDS, this::reap);
+        }
+    }
+
+    /** Stops looking for idle games */
+    public synchronized void stop() {
+        if (reaper != null) {
+            reaper.cancel(false);
+            reaper = null;
+        }
+    }
+
+    /** Whether a GameServer is below its cap, counting slots reserved for games being created */
+    public synchronized boolean hasRoom(String gameServer) {
+        if (liveGames(gameServer) + reserved.getOrDefault(gameServer, 0) < maxGamesPerServer) {
+            return true;
+        }
+        refusals.increment();
+        return false;
+    }
+
+    /**
+     * Takes a slot for a game that is about to be created, if the GameServer is below its cap. Checking and taking
+     * happen together, so concurrent requests can't all see room for one more game and all create it.
+     *
+     * @return false if the GameServer is at its cap, in which case nothing is reserved
+     */
+    public synchronized boolean reserve(String gameServer) {
+        if (!hasRoom(gameServer)) {
+            return false;
+        }
+        reserved.merge(gameServer, 1, Integer::sum);
+        return true;
+    }
+
+    /** Gives back a reserved slot, when creating the game it was reserved for failed */
+    public synchronized void release(String gameServer) {
+        reserved.computeIfPresent(gameServer, (k, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /** Starts tracking a game that has just been created. If a slot was reserved for it, the game takes it over. */
+    public synchronized void created(String gameServer, String gameId) {
+        release(gameServer);
+        lastActive.computeIfAbsent(gameServer, (k) -> new ConcurrentHashMap<>()).put(gameId, clock.getAsLong());
+    }
+
+    /** Records activity in a game. Games that aren't being tracked (e.g. already evicted) are ignored. */
+    public void touch(String gameServer, String gameId) {
+        Map<String, Long> games = lastActive.get(gameServer);
+        if (games != null) {
+            games.computeIfPresent(gameId, (k, v) -> clock.getAsLong());
+        }
+    }
+
+    /**
+     * Registers something to be told (with the GameServer's name and the game's id) once a game has been evicted,
+     * e.g. so WebSockets subscribed to it can be closed.
+     */
+    public void onEviction(BiConsumer<String, String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Evicts every game that has been idle for longer than the TTL.
+     * @return how many games were found idle. They are removed asynchronously, on their own contexts.
+     */
+    public int reap() {
+        long now = clock.getAsLong();
+        int found = 0;
+        for (Map.Entry<String, Map<String, Long>> server : lastActive.entrySet()) {
+            for (Map.Entry<String, Long> game : server.getValue().entrySet()) {
+                // Only remove the entry if it hasn't been touched since we read it
+                if (now - game.getValue() > idleTtlNanos && server.getValue().remove(game.getKey(), game.getValue())) {
+                    evict(server.getKey(), game.getKey());
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private void evict(String gameServer, String gameId) {
+        GameServer gs = Main.gameRegistry.getGameServer(gameServer);
+        Main.gameContexts.bind(gameServer, gameId, () -> {
+            boolean removed = gs != null && gs.removeGame(gameId);
+            Main.gameContexts.remove(gameServer, gameId);
+            evictions.increment();
+            logger.info("Evicted idle game {}/{}{}", gameServer, gameId, removed ? "" : " (already gone from its server)");
+            for (BiConsumer<String, String> listener : evictionListeners) {
+                listener.accept(gameServer, gameId);
+            }
+        }).run();
+    }
+
+    /** The number of games a GameServer has that are being tracked */
+    public int liveGames(String gameServer) {
+        Map<String, Long> games = lastActive.get(gameServer);
+        return games == null ? 0 : games.size();
+    }
+
+    /** The number of games being tracked across every GameServer */
+    public int liveGames() {
+        return lastActive.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /** How many games have been evicted since the server started */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /** How many new games have been refused because their server was at its cap */
+    public long refusalCount() {
+        return refusals.sum();
+    }
+
+}
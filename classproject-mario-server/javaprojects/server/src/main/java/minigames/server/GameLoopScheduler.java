@@ -0,0 +1,129 @@
+package minigames.server;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import minigames.server.metrics.Counter;
+import minigames.server.metrics.Histogram;
+import minigames.server.metrics.ServerMetrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A single scheduler shared by every game loop on the server.
+ *
+ * Rather than each game (or each player!) creating its own thread to tick on, games register their
+ * ticks and one-shot timers here. Ticks are spread across a bounded pool of daemon threads sized to
+ * the number of cores, so a few hundred rooms no longer means a few hundred threads.
+ *
+ * Cancel the returned ScheduledFuture when your game ends, or the tick will keep running.
+ */
+public class GameLoopScheduler {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(GameLoopScheduler.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /** Creates a scheduler with one thread per available core */
+    public GameLoopScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Creates a scheduler with the given number of threads */
+    public GameLoopScheduler(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = (r) -> {
+            Thread t = new Thread(r, "game-loop-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), factory);
+
+        // Cancelled games should not linger in the work queue until their next tick would have been due
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules a game's tick to run at a fixed rate.
+     * A tick that throws is logged rather than silently stopping the loop.
+     *
+     * @param ticksPerSecond how many times a second the game wants to be ticked
+     * @param tick the work to do each tick
+     * @return a handle to cancel when the game ends
+     */
+    public ScheduledFuture<?> scheduleTicks(int ticksPerSecond, Runnable tick) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("ticksPerSecond must be positive");
+        }
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        return scheduleAtFixedRate(periodNanos, TimeUnit.NANOSECONDS, tick);
+    }
+
+    /**
+     * Schedules work to run repeatedly with the given period, for loops that are slower than once a second.
+     *
+     * @return a handle to cancel when the game ends
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(long period, TimeUnit unit, Runnable tick) {
+        return executor.scheduleAtFixedRate(guard(tick), 0, period, unit);
+    }
+
+    /**
+     * Schedules a one-shot timer, e.g. clearing a player's "recently hit" flag.
+     *
+     * @return a handle that can be used to cancel the timer before it fires
+     */
+    public ScheduledFuture<?> schedule(long delay, TimeUnit unit, Runnable task) {
+        return executor.schedule(guard(task), delay, unit);
+    }
+
+    /**
+     * Wraps a game's tick so that its duration is recorded in the game server's tick histogram, and ticks that
+     * take longer than the loop's period are counted as overruns. Wrap the tick itself - i.e. inside
+     * GameContexts.bind - so the time measured is the tick's, not the time taken to queue it.
+     */
+    public Runnable timed(String gameServer, int ticksPerSecond, Runnable tick) {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        Histogram duration = ServerMetrics.tickDuration(gameServer);
+        Counter overruns = ServerMetrics.tickOverruns(gameServer);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                tick.run();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                duration.record(elapsed);
+                if (elapsed > periodNanos) {
+                    overruns.inc();
+                }
+            }
+        };
+    }
+
+    /** The number of loops and timers waiting to run */
+    public int scheduledCount() {
+        return executor.getQueue().size();
+    }
+
+    /** Stops all scheduled work. Used when the server shuts down. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Wraps a task so that an exception does not cancel a repeating tick */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Error during scheduled game task: ", e);
+            }
+        };
+    }
+
+}
@@ -1,15 +1,16 @@
 package minigames.server;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Holds information on which games are available and can be served up to clients.
  */
 public class GameRegistry {
 
-    private HashMap<String, GameServer> gameServers = new HashMap<>();
+    private ConcurrentHashMap<String, GameServer> gameServers = new ConcurrentHashMap<>();
 
     /**
      * Called by your GameServer to register it as being available to play
@@ -25,6 +26,11 @@ public class GameRegistry {
         return gameServers.get(name);
     }
 
+    /** The names of every registered GameServer */
+    public Set<String> getGameServerNames() {
+        return gameServers.keySet();
+    }
+
     /**
      * Called by the MinigameNetworkServer when a client is asking what games are available for it.
      * @param platform
@@ -42,4 +42,30 @@ public interface GameServer {
      */
     public Future<RenderingPackage> callGame(CommandPackage commands);
 
+    /**
+     * How many times a second WebSockets subscribed to one of this server's games are pushed its state.
+     */
+    public default int pushRate() {
+        return GameSubscriptions.DEFAULT_PUSH_RATE;
+    }
+
+    /**
+     * Whether every WebSocket subscribed to a game is pushed the same state. If so, the game is polled once per
+     * push with the first subscriber's commands. If not (e.g. each player is sent a delta of their own), each
+     * subscriber is polled with the commands it subscribed with.
+     */
+    public default boolean sharesPushedState() {
+        return true;
+    }
+
+    /**
+     * Removes a game, stopping anything it has running (loops, timers) so it can be garbage collected.
+     * Called by the GameLifecycleManager, on the game's context, once the game has been idle too long.
+     *
+     * @return whether there was such a game to remove
+     */
+    public default boolean removeGame(String gameId) {
+        return false;
+    }
+
 }
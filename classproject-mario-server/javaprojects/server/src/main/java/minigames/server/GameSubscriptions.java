@@ -0,0 +1,234 @@
+package minigames.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import minigames.codec.WireCodec;
+import minigames.commands.CommandPackage;
+import minigames.server.metrics.Counter;
+import minigames.server.metrics.Gauge;
+import minigames.server.metrics.ServerMetrics;
+
+/**
+ * Keeps track of which WebSockets want to be pushed the state of which game.
+ *
+ * Subscribers are grouped by game. Each game with at least one subscriber has a single push loop on the
+ * GameLoopScheduler, running at the GameServer's pushRate(). For servers that share pushed state, the loop calls
+ * the GameServer once per push, encodes the RenderingPackage once per codec in use, and writes the same buffer
+ * to every subscriber using that codec. So the work done grows with the number of games, not the number of
+ * sockets. Because the package is shared, the first subscriber's commands are used for the whole game, and
+ * should describe state that is the same for every player (e.g. "getState").
+ *
+ * Servers that don't share pushed state (e.g. Mario, which sends each player a delta of their own) are instead
+ * called once per subscriber per push, with that subscriber's commands.
+ *
+ * A push is skipped while the game is still working through the previous one (for that subscriber, if state
+ * isn't shared), so a slow game misses pushes rather than building up a queue of polls on its context.
+ *
+ * Subscriptions are removed when their socket closes or errors, and a game's push loop stops once its last
+ * subscriber has gone.
+ */
+public class GameSubscriptions {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(GameSubscriptions.class);
+
+    /** How many times a second subscribed games are pushed to their sockets, unless their GameServer says otherwise */
+    public static final int DEFAULT_PUSH_RATE = 100;
+
+    /** One socket's subscription to one game */
+    public record Subscription(ServerWebSocket socket, CommandPackage commands, WireCodec codec) {
+        public String gameServer() { return commands.gameServer(); }
+        public String gameId() { return commands.gameId(); }
+        public String player() { return commands.player(); }
+    }
+
+    /** The subscribers to one game, and the loop that pushes to them */
+    private class GameFeed {
+        final String key;
+        final GameServer gameServer;
+        final CommandPackage commands;
+        final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+        /** Whether the shared poll from the last push hasn't completed yet */
+        final AtomicBoolean polling = new AtomicBoolean();
+        /** For servers that don't share state, the subscribers whose poll from the last push hasn't completed */
+        final Set<Subscription> pollingFor = ConcurrentHashMap.newKeySet();
+        ScheduledFuture<?> pushLoop;
+
+        GameFeed(String key, GameServer gameServer, CommandPackage commands) {
+            this.key = key;
+            this.gameServer = gameServer;
+            this.commands = commands;
+        }
+
+        void push() {
+            if (!gameServer.sharesPushedState()) {
+                for (Subscription s : subscribers) {
+                    // A socket that can't keep up misses a frame rather than queueing them without bound
+                    if (canWrite(s.socket()) && pollingFor.add(s)) {
+                        Main.gameContexts.submit(s.gameServer(), s.gameId(), () -> gameServer.callGame(s.commands()))
+                            .onComplete((r) -> pollingFor.remove(s))
+                            .onSuccess((rp) -> write(s.socket(), s.codec().encode(rp)))
+                            .onFailure((err) -> logger.debug("Push to {} in {} failed: {}", s.player(), key, err.getMessage()));
+                    }
+                }
+                return;
+            }
+
+            if (!polling.compareAndSet(false, true)) {
+                return;
+            }
+            Main.gameContexts.submit(commands.gameServer(), commands.gameId(), () -> gameServer.callGame(commands))
+                .onComplete((r) -> polling.set(false))
+                .onSuccess((rp) -> {
+                    HashMap<WireCodec, Buffer> encoded = new HashMap<>(2);
+                    for (Subscription s : subscribers) {
+                        if (canWrite(s.socket())) {
+                            write(s.socket(), encoded.computeIfAbsent(s.codec(), (c) -> c.encode(rp)));
+                        }
+                    }
+                })
+                .onFailure((err) -> logger.debug("Push to {} failed: {}", key, err.getMessage()));
+        }
+    }
+
+    private static final Gauge subscriberGauge = ServerMetrics.webSocketSubscribers();
+    private static final Gauge feedGauge = ServerMetrics.webSocketFeeds();
+    private static final Gauge pendingWrites = ServerMetrics.webSocketPendingWrites();
+    private static final Counter droppedFrames = ServerMetrics.webSocketDroppedFrames();
+
+    /** Shared by every write, so tracking pending writes doesn't allocate a handler per frame */
+    private static final Handler<AsyncResult<Void>> written = (ar) -> pendingWrites.dec();
+
+    /** Whether a socket has room for another frame. If not, the frame it would have been sent is counted as dropped. */
+    private static boolean canWrite(ServerWebSocket socket) {
+        if (socket.writeQueueFull()) {
+            droppedFrames.inc();
+            return false;
+        }
+        return true;
+    }
+
+    private static void write(ServerWebSocket socket, Buffer frame) {
+        pendingWrites.inc();
+        socket.write(frame, written);
+    }
+
+    private final Map<String, GameFeed> feeds = new ConcurrentHashMap<>();
+    private final Map<ServerWebSocket, Subscription> bySocket = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribes a socket to the game named in the command package, pushing it JSON.
+     */
+    public Subscription subscribe(ServerWebSocket socket, GameServer gs, CommandPackage cp) {
+        return subscribe(socket, gs, cp, WireCodec.JSON);
+    }
+
+    /**
+     * Subscribes a socket to the game named in the command package, pushing it packages encoded with the
+     * codec it negotiated. A socket has at most one subscription; subscribing again replaces the previous one.
+     */
+    public Subscription subscribe(ServerWebSocket socket, GameServer gs, CommandPackage cp, WireCodec codec) {
+        Subscription sub = new Subscription(socket, cp, codec);
+
+        Subscription previous = bySocket.put(socket, sub);
+        if (previous != null) {
+            removeFromFeed(previous);
+        } else {
+            subscriberGauge.inc();
+            socket.closeHandler((v) -> unsubscribe(socket));
+            socket.exceptionHandler((err) -> {
+                logger.debug("WebSocket error, unsubscribing: {}", err.getMessage());
+                unsubscribe(socket);
+            });
+        }
+
+        String key = feedKey(cp.gameServer(), cp.gameId());
+        feeds.compute(key, (k, feed) -> {
+            if (feed == null) {
+                GameFeed created = new GameFeed(k, gs, cp);
+                created.subscribers.add(sub);
+                created.pushLoop = Main.gameLoopScheduler.scheduleTicks(gs.pushRate(), created::push);
+                feedGauge.inc();
+                logger.info("Started pushing {}", k);
+                return created;
+            }
+            feed.subscribers.add(sub);
+            return feed;
+        });
+        return sub;
+    }
+
+    /** The subscription a socket has, or null if it has none */
+    public Subscription subscriptionOf(ServerWebSocket socket) {
+        return bySocket.get(socket);
+    }
+
+    /** Removes a socket's subscription, if it has one */
+    public void unsubscribe(ServerWebSocket socket) {
+        Subscription sub = bySocket.remove(socket);
+        if (sub != null) {
+            subscriberGauge.dec();
+            removeFromFeed(sub);
+        }
+    }
+
+    /**
+     * Stops pushing a game and closes every socket subscribed to it, e.g. once the game has been evicted.
+     */
+    public void closeGame(String gameServer, String gameId) {
+        GameFeed feed = feeds.remove(feedKey(gameServer, gameId));
+        if (feed == null) {
+            return;
+        }
+        feed.pushLoop.cancel(false);
+        feedGauge.dec();
+        for (Subscription s : feed.subscribers) {
+            if (bySocket.remove(s.socket(), s)) {
+                subscriberGauge.dec();
+            }
+            s.socket().close((short) 1001, "Game ended");
+        }
+        logger.info("Stopped pushing {}, as the game has gone", feed.key);
+    }
+
+    private void removeFromFeed(Subscription sub) {
+        String key = feedKey(sub.gameServer(), sub.gameId());
+        feeds.computeIfPresent(key, (k, feed) -> {
+            feed.subscribers.remove(sub);
+            if (feed.subscribers.isEmpty()) {
+                feed.pushLoop.cancel(false);
+                feedGauge.dec();
+                logger.info("Stopped pushing {}", k);
+                return null;
+            }
+            return feed;
+        });
+    }
+
+    /** The number of sockets currently subscribed to any game */
+    public int subscriberCount() {
+        return bySocket.size();
+    }
+
+    /** The number of games currently being pushed */
+    public int feedCount() {
+        return feeds.size();
+    }
+
+    private static String feedKey(String gameServer, String gameId) {
+        return gameServer + "/" + gameId;
+    }
+
+}
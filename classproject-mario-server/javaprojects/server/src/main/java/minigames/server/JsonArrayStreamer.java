@@ -0,0 +1,120 @@
+package minigames.server;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import minigames.server.database.Page;
+
+/**
+ * Streams a list, however long, to an HTTP response as one JSON array, a page at a time.
+ *
+ * Each page is fetched, written as a chunk, and dropped before the next is fetched, so only one page is ever held
+ * in memory. If the client reads more slowly than pages arrive, the response's write queue fills and the next
+ * page isn't fetched until it has drained. Nothing holds a database connection while waiting for the client.
+ *
+ * Everything runs on the event loop that calls stream, which must be the response's. fetch is expected to
+ * complete its Futures there too (as BlockingPool's do), so the response is only ever touched from its context.
+ */
+public class JsonArrayStreamer {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(JsonArrayStreamer.class);
+
+    private final HttpServerResponse response;
+    private final Function<String, Future<Page<JsonObject>>> fetch;
+    private final Consumer<Throwable> onEarlyFailure;
+    private final Context context = Vertx.currentContext();
+    private boolean started = false;
+    private boolean closed = false;
+
+    private JsonArrayStreamer(HttpServerResponse response, Function<String, Future<Page<JsonObject>>> fetch,
+            Consumer<Throwable> onEarlyFailure) {
+        this.response = response;
+        this.fetch = fetch;
+        this.onEarlyFailure = onEarlyFailure;
+    }
+
+    /**
+     * Streams every page to the response, then ends it.
+     *
+     * @param fetch fetches the page after a cursor (null for the first page)
+     * @param onEarlyFailure answers the request if the first page fails, before anything has been written. A
+     *                       failure after that can only be reported by closing the connection, leaving the client
+     *                       with an incomplete array.
+     */
+    public static void stream(HttpServerResponse response, Function<String, Future<Page<JsonObject>>> fetch,
+            Consumer<Throwable> onEarlyFailure) {
+        new JsonArrayStreamer(response, fetch, onEarlyFailure).next(null);
+    }
+
+    private void next(String cursor) {
+        fetch.apply(cursor).onComplete((ar) -> {
+            if (closed) {
+                return;
+            }
+            if (ar.failed()) {
+                fail(ar.cause());
+            } else {
+                write(ar.result());
+            }
+        });
+    }
+
+    private void write(Page<JsonObject> page) {
+        Buffer chunk = Buffer.buffer();
+        if (!started) {
+            started = true;
+            response.setStatusCode(200)
+                .setChunked(true)
+                .putHeader("Content-Type", "application/json")
+                .closeHandler((v) -> closed = true);
+            chunk.appendString("[");
+        } else if (!page.items().isEmpty()) {
+            chunk.appendString(",");
+        }
+        for (int i = 0; i < page.items().size(); i++) {
+            if (i > 0) {
+                chunk.appendString(",");
+            }
+            chunk.appendBuffer(page.items().get(i).toBuffer());
+        }
+
+        if (page.next() == null) {
+            response.end(chunk.appendString("]"));
+            return;
+        }
+        response.write(chunk);
+        if (response.writeQueueFull()) {
+            response.drainHandler((v) -> {
+                response.drainHandler(null);
+                if (!closed) {
+                    next(page.next());
+                }
+            });
+        } else {
+            // Not called directly: pages from memory come back at once, and this lets other work on the event
+            // loop run between pages rather than recursing through every page of a long list
+            context.runOnContext((v) -> next(page.next()));
+        }
+    }
+
+    private void fail(Throwable err) {
+        if (!started) {
+            onEarlyFailure.accept(err);
+        } else {
+            logger.error("Failed part way through streaming a list; closing the connection", err);
+            closed = true;
+            response.close();
+        }
+    }
+
+}
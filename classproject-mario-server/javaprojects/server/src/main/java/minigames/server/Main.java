@@ -1,7 +1,11 @@
 package minigames.server;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
 
 import minigames.server.deepfried.DeepFriedServer;
 import minigames.server.gwent.GwentServer;
@@ -20,6 +24,17 @@ import io.vertx.core.Launcher;
 import minigames.server.tictactoe.TicTacToeServer;
 
 import minigames.server.email.MailSender;
+import minigames.server.database.ConnectionPool;
+import minigames.server.database.DatabaseUtils;
+import minigames.server.database.LeaderboardIndex;
+import minigames.server.database.TtlCache;
+import minigames.server.database.WriteBehindBuffer;
+import minigames.server.database.repositories.CachingProfileRepository;
+import minigames.server.database.repositories.CachingUserRepository;
+import minigames.server.database.repositories.ProfileRepositoryImpl;
+import minigames.server.database.repositories.UserRepositoryImpl;
+import minigames.server.metrics.MetricsRegistry;
+import minigames.server.metrics.ServerMetrics;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,12 +56,93 @@ public class Main extends AbstractVerticle {
      */
     public static int port = 8080;
 
+    /**
+     * How many ShardVerticles to deploy. One per core unless given as the second argument.
+     */
+    public static int shards = Runtime.getRuntime().availableProcessors();
+
     /** 
      * The games that are available for each client. Static so that game servers and Main gan register them
-     * without needing to worry about whether the server has started yet.
+     * without needing to worry about whether the server has started yet. Every shard serves every game from it.
      */
     public static final GameRegistry gameRegistry = new GameRegistry();
 
+    /**
+     * The scheduler that every game loop and game timer runs on. Static for the same reason as the registry:
+     * games can be created (e.g. in tests) without the server having started.
+     */
+    public static final GameLoopScheduler gameLoopScheduler = new GameLoopScheduler();
+
+    /**
+     * The execution contexts games run on. Every command, join, tick and timer for a game runs in order on its
+     * context, so game code doesn't need to be thread-safe.
+     */
+    public static final GameContexts gameContexts = new GameContexts();
+
+    /** The server's metrics, served at /metrics */
+    public static final MetricsRegistry metrics = new MetricsRegistry();
+
+    /** How many connections the database pool opens, from the minigames.dbConnections system property */
+    public static final int databaseConnections = Integer.getInteger("minigames.dbConnections",
+        ConnectionPool.DEFAULT_SIZE);
+
+    /**
+     * Where database queries run, off the event loops. It runs as many at once as there are pooled connections;
+     * the queue (minigames.dbQueue) bounds how many more can wait.
+     */
+    public static final BlockingPool databasePool = new BlockingPool("db", databaseConnections,
+        Integer.getInteger("minigames.dbQueue", 256), true);
+
+    /**
+     * Every leaderboard score, shared by all shards' repositories so that leaderboard reads come from memory.
+     * Loaded from the database once it has been seeded.
+     */
+    public static final LeaderboardIndex leaderboardIndex = new LeaderboardIndex();
+
+    /**
+     * Batches leaderboard scores and play time into fewer database writes. How often it flushes, and how many
+     * writes make it flush early, can be set with the minigames.writeBehindMillis and minigames.writeBehindMax
+     * system properties.
+     */
+    public static final WriteBehindBuffer writeBehind = new WriteBehindBuffer(DatabaseUtils::connectionPool,
+        Long.getLong("minigames.writeBehindMillis", WriteBehindBuffer.DEFAULT_FLUSH_MILLIS),
+        Integer.getInteger("minigames.writeBehindMax", WriteBehindBuffer.DEFAULT_MAX_PENDING));
+
+    /** How many entries each repository cache holds, from the minigames.cacheSize system property */
+    private static final int cacheSize = Integer.getInteger("minigames.cacheSize", TtlCache.DEFAULT_MAX_SIZE);
+
+    /** How long (in seconds) repository caches keep entries, from the minigames.cacheTtlSeconds system property */
+    private static final long cacheTtlSeconds = Long.getLong("minigames.cacheTtlSeconds",
+        TtlCache.DEFAULT_TTL_SECONDS);
+
+    /**
+     * Users and achievements, cached in front of the database. Shared by all shards, so a write through any shard
+     * drops what it makes stale for all of them.
+     */
+    public static final CachingUserRepository userRepository = new CachingUserRepository(
+        new UserRepositoryImpl(databasePool), cacheSize, cacheTtlSeconds, TimeUnit.SECONDS);
+
+    /** Profiles, cached in front of the database and shared by all shards in the same way */
+    public static final CachingProfileRepository profileRepository = new CachingProfileRepository(
+        new ProfileRepositoryImpl(writeBehind, databasePool), cacheSize, cacheTtlSeconds, TimeUnit.SECONDS);
+
+    /**
+     * Where password hashing runs. bcrypt is CPU-bound, so this has at most half the cores
+     * (minigames.hashThreads), leaving the rest for games.
+     */
+    public static final BlockingPool hashingPool = new BlockingPool("hashing",
+        Integer.getInteger("minigames.hashThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+        Integer.getInteger("minigames.hashQueue", 64), false);
+
+    /**
+     * Evicts games that have been idle too long, and caps how many games each server can have.
+     * The TTL (in minutes) and cap can be set with the minigames.idleTtlMinutes and minigames.maxGamesPerServer
+     * system properties.
+     */
+    public static final GameLifecycleManager gameLifecycle = new GameLifecycleManager(
+        Long.getLong("minigames.idleTtlMinutes", GameLifecycleManager.DEFAULT_IDLE_TTL_MINUTES), TimeUnit.MINUTES,
+        Integer.getInteger("minigames.maxGamesPerServer", GameLifecycleManager.DEFAULT_MAX_GAMES_PER_SERVER));
+
     /**
      * A place for groups to put code that registers their GameServer with the GameRegistry, etc.
      */
@@ -80,6 +176,13 @@ public class Main extends AbstractVerticle {
                 logger.error("Port {} could not be parsed as a number", args[0]);
             }
         }
+        if (args.length > 1) {
+            try {
+                shards = Math.max(1, Integer.parseInt(args[1]));
+            } catch (NumberFormatException ex) {
+                logger.error("Shard count {} could not be parsed as a number", args[1]);
+            }
+        }
 
         // Register games and services
         doWiring();
@@ -90,8 +193,6 @@ public class Main extends AbstractVerticle {
         Launcher.executeCommand("run", "minigames.server.Main");
     }
 
-    MinigameNetworkServer gameServer;
-
     /**
      * The start method is called by vertx to initialise this Verticle.
      */
@@ -99,9 +200,29 @@ public class Main extends AbstractVerticle {
     public void start(Promise<Void> promise) {
         logger.info("Our Verticle is being started by Vert.x");
 
-        // Create and start the MinigameNetworkServer
-        gameServer = new MinigameNetworkServer(vertx);
-        gameServer.start(port);
+        // The database is shared by every shard, so it is set up once, here. Migrating, seeding and loading the
+        // leaderboards can take a while, so it runs on a worker thread, and the shards are only deployed once it's done.
+        vertx.<Void>executeBlocking((p) -> {
+            MinigameNetworkServer.initDatabase();
+            p.complete();
+        }).compose((v) -> {
+            writeBehind.start();
+
+            // Start evicting idle games
+            gameLifecycle.start();
+            ServerMetrics.registerCallbacks();
+
+            // Start a MinigameNetworkServer per shard, all on the same port
+            return vertx.deployVerticle(ShardVerticle.class.getName(), new DeploymentOptions()
+                    .setInstances(shards)
+                    .setConfig(new JsonObject().put("port", port).put("shards", shards)));
+        }).onSuccess((id) -> {
+            logger.info("Deployed {} shards", shards);
+            promise.complete();
+        }).onFailure((err) -> {
+            logger.error("Server failed to start", err);
+            promise.fail(err);
+        });
 
 
         // Start mail server
@@ -112,8 +233,15 @@ public class Main extends AbstractVerticle {
                 logger.error("MailSender verticle deployment failed: " + res.cause());
             }
         });
+    }
 
-        promise.complete();
+    /**
+     * Called by vertx when it shuts down (including on Ctrl-C), so buffered writes aren't lost.
+     */
+    @Override
+    public void stop() {
+        writeBehind.close();
+        logger.info("Flushed buffered database writes");
     }
 
-}
\ No newline at end of file
+}
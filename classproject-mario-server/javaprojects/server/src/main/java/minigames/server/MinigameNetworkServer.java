@@ -11,11 +11,12 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.CorsHandler;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
 
 import minigames.server.api.leaderboard.LeaderboardService;
 import minigames.server.api.leaderboard.LeaderboardServiceImpl;
@@ -23,6 +24,11 @@ import minigames.server.database.repositories.LeaderboardRepositoryImpl;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import minigames.codec.WireCodec;
+import minigames.codec.WireFormatException;
+import minigames.server.metrics.Histogram;
+import minigames.server.metrics.MetricsRegistry;
+import minigames.server.metrics.ServerMetrics;
 import minigames.commands.CommandPackage;
 import minigames.rendering.GameMetadata;
 import minigames.rendering.RenderingPackage;
@@ -34,9 +40,12 @@ import io.vertx.ext.auth.User;
 import minigames.server.database.DatabaseTables;
 import minigames.server.database.DatabaseUtils;
 import minigames.server.database.DatabaseSeeder;
-import minigames.server.database.repositories.UserRepositoryImpl;
+import minigames.server.database.MigrationRunner;
+import minigames.server.database.Page;
+import minigames.server.database.Migrations;
+import minigames.server.database.repositories.UserRepository;
 import minigames.server.database.repositories.LeaderboardRepositoryImpl;
-import minigames.server.database.repositories.ProfileRepositoryImpl;
+import minigames.server.database.repositories.ProfileRepository;
 import minigames.server.database.repositories.LeaderboardRepositoryImpl;
 import minigames.server.api.achievement.Achievement;
 import minigames.server.api.auth.AuthProvider;
@@ -44,6 +53,8 @@ import minigames.server.api.leaderboard.LeaderboardService;
 import minigames.server.api.leaderboard.LeaderboardServiceImpl;
 import minigames.server.api.profile.ProfileService;
 import minigames.server.api.profile.ProfileServiceImpl;
+import minigames.server.api.summary.SummaryService;
+import minigames.server.api.summary.SummaryServiceImpl;
 import minigames.server.api.user.UserService;
 import minigames.server.api.user.UserServiceImpl;
 
@@ -52,24 +63,32 @@ public class MinigameNetworkServer {
   /** A logger for logging output */
   private static final Logger logger = LogManager.getLogger(MinigameNetworkServer.class);
 
+  /** How many rows each page fetches when a whole list is streamed */
+  private static final int STREAM_PAGE_SIZE = 500;
+
   private final Vertx vertx;
   private final HttpServer server;
   private final Router router;
 
-  private DatabaseSeeder databaseSeeder;
   private final AuthProvider authProvider;
   private final JWTAuth jwtAuth;
 
   private final UserService userService;
   private final ProfileService profileService;
   private final LeaderboardService leaderboardService;
+  private final SummaryService summaryService;
 
-  private final UserRepositoryImpl userRepository;
-  private final ProfileRepositoryImpl profileRepository;
+  private final UserRepository userRepository;
+  private final ProfileRepository profileRepository;
   private final LeaderboardRepositoryImpl leaderboardRepository;
 
-  private final ScheduledExecutorService executorService;
+  /** The WebSockets that are being pushed game state */
+  private final GameSubscriptions subscriptions = new GameSubscriptions();
 
+  /**
+   * A server for one shard. Games aren't owned by shards: every shard runs a game's joins and commands on the
+   * same context (see GameContexts), so whichever shard a request arrives on submits it there directly.
+   */
   public MinigameNetworkServer(Vertx vertx) {
     this.vertx = vertx;
     this.server = vertx.createHttpServer();
@@ -82,37 +101,59 @@ public class MinigameNetworkServer {
             .setBuffer("need-to-move-this-secret"));
     this.jwtAuth = JWTAuth.create(vertx, jwtAuthOptions);
 
-    this.userRepository = new UserRepositoryImpl();
-    this.profileRepository = new ProfileRepositoryImpl();
-    this.leaderboardRepository = new LeaderboardRepositoryImpl();
+    // Queries run on the database pool, so they never block this shard's event loop. Users and profiles are
+    // cached in front of it, and the caches are shared by every shard.
+    this.userRepository = Main.userRepository;
+    this.profileRepository = Main.profileRepository;
+    this.leaderboardRepository = new LeaderboardRepositoryImpl(Main.leaderboardIndex, Main.writeBehind,
+        Main.databasePool);
 
-    this.databaseSeeder = new DatabaseSeeder(userRepository, profileRepository, leaderboardRepository);
     this.userService = new UserServiceImpl(userRepository, jwtAuth);
     this.profileService = new ProfileServiceImpl(profileRepository);
     this.leaderboardService = new LeaderboardServiceImpl(leaderboardRepository);
+    this.summaryService = new SummaryServiceImpl(userRepository, profileRepository, leaderboardRepository);
     this.authProvider = new AuthProvider(userRepository);
 
-    this.executorService = Executors.newSingleThreadScheduledExecutor(); // run background process
+    // Sockets watching a game that has been evicted would otherwise be pushed failures forever
+    Main.gameLifecycle.onEviction(subscriptions::closeGame);
+  }
 
-    if (!DatabaseUtils.connectToDatabase()) {
-      logger.info("Database failed to launch");
-    } else {
-      logger.info("Database launched");
-      DatabaseTables.createTables();
-      databaseSeeder.seedDatabase();
+  /**
+   * Connects to, creates, migrates and seeds the database. Called once by Main, however many shards there are.
+   * It blocks, so it is run on a worker thread.
+   *
+   * @throws IllegalStateException if the database can't be connected to
+   */
+  public static void initDatabase() {
+    if (!DatabaseUtils.connectToDatabase(Main.databaseConnections)) {
+      throw new IllegalStateException("Database failed to launch");
     }
+    logger.info("Database launched");
+    DatabaseTables.createTables();
+    try {
+      new MigrationRunner(DatabaseUtils.connectionPool(), Migrations.ALL).run();
+    } catch (SQLException e) {
+      // The server still works on the schema it has, just more slowly without the newer indexes
+      logger.error("Database migrations failed", e);
+    }
+    // Only adds what's missing, and only when seed_data.json has changed, unless minigames.reseed says to start again
+    new DatabaseSeeder(DatabaseUtils.connectionPool()).seedDatabase(Boolean.getBoolean("minigames.reseed"));
+    new LeaderboardRepositoryImpl(Main.leaderboardIndex, BlockingPool.INLINE).loadIndex()
+        .onFailure(err -> logger.error("Leaderboards will be read from the database", err));
   }
 
   /** Starts the server on the given port */
-  public void start(int port) {
+  public Future<HttpServer> start(int port) {
     router.route()
         .handler(CorsHandler.create().allowedMethod(HttpMethod.POST))
         .handler(BodyHandler.create());
 
     // added webSocketHandler
     server.webSocketHandler((ctx) -> {
+      // The codec is negotiated once, on the handshake
+      WireCodec codec = WireCodec.forContentType(ctx.headers().get("Accept"));
       ctx.binaryMessageHandler(bin -> {
-        handleWebSocketRequest(ctx, bin);
+        handleWebSocketRequest(ctx, codec, bin);
       });
 
     });
@@ -129,6 +170,13 @@ public class MinigameNetworkServer {
       ctx.response().end("pong");
     });
 
+    // Metrics for monitoring, in the OpenMetrics text format
+    router.get("/metrics").handler((ctx) -> {
+      ctx.response()
+          .putHeader("Content-Type", MetricsRegistry.CONTENT_TYPE)
+          .end(Main.metrics.scrape());
+    });
+
     // Basic authentication route
     router.post("/login").handler((ctx) -> {
       logger.info("Login route hit");
@@ -183,57 +231,61 @@ public class MinigameNetworkServer {
     });
 
     // Starts a new game on the server
-    router.post("/newGame/:gameServer").respond((ctx) -> {
+    router.post("/newGame/:gameServer").handler((ctx) -> {
       String serverName = ctx.pathParam("gameServer");
       GameServer gs = Main.gameRegistry.getGameServer(serverName);
 
       String playerName = ctx.body().asString();
 
+      if (gs == null) {
+        handleNotFound(ctx, "No game server " + serverName);
+        return;
+      }
+      if (!Main.gameLifecycle.reserve(serverName)) {
+        logger.warn("Refusing a new {} game, as it is at its cap", serverName);
+        ctx.response().setStatusCode(503).end("Too many games in progress");
+        return;
+      }
+
       /*
-       * executeBlocking moves this onto a background thread
+       * The game doesn't exist yet, so it is created on its game server's own context
        */
-      Future<RenderingPackage> resp = vertx.executeBlocking((promise) -> gs.newGame(playerName).onSuccess((r) -> {
-        logger.info("package {}", r);
-        promise.complete(r);
-      }));
-      return resp;
+      Histogram latency = ServerMetrics.newGame(serverName);
+      long start = System.nanoTime();
+      Future<RenderingPackage> resp = Main.gameContexts.submitNew(serverName, () -> gs.newGame(playerName))
+          .onComplete((r) -> latency.recordSince(start))
+          .onSuccess((r) -> Main.gameContexts.created(serverName, r.metadata().name()))
+          .onSuccess((r) -> Main.gameLifecycle.created(serverName, r.metadata().name()))
+          .onFailure((err) -> Main.gameLifecycle.release(serverName))
+          .onSuccess((r) -> logger.info("package {}", r));
+      respondWith(ctx, resp);
     });
 
     // Joins a game on the server
-    router.post("/joinGame/:gameServer/:game").respond((ctx) -> {
+    router.post("/joinGame/:gameServer/:game").handler((ctx) -> {
       logger.info("A New player has joined");
 
       String serverName = ctx.pathParam("gameServer");
       String gameName = ctx.pathParam("game");
-      GameServer gs = Main.gameRegistry.getGameServer(serverName);
-
       String playerName = ctx.body().asString();
-      /*
-       * executeBlocking moves this onto a background thread
-       */
-      Future<RenderingPackage> resp = vertx
-          .executeBlocking((promise) -> gs.joinGame(gameName, playerName).onSuccess((r) -> {
-            logger.info("package {}", r);
-            promise.complete(r);
-          }));
-      return resp;
+      Future<RenderingPackage> resp = join(serverName, gameName, playerName);
+      respondWith(ctx, resp.onSuccess((r) -> logger.info("package {}", r)));
     });
 
     // Sends a command package to a game on the server
-    router.post("/command").respond((ctx) -> {
-      JsonObject data = ctx.body().asJsonObject();
-      CommandPackage cp = CommandPackage.fromJson(data);
-
-      GameServer gs = Main.gameRegistry.getGameServer(cp.gameServer());
+    router.post("/command").handler((ctx) -> {
+      WireCodec codec = WireCodec.forContentType(ctx.request().getHeader("Content-Type"));
+      CommandPackage cp;
+      try {
+        cp = codec.decodeCommandPackage(ctx.body().buffer());
+      } catch (WireFormatException ex) {
+        logger.debug("Undecodable /command body: {}", ex.getMessage());
+        handleBadRequest(ctx, "Not a command package");
+        return;
+      }
 
-      /*
-       * executeBlocking moves this onto a background thread
-       */
-      Future<RenderingPackage> resp = vertx.executeBlocking((promise) -> gs.callGame(cp).onSuccess((r) -> {
-        logger.info("package {}", r);
-        promise.complete(r);
-      }));
-      return resp;
+      Future<RenderingPackage> resp = command(cp);
+      respondWith(ctx, resp.onSuccess((r) -> logger.info("package {}", r)));
     });
 
     router.post("/api/login").handler(this::loginUser);
@@ -294,43 +346,107 @@ public class MinigameNetworkServer {
     router.get("/api/achievements").handler(this::getAllAchievements);
     router.get("/api/achievements/:achievementId").handler(this::getAchievement);
     router.get("/api/users/:username/achievements").handler(this::getUserAchievements);
+    router.get("/api/users/:username/summary").handler(this::getUserSummary);
     router.post("/api/users/:username/achievements/:achievementId").handler(this::unlockAchievement);
     router.post("/api/users/:username/achievements/name/:achievementName").handler(this::unlockAchievementByName);
     router.post("/api/achievements").handler(this::addAchievement);
 
     router.post("/api/leaderboard/scores").handler(this::addLeaderboardScore);
     router.get("/api/leaderboard/top/:gameType/:limit").handler(this::getTopLeaderboardScores);
+    router.get("/api/leaderboard/rank/:gameType/:name").handler(this::getLeaderboardRank);
     router.get("/api/leaderboard/:gameType").handler(this::getAllLeaderboardScores);
 
-    server.requestHandler(router).listen(port, (http) -> {
-      if (http.succeeded()) {
-        logger.info("Server started on {}", port);
-      } else {
-        logger.error("Server failed to start");
-      }
-    });
+    return server.requestHandler(router).listen(port)
+        .onSuccess((http) -> logger.info("Server started on {}", port))
+        .onFailure((err) -> logger.error("Server failed to start", err));
+  }
+
+  /** Joins a game. Joins run on the game's context, in order with its commands and ticks. */
+  private Future<RenderingPackage> join(String serverName, String gameName, String playerName) {
+    GameServer gs = Main.gameRegistry.getGameServer(serverName);
+    if (gs == null || !Main.gameContexts.has(serverName, gameName)) {
+      return unknownGame(serverName, gameName);
+    }
+    Main.gameLifecycle.touch(serverName, gameName);
+    Histogram latency = ServerMetrics.joinGame(serverName);
+    long start = System.nanoTime();
+    return Main.gameContexts.submit(serverName, gameName, () -> gs.joinGame(gameName, playerName))
+        .onComplete((r) -> latency.recordSince(start));
+  }
+
+  /** Runs commands on a game. They run on the game's context, so a game only ever sees one at a time. */
+  private Future<RenderingPackage> command(CommandPackage cp) {
+    GameServer gs = Main.gameRegistry.getGameServer(cp.gameServer());
+    if (gs == null || !Main.gameContexts.has(cp.gameServer(), cp.gameId())) {
+      return unknownGame(cp.gameServer(), cp.gameId());
+    }
+    Main.gameLifecycle.touch(cp.gameServer(), cp.gameId());
+    Histogram latency = ServerMetrics.callGame(cp.gameServer());
+    long start = System.nanoTime();
+    return Main.gameContexts.submit(cp.gameServer(), cp.gameId(), () -> gs.callGame(cp))
+        .onComplete((r) -> latency.recordSince(start));
+  }
+
+  /**
+   * Fails a request to a game server or game that doesn't exist, before anything (a context, activity, metrics)
+   * is kept for it, as the names come from the client.
+   */
+  private static Future<RenderingPackage> unknownGame(String serverName, String gameName) {
+    return Future.failedFuture(new NoSuchElementException("No game " + serverName + "/" + gameName));
   }
 
   /**
-   * Get game server who runs the commond "gameState" and constantly push
-   * notifications to the client
-   * 
-   * @param ctx
-   * @param bin
+   * Ends a game request with its RenderingPackage, in whichever codec the client said it accepts.
+   * A game that doesn't exist (or has just ended) is a 404.
    */
-  private void handleWebSocketRequest(ServerWebSocket ctx, Buffer bin) {
-    var comms = CommandPackage.fromJson(new JsonObject(bin));
+  private void respondWith(RoutingContext ctx, Future<RenderingPackage> resp) {
+    WireCodec codec = WireCodec.forContentType(ctx.request().getHeader("Accept"));
+    resp.onSuccess((rp) -> ctx.response()
+        .putHeader("Content-Type", codec.contentType())
+        .end(codec.encode(rp)))
+      .onFailure((err) -> {
+        if (err instanceof NoSuchElementException) {
+          handleNotFound(ctx, err.getMessage());
+        } else {
+          ctx.fail(err);
+        }
+      });
+  }
+
+  /**
+   * The first message on a WebSocket subscribes it to a game. Later messages for the same game and player are
+   * that player's input, and go straight to the game - the state comes back on the next push.
+   */
+  private void handleWebSocketRequest(ServerWebSocket ctx, WireCodec codec, Buffer bin) {
+    CommandPackage comms;
+    try {
+      comms = codec.decodeCommandPackage(bin);
+    } catch (WireFormatException ex) {
+      // A client that sends something we can't read can't be trusted with the rest of the stream either
+      logger.debug("Closing a WebSocket that sent an undecodable message: {}", ex.getMessage());
+      ctx.close((short) 1007, "Not a command package");
+      return;
+    }
     GameServer gs = Main.gameRegistry.getGameServer(comms.gameServer());
+    if (gs == null || !Main.gameContexts.has(comms.gameServer(), comms.gameId())) {
+      logger.debug("WebSocket message for unknown game {}/{}", comms.gameServer(), comms.gameId());
+      return;
+    }
 
-    executorService.scheduleAtFixedRate(
-        new Runnable() {
-          @Override
-          public void run() {
-            gs.callGame(comms).onSuccess((rp) -> {
-              ctx.write(JsonObject.mapFrom(rp).toBuffer());
-            });
-          }
-        }, 0, 10, TimeUnit.MILLISECONDS);
+    GameSubscriptions.Subscription sub = subscriptions.subscriptionOf(ctx);
+    if (sub != null && sub.gameServer().equals(comms.gameServer()) && sub.gameId().equals(comms.gameId())
+        && sub.player().equals(comms.player())) {
+      Main.gameLifecycle.touch(comms.gameServer(), comms.gameId());
+      Histogram latency = ServerMetrics.callGame(comms.gameServer());
+      long start = System.nanoTime();
+      Main.gameContexts.submit(comms.gameServer(), comms.gameId(), () -> gs.callGame(comms))
+          .onComplete((r) -> latency.recordSince(start))
+          .onFailure((err) -> logger.debug("WebSocket input failed: {}", err.getMessage()));
+      return;
+    }
+
+    Main.gameLifecycle.touch(comms.gameServer(), comms.gameId());
+    subscriptions.subscribe(ctx, gs, comms, codec);
   }
 
   private void registerUser(RoutingContext ctx) {
@@ -432,14 +548,43 @@ public class MinigameNetworkServer {
   }
 
   private void getAllUsers(RoutingContext ctx) {
-    userService.getAllUsers()
-        .onSuccess(users -> {
+    respondWithList(ctx, userService::getUsers, "Failed to retrieve users");
+  }
+
+  /**
+   * Answers a request for a list that may be too long to hold in memory. With a limit or cursor query parameter,
+   * answers with one page: {"items": [...], "next": cursor}, where next is absent on the last page. Otherwise
+   * streams the whole list as a JSON array, a page at a time.
+   */
+  private void respondWithList(RoutingContext ctx, BiFunction<String, Integer, Future<Page<JsonObject>>> pages,
+      String error) {
+    String cursor = ctx.request().getParam("cursor");
+    String limitParam = ctx.request().getParam("limit");
+    if (cursor == null && limitParam == null) {
+      JsonArrayStreamer.stream(ctx.response(), (after) -> pages.apply(after, STREAM_PAGE_SIZE),
+          (err) -> handleDetailedError(ctx, err, error));
+      return;
+    }
+
+    int limit;
+    try {
+      limit = Page.limit(limitParam);
+    } catch (IllegalArgumentException e) {
+      handleDetailedError(ctx, e, error);
+      return;
+    }
+    pages.apply(cursor, limit)
+        .onSuccess(page -> {
+          JsonObject body = new JsonObject().put("items", new JsonArray(page.items()));
+          if (page.next() != null) {
+            body.put("next", page.next());
+          }
           ctx.response()
               .setStatusCode(200)
               .putHeader("Content-Type", "application/json")
-              .end(new JsonArray(users).encode());
+              .end(body.encode());
         })
-        .onFailure(err -> handleDetailedError(ctx, err, "Failed to retrieve users"));
+        .onFailure(err -> handleDetailedError(ctx, err, error));
   }
 
   private void handleUnauthorized(RoutingContext ctx, String message) {
@@ -559,14 +704,7 @@ public class MinigameNetworkServer {
   }
 
   private void getAllAchievements(RoutingContext ctx) {
-    userService.getAllAchievements()
-        .onSuccess(achievements -> {
-          ctx.response()
-              .setStatusCode(200)
-              .putHeader("Content-Type", "application/json")
-              .end(achievements.encode());
-        })
-        .onFailure(err -> handleError(ctx, err));
+    respondWithList(ctx, userService::getAchievements, "Failed to retrieve achievements");
   }
 
   private void getAchievement(RoutingContext ctx) {
@@ -600,6 +738,23 @@ public class MinigameNetworkServer {
         .onFailure(err -> handleError(ctx, err));
   }
 
+  // Profile, achievements and best scores in one response, so a profile screen is one round trip
+  private void getUserSummary(RoutingContext ctx) {
+    String username = ctx.pathParam("username");
+    summaryService.getSummary(username)
+        .onSuccess(summary -> {
+          if (summary == null) {
+            handleNotFound(ctx, "User not found: " + username);
+            return;
+          }
+          ctx.response()
+              .setStatusCode(200)
+              .putHeader("Content-Type", "application/json")
+              .end(summary.encode());
+        })
+        .onFailure(err -> handleDetailedError(ctx, err, "Failed to retrieve summary"));
+  }
+
   private void unlockAchievement(RoutingContext ctx) {
     String username = ctx.pathParam("username");
     String achievementId = ctx.pathParam("achievementId");
@@ -636,14 +791,16 @@ public class MinigameNetworkServer {
   private void handleError(RoutingContext ctx, Throwable err) {
     logger.error("Error occurred: ", err);
     ctx.response()
-        .setStatusCode(500)
+        .setStatusCode(err instanceof RejectedExecutionException ? 503 : 500)
         .putHeader("Content-Type", "application/json")
         .end(new JsonObject().put("error", err.getMessage()).encode());
   }
 
   private void handleDetailedError(RoutingContext ctx, Throwable err, String message) {
     logger.error(message, err);
-    int statusCode = (err instanceof IllegalArgumentException) ? 400 : 500;
+    int statusCode = (err instanceof IllegalArgumentException) ? 400
+        : (err instanceof RejectedExecutionException) ? 503 // a blocking pool is full; try again shortly
+        : 500;
     String errorDetails = (err.getMessage() != null) ? err.getMessage() : "No additional details available";
     ctx.response()
         .setStatusCode(statusCode)
@@ -730,14 +887,22 @@ public class MinigameNetworkServer {
     });
   }
 
-  private void getAllLeaderboardScores(RoutingContext ctx) {
+  private void getLeaderboardRank(RoutingContext ctx) {
     String gameType = ctx.pathParam("gameType");
+    String name = ctx.pathParam("name");
 
-    leaderboardService.getAllScores(gameType).onSuccess(scores -> {
+    leaderboardService.getRank(gameType, name).onSuccess(rank -> {
+      if (rank == null) {
+        ctx.response()
+                .setStatusCode(404)
+                .putHeader("Content-Type", "application/json")
+                .end(new JsonObject().put("error", "No score for " + name).encodePrettily());
+        return;
+      }
       ctx.response()
               .setStatusCode(200)
               .putHeader("Content-Type", "application/json")
-              .end(scores.encodePrettily());
+              .end(rank.encodePrettily());
     }).onFailure(err -> {
       ctx.response()
               .setStatusCode(500)
@@ -746,5 +911,11 @@ public class MinigameNetworkServer {
     });
   }
 
+  private void getAllLeaderboardScores(RoutingContext ctx) {
+    String gameType = ctx.pathParam("gameType");
+    respondWithList(ctx, (cursor, limit) -> leaderboardService.getScores(gameType, cursor, limit),
+        "Failed to retrieve scores");
+  }
+
 
 }
\ No newline at end of file
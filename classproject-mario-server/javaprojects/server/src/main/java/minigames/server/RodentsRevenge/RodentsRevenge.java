@@ -2,14 +2,11 @@ package minigames.server.RodentsRevenge;
 
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import javax.swing.Timer;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import minigames.server.RodentsRevenge.*;
+import minigames.server.Main;
 
 
 import org.apache.logging.log4j.LogManager;
@@ -29,14 +26,16 @@ public class RodentsRevenge {
     private static final Logger logger = LogManager.getLogger(RodentsRevenge.class);
     public static int colSize = 25;
     public static int rowSize = 19;
-    private Timer timer;
+    private ScheduledFuture<?> timer;
     private int timeRemaining = 300;
 
     public int score = 0; // counter to keep track of score
 
     /** Uniquely identifies this game */
     String name;
-    ScheduledExecutorService executorService;
+
+    /** The ticks and timers this game has registered with the shared GameLoopScheduler */
+    private final List<ScheduledFuture<?>> scheduledTasks = new ArrayList<>();
     private final ArrayList<Cat> cats = new ArrayList<Cat> ();
     public int[][] boardState = {
             {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1},
@@ -62,24 +61,28 @@ public class RodentsRevenge {
     };
 
     private void startTimer() {
-        timer = new Timer(1000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (timeRemaining > 0) {
-                    timeRemaining--;
-
-                } else {
-                    timer.stop();
-                    //gameOver();
-                }
+        timer = Main.gameLoopScheduler.scheduleTicks(1, Main.gameContexts.bind("RodentsRevenge", name,
+                Main.gameLoopScheduler.timed("RodentsRevenge", 1, () -> {
+            if (timeRemaining > 0) {
+                timeRemaining--;
+
+            } else {
+                timer.cancel(false);
+                //gameOver();
             }
-        });
-        timer.start();
+        })));
+        scheduledTasks.add(timer);
     }
 
     public RodentsRevenge(String name) {
         this.name = name;
-        this.executorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Starts the countdown and the cats. Each of their timers runs on the game's context, in order with the
+     * players' commands. Called once the game has its first player, before anyone else can see it.
+     */
+    public void start() {
         startTimer();
         spawnCat();
         updateCats();
@@ -94,7 +97,7 @@ public class RodentsRevenge {
      */
     private final ArrayList<Cat> cheesePosition = new ArrayList<>();
     public void updateCats(){
-        executorService.scheduleAtFixedRate(
+        scheduledTasks.add(Main.gameLoopScheduler.scheduleAtFixedRate(1, TimeUnit.SECONDS, Main.gameContexts.bind("RodentsRevenge", name,
 
                 new Runnable() {
                     @Override
@@ -121,7 +124,7 @@ public class RodentsRevenge {
                                         final int a = m;
                                         final int b = n;
 
-                                        executorService.schedule(() -> { boardState[b][a] = 0;}, 2, TimeUnit.SECONDS);
+                                        Main.gameLoopScheduler.schedule(2, TimeUnit.SECONDS, Main.gameContexts.bind("RodentsRevenge", name, () -> { boardState[b][a] = 0;}));
                                         boardState[n][m] = 5; // the dead mouse image will disapear after 2 seconds
                                         for (RodentPlayer player : players.values()) {
                                             if (player.x == m & player.y == n) {
@@ -146,7 +149,7 @@ public class RodentsRevenge {
 
                         }
                     }
-                }, 0, 1, TimeUnit.SECONDS);
+                })));
 
     }
 
@@ -174,7 +177,7 @@ public class RodentsRevenge {
      * To spawn one cat every 15 seconds in a random position of the outskirts of the bricks
      */
     public void spawnCat() {
-        executorService.scheduleAtFixedRate(
+        scheduledTasks.add(Main.gameLoopScheduler.scheduleAtFixedRate(15, TimeUnit.SECONDS, Main.gameContexts.bind("RodentsRevenge", name,
                 new Runnable() {
                     @Override
                     public void run() {
@@ -195,11 +198,23 @@ public class RodentsRevenge {
                         }
 
                     }
-                }, 0, 15, TimeUnit.SECONDS);
+                })));
 
     }
 
-    public static HashMap<String, RodentPlayer> players = new HashMap<>();
+    /**
+     * Ends the game, cancelling the cat, spawn and countdown timers so they stop using scheduler time
+     */
+    public void endGame() {
+        for (ScheduledFuture<?> task : scheduledTasks) {
+            task.cancel(false);
+        }
+        scheduledTasks.clear();
+        Main.gameContexts.remove("RodentsRevenge", name);
+    }
+
+    // Static, so shared by every game - concurrent, as different games run on different contexts
+    public static ConcurrentHashMap<String, RodentPlayer> players = new ConcurrentHashMap<>();
 
     /** The players currently playing this game */
     public String[] getPlayerNames() {
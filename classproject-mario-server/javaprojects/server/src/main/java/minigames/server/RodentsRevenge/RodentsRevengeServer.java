@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 /**
@@ -30,7 +30,7 @@ public class RodentsRevengeServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, RodentsRevenge> games = new HashMap<>();
+    ConcurrentHashMap<String, RodentsRevenge> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -52,8 +52,11 @@ public class RodentsRevengeServer implements GameServer {
     @Override
     public Future<RenderingPackage> newGame(String playerName) {
         RodentsRevenge g = new RodentsRevenge(randomName());
+        // Join and start the game before it is put where anyone else can see it, so nothing races its timers
+        RenderingPackage rp = g.joinGame(playerName);
+        g.start();
         games.put(g.name, g);
-        return Future.succeededFuture(g.joinGame(playerName));
+        return Future.succeededFuture(rp);
     }
 
     @Override
@@ -68,4 +71,15 @@ public class RodentsRevengeServer implements GameServer {
         return Future.succeededFuture(g.runCommands(cp));
     }
 
+    /** Ends an idle game, stopping its timers. Called by the GameLifecycleManager on the game's context. */
+    @Override
+    public boolean removeGame(String gameId) {
+        RodentsRevenge g = games.remove(gameId);
+        if (g == null) {
+            return false;
+        }
+        g.endGame();
+        return true;
+    }
+
 }
\ No newline at end of file
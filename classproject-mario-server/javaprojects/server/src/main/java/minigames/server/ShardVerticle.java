@@ -0,0 +1,49 @@
+package minigames.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+
+/**
+ * One shard of the server. Main deploys one instance per core, and they all listen on the same port, so
+ * Vert.x spreads connections across their event loops.
+ *
+ * Shards share the game registry, so any shard can take a join or a command for any game. It submits it
+ * straight to the game's context, whose thread is picked by hashing the game ID (shardOf) - so a game's work
+ * always lands on the same core, whichever shard it came in on.
+ *
+ * The deployment config holds "port" and "shards" (the number of instances).
+ */
+public class ShardVerticle extends AbstractVerticle {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(ShardVerticle.class);
+
+    /** Vert.x doesn't tell instances their index, so they take one each as they start */
+    private static final AtomicInteger nextShard = new AtomicInteger();
+
+    /** Which of a number of lanes a game's work runs on */
+    public static int shardOf(String gameId, int shards) {
+        return Math.floorMod(gameId.hashCode(), shards);
+    }
+
+    MinigameNetworkServer server;
+
+    @Override
+    public void start(Promise<Void> promise) {
+        int shards = config().getInteger("shards", 1);
+        int port = config().getInteger("port", Main.port);
+        int shard = nextShard.getAndIncrement() % shards;
+
+        server = new MinigameNetworkServer(vertx);
+        server.start(port).onSuccess((v) -> {
+            logger.info("Shard {} of {} listening on port {}", shard, shards, port);
+            promise.complete();
+        }).onFailure(promise::fail);
+    }
+
+}
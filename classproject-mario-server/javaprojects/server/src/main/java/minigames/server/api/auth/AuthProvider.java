@@ -43,23 +43,24 @@ public class AuthProvider implements AuthenticationProvider {
         String inputUsername = basicCredentials.getUsername();
         String password = basicCredentials.getPassword();
 
-        userRepository.userExists(inputUsername).compose(exists -> {
-            if (!exists) {
+        // One lookup gives both the hash to check and the user to return, rather than a query for each
+        userRepository.getUserData(inputUsername).compose(appUser -> {
+            if (appUser == null) {
                 logger.info("Authentication failed: Invalid username");
                 return Future.failedFuture("Invalid username or password");
             }
-            return userRepository.getHashedPassword(inputUsername);
-        }).compose(storedHash -> {
-            boolean passwordMatches = HashingService.comparePassword(password, storedHash);
-            logger.info("Password matches: {}", passwordMatches);
+            String storedHash = (String) appUser.getProperties().getProperty(UserProperty.HASHED_PASSWORD);
+            return HashingService.comparePasswordAsync(password, storedHash).compose(passwordMatches -> {
+                logger.info("Password matches: {}", passwordMatches);
 
-            if (passwordMatches) {
-                logger.info("Authentication successful");
-                return userRepository.getUserData(inputUsername);
-            } else {
-                logger.info("Authentication failed: Invalid password");
-                return Future.failedFuture("Invalid username or password");
-            }
+                if (passwordMatches) {
+                    logger.info("Authentication successful");
+                    return Future.succeededFuture(appUser);
+                } else {
+                    logger.info("Authentication failed: Invalid password");
+                    return Future.failedFuture("Invalid username or password");
+                }
+            });
         }).compose(appUser -> {
             Long id = appUser.getId();
             String username = appUser.getUsername();
@@ -2,6 +2,9 @@ package minigames.server.api.auth;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import io.vertx.core.Future;
+import minigames.server.Main;
+
 public class HashingService {
 
     public static String hashPassword(String password) {
@@ -12,5 +15,14 @@ public class HashingService {
     public static boolean comparePassword(String password, String hashed) {
         return BCrypt.checkpw(password, hashed);
     }
-}
 
+    /** Hashes a password on the hashing pool, as bcrypt takes long enough to stall an event loop */
+    public static Future<String> hashPasswordAsync(String password) {
+        return Main.hashingPool.submit(() -> hashPassword(password));
+    }
+
+    /** Compares a password with its hash on the hashing pool */
+    public static Future<Boolean> comparePasswordAsync(String password, String hashed) {
+        return Main.hashingPool.submit(() -> comparePassword(password, hashed));
+    }
+}
@@ -2,9 +2,14 @@ package minigames.server.api.leaderboard;
 
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.server.database.Page;
 
 public interface LeaderboardService {
     Future<Void> addScore(String name, int score, String gameType);
     Future<JsonArray> getTopScores(String gameType, int limit);
     Future<JsonArray> getAllScores(String gameType);
+    Future<Page<JsonObject>> getScores(String gameType, String cursor, int limit);
+    Future<JsonObject> getRank(String gameType, String name);
+    Future<JsonArray> getBestScores(String name);
 }
@@ -2,6 +2,8 @@ package minigames.server.api.leaderboard;
 
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.server.database.Page;
 import minigames.server.database.repositories.LeaderboardRepository;
 
 public class LeaderboardServiceImpl implements LeaderboardService {
@@ -26,4 +28,19 @@ public class LeaderboardServiceImpl implements LeaderboardService {
     public Future<JsonArray> getAllScores(String gameType) {
         return leaderboardRepository.getAllScores(gameType);
     }
+
+    @Override
+    public Future<Page<JsonObject>> getScores(String gameType, String cursor, int limit) {
+        return leaderboardRepository.getScores(gameType, cursor, limit);
+    }
+
+    @Override
+    public Future<JsonObject> getRank(String gameType, String name) {
+        return leaderboardRepository.getRank(gameType, name);
+    }
+
+    @Override
+    public Future<JsonArray> getBestScores(String name) {
+        return leaderboardRepository.getBestScores(name);
+    }
 }
@@ -40,15 +40,7 @@ public class ProfileServiceImpl implements ProfileService {
 
     @Override
     public Future<Void> incrementPlayTime(String username, long minutes) {
-        return profileRepository.getProfile(username)
-            .compose(profile -> {
-                if (profile == null) {
-                    return Future.failedFuture("Profile not found");
-                }
-                String currentPlayTime = profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES);
-                long newPlayTime = Long.parseLong(currentPlayTime != null ? currentPlayTime : "0") + minutes;
-                profile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, String.valueOf(newPlayTime));
-                return profileRepository.updateProfile(username, profile);
-            });
+        // Added in the database rather than read, added to and written back, so concurrent increments aren't lost
+        return profileRepository.incrementPlayTime(username, minutes);
     }
 }
\ No newline at end of file
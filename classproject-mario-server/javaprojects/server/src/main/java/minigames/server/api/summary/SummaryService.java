@@ -0,0 +1,8 @@
+package minigames.server.api.summary;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+public interface SummaryService {
+    Future<JsonObject> getSummary(String username);
+}
@@ -0,0 +1,78 @@
+package minigames.server.api.summary;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.server.api.achievement.Achievement;
+import minigames.server.api.profile.Profile;
+import minigames.server.api.user.AppUser;
+import minigames.server.api.user.UserProperty;
+import minigames.server.database.repositories.LeaderboardRepository;
+import minigames.server.database.repositories.ProfileRepository;
+import minigames.server.database.repositories.UserRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Everything a profile screen shows about a player, gathered into one response: their account details, profile,
+ * unlocked achievements (with when they were unlocked), and best score and rank in each game.
+ *
+ * The four lookups don't depend on each other, so they are all started at once, and the summary costs as long as
+ * the slowest of them rather than all of them added up.
+ */
+public class SummaryServiceImpl implements SummaryService {
+
+    private final UserRepository userRepository;
+    private final ProfileRepository profileRepository;
+    private final LeaderboardRepository leaderboardRepository;
+
+    public SummaryServiceImpl(UserRepository userRepository, ProfileRepository profileRepository,
+            LeaderboardRepository leaderboardRepository) {
+        this.userRepository = userRepository;
+        this.profileRepository = profileRepository;
+        this.leaderboardRepository = leaderboardRepository;
+    }
+
+    /** A player's summary, or null if there is no such user */
+    @Override
+    public Future<JsonObject> getSummary(String username) {
+        Future<AppUser> user = userRepository.getUserData(username);
+        Future<Profile> profile = profileRepository.getProfile(username);
+        Future<List<Achievement>> achievements = userRepository.getUserAchievements(username);
+        Future<JsonArray> bestScores = leaderboardRepository.getBestScores(username);
+
+        return CompositeFuture.all(user, profile, achievements, bestScores).map((all) -> {
+            if (user.result() == null) {
+                return null;
+            }
+            return toJson(user.result(), profile.result(), achievements.result(), bestScores.result());
+        });
+    }
+
+    private JsonObject toJson(AppUser user, Profile profile, List<Achievement> achievements, JsonArray bestScores) {
+        return new JsonObject()
+                .put("username", user.getUsername())
+                .put("email", user.getProperties().getProperty(UserProperty.EMAIL))
+                .put("created_at", user.getProperties().getProperty(UserProperty.CREATED_AT))
+                .put("profile", profile == null ? new JsonObject() : profile.toJson())
+                .put("totalPlayTimeMinutes", playTime(profile))
+                .put("achievements", new JsonArray(achievements.stream()
+                        .map(Achievement::toJson)
+                        .collect(Collectors.toList())))
+                .put("bestScores", bestScores);
+    }
+
+    private long playTime(Profile profile) {
+        String minutes = profile == null ? null : profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES);
+        if (minutes == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(minutes);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import minigames.server.api.achievement.Achievement;
+import minigames.server.database.Page;
 
 public interface UserService {
 
@@ -14,10 +15,12 @@ public interface UserService {
     Future<JsonObject> getUserData(String username);
      public Future<String> getUsernameFromEmail(String email);
     Future<List<JsonObject>> getAllUsers();
+    Future<Page<JsonObject>> getUsers(String cursor, int limit);
     Future<Void> updateUser(String username, JsonObject newUserDetails);
     Future<Void> incrementPlayTime(String username, long minutes);
     
     Future<JsonArray> getAllAchievements();
+    Future<Page<JsonObject>> getAchievements(String cursor, int limit);
     Future<JsonObject> getAchievement(String achievementId);
     Future<JsonArray> getUserAchievements(String username);
     Future<Void> unlockAchievement(String username, String achievementId);
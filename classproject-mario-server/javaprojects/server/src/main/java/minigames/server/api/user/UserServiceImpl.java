@@ -7,6 +7,7 @@ import io.vertx.ext.auth.jwt.JWTAuth;
 import io.vertx.ext.auth.JWTOptions;
 import minigames.server.api.achievement.Achievement;
 import minigames.server.api.auth.HashingService;
+import minigames.server.database.Page;
 import minigames.server.database.repositories.UserRepository;
 
 import java.util.List;
@@ -34,7 +35,8 @@ public class UserServiceImpl implements UserService {
             if (exists) {
                 return Future.failedFuture("User already exists");
             }
-            String hashedPassword = HashingService.hashPassword(password);
+            return HashingService.hashPasswordAsync(password);
+        }).compose(hashedPassword -> {
             JsonObject propertiesJson = new JsonObject()
                     .put("hashed_password", hashedPassword)
                     .put("email", email);
@@ -56,7 +58,9 @@ public class UserServiceImpl implements UserService {
             if (hashedPassword == null) {
                 return Future.failedFuture("User not found");
             }
-            if (HashingService.comparePassword(password, hashedPassword)) {
+            return HashingService.comparePasswordAsync(password, hashedPassword);
+        }).compose(matches -> {
+            if (matches) {
                 return userRepository.getUserData(username).compose(user -> {
                     JsonObject claims = user.toJson();
                     claims.remove("properties");
@@ -83,18 +87,26 @@ public class UserServiceImpl implements UserService {
     public Future<List<JsonObject>> getAllUsers() {
         return userRepository.getAllUsers()
                 .map(users -> users.stream()
-                        .map(user -> {
-                            JsonObject userJson = new JsonObject()
-                                    .put("id", user.getId())
-                                    .put("username", user.getUsername())
-                                    .put("email", user.getProperties().getProperty(UserProperty.EMAIL))
-                                    .put("created_at", user.getProperties().getProperty(UserProperty.CREATED_AT))
-                                    .put("last_login", user.getProperties().getProperty(UserProperty.LAST_LOGIN));
-                            return userJson;
-                        })
+                        .map(this::toListedJson)
                         .collect(Collectors.toList()));
     }
 
+    @Override
+    public Future<Page<JsonObject>> getUsers(String cursor, int limit) {
+        return userRepository.getUsers(cursor, limit)
+                .map(page -> page.map(this::toListedJson));
+    }
+
+    /** A user as they appear in lists of users, without their password */
+    private JsonObject toListedJson(AppUser user) {
+        return new JsonObject()
+                .put("id", user.getId())
+                .put("username", user.getUsername())
+                .put("email", user.getProperties().getProperty(UserProperty.EMAIL))
+                .put("created_at", user.getProperties().getProperty(UserProperty.CREATED_AT))
+                .put("last_login", user.getProperties().getProperty(UserProperty.LAST_LOGIN));
+    }
+
     @Override
     public Future<Void> updateUser(String username, JsonObject updateDetails) {
         return userRepository.getUserData(username)
@@ -130,6 +142,12 @@ public class UserServiceImpl implements UserService {
                         .collect(Collectors.toList())));
     }
 
+    @Override
+    public Future<Page<JsonObject>> getAchievements(String cursor, int limit) {
+        return userRepository.getAchievements(cursor, limit)
+                .map(page -> page.map(Achievement::toJsonNoDate));
+    }
+
     @Override
     public Future<JsonObject> getAchievement(String achievementId) {
         return userRepository.getAchievement(achievementId)
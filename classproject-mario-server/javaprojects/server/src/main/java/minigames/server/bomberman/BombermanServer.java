@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 /**
@@ -31,7 +31,7 @@ public class BombermanServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, BombermanGame> games = new HashMap<>();
+    ConcurrentHashMap<String, BombermanGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -68,5 +68,10 @@ public class BombermanServer implements GameServer {
         BombermanGame g = games.get(cp.gameId());
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
     
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 public class ConnectFourServer implements GameServer {
@@ -31,7 +31,7 @@ public class ConnectFourServer implements GameServer {
     /**
      * HashMap of current Connect Four games being played.
      */
-    private HashMap<String, ConnectFourGame> games = new HashMap<>();
+    private ConcurrentHashMap<String, ConnectFourGame> games = new ConcurrentHashMap<>();
 
     /**
      * @return Name and description of game
@@ -92,4 +92,9 @@ public class ConnectFourServer implements GameServer {
         ConnectFourGame g = games.get(cp.gameId());
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package minigames.server.database;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import minigames.server.metrics.ServerMetrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A fixed set of database connections, shared by the repositories.
+ *
+ * Borrow a connection for as long as it takes to run a query and read its results, then close it, which hands it
+ * back. Use try-with-resources so it always goes back:
+ *
+ * <pre>
+ * try (PooledConnection c = pool.borrow()) {
+ *     PreparedStatement ps = c.prepare("SELECT password FROM users WHERE username = ?");
+ *     ps.setString(1, username);
+ *     try (ResultSet rs = ps.executeQuery()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * Each connection keeps its own PreparedStatements, so queries that are run often are only parsed and planned
+ * once per connection. Queries on different connections run in parallel.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    /** How many connections to open if not told otherwise */
+    public static final int DEFAULT_SIZE = 8;
+
+    /** How long to wait for a connection before giving up */
+    public static final long BORROW_TIMEOUT_SECONDS = 5;
+
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final BlockingQueue<PooledConnection> idle;
+
+    /** Opens the given number of connections to a database */
+    public ConnectionPool(String url, int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("A connection pool needs at least one connection");
+        }
+        idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                PooledConnection c = new PooledConnection(this, DriverManager.getConnection(url));
+                all.add(c);
+                idle.add(c);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+        logger.info("Opened {} database connections", size);
+    }
+
+    /**
+     * Takes a connection from the pool, waiting if they are all in use. Close it to give it back.
+     *
+     * @throws SQLException if none comes free within BORROW_TIMEOUT_SECONDS
+     */
+    public PooledConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection c;
+        try {
+            c = idle.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+        ServerMetrics.dbConnectionWait().recordSince(start);
+        if (c == null) {
+            throw new SQLException("Timed out waiting for a database connection");
+        }
+        c.borrowed();
+        return c;
+    }
+
+    /** Called by a PooledConnection when it is closed */
+    void release(PooledConnection c) {
+        idle.offer(c);
+    }
+
+    /** How many connections the pool holds */
+    public int size() {
+        return all.size();
+    }
+
+    /** How many connections are currently borrowed */
+    public int inUse() {
+        return all.size() - idle.size();
+    }
+
+    /** Closes every connection, whether or not it is borrowed */
+    @Override
+    public void close() {
+        for (PooledConnection c : all) {
+            c.closeConnection();
+        }
+        all.clear();
+        idle.clear();
+    }
+
+}
@@ -2,186 +2,299 @@ package minigames.server.database;
 
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import minigames.server.api.user.AppUser;
-import minigames.server.api.user.UserProperties;
-import minigames.server.api.achievement.Achievement;
 import minigames.server.api.auth.HashingService;
 import minigames.server.api.profile.Profile;
-import minigames.server.database.repositories.LeaderboardRepository;
-import minigames.server.database.repositories.UserRepository;
-import minigames.server.database.repositories.LeaderboardRepository;
-import minigames.server.database.repositories.ProfileRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Loads the users, achievements and leaderboard scores in seed_data.json into the database.
+ *
+ * Seeding is idempotent. The seed file's checksum is recorded in seed_state, and if it hasn't changed since the
+ * last start-up nothing is done. If it has, only the rows the database doesn't already have are added, so real
+ * data is kept. Everything is inserted in batches, in one transaction, with the seed passwords hashed in parallel.
+ *
+ * Emptying the tables first only happens when asked for (the minigames.reseed system property).
+ */
 public class DatabaseSeeder {
     private static final Logger logger = LogManager.getLogger(DatabaseSeeder.class);
-    private final UserRepository userRepository;
-    private final ProfileRepository profileRepository;
-    private final LeaderboardRepository leaderboardRepository;
-
-    public DatabaseSeeder(UserRepository userRepository, ProfileRepository profileRepository, LeaderboardRepository leaderboardRepository) {
-        this.userRepository = userRepository;
-        this.profileRepository = profileRepository;
-        this.leaderboardRepository = leaderboardRepository;
-    }
 
-    public void seedDatabase() {
-        try {
-            emptyDatabase();
+    private static final String SEED_FILE = "/seed_data.json";
+
+    private static final String SELECT_CHECKSUM = "SELECT checksum FROM seed_state WHERE name = ?";
+    private static final String DELETE_CHECKSUM = "DELETE FROM seed_state WHERE name = ?";
+    private static final String INSERT_CHECKSUM = "INSERT INTO seed_state (name, checksum) VALUES (?, ?)";
+
+    private static final String USER_EXISTS = "SELECT 1 FROM users WHERE username = ?";
+    private static final String INSERT_USER = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
+    private static final String PROFILE_EXISTS = "SELECT 1 FROM profiles WHERE username = ?";
+    private static final String INSERT_PROFILE = "INSERT INTO profiles (username, first_name, last_name, " +
+            "date_of_birth, bio, favorite_game, total_play_time_minutes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ACHIEVEMENT_EXISTS = "SELECT 1 FROM achievements WHERE name = ?";
+    private static final String INSERT_ACHIEVEMENT =
+            "INSERT INTO achievements (game, name, description, points, image) VALUES (?, ?, ?, ?, ?)";
+    private static final String UNLOCK_ACHIEVEMENT = "INSERT INTO achievement_join (user_id, achievement_id) " +
+            "SELECT u.id, a.id FROM users u, achievements a WHERE u.username = ? AND a.name = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM achievement_join j WHERE j.user_id = u.id AND j.achievement_id = a.id)";
+    private static final String SCORE_EXISTS =
+            "SELECT 1 FROM leaderboards WHERE gametype = ? AND name = ? AND score = ?";
+    private static final String INSERT_SCORE = "INSERT INTO leaderboards (name, gametype, score) VALUES (?, ?, ?)";
 
-            String jsonContent = readJsonFile("/seed_data.json");
-            JsonObject seedData = new JsonObject(jsonContent);
+    private static final String[] RESET = {
+            "DELETE FROM achievement_join",
+            "DELETE FROM achievements",
+            "DELETE FROM profiles",
+            "DELETE FROM users",
+            "DELETE FROM leaderboards"
+    };
 
-            seedUsersAndProfiles(seedData.getJsonArray("users"));
-            seedAchievements(seedData.getJsonArray("achievements"));
-            seedUserAchievements(seedData.getJsonArray("userAchievements"));
-            seedLeaderboards(seedData.getJsonArray("leaderboards"));
+    private final ConnectionPool connections;
 
-            logger.info("Database seeded successfully");
+    public DatabaseSeeder(ConnectionPool connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Seeds the database from seed_data.json, unless it has already been seeded from the same file.
+     *
+     * @param reset whether to empty the tables first (and so seed whatever the checksum says)
+     */
+    public void seedDatabase(boolean reset) {
+        try {
+            long start = System.nanoTime();
+            if (seed(readSeedFile(), reset)) {
+                logger.info("Database seeded in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } else {
+                logger.info("Seed data unchanged; database not seeded");
+            }
         } catch (Exception e) {
             logger.error("Error seeding database", e);
         }
     }
 
-    private void emptyDatabase() {
-        DatabaseUtils.executeUpdate("DELETE FROM achievement_join");
-        DatabaseUtils.executeUpdate("DELETE FROM achievements");
-        DatabaseUtils.executeUpdate("DELETE FROM profiles");
-        DatabaseUtils.executeUpdate("DELETE FROM users");
-        DatabaseUtils.executeUpdate("DELETE FROM leaderboards");
-        logger.info("Database emptied");
-    }
+    /**
+     * Seeds the database from the given seed file's contents.
+     *
+     * @return whether anything was done, i.e. the database hadn't already been seeded from this file
+     */
+    public boolean seed(byte[] seedFile, boolean reset) throws SQLException {
+        String checksum = checksum(seedFile);
+        JsonObject seedData = new JsonObject(new String(seedFile, StandardCharsets.UTF_8));
 
-    private void seedUsersAndProfiles(JsonArray users) {
-        for (int i = 0; i < users.size(); i++) {
-            JsonObject userJson = users.getJsonObject(i);
-            String username = userJson.getString("username");
-            String password = userJson.getString("password");
-            String email = userJson.getString("email");
-
-            String hashedPassword = HashingService.hashPassword(password);
-            JsonObject propertiesJson = new JsonObject()
-                    .put("hashed_password", hashedPassword)
-                    .put("email", email);
-            UserProperties properties = new UserProperties(propertiesJson);
-            AppUser user = new AppUser(null, username, properties);
-
-            userRepository.addUser(user).onComplete(ar -> {
-                if (ar.succeeded()) {
-                    logger.info("User added: " + username);
-
-                    if (userJson.containsKey("profile")) {
-                        JsonObject profileJson = userJson.getJsonObject("profile");
-                        seedProfile(username, profileJson);
-                    } else {
-                        logger.info("No profile data for user: " + username);
-                    }
-                } else {
-                    logger.error("Failed to add user: " + username, ar.cause());
+        try (PooledConnection c = connections.borrow()) {
+            Connection connection = c.connection();
+            if (!reset && checksum.equals(recordedChecksum(connection))) {
+                return false;
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                if (reset) {
+                    emptyDatabase(connection);
                 }
-            });
+                seedUsersAndProfiles(connection, seedData.getJsonArray("users", new JsonArray()));
+                seedAchievements(connection, seedData.getJsonArray("achievements", new JsonArray()));
+                seedUserAchievements(connection, seedData.getJsonArray("userAchievements", new JsonArray()));
+                seedLeaderboards(connection, seedData.getJsonArray("leaderboards", new JsonArray()));
+                recordChecksum(connection, checksum);
+                connection.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }
     }
 
-    private void seedProfile(String username, JsonObject profileJson) {
-        Profile profile = new Profile(profileJson);
-        profileRepository.createProfile(username, profile).onComplete(ar -> {
-            if (ar.succeeded()) {
-                logger.info("Profile added for user: " + username);
-            } else {
-                logger.error("Failed to add profile for user: " + username, ar.cause());
+    private String recordedChecksum(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_CHECKSUM)) {
+            ps.setString(1, SEED_FILE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
             }
-        });
+        }
     }
 
-    private void seedAchievements(JsonArray achievements) {
-        for (int i = 0; i < achievements.size(); i++) {
-            JsonObject achievementJson = achievements.getJsonObject(i);
-            Achievement achievement = new Achievement(
-                    null,
-                    achievementJson.getString("game"),
-                    achievementJson.getString("name"),
-                    achievementJson.getString("description"),
-                    achievementJson.getInteger("points"),
-                    null,
-                    achievementJson.getString("image"));
-
-            userRepository.addAchievement(achievement).onComplete(ar -> {
-                if (ar.succeeded()) {
-                    logger.info("Achievement added: " + achievement.getName());
-                } else {
-                    logger.error("Failed to add achievement: " + achievement.getName(), ar.cause());
-                }
-            });
+    private void recordChecksum(Connection connection, String checksum) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_CHECKSUM);
+             PreparedStatement insert = connection.prepareStatement(INSERT_CHECKSUM)) {
+            delete.setString(1, SEED_FILE);
+            delete.executeUpdate();
+            insert.setString(1, SEED_FILE);
+            insert.setString(2, checksum);
+            insert.executeUpdate();
+        }
+    }
+
+    private void emptyDatabase(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : RESET) {
+                statement.executeUpdate(sql);
+            }
         }
+        logger.info("Database emptied");
     }
 
-    private void seedUserAchievements(JsonArray userAchievements) {
-        Map<String, Long> achievementIds = new HashMap<>();
-        userRepository.getAllAchievements().onComplete(ar -> {
-            if (ar.succeeded()) {
-                for (Achievement achievement : ar.result()) {
-                    achievementIds.put(achievement.getName(), achievement.getId());
+    private void seedUsersAndProfiles(Connection connection, JsonArray users) throws SQLException {
+        List<JsonObject> newUsers = new ArrayList<>();
+        try (PreparedStatement exists = connection.prepareStatement(USER_EXISTS)) {
+            for (int i = 0; i < users.size(); i++) {
+                JsonObject userJson = users.getJsonObject(i);
+                if (!exists(exists, userJson.getString("username"))) {
+                    newUsers.add(userJson);
                 }
-                for (int i = 0; i < userAchievements.size(); i++) {
-                    JsonObject userAchievement = userAchievements.getJsonObject(i);
-                    String username = userAchievement.getString("username");
-                    String achievementName = userAchievement.getString("achievementName");
-                    Long achievementId = achievementIds.get(achievementName);
-
-                    if (achievementId != null) {
-                        userRepository.unlockAchievement(username, achievementId.toString()).onComplete(unlockAr -> {
-                            if (unlockAr.succeeded()) {
-                                logger.info("Achievement unlocked for user: " + username + " - " + achievementName);
-                            } else {
-                                logger.error(
-                                        "Failed to unlock achievement for user: " + username + " - " + achievementName,
-                                        unlockAr.cause());
-                            }
-                        });
-                    } else {
-                        logger.error("Achievement not found: " + achievementName);
-                    }
+            }
+        }
+
+        // bcrypt is deliberately slow, so the passwords are hashed across every core rather than one at a time
+        List<String> hashedPasswords = newUsers.parallelStream()
+                .map(userJson -> HashingService.hashPassword(userJson.getString("password")))
+                .collect(Collectors.toList());
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_USER)) {
+            for (int i = 0; i < newUsers.size(); i++) {
+                JsonObject userJson = newUsers.get(i);
+                insert.setString(1, userJson.getString("username"));
+                insert.setString(2, hashedPasswords.get(i));
+                insert.setString(3, userJson.getString("email"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        logger.info("Added {} of {} seed users", newUsers.size(), users.size());
+
+        int profiles = 0;
+        try (PreparedStatement exists = connection.prepareStatement(PROFILE_EXISTS);
+             PreparedStatement insert = connection.prepareStatement(INSERT_PROFILE)) {
+            for (int i = 0; i < users.size(); i++) {
+                JsonObject userJson = users.getJsonObject(i);
+                String username = userJson.getString("username");
+                if (!userJson.containsKey("profile") || exists(exists, username)) {
+                    continue;
                 }
-            } else {
-                logger.error("Failed to get achievements", ar.cause());
+                Profile profile = new Profile(userJson.getJsonObject("profile"));
+                String playTime = profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES);
+                insert.setString(1, username);
+                insert.setString(2, profile.get(Profile.Field.FIRST_NAME));
+                insert.setString(3, profile.get(Profile.Field.LAST_NAME));
+                insert.setString(4, profile.get(Profile.Field.DATE_OF_BIRTH));
+                insert.setString(5, profile.get(Profile.Field.BIO));
+                insert.setString(6, profile.get(Profile.Field.FAVORITE_GAME));
+                insert.setInt(7, playTime == null ? 0 : Integer.parseInt(playTime));
+                insert.addBatch();
+                profiles++;
             }
-        });
+            insert.executeBatch();
+        }
+        logger.info("Added {} seed profiles", profiles);
     }
 
-    private void seedLeaderboards(JsonArray leaderboards) {
-        if (leaderboards == null || leaderboards.isEmpty()) {
-            logger.error("Leaderboards data is null or empty.");
-            return;
+    private void seedAchievements(Connection connection, JsonArray achievements) throws SQLException {
+        int added = 0;
+        try (PreparedStatement exists = connection.prepareStatement(ACHIEVEMENT_EXISTS);
+             PreparedStatement insert = connection.prepareStatement(INSERT_ACHIEVEMENT)) {
+            for (int i = 0; i < achievements.size(); i++) {
+                JsonObject achievementJson = achievements.getJsonObject(i);
+                if (exists(exists, achievementJson.getString("name"))) {
+                    continue;
+                }
+                insert.setString(1, achievementJson.getString("game"));
+                insert.setString(2, achievementJson.getString("name"));
+                insert.setString(3, achievementJson.getString("description"));
+                insert.setInt(4, achievementJson.getInteger("points", 0));
+                insert.setString(5, achievementJson.getString("image"));
+                insert.addBatch();
+                added++;
+            }
+            insert.executeBatch();
         }
+        logger.info("Added {} of {} seed achievements", added, achievements.size());
+    }
 
-        for (int i = 0; i < leaderboards.size(); i++) {
-            JsonObject leaderboardJson = leaderboards.getJsonObject(i);
+    private void seedUserAchievements(Connection connection, JsonArray userAchievements) throws SQLException {
+        int added = 0;
+        try (PreparedStatement unlock = connection.prepareStatement(UNLOCK_ACHIEVEMENT)) {
+            for (int i = 0; i < userAchievements.size(); i++) {
+                JsonObject userAchievement = userAchievements.getJsonObject(i);
+                unlock.setString(1, userAchievement.getString("username"));
+                unlock.setString(2, userAchievement.getString("achievementName"));
+                unlock.addBatch();
+            }
+            for (int count : unlock.executeBatch()) {
+                added += Math.max(count, 0);
+            }
+        }
+        logger.info("Unlocked {} seed achievements", added);
+    }
+
+    private void seedLeaderboards(Connection connection, JsonArray leaderboards) throws SQLException {
+        int added = 0;
+        try (PreparedStatement exists = connection.prepareStatement(SCORE_EXISTS);
+             PreparedStatement insert = connection.prepareStatement(INSERT_SCORE)) {
+            for (int i = 0; i < leaderboards.size(); i++) {
+                JsonObject leaderboardJson = leaderboards.getJsonObject(i);
+                String playerName = leaderboardJson.getString("name");
+                int score = leaderboardJson.getInteger("score");
+                String gameType = leaderboardJson.getString("gametype");
+
+                exists.setString(1, gameType);
+                exists.setString(2, playerName);
+                exists.setInt(3, score);
+                try (ResultSet rs = exists.executeQuery()) {
+                    if (rs.next()) {
+                        continue;
+                    }
+                }
+                insert.setString(1, playerName);
+                insert.setString(2, gameType);
+                insert.setInt(3, score);
+                insert.addBatch();
+                added++;
+            }
+            insert.executeBatch();
+        }
+        logger.info("Added {} of {} seed leaderboard scores", added, leaderboards.size());
+    }
 
-            String playerName = leaderboardJson.getString("name");
-            int score = leaderboardJson.getInteger("score");
-            String gameType = leaderboardJson.getString("gametype");
+    /** Whether a single-parameter existence query finds anything */
+    private static boolean exists(PreparedStatement query, String key) throws SQLException {
+        query.setString(1, key);
+        try (ResultSet rs = query.executeQuery()) {
+            return rs.next();
+        }
+    }
 
-            leaderboardRepository.addScore(playerName, score, gameType).onSuccess(v -> {
-                logger.info("Successfully added score for player: {}, score: {}, gameType: {}", playerName, score, gameType);
-            }).onFailure(err -> {
-                logger.error("Failed to add score for player: {}, gameType: {}, error: {}", playerName, gameType, err.getMessage());
-            });
+    private static String checksum(byte[] contents) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contents));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
         }
     }
 
-    private String readJsonFile(String fileName) throws Exception {
-        try (InputStream inputStream = getClass().getResourceAsStream(fileName)) {
+    private byte[] readSeedFile() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream(SEED_FILE)) {
             if (inputStream == null) {
-                throw new Exception("File not found: " + fileName);
+                throw new Exception("File not found: " + SEED_FILE);
             }
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return inputStream.readAllBytes();
         }
     }
-}
\ No newline at end of file
+}
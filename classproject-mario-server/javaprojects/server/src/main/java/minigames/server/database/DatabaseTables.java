@@ -2,6 +2,7 @@ package minigames.server.database;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,36 +13,43 @@ public class DatabaseTables {
     private static final Logger logger = LogManager.getLogger(MinigameNetworkServer.class);
 
     public static void createTables() {
-        createTableIfNotExists("users", createUserTableQuery());
-        createTableIfNotExists("profiles", createProfileTableQuery());
-        createTableIfNotExists("achievements", createAchievementTableQuery());
-        createTableIfNotExists("achievement_join", createAchievementJoinTableQuery());
-        createTableIfNotExists("leaderboards", createLeaderboardsTableQuery());
+        createTables(DatabaseUtils.connectionPool());
     }
 
-    private static void createTableIfNotExists(String tableName, String createTableQuery) {
+    /** Creates any of the tables that don't exist yet, in the database the given pool connects to */
+    public static void createTables(ConnectionPool connections) {
+        createTableIfNotExists(connections, "users", createUserTableQuery());
+        createTableIfNotExists(connections, "profiles", createProfileTableQuery());
+        createTableIfNotExists(connections, "achievements", createAchievementTableQuery());
+        createTableIfNotExists(connections, "achievement_join", createAchievementJoinTableQuery());
+        createTableIfNotExists(connections, "leaderboards", createLeaderboardsTableQuery());
+    }
+
+    private static void createTableIfNotExists(ConnectionPool connections, String tableName, String createTableQuery) {
         String checkTableQuery = "SELECT 1 FROM SYS.SYSTABLES WHERE TABLENAME = '" + tableName.toUpperCase() + "'";
         boolean tableExists = false;
 
-        try {
-            ResultSet rs = DatabaseUtils.executeQuery(checkTableQuery);
-            if (rs != null && rs.next()) {
-                tableExists = true;
+        try (PooledConnection c = connections.borrow();
+             Statement statement = c.connection().createStatement()) {
+            try (ResultSet rs = statement.executeQuery(checkTableQuery)) {
+                tableExists = rs.next();
+            } catch (SQLException e) {
+                logger.error("Error checking if " + tableName + " table exists", e);
+                return;
             }
-        } catch (SQLException e) {
-            logger.error("Error checking if " + tableName + " table exists", e);
-            return;
-        }
 
-        if (!tableExists) {
-            try {
-                DatabaseUtils.executeUpdate(createTableQuery);
-                logger.info(tableName + " table created successfully.");
-            } catch (Exception e) {
-                logger.error("Error creating " + tableName + " table.", e);
+            if (!tableExists) {
+                try {
+                    statement.executeUpdate(createTableQuery);
+                    logger.info(tableName + " table created successfully.");
+                } catch (SQLException e) {
+                    logger.error("Error creating " + tableName + " table.", e);
+                }
+            } else {
+                logger.info(tableName + " table already exists.");
             }
-        } else {
-            logger.info(tableName + " table already exists.");
+        } catch (SQLException e) {
+            logger.error("Error connecting to create the " + tableName + " table", e);
         }
     }
 
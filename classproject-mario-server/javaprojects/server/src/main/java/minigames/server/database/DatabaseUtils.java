@@ -7,17 +7,24 @@ import java.sql.DriverManager;
 import java.sql.Statement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import minigames.server.metrics.ServerMetrics;
 
 public class DatabaseUtils {
 
     private static final String DB_URL = "jdbc:derby:DB;create=true";
-    private static Connection conn = null;
-    private static Statement statement = null;
+    private static ConnectionPool pool = null;
 
     public static boolean connectToDatabase() {
+        return connectToDatabase(ConnectionPool.DEFAULT_SIZE);
+    }
+
+    /** Opens a pool of the given number of connections to the database */
+    public static boolean connectToDatabase(int connections) {
         try {
-            conn = establishConnection(DB_URL);
-            statement = createStatement(conn);
+            pool = new ConnectionPool(DB_URL, connections);
             return true;
         } catch (Exception e) {
             System.err.println("Message: " + e);
@@ -25,6 +32,19 @@ public class DatabaseUtils {
         }
     }
 
+    /** The pool of connections the repositories query through. Only available once connected. */
+    public static ConnectionPool connectionPool() {
+        if (pool == null) {
+            throw new IllegalStateException("Not connected to the database");
+        }
+        return pool;
+    }
+
+    /** How many of the pool's connections are borrowed (0 if not connected) */
+    public static int connectionsInUse() {
+        return pool == null ? 0 : pool.inUse();
+    }
+
     public static Connection establishConnection(String requestedURL) {
         try {
             return DriverManager.getConnection(requestedURL);
@@ -54,13 +74,20 @@ public class DatabaseUtils {
         }
     }
 
+    /**
+     * Runs a one-off update (e.g. creating a table) on a pooled connection. Repository queries should use
+     * prepared statements from the pool instead.
+     */
     public static int executeUpdate(String query) {
-        try {
-            int rows = statement.executeUpdate(query);
-            return rows;
+        long start = System.nanoTime();
+        try (PooledConnection c = connectionPool().borrow();
+             Statement statement = c.connection().createStatement()) {
+            return statement.executeUpdate(query);
         } catch (SQLException e) {
             System.err.println("Message: " + e);
             return 0;
+        } finally {
+            ServerMetrics.dbQuery("update").recordSince(start);
         }
     }
 
@@ -74,9 +101,18 @@ public class DatabaseUtils {
         }
     }
 
+    /**
+     * Runs a one-off query on a pooled connection. The results are copied out, so the connection can go straight
+     * back to the pool; this is only suitable for small results, such as checking whether a table exists.
+     */
     public static ResultSet executeQuery(String query) {
-        try {
-            return statement.executeQuery(query);
+        long start = System.nanoTime();
+        try (PooledConnection c = connectionPool().borrow();
+             Statement statement = c.connection().createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            CachedRowSet copy = RowSetProvider.newFactory().createCachedRowSet();
+            copy.populate(rs);
+            return copy;
         } catch (SQLException e) {
             System.err.println("SQL Error executing query: " + query);
             System.err.println("SQL State: " + e.getSQLState());
@@ -84,6 +120,8 @@ public class DatabaseUtils {
             System.err.println("Message: " + e.getMessage());
             e.printStackTrace();
             return null;
+        } finally {
+            ServerMetrics.dbQuery("query").recordSince(start);
         }
     }
 
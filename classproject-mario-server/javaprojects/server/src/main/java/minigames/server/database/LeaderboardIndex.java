@@ -0,0 +1,154 @@
+package minigames.server.database;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Every leaderboard score, held in memory by game type so that leaderboard reads never touch the database.
+ *
+ * It is loaded from the leaderboards table at start-up, and LeaderboardRepositoryImpl adds to it as each new
+ * score is written, taking a score back out if its write fails. The top N scores come back in O(N), and a
+ * player's rank in O(log n), however many scores there are.
+ */
+public class LeaderboardIndex {
+
+    /** One entry on a leaderboard */
+    public record Score(String name, int score) {}
+
+    /** Where a player's best score places them: 1 is top, and equal scores share a rank */
+    public record Rank(String name, int score, int rank, int of) {}
+
+    private static final class Board {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final RankedScores scores = new RankedScores();
+    }
+
+    /** The kind of cursor page() makes */
+    private static final String CURSOR = "scores-index";
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    /**
+     * Whether the index holds every score. Until it has been loaded, the repository reads from the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Marks the index as holding every score, once it has been filled from the database */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    /** Empties the index, e.g. before reloading it */
+    public void clear() {
+        loaded = false;
+        boards.clear();
+    }
+
+    public void add(String gameType, String name, int score) {
+        Board board = boards.computeIfAbsent(gameType, (k) -> new Board());
+        board.lock.writeLock().lock();
+        try {
+            board.scores.add(name, score);
+        } finally {
+            board.lock.writeLock().unlock();
+        }
+    }
+
+    /** Takes back a score that was added but then couldn't be written to the database */
+    public void remove(String gameType, String name, int score) {
+        Board board = boards.get(gameType);
+        if (board == null) {
+            return;
+        }
+        board.lock.writeLock().lock();
+        try {
+            board.scores.remove(name, score);
+        } finally {
+            board.lock.writeLock().unlock();
+        }
+    }
+
+    /** The highest scores for a game type, highest first */
+    public List<Score> top(String gameType, int limit) {
+        Board board = boards.get(gameType);
+        if (board == null || limit <= 0) {
+            return List.of();
+        }
+        board.lock.readLock().lock();
+        try {
+            return board.scores.top(limit);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A page of the scores for a game type, highest first.
+     *
+     * @param cursor where the previous page ended, or null for the first page
+     * @throws IllegalArgumentException if the cursor didn't come from this index
+     */
+    public Page<Score> page(String gameType, String cursor, int limit) {
+        Integer afterScore = null;
+        long afterSeq = 0;
+        if (cursor != null) {
+            // Sequence numbers are the index's own, so its cursors are a kind of their own
+            long[] keys = Page.keys(cursor, CURSOR, 2);
+            afterScore = (int)keys[0];
+            afterSeq = keys[1];
+        }
+
+        Board board = boards.get(gameType);
+        if (board == null) {
+            return new Page<>(List.of(), null);
+        }
+        List<RankedScores.Entry> entries;
+        board.lock.readLock().lock();
+        try {
+            entries = board.scores.after(afterScore, afterSeq, limit);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+        return Page.of(entries, limit, (e) -> Page.cursor(CURSOR, e.score(), e.seq()))
+                .map((e) -> new Score(e.name(), e.score()));
+    }
+
+    /** Every score for a game type, highest first */
+    public List<Score> all(String gameType) {
+        return top(gameType, Integer.MAX_VALUE);
+    }
+
+    /** Where a player's best score ranks in every game type they have a score for, by game type */
+    public Map<String, Rank> ranks(String name) {
+        Map<String, Rank> ranks = new TreeMap<>();
+        for (String gameType : boards.keySet()) {
+            Rank rank = rank(gameType, name);
+            if (rank != null) {
+                ranks.put(gameType, rank);
+            }
+        }
+        return ranks;
+    }
+
+    /** Where a player's best score for a game type ranks, or null if they have no score for it */
+    public Rank rank(String gameType, String name) {
+        Board board = boards.get(gameType);
+        if (board == null) {
+            return null;
+        }
+        board.lock.readLock().lock();
+        try {
+            return board.scores.rank(name);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package minigames.server.database;
+
+import java.util.List;
+
+/**
+ * One step in evolving the database schema. Migrations are applied in version order, each exactly once, and
+ * each in a single transaction.
+ *
+ * @param version where the migration comes in the order; versions are never reused or renumbered
+ * @param description what it does, recorded alongside its version
+ * @param statements the SQL it runs, in order
+ */
+public record Migration(int version, String description, List<String> statements) {
+
+    public Migration(int version, String description, String... statements) {
+        this(version, description, List.of(statements));
+    }
+
+}
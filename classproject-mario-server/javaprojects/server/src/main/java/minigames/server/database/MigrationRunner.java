@@ -0,0 +1,120 @@
+package minigames.server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Brings the database schema up to date at start-up.
+ *
+ * The versions that have been applied are recorded in the schema_migrations table. Any migration not yet
+ * recorded there is run, in version order, in its own transaction along with recording it, so a migration that
+ * fails leaves no trace and is tried again next start-up. Later migrations aren't run after one fails.
+ */
+public class MigrationRunner {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(MigrationRunner.class);
+
+    private static final String TABLE_EXISTS = "SELECT 1 FROM SYS.SYSTABLES WHERE TABLENAME = 'SCHEMA_MIGRATIONS'";
+    private static final String CREATE_TABLE = "CREATE TABLE schema_migrations (" +
+            "version INT PRIMARY KEY, " +
+            "description VARCHAR(255) NOT NULL, " +
+            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")";
+    private static final String SELECT_APPLIED = "SELECT version FROM schema_migrations";
+    private static final String RECORD = "INSERT INTO schema_migrations (version, description) VALUES (?, ?)";
+
+    private final ConnectionPool connections;
+    private final List<Migration> migrations;
+
+    /**
+     * @param migrations the migrations, in strictly increasing version order
+     */
+    public MigrationRunner(ConnectionPool connections, List<Migration> migrations) {
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() <= migrations.get(i - 1).version()) {
+                throw new IllegalArgumentException("Migration " + migrations.get(i).version() +
+                        " is out of order");
+            }
+        }
+        this.connections = connections;
+        this.migrations = migrations;
+    }
+
+    /**
+     * Applies every migration that hasn't been applied yet.
+     *
+     * @return how many were applied
+     * @throws SQLException if one fails; those before it stay applied
+     */
+    public int run() throws SQLException {
+        try (PooledConnection c = connections.borrow()) {
+            Connection connection = c.connection();
+            Set<Integer> applied = applied(connection);
+
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (!applied.contains(migration.version())) {
+                    apply(connection, migration);
+                    count++;
+                }
+            }
+            logger.info("Database schema is at version {} ({} migrations applied)", version(migrations), count);
+            return count;
+        }
+    }
+
+    private Set<Integer> applied(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(TABLE_EXISTS)) {
+                if (!rs.next()) {
+                    statement.executeUpdate(CREATE_TABLE);
+                    logger.info("schema_migrations table created");
+                }
+            }
+
+            Set<Integer> applied = new HashSet<>();
+            try (ResultSet rs = statement.executeQuery(SELECT_APPLIED)) {
+                while (rs.next()) {
+                    applied.add(rs.getInt(1));
+                }
+            }
+            return applied;
+        }
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        logger.info("Applying migration {}: {}", migration.version(), migration.description());
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement record = connection.prepareStatement(RECORD)) {
+            for (String sql : migration.statements()) {
+                statement.executeUpdate(sql);
+            }
+            record.setInt(1, migration.version());
+            record.setString(2, migration.description());
+            record.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            logger.error("Migration {} failed", migration.version(), e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static int version(List<Migration> migrations) {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+}
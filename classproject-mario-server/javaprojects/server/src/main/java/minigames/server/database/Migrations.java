@@ -0,0 +1,37 @@
+package minigames.server.database;
+
+import java.util.List;
+
+/**
+ * The schema changes made since DatabaseTables first created the tables, oldest first.
+ *
+ * To change the schema, add a migration to the end of the list with the next version. Never edit or remove one
+ * that has been released: databases that have already applied it won't run it again.
+ */
+public class Migrations {
+
+    /*
+     * Columns that are primary keys, UNIQUE or foreign keys (users.username, users.id, profiles.username and
+     * achievement_join's user_id) already have indexes that Derby made for their constraints, so these only
+     * cover the other columns that queries look things up by.
+     */
+    public static final List<Migration> ALL = List.of(
+            new Migration(1, "Index leaderboards by game type and score",
+                    "CREATE INDEX leaderboards_gametype_score ON leaderboards (gametype, score DESC)"),
+            new Migration(2, "Index leaderboards by game type and player, for ranking players",
+                    "CREATE INDEX leaderboards_gametype_name ON leaderboards (gametype, name, score)"),
+            new Migration(3, "Index users by email",
+                    "CREATE INDEX users_email ON users (email)"),
+            new Migration(4, "Index achievements by name",
+                    "CREATE INDEX achievements_name ON achievements (name)"),
+            new Migration(5, "Record which seed data has been loaded",
+                    "CREATE TABLE seed_state (" +
+                            "name VARCHAR(255) PRIMARY KEY, " +
+                            "checksum VARCHAR(64) NOT NULL, " +
+                            "seeded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                            ")")
+    );
+
+    private Migrations() {}
+
+}
@@ -0,0 +1,88 @@
+package minigames.server.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a longer list, and the cursor to ask for the page after it (null if this is the last).
+ *
+ * Lists are paged by key rather than by offset: a cursor holds the sort key of the last item on its page, and the
+ * next page is whatever sorts after that. So fetching a page costs the same however far into the list it is, and
+ * rows added or removed meanwhile don't shift later pages. Cursors are opaque to clients.
+ */
+public record Page<T>(List<T> items, String next) {
+
+    /** How many items a page has if the client doesn't say */
+    public static final int DEFAULT_LIMIT = 100;
+
+    /** The most items a client can ask for in one page */
+    public static final int MAX_LIMIT = 1000;
+
+    public <R> Page<R> map(Function<T, R> mapper) {
+        return new Page<>(items.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+
+    /**
+     * A page from items fetched with one more than the limit, which is how a query finds out whether there is
+     * another page without a second round trip.
+     *
+     * @param cursorOf makes the cursor that follows an item
+     */
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, String> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /** A page size from a request parameter: the default if absent, and never more than MAX_LIMIT */
+    public static int limit(String param) {
+        if (param == null || param.isEmpty()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(param)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + param);
+        }
+    }
+
+    /**
+     * Encodes sort key values as a cursor. The kind says which list the cursor belongs to, so that a cursor from
+     * one list can't be passed to another.
+     */
+    public static String cursor(String kind, long... keys) {
+        StringBuilder joined = new StringBuilder(kind);
+        for (long key : keys) {
+            joined.append(':').append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor made by cursor() into its sort key values.
+     *
+     * @throws IllegalArgumentException if it isn't a cursor of that kind with that many keys
+     */
+    public static long[] keys(String cursor, String kind, int count) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == count + 1 && parts[0].equals(kind)) {
+                long[] keys = new long[count];
+                for (int i = 0; i < count; i++) {
+                    keys[i] = Long.parseLong(parts[i + 1]);
+                }
+                return keys;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not base64, or not numbers (NumberFormatException is an IllegalArgumentException); reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+}
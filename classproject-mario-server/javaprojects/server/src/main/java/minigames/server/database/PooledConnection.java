@@ -0,0 +1,100 @@
+package minigames.server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import minigames.server.metrics.ServerMetrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A connection borrowed from a ConnectionPool. Closing it gives it back to the pool rather than closing it.
+ *
+ * It caches the PreparedStatements made on it, keyed by their SQL. A statement from prepare() belongs to the
+ * connection, so don't close it - but do close its ResultSets, and don't use it after giving the connection back.
+ */
+public class PooledConnection implements AutoCloseable {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(PooledConnection.class);
+
+    /** How many statements each connection keeps. The repositories use a few dozen distinct queries. */
+    static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private long borrowedAt;
+
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > STATEMENT_CACHE_SIZE) {
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    void borrowed() {
+        borrowedAt = System.nanoTime();
+    }
+
+    /**
+     * The PreparedStatement for some SQL, prepared the first time it is asked for on this connection.
+     * Its parameters are cleared, ready to be set.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    /** The underlying connection, for statements that aren't worth caching (e.g. creating tables) */
+    public Connection connection() {
+        return connection;
+    }
+
+    /** Gives the connection back to its pool */
+    @Override
+    public void close() {
+        ServerMetrics.dbConnectionHeld().recordSince(borrowedAt);
+        pool.release(this);
+    }
+
+    /** Really closes the connection, and its statements. Only the pool does this. */
+    void closeConnection() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close a database connection", e);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close a cached statement", e);
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+package minigames.server.database;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The scores for one game type, highest first, as an order-statistic treap: a binary search tree kept roughly
+ * balanced by random priorities, where every node knows the size of its subtree. That lets it find the top N in
+ * O(N) and count the scores above a given score (and so a player's rank) in O(log n).
+ *
+ * Equal scores are kept in the order they were added. Not thread-safe; LeaderboardIndex locks around it.
+ */
+class RankedScores {
+
+    private static final class Node {
+        final String name;
+        final int score;
+        final long seq;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(String name, int score, long seq) {
+            this.name = name;
+            this.score = score;
+            this.seq = seq;
+        }
+
+        /** Whether this node comes before another, i.e. has a higher score or the same score added earlier */
+        boolean before(Node other) {
+            return score != other.score ? score > other.score : seq < other.seq;
+        }
+
+        /** Whether this node comes after the one with the given score and sequence number */
+        boolean after(int otherScore, long otherSeq) {
+            return score != otherScore ? score < otherScore : seq > otherSeq;
+        }
+    }
+
+    /** A score, with the sequence number that orders it among equal scores */
+    record Entry(String name, int score, long seq) {}
+
+    private Node root;
+    private long nextSeq;
+    /** Each player's best entry, for finding their rank */
+    private final Map<String, Node> best = new HashMap<>();
+
+    int size() {
+        return size(root);
+    }
+
+    void add(String name, int score) {
+        Node node = new Node(name, score, nextSeq++);
+        root = insert(root, node);
+
+        Node previous = best.get(name);
+        if (previous == null || node.score > previous.score) {
+            best.put(name, node);
+        }
+    }
+
+    /**
+     * Takes back the most recently added entry for this name and score, e.g. one that failed to be written.
+     *
+     * @return whether there was one
+     */
+    boolean remove(String name, int score) {
+        Node node = latest(root, name, score);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+
+        if (best.get(name) == node) {
+            // Rare enough (a failed write) that walking the scores for their next best is fine
+            best.remove(name);
+            Node next = first(root, name);
+            if (next != null) {
+                best.put(name, next);
+            }
+        }
+        return true;
+    }
+
+    /** The first (highest) n scores */
+    List<LeaderboardIndex.Score> top(int n) {
+        List<LeaderboardIndex.Score> result = new ArrayList<>(Math.min(n, size()));
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (result.size() < n && (node != null || !path.isEmpty())) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            result.add(new LeaderboardIndex.Score(node.name, node.score));
+            node = node.right;
+        }
+        return result;
+    }
+
+    /**
+     * Up to n scores that come after the given score and sequence number (or from the top, if afterScore is
+     * null), plus one more if there is one, so the caller can tell whether there is another page. O(log n + n).
+     */
+    List<Entry> after(Integer afterScore, long afterSeq, int n) {
+        List<Entry> result = new ArrayList<>(n + 1);
+        Deque<Node> path = new ArrayDeque<>();
+        // Start with the path to the first node after the key
+        Node node = root;
+        while (node != null) {
+            if (afterScore == null || node.after(afterScore, afterSeq)) {
+                path.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        while (result.size() <= n && !path.isEmpty()) {
+            node = path.pop();
+            result.add(new Entry(node.name, node.score, node.seq));
+            for (Node next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+        }
+        return result;
+    }
+
+    /** A player's best score and its 1-based rank (ties share a rank), or null if they have no score */
+    LeaderboardIndex.Rank rank(String name) {
+        Node node = best.get(name);
+        if (node == null) {
+            return null;
+        }
+        return new LeaderboardIndex.Rank(name, node.score, countAbove(node.score) + 1, size());
+    }
+
+    /** How many scores are strictly higher than the given one */
+    private int countAbove(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /** The entry for this name and score added last, searching only the part of the tree with that score */
+    private static Node latest(Node tree, String name, int score) {
+        if (tree == null) {
+            return null;
+        }
+        if (tree.score > score) {
+            return latest(tree.right, name, score);
+        }
+        if (tree.score < score) {
+            return latest(tree.left, name, score);
+        }
+        // Later entries with this score are to the right
+        Node found = latest(tree.right, name, score);
+        if (found == null && tree.name.equals(name)) {
+            found = tree;
+        }
+        return found != null ? found : latest(tree.left, name, score);
+    }
+
+    /** The first entry in order (so the best) with this name */
+    private static Node first(Node tree, String name) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = tree;
+        while (node != null || !path.isEmpty()) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            if (node.name.equals(name)) {
+                return node;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            // node becomes the root of this subtree: split the tree around it
+            Node[] parts = split(tree, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            update(node);
+            return node;
+        }
+        if (node.before(tree)) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        update(tree);
+        return tree;
+    }
+
+    private static Node delete(Node tree, Node node) {
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (node.before(tree)) {
+            tree.left = delete(tree.left, node);
+        } else {
+            tree.right = delete(tree.right, node);
+        }
+        update(tree);
+        return tree;
+    }
+
+    /** Joins two trees, where every node in the first comes before every node in the second */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    /** Splits a tree into the nodes before the given one and the nodes after it */
+    private static Node[] split(Node tree, Node at) {
+        if (tree == null) {
+            return new Node[] { null, null };
+        }
+        if (tree.before(at)) {
+            Node[] parts = split(tree.right, at);
+            tree.right = parts[0];
+            update(tree);
+            return new Node[] { tree, parts[1] };
+        } else {
+            Node[] parts = split(tree.left, at);
+            tree.left = parts[1];
+            update(tree);
+            return new Node[] { parts[0], tree };
+        }
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+}
@@ -0,0 +1,139 @@
+package minigames.server.database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+
+/**
+ * A bounded read-through cache whose entries expire a fixed time after they were loaded.
+ *
+ * Once it holds maxSize entries, the least recently read is dropped to make room. Misses are loaded by the
+ * caller's loader and kept if they succeed with a value; absent values (null) are not cached, so something that
+ * is created later is found straight away.
+ *
+ * A load that was already under way when something was invalidated may have read the old value, so its result
+ * is handed back but not kept. Hits and misses are counted, for the metrics.
+ */
+public class TtlCache<K, V> {
+
+    /** How many entries a cache holds, unless configured otherwise */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    /** How long an entry is kept, unless configured otherwise */
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    private record Cached<V>(V value, long expiresAt) {}
+
+    private final String name;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Guarded by this. In access order, so the eldest is the least recently read.
+    private final LinkedHashMap<K, Cached<V>> entries;
+    /** Counts invalidations, so a load can tell whether one happened while it was running */
+    private long generation = 0;
+
+    public TtlCache(String name, int maxSize, long ttl, TimeUnit unit) {
+        this(name, maxSize, ttl, unit, System::nanoTime);
+    }
+
+    /** Creates a cache that reads the time from the given clock, so tests don't have to wait out the TTL */
+    TtlCache(String name, int maxSize, long ttl, TimeUnit unit, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("A cache must be able to hold at least one entry");
+        }
+        this.name = name;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** The cache's name, which labels its metrics */
+    public String name() {
+        return name;
+    }
+
+    /** The cached value for a key, or null if it isn't cached or has expired */
+    public synchronized V get(K key) {
+        Cached<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - clock.getAsLong() <= 0) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * The cached value for a key, or if there isn't one, whatever the loader loads, which is then cached.
+     * A hit completes straight away; a miss completes wherever the loader's Future does.
+     */
+    public Future<V> get(K key, Supplier<Future<V>> loader) {
+        long loadedAt;
+        synchronized (this) {
+            V cached = get(key);
+            if (cached != null) {
+                return Future.succeededFuture(cached);
+            }
+            loadedAt = generation;
+        }
+        return loader.get().onSuccess((value) -> {
+            if (value != null) {
+                put(key, value, loadedAt);
+            }
+        });
+    }
+
+    /** Caches a value, replacing any that was there */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Cached<>(value, clock.getAsLong() + ttlNanos));
+    }
+
+    private synchronized void put(K key, V value, long loadedAt) {
+        if (generation == loadedAt) {
+            put(key, value);
+        }
+    }
+
+    /** Drops a key, e.g. because what it refers to has been written */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** How many reads have been answered from the cache */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** How many reads found nothing cached, or only an expired entry */
+    public long misses() {
+        return misses.sum();
+    }
+
+}
@@ -0,0 +1,278 @@
+package minigames.server.database;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import minigames.server.metrics.ServerMetrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds frequent small writes (new leaderboard scores, play time) in memory and writes them to the database in
+ * batches, so that a burst of them at the end of a round costs one round trip rather than one each.
+ *
+ * Scores are inserted as they came. Play time is summed per user, so any number of increments for one user
+ * becomes a single UPDATE. Writes are flushed every flushMillis, or sooner once maxPending have built up, and on
+ * close. Each write's Future completes once it has been flushed, on the Vert.x context it came from.
+ *
+ * Until then, pendingPlayTime() says how much play time hasn't been written yet, so reads can add it on. That
+ * includes the batch being flushed, until its transaction has committed or rolled back.
+ */
+public class WriteBehindBuffer implements AutoCloseable {
+
+    /** A logger for logging output */
+    private static final Logger logger = LogManager.getLogger(WriteBehindBuffer.class);
+
+    public static final long DEFAULT_FLUSH_MILLIS = 100;
+    public static final int DEFAULT_MAX_PENDING = 500;
+
+    private static final String INSERT_SCORE = "INSERT INTO leaderboards (name, gametype, score) VALUES (?, ?, ?)";
+    private static final String ADD_PLAY_TIME = "UPDATE profiles SET total_play_time_minutes = " +
+            "COALESCE(total_play_time_minutes, 0) + ? WHERE username = ?";
+
+    private record PendingScore(String name, String gameType, int score, Waiter waiter) {}
+
+    private static final class PendingPlayTime {
+        long minutes;
+        final List<Waiter> waiters = new ArrayList<>();
+    }
+
+    /** Someone waiting for a write to be flushed, and the context to tell them on */
+    private record Waiter(Promise<Void> promise, Context context) {
+        void complete(Throwable failure) {
+            Runnable completion = failure == null ? () -> promise.complete() : () -> promise.fail(failure);
+            if (context == null) {
+                completion.run();
+            } else {
+                context.runOnContext((v) -> completion.run());
+            }
+        }
+    }
+
+    private final Supplier<ConnectionPool> connections;
+    private final long flushMillis;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher;
+    /** Held for the whole of a flush, so that one flush waits for another to finish before starting */
+    private final Object flushing = new Object();
+
+    // Guarded by this
+    private List<PendingScore> scores = new ArrayList<>();
+    private Map<String, PendingPlayTime> playTime = new LinkedHashMap<>();
+    private int pending = 0;
+    /** The play time in the batch being flushed, and how many writes that batch holds */
+    private Map<String, PendingPlayTime> inFlightPlayTime = Map.of();
+    private int inFlight = 0;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+
+    /**
+     * @param connections where to get a connection to flush through; looked up at each flush
+     * @param flushMillis how often to flush
+     * @param maxPending how many writes to hold before flushing early
+     */
+    public WriteBehindBuffer(Supplier<ConnectionPool> connections, long flushMillis, int maxPending) {
+        this.connections = connections;
+        this.flushMillis = flushMillis;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Starts flushing every flushMillis */
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** How many writes are waiting to be flushed, or are being flushed */
+    public synchronized int pending() {
+        return pending + inFlight;
+    }
+
+    /** How many minutes of a user's play time are waiting to be flushed, or are being flushed */
+    public synchronized long pendingPlayTime(String username) {
+        PendingPlayTime p = playTime.get(username);
+        PendingPlayTime batch = inFlightPlayTime.get(username);
+        return (p == null ? 0 : p.minutes) + (batch == null ? 0 : batch.minutes);
+    }
+
+    public Future<Void> addScore(String name, String gameType, int score) {
+        Promise<Void> promise = Promise.promise();
+        synchronized (this) {
+            if (closed) {
+                return Future.failedFuture(new IllegalStateException("The write-behind buffer is closed"));
+            }
+            scores.add(new PendingScore(name, gameType, score, new Waiter(promise, Vertx.currentContext())));
+            added();
+        }
+        return promise.future();
+    }
+
+    /** Adds to a user's total play time. Fails once flushed if they have no profile. */
+    public Future<Void> addPlayTime(String username, long minutes) {
+        Promise<Void> promise = Promise.promise();
+        synchronized (this) {
+            if (closed) {
+                return Future.failedFuture(new IllegalStateException("The write-behind buffer is closed"));
+            }
+            PendingPlayTime p = playTime.computeIfAbsent(username, (k) -> new PendingPlayTime());
+            p.minutes += minutes;
+            p.waiters.add(new Waiter(promise, Vertx.currentContext()));
+            added();
+        }
+        return promise.future();
+    }
+
+    private void added() {
+        pending++;
+        if (pending >= maxPending && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // flush has already failed the writes' Futures
+            logger.error("Failed to flush buffered writes", e);
+        }
+    }
+
+    /**
+     * Writes everything pending, as one batch per statement in a single transaction. If that fails, every write
+     * in it fails. A flush that is already running is waited for first.
+     */
+    public void flush() throws SQLException {
+        synchronized (flushing) {
+            flushBatch();
+        }
+    }
+
+    private void flushBatch() throws SQLException {
+        List<PendingScore> flushingScores;
+        Map<String, PendingPlayTime> flushingPlayTime;
+        synchronized (this) {
+            flushRequested = false;
+            if (pending == 0) {
+                return;
+            }
+            flushingScores = scores;
+            flushingPlayTime = playTime;
+            scores = new ArrayList<>();
+            playTime = new LinkedHashMap<>();
+            inFlightPlayTime = flushingPlayTime;
+            inFlight = pending;
+            pending = 0;
+        }
+
+        long start = System.nanoTime();
+        Map<String, Throwable> missing = new HashMap<>();
+        try (PooledConnection c = connections.get().borrow()) {
+            Connection connection = c.connection();
+            connection.setAutoCommit(false);
+            try {
+                if (!flushingScores.isEmpty()) {
+                    PreparedStatement ps = c.prepare(INSERT_SCORE);
+                    for (PendingScore s : flushingScores) {
+                        ps.setString(1, s.name());
+                        ps.setString(2, s.gameType());
+                        ps.setInt(3, s.score());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                if (!flushingPlayTime.isEmpty()) {
+                    PreparedStatement ps = c.prepare(ADD_PLAY_TIME);
+                    List<String> usernames = new ArrayList<>(flushingPlayTime.keySet());
+                    for (String username : usernames) {
+                        ps.setLong(1, flushingPlayTime.get(username).minutes);
+                        ps.setString(2, username);
+                        ps.addBatch();
+                    }
+                    int[] updated = ps.executeBatch();
+                    for (int i = 0; i < updated.length; i++) {
+                        if (updated[i] == 0) {
+                            missing.put(usernames.get(i), new SQLException("Profile not found"));
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            Throwable cause = e instanceof BatchUpdateException && e.getCause() != null ? e.getCause() : e;
+            landed();
+            completeAll(flushingScores, flushingPlayTime, cause, Map.of());
+            throw e;
+        } finally {
+            ServerMetrics.dbQuery("batch").recordSince(start);
+        }
+        landed();
+        completeAll(flushingScores, flushingPlayTime, null, missing);
+    }
+
+    /**
+     * Stops counting the batch being flushed as pending, once it is in the database or has been given up on.
+     * Done before its writes complete, so that anyone told their write is done doesn't still see it as pending.
+     */
+    private synchronized void landed() {
+        inFlightPlayTime = Map.of();
+        inFlight = 0;
+    }
+
+    private static void completeAll(List<PendingScore> scores, Map<String, PendingPlayTime> playTime,
+            Throwable failure, Map<String, Throwable> failures) {
+        for (PendingScore s : scores) {
+            s.waiter().complete(failure);
+        }
+        for (Map.Entry<String, PendingPlayTime> entry : playTime.entrySet()) {
+            Throwable f = failure != null ? failure : failures.get(entry.getKey());
+            for (Waiter w : entry.getValue().waiters) {
+                w.complete(f);
+            }
+        }
+    }
+
+    /** Stops taking writes, and flushes what is pending before returning */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for a write-behind flush to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+}
@@ -0,0 +1,55 @@
+package minigames.server.database.repositories;
+
+import io.vertx.core.Future;
+import minigames.server.api.profile.Profile;
+import minigames.server.database.TtlCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A ProfileRepository that keeps profiles in a TtlCache in front of another, so viewing a profile usually
+ * doesn't query the database.
+ *
+ * Creating or updating a profile, or adding play time to it, drops it from the cache. Each caller gets their own
+ * copy of a cached profile, as profiles are mutable.
+ */
+public class CachingProfileRepository implements ProfileRepository {
+
+    private final ProfileRepository repository;
+    private final TtlCache<String, Profile> profiles;
+
+    public CachingProfileRepository(ProfileRepository repository, int maxSize, long ttl, TimeUnit unit) {
+        this.repository = repository;
+        this.profiles = new TtlCache<>("profiles", maxSize, ttl, unit);
+    }
+
+    /** The cache, for reporting its hit rate */
+    public TtlCache<String, Profile> cache() {
+        return profiles;
+    }
+
+    @Override
+    public Future<Profile> getProfile(String username) {
+        return profiles.get(username, () -> repository.getProfile(username))
+                .map((profile) -> profile == null ? null : new Profile(profile.toJson()));
+    }
+
+    @Override
+    public Future<Void> createProfile(String username, Profile profile) {
+        profiles.invalidate(username);
+        return repository.createProfile(username, profile).onComplete((ar) -> profiles.invalidate(username));
+    }
+
+    @Override
+    public Future<Void> updateProfile(String username, Profile profile) {
+        profiles.invalidate(username);
+        return repository.updateProfile(username, profile).onComplete((ar) -> profiles.invalidate(username));
+    }
+
+    @Override
+    public Future<Void> incrementPlayTime(String username, long minutes) {
+        // Buffered play time is added on when a profile is read, so the cached one is stale as soon as it's buffered
+        profiles.invalidate(username);
+        return repository.incrementPlayTime(username, minutes).onComplete((ar) -> profiles.invalidate(username));
+    }
+}
@@ -0,0 +1,180 @@
+package minigames.server.database.repositories;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import minigames.server.api.achievement.Achievement;
+import minigames.server.api.user.AppUser;
+import minigames.server.api.user.UserProperties;
+import minigames.server.api.user.UserProperty;
+import minigames.server.database.Page;
+import minigames.server.database.TtlCache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A UserRepository that keeps users (by username and by id), achievements, and each user's unlocked achievements
+ * in TtlCaches in front of another, so that logging in and viewing users and achievements usually doesn't query
+ * the database.
+ *
+ * Writes go straight through, and drop whatever they make stale: updating a user drops them, and unlocking an
+ * achievement drops that user's achievements. Lists and pages aren't cached.
+ *
+ * Users are mutable, so each caller gets their own copy of a cached user.
+ */
+public class CachingUserRepository implements UserRepository {
+
+    private final UserRepository repository;
+    private final TtlCache<String, AppUser> usersByName;
+    private final TtlCache<Long, AppUser> usersById;
+    private final TtlCache<String, Achievement> achievements;
+    private final TtlCache<String, List<Achievement>> userAchievements;
+
+    public CachingUserRepository(UserRepository repository, int maxSize, long ttl, TimeUnit unit) {
+        this.repository = repository;
+        this.usersByName = new TtlCache<>("users", maxSize, ttl, unit);
+        this.usersById = new TtlCache<>("users_by_id", maxSize, ttl, unit);
+        this.achievements = new TtlCache<>("achievements", maxSize, ttl, unit);
+        this.userAchievements = new TtlCache<>("user_achievements", maxSize, ttl, unit);
+    }
+
+    /** The caches, for reporting their hit rates */
+    public List<TtlCache<?, ?>> caches() {
+        return List.of(usersByName, usersById, achievements, userAchievements);
+    }
+
+    /** Drops a user, and anything cached about them, from every cache */
+    private void invalidateUser(String username, Long id) {
+        usersByName.invalidate(username);
+        if (id != null) {
+            usersById.invalidate(id);
+        }
+        userAchievements.invalidate(username);
+    }
+
+    private static AppUser copy(AppUser user) {
+        if (user == null) {
+            return null;
+        }
+        return new AppUser(user.getId(), user.getUsername(), new UserProperties(user.getProperties().toJson()));
+    }
+
+    @Override
+    public Future<String> getHashedPassword(String username) {
+        // The whole row comes back anyway, and caching it saves the query when the user is looked up next
+        return getUserData(username).map((user) ->
+                user == null ? null : (String) user.getProperties().getProperty(UserProperty.HASHED_PASSWORD));
+    }
+
+    @Override
+    public Future<Boolean> userExists(String username) {
+        return getUserData(username).map((user) -> user != null);
+    }
+
+    @Override
+    public Future<Boolean> userExists(Long id) {
+        return getUserData(id).map((user) -> user != null);
+    }
+
+    @Override
+    public Future<Void> addUser(AppUser user) {
+        return repository.addUser(user);
+    }
+
+    @Override
+    public Future<AppUser> getUserData(String username) {
+        return usersByName.get(username, () -> repository.getUserData(username)).map(CachingUserRepository::copy);
+    }
+
+    @Override
+    public Future<AppUser> getUserData(Long id) {
+        return usersById.get(id, () -> repository.getUserData(id)).map(CachingUserRepository::copy);
+    }
+
+    @Override
+    public Future<String> getUsernameFromEmail(String email) {
+        return repository.getUsernameFromEmail(email);
+    }
+
+    @Override
+    public Future<List<AppUser>> getAllUsers() {
+        return repository.getAllUsers();
+    }
+
+    @Override
+    public Future<Page<AppUser>> getUsers(String cursor, int limit) {
+        return repository.getUsers(cursor, limit);
+    }
+
+    @Override
+    public Future<Void> updateUser(AppUser user) {
+        // Dropped before the write as well as after, so no read in between can cache the old row
+        invalidateUser(user.getUsername(), user.getId());
+        return repository.updateUser(user)
+                .onComplete((ar) -> invalidateUser(user.getUsername(), user.getId()));
+    }
+
+    @Override
+    public Future<Void> incrementPlayTime(String username, long minutes) {
+        return repository.incrementPlayTime(username, minutes);
+    }
+
+    @Override
+    public Future<List<Achievement>> getAllAchievements() {
+        return repository.getAllAchievements();
+    }
+
+    @Override
+    public Future<Page<Achievement>> getAchievements(String cursor, int limit) {
+        return repository.getAchievements(cursor, limit);
+    }
+
+    @Override
+    public Future<Achievement> getAchievement(String achievementId) {
+        return achievements.get(achievementId, () -> repository.getAchievement(achievementId));
+    }
+
+    @Override
+    public Future<List<Achievement>> getUserAchievements(String username) {
+        return userAchievements.get(username, () -> repository.getUserAchievements(username).map(List::copyOf));
+    }
+
+    @Override
+    public Future<Void> unlockAchievement(String username, String achievementId) {
+        userAchievements.invalidate(username);
+        return repository.unlockAchievement(username, achievementId)
+                .onComplete((ar) -> userAchievements.invalidate(username));
+    }
+
+    @Override
+    public Future<Void> unlockAchievementByName(String username, String achievementName) {
+        userAchievements.invalidate(username);
+        return repository.unlockAchievementByName(username, achievementName)
+                .onComplete((ar) -> userAchievements.invalidate(username));
+    }
+
+    @Override
+    public Future<Void> addAchievement(Achievement achievement) {
+        return repository.addAchievement(achievement);
+    }
+
+    @Override
+    public Future<JsonArray> getGameScoreboard(String gameName) {
+        return repository.getGameScoreboard(gameName);
+    }
+
+    @Override
+    public Future<JsonArray> getUserScores(String username) {
+        return repository.getUserScores(username);
+    }
+
+    @Override
+    public Future<Void> addScore(String username, String gameName, int score) {
+        return repository.addScore(username, gameName, score);
+    }
+
+    @Override
+    public Future<JsonArray> getGlobalScoreboard() {
+        return repository.getGlobalScoreboard();
+    }
+}
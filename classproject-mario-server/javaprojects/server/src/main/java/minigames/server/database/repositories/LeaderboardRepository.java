@@ -2,6 +2,8 @@ package minigames.server.database.repositories;
 
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.server.database.Page;
 
 public interface LeaderboardRepository {
 
@@ -10,4 +12,10 @@ public interface LeaderboardRepository {
     Future<JsonArray> getTopScores(String gameType, int limit);
 
     Future<JsonArray> getAllScores(String gameType);
+
+    Future<Page<JsonObject>> getScores(String gameType, String cursor, int limit);
+
+    Future<JsonObject> getRank(String gameType, String name);
+
+    Future<JsonArray> getBestScores(String name);
 }
@@ -1,13 +1,22 @@
 package minigames.server.database.repositories;
 
 import io.vertx.core.Future;
-import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import minigames.server.BlockingPool;
+import minigames.server.database.ConnectionPool;
 import minigames.server.database.DatabaseUtils;
+import minigames.server.database.LeaderboardIndex;
+import minigames.server.database.Page;
+import minigames.server.database.PooledConnection;
+import minigames.server.database.WriteBehindBuffer;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,84 +24,339 @@ public class LeaderboardRepositoryImpl implements LeaderboardRepository {
 
     private static final Logger logger = LogManager.getLogger(LeaderboardRepositoryImpl.class);
 
+    private static final String INSERT = "INSERT INTO leaderboards (name, gametype, score) VALUES (?, ?, ?)";
+    // Using FETCH FIRST for Derby
+    private static final String SELECT_TOP = "SELECT name, score FROM leaderboards WHERE gametype = ? " +
+            "ORDER BY score DESC FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_ALL = "SELECT name, score FROM leaderboards WHERE gametype = ? " +
+            "ORDER BY score DESC";
+    // Paged by (score, id), so that each page starts where the last left off however far down it is
+    private static final String SELECT_FIRST_PAGE = "SELECT id, name, score FROM leaderboards WHERE gametype = ? " +
+            "ORDER BY score DESC, id FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_PAGE = "SELECT id, name, score FROM leaderboards WHERE gametype = ? " +
+            "AND (score < ? OR (score = ? AND id > ?)) ORDER BY score DESC, id FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_BEST = "SELECT MAX(score) FROM leaderboards WHERE gametype = ? AND name = ?";
+    private static final String COUNT_ABOVE = "SELECT COUNT(*) FROM leaderboards WHERE gametype = ? AND score > ?";
+    private static final String COUNT_ALL = "SELECT COUNT(*) FROM leaderboards WHERE gametype = ?";
+    // A player's best score in each game type, ranked within it, in one query
+    private static final String SELECT_BEST_BY_GAME = "SELECT b.gametype, b.best, " +
+            "(SELECT COUNT(*) FROM leaderboards l WHERE l.gametype = b.gametype AND l.score > b.best) AS above, " +
+            "(SELECT COUNT(*) FROM leaderboards l WHERE l.gametype = b.gametype) AS total " +
+            "FROM (SELECT gametype, MAX(score) AS best FROM leaderboards WHERE name = ? GROUP BY gametype) b " +
+            "ORDER BY b.gametype";
+    private static final String SELECT_EVERY_SCORE = "SELECT name, gametype, score FROM leaderboards ORDER BY id";
+
+    /** Where the connections come from. Looked up when needed, as repositories can be made before connecting. */
+    private final Supplier<ConnectionPool> connections;
+    /** Where queries run */
+    private final BlockingPool pool;
+    /** Answers reads once it is loaded, if there is one. Scores are written through to it. */
+    private final LeaderboardIndex index;
+    /** Batches new scores, if there is one; otherwise each is inserted as it comes */
+    private final WriteBehindBuffer writes;
+
+    /** A repository that queries on the calling thread, for use where blocking is fine (e.g. seeding at start-up) */
+    public LeaderboardRepositoryImpl() {
+        this(BlockingPool.INLINE);
+    }
+
+    /** A repository that runs its queries on the given pool, off the event loop */
+    public LeaderboardRepositoryImpl(BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, null, null, pool);
+    }
+
+    /** A repository that reads from the given index (once loaded) and writes through it to the database */
+    public LeaderboardRepositoryImpl(LeaderboardIndex index, BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, index, null, pool);
+    }
+
+    /** As above, but with new scores written to the database in batches */
+    public LeaderboardRepositoryImpl(LeaderboardIndex index, WriteBehindBuffer writes, BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, index, writes, pool);
+    }
+
+    /** A repository that queries through the given connections */
+    public LeaderboardRepositoryImpl(ConnectionPool connections, BlockingPool pool) {
+        this(() -> connections, null, null, pool);
+    }
+
+    /** A repository that queries through the given connections, with an index in front of them */
+    public LeaderboardRepositoryImpl(ConnectionPool connections, LeaderboardIndex index, BlockingPool pool) {
+        this(() -> connections, index, null, pool);
+    }
+
+    private LeaderboardRepositoryImpl(Supplier<ConnectionPool> connections, LeaderboardIndex index,
+            WriteBehindBuffer writes, BlockingPool pool) {
+        this.connections = connections;
+        this.index = index;
+        this.writes = writes;
+        this.pool = pool;
+    }
+
+    private boolean indexed() {
+        return index != null && index.isLoaded();
+    }
+
+    /**
+     * Fills the index with every score in the database. Done once at start-up, after seeding and before any
+     * requests are served, as scores added while it loads could be missed.
+     */
+    public Future<Void> loadIndex() {
+        if (index == null) {
+            return Future.succeededFuture();
+        }
+        return pool.submit(() -> {
+            index.clear();
+            int count = 0;
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_EVERY_SCORE);
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        index.add(rs.getString("gametype"), rs.getString("name"), rs.getInt("score"));
+                        count++;
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error loading the leaderboard index", e);
+                throw e;
+            }
+            index.markLoaded();
+            logger.info("Loaded {} leaderboard scores", count);
+            return null;
+        });
+    }
+
     // Method to add a score to the leaderboard
     @Override
     public Future<Void> addScore(String name, int score, String gameType) {
-        Promise<Void> promise = Promise.promise();
-
-        // Updated to include double quotes around table/column names for case sensitivity
-        String query = "INSERT INTO leaderboards (name, gametype, score) VALUES ('" +
-                name + "', '" + gameType + "', " + score + ")";
-
-        try {
-            int rowsAffected = DatabaseUtils.executeUpdate(query);
-            if (rowsAffected > 0) {
-                promise.complete();
-            } else {
-                promise.fail("Failed to add score");
+        if (writes != null) {
+            // Indexed straight away, so the player sees their score while it waits to be written, and taken back
+            // out if the write fails so the index doesn't show a score the database never got
+            if (index != null) {
+                index.add(gameType, name, score);
             }
-        } catch (Exception e) {
-            logger.error("Error adding score to leaderboard", e);
-            promise.fail(e);
+            return writes.addScore(name, gameType, score)
+                    .onFailure(e -> {
+                        logger.error("Error adding score to leaderboard", e);
+                        if (index != null) {
+                            index.remove(gameType, name, score);
+                        }
+                    });
         }
-
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(INSERT);
+                ps.setString(1, name);
+                ps.setString(2, gameType);
+                ps.setInt(3, score);
+                if (ps.executeUpdate() > 0) {
+                    if (index != null) {
+                        index.add(gameType, name, score);
+                    }
+                    return null;
+                } else {
+                    throw new SQLException("Failed to add score");
+                }
+            } catch (Exception e) {
+                logger.error("Error adding score to leaderboard", e);
+                throw e;
+            }
+        });
     }
 
     // Method to get the top scores for a particular game type, limited to a certain number
     @Override
     public Future<JsonArray> getTopScores(String gameType, int limit) {
-        Promise<JsonArray> promise = Promise.promise();
-
-        // Using double quotes around table and column names to ensure case sensitivity
-        String query = "SELECT name, score FROM leaderboards WHERE gametype = '" + gameType + "' " +
-                "ORDER BY score DESC FETCH FIRST " + limit + " ROWS ONLY";  // Using FETCH FIRST for Derby
+        if (indexed()) {
+            return Future.succeededFuture(toJson(index.top(gameType, limit)));
+        }
+        return pool.submit(() -> {
+            flushPending();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_TOP);
+                ps.setString(1, gameType);
+                ps.setInt(2, limit);
+                return readScores(ps);
+            } catch (SQLException e) {
+                logger.error("Error retrieving top scores", e);
+                throw e;
+            }
+        });
+    }
 
-        try {
-            ResultSet rs = DatabaseUtils.executeQuery(query);
-            JsonArray topScores = new JsonArray();
+    // Method to get all scores for a particular game type
+    @Override
+    public Future<JsonArray> getAllScores(String gameType) {
+        if (indexed()) {
+            return Future.succeededFuture(toJson(index.all(gameType)));
+        }
+        return pool.submit(() -> {
+            flushPending();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_ALL);
+                ps.setString(1, gameType);
+                return readScores(ps);
+            } catch (SQLException e) {
+                logger.error("Error retrieving all scores", e);
+                throw e;
+            }
+        });
+    }
 
-            while (rs != null && rs.next()) {
-                JsonObject score = new JsonObject()
-                        .put("name", rs.getString("name"))
-                        .put("score", rs.getInt("score"));
-                topScores.add(score);
+    // Method to get a page of the scores for a particular game type
+    @Override
+    public Future<Page<JsonObject>> getScores(String gameType, String cursor, int limit) {
+        if (indexed()) {
+            try {
+                return Future.succeededFuture(index.page(gameType, cursor, limit)
+                        .map((s) -> new JsonObject().put("name", s.name()).put("score", s.score())));
+            } catch (IllegalArgumentException e) {
+                return Future.failedFuture(e);
             }
-            promise.complete(topScores);
-        } catch (SQLException e) {
-            logger.error("Error retrieving top scores", e);
-            promise.fail(e);
         }
-
-        return promise.future();
+        return pool.submit(() -> {
+            flushPending();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps;
+                if (cursor == null) {
+                    ps = c.prepare(SELECT_FIRST_PAGE);
+                    ps.setString(1, gameType);
+                    ps.setInt(2, limit + 1);
+                } else {
+                    long[] after = Page.keys(cursor, "scores", 2);
+                    ps = c.prepare(SELECT_PAGE);
+                    ps.setString(1, gameType);
+                    ps.setLong(2, after[0]);
+                    ps.setLong(3, after[0]);
+                    ps.setLong(4, after[1]);
+                    ps.setInt(5, limit + 1);
+                }
+                List<ScoreRow> rows = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new ScoreRow(rs.getLong("id"), rs.getString("name"), rs.getInt("score")));
+                    }
+                }
+                return Page.of(rows, limit, (r) -> Page.cursor("scores", r.score(), r.id()))
+                        .map((r) -> new JsonObject().put("name", r.name()).put("score", r.score()));
+            } catch (SQLException e) {
+                logger.error("Error retrieving a page of scores", e);
+                throw e;
+            }
+        });
     }
 
-    // Method to get all scores for a particular game type
+    private record ScoreRow(long id, String name, int score) {}
+
+    // Method to get where a player's best score for a game type ranks, or null if they have no score for it
     @Override
-    public Future<JsonArray> getAllScores(String gameType) {
-        Promise<JsonArray> promise = Promise.promise();
+    public Future<JsonObject> getRank(String gameType, String name) {
+        if (indexed()) {
+            LeaderboardIndex.Rank rank = index.rank(gameType, name);
+            return Future.succeededFuture(rank == null ? null : toJson(gameType, rank));
+        }
+        return pool.submit(() -> {
+            flushPending();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement best = c.prepare(SELECT_BEST);
+                best.setString(1, gameType);
+                best.setString(2, name);
+                int score;
+                try (ResultSet rs = best.executeQuery()) {
+                    rs.next();
+                    score = rs.getInt(1);
+                    if (rs.wasNull()) {
+                        return null;
+                    }
+                }
 
-        // Using double quotes around table and column names to ensure case sensitivity
-        String query = "SELECT name, score FROM leaderboards WHERE gametype = '" + gameType +
-                "' ORDER BY score DESC";
+                PreparedStatement above = c.prepare(COUNT_ABOVE);
+                above.setString(1, gameType);
+                above.setInt(2, score);
+                int rank = count(above) + 1;
 
-        try {
-            ResultSet rs = DatabaseUtils.executeQuery(query);
-            JsonArray allScores = new JsonArray();
+                PreparedStatement all = c.prepare(COUNT_ALL);
+                all.setString(1, gameType);
+                return toJson(gameType, new LeaderboardIndex.Rank(name, score, rank, count(all)));
+            } catch (SQLException e) {
+                logger.error("Error retrieving rank", e);
+                throw e;
+            }
+        });
+    }
 
-            while (rs != null && rs.next()) {
-                JsonObject score = new JsonObject()
-                        .put("name", rs.getString("name"))
-                        .put("score", rs.getInt("score"));
-                allScores.add(score);
+    // Method to get a player's best score and rank in every game type they have played
+    @Override
+    public Future<JsonArray> getBestScores(String name) {
+        if (indexed()) {
+            JsonArray scores = new JsonArray();
+            index.ranks(name).forEach((gameType, rank) -> scores.add(toJson(gameType, rank)));
+            return Future.succeededFuture(scores);
+        }
+        return pool.submit(() -> {
+            flushPending();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_BEST_BY_GAME);
+                ps.setString(1, name);
+                JsonArray scores = new JsonArray();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String gameType = rs.getString("gametype");
+                        scores.add(toJson(gameType, new LeaderboardIndex.Rank(name, rs.getInt("best"),
+                                rs.getInt("above") + 1, rs.getInt("total"))));
+                    }
+                }
+                return scores;
+            } catch (SQLException e) {
+                logger.error("Error retrieving best scores", e);
+                throw e;
             }
+        });
+    }
+
+    /** Writes any buffered scores, so that queries of the table see them */
+    private void flushPending() throws SQLException {
+        if (writes != null && writes.pending() > 0) {
+            writes.flush();
+        }
+    }
 
-            promise.complete(allScores);
-        } catch (SQLException e) {
-            logger.error("Error retrieving all scores", e);
-            promise.fail(e);
+    private int count(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
         }
+    }
 
-        return promise.future();
+    private JsonArray toJson(List<LeaderboardIndex.Score> scores) {
+        JsonArray json = new JsonArray();
+        for (LeaderboardIndex.Score s : scores) {
+            json.add(new JsonObject()
+                    .put("name", s.name())
+                    .put("score", s.score()));
+        }
+        return json;
+    }
+
+    private JsonObject toJson(String gameType, LeaderboardIndex.Rank rank) {
+        return new JsonObject()
+                .put("name", rank.name())
+                .put("gameType", gameType)
+                .put("score", rank.score())
+                .put("rank", rank.rank())
+                .put("of", rank.of());
+    }
+
+    private JsonArray readScores(PreparedStatement ps) throws SQLException {
+        JsonArray scores = new JsonArray();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                scores.add(new JsonObject()
+                        .put("name", rs.getString("name"))
+                        .put("score", rs.getInt("score")));
+            }
+        }
+        return scores;
     }
 }
@@ -7,4 +7,5 @@ public interface ProfileRepository {
     Future<Profile> getProfile(String username);
     Future<Void> createProfile(String username, Profile profile);
     Future<Void> updateProfile(String username, Profile profile);
+    Future<Void> incrementPlayTime(String username, long minutes);
 }
\ No newline at end of file
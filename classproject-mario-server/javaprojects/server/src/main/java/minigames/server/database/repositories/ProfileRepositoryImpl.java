@@ -1,84 +1,157 @@
 package minigames.server.database.repositories;
 
 import io.vertx.core.Future;
-import io.vertx.core.Promise;
 import minigames.server.api.profile.Profile;
+import minigames.server.BlockingPool;
+import minigames.server.database.ConnectionPool;
 import minigames.server.database.DatabaseUtils;
+import minigames.server.database.PooledConnection;
+import minigames.server.database.WriteBehindBuffer;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class ProfileRepositoryImpl implements ProfileRepository {
     private static final Logger logger = LogManager.getLogger(ProfileRepositoryImpl.class);
 
+    private static final String SELECT = "SELECT * FROM profiles WHERE username = ?";
+    private static final String INSERT = "INSERT INTO profiles (username, first_name, last_name, date_of_birth, bio, " +
+            "favorite_game, total_play_time_minutes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE profiles SET first_name = ?, last_name = ?, date_of_birth = ?, " +
+            "bio = ?, favorite_game = ?, total_play_time_minutes = ? WHERE username = ?";
+    private static final String ADD_PLAY_TIME = "UPDATE profiles SET total_play_time_minutes = " +
+            "COALESCE(total_play_time_minutes, 0) + ? WHERE username = ?";
+
+    /** Where the connections come from. Looked up when needed, as repositories can be made before connecting. */
+    private final Supplier<ConnectionPool> connections;
+    /** Where queries run */
+    private final BlockingPool pool;
+    /** Batches play time, if there is one; otherwise each increment is written as it comes */
+    private final WriteBehindBuffer writes;
+
+    /** A repository that queries on the calling thread, for use where blocking is fine (e.g. seeding at start-up) */
+    public ProfileRepositoryImpl() {
+        this(BlockingPool.INLINE);
+    }
+
+    /** A repository that runs its queries on the given pool, off the event loop */
+    public ProfileRepositoryImpl(BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, null, pool);
+    }
+
+    /** As above, but with play time written to the database in batches */
+    public ProfileRepositoryImpl(WriteBehindBuffer writes, BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, writes, pool);
+    }
+
+    /** A repository that queries through the given connections */
+    public ProfileRepositoryImpl(ConnectionPool connections, BlockingPool pool) {
+        this(() -> connections, null, pool);
+    }
+
+    private ProfileRepositoryImpl(Supplier<ConnectionPool> connections, WriteBehindBuffer writes,
+            BlockingPool pool) {
+        this.connections = connections;
+        this.writes = writes;
+        this.pool = pool;
+    }
+
     @Override
     public Future<Profile> getProfile(String username) {
-        Promise<Profile> promise = Promise.promise();
-        String query = "SELECT * FROM profiles WHERE username = '" + username + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                Profile profile = createProfileFromResultSet(rs);
-                promise.complete(profile);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT);
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? createProfileFromResultSet(rs, username) : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<Void> createProfile(String username, Profile profile) {
-        Promise<Void> promise = Promise.promise();
-        String query = "INSERT INTO profiles (username, first_name, last_name, date_of_birth, bio, favorite_game, total_play_time_minutes) VALUES ('" +
-                username + "', '" +
-                profile.get(Profile.Field.FIRST_NAME) + "', '" +
-                profile.get(Profile.Field.LAST_NAME) + "', '" +
-                profile.get(Profile.Field.DATE_OF_BIRTH) + "', '" +
-                profile.get(Profile.Field.BIO) + "', '" +
-                profile.get(Profile.Field.FAVORITE_GAME) + "', " +
-                Integer.parseInt(profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES)) + ")";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to create profile");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(INSERT);
+                ps.setString(1, username);
+                setFields(ps, 2, profile);
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to create profile");
+                }
+            }
+        });
     }
 
     @Override
     public Future<Void> updateProfile(String username, Profile profile) {
-        Promise<Void> promise = Promise.promise();
-        String query = "UPDATE profiles SET " +
-                "first_name = '" + profile.get(Profile.Field.FIRST_NAME) + "', " +
-                "last_name = '" + profile.get(Profile.Field.LAST_NAME) + "', " +
-                "date_of_birth = '" + profile.get(Profile.Field.DATE_OF_BIRTH) + "', " +
-                "bio = '" + profile.get(Profile.Field.BIO) + "', " +
-                "favorite_game = '" + profile.get(Profile.Field.FAVORITE_GAME) + "', " +
-                "total_play_time_minutes = " + Integer.parseInt(profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES)) + " " +
-                "WHERE username = '" + username + "'";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to update profile");
+        return pool.submit(() -> {
+            // The profile's play time was read with any buffered play time added on, so write that first
+            if (writes != null && writes.pendingPlayTime(username) > 0) {
+                writes.flush();
+            }
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(UPDATE);
+                setFields(ps, 1, profile);
+                ps.setString(7, username);
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to update profile");
+                }
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> incrementPlayTime(String username, long minutes) {
+        if (writes != null) {
+            return writes.addPlayTime(username, minutes);
         }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(ADD_PLAY_TIME);
+                ps.setLong(1, minutes);
+                ps.setString(2, username);
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Profile not found");
+                }
+            }
+        });
+    }
+
+    /** Sets the profile's fields as the six parameters starting at the given index, in the order of the table */
+    private void setFields(PreparedStatement ps, int first, Profile profile) throws SQLException {
+        ps.setString(first, profile.get(Profile.Field.FIRST_NAME));
+        ps.setString(first + 1, profile.get(Profile.Field.LAST_NAME));
+        ps.setString(first + 2, profile.get(Profile.Field.DATE_OF_BIRTH));
+        ps.setString(first + 3, profile.get(Profile.Field.BIO));
+        ps.setString(first + 4, profile.get(Profile.Field.FAVORITE_GAME));
+        ps.setInt(first + 5, Integer.parseInt(profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES)));
     }
 
-    private Profile createProfileFromResultSet(ResultSet rs) throws SQLException {
+    private Profile createProfileFromResultSet(ResultSet rs, String username) throws SQLException {
+        // Play time that hasn't been written yet still counts
+        long playTime = rs.getInt("total_play_time_minutes");
+        if (writes != null) {
+            playTime += writes.pendingPlayTime(username);
+        }
+
         Profile profile = new Profile();
         profile.set(Profile.Field.FIRST_NAME, rs.getString("first_name"));
         profile.set(Profile.Field.LAST_NAME, rs.getString("last_name"));
         profile.set(Profile.Field.DATE_OF_BIRTH, rs.getString("date_of_birth"));
         profile.set(Profile.Field.BIO, rs.getString("bio"));
         profile.set(Profile.Field.FAVORITE_GAME, rs.getString("favorite_game"));
-        profile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, String.valueOf(rs.getInt("total_play_time_minutes")));
+        profile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, String.valueOf(playTime));
         return profile;
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
 import minigames.server.api.achievement.Achievement;
 import minigames.server.api.user.AppUser;
+import minigames.server.database.Page;
 
 public interface UserRepository {
     Future<String> getHashedPassword(String username);
@@ -16,10 +17,12 @@ public interface UserRepository {
     Future<AppUser> getUserData(Long id);
     Future<String> getUsernameFromEmail(String email);
     Future<List<AppUser>> getAllUsers();
+    Future<Page<AppUser>> getUsers(String cursor, int limit);
     Future<Void> updateUser(AppUser user);
     Future<Void> incrementPlayTime(String username, long minutes);
 
     Future<List<Achievement>> getAllAchievements();
+    Future<Page<Achievement>> getAchievements(String cursor, int limit);
     Future<Achievement> getAchievement(String achievementId);
     Future<List<Achievement>> getUserAchievements(String username);
     Future<Void> unlockAchievement(String username, String achievementId);
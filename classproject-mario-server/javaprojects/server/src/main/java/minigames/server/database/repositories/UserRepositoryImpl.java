@@ -1,20 +1,25 @@
 package minigames.server.database.repositories;
 
 import io.vertx.core.Future;
-import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import minigames.server.api.achievement.Achievement;
 import minigames.server.api.user.AppUser;
 import minigames.server.api.user.UserProperties;
 import minigames.server.api.user.UserProperty;
+import minigames.server.BlockingPool;
+import minigames.server.database.ConnectionPool;
 import minigames.server.database.DatabaseUtils;
+import minigames.server.database.Page;
+import minigames.server.database.PooledConnection;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,308 +27,332 @@ public class UserRepositoryImpl implements UserRepository {
 
     private static final Logger logger = LogManager.getLogger(UserRepositoryImpl.class);
 
+    private static final String SELECT_PASSWORD = "SELECT password FROM users WHERE username = ?";
+    private static final String SELECT_BY_USERNAME = "SELECT * FROM users WHERE username = ?";
+    private static final String SELECT_BY_ID = "SELECT * FROM users WHERE id = ?";
+    private static final String SELECT_USERNAME_BY_EMAIL = "SELECT username FROM users WHERE email = ?";
+    private static final String SELECT_ALL = "SELECT * FROM users";
+    private static final String SELECT_PAGE = "SELECT * FROM users WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final String INSERT = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
+    private static final String UPDATE = "UPDATE users SET password = ?, email = ? WHERE username = ?";
+    private static final String INCREMENT_PLAY_TIME = "UPDATE users SET play_time = play_time + ? WHERE username = ?";
+
+    private static final String SELECT_ACHIEVEMENT = "SELECT * FROM achievements WHERE id = ?";
+    private static final String SELECT_ACHIEVEMENT_ID_BY_NAME = "SELECT id FROM achievements WHERE name = ?";
+    private static final String SELECT_ALL_ACHIEVEMENTS = "SELECT * FROM achievements";
+    private static final String SELECT_ACHIEVEMENTS_PAGE =
+            "SELECT * FROM achievements WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_USER_ACHIEVEMENTS = "SELECT a.*, aj.achieved_at FROM achievements a " +
+            "JOIN achievement_join aj ON a.id = aj.achievement_id " +
+            "JOIN users u ON u.id = aj.user_id " +
+            "WHERE u.username = ?";
+    private static final String INSERT_ACHIEVEMENT =
+            "INSERT INTO achievements (game, name, description, points, image) VALUES (?, ?, ?, ?, ?)";
+    private static final String UNLOCK_ACHIEVEMENT = "INSERT INTO achievement_join (user_id, achievement_id) " +
+            "SELECT u.id, CAST(? AS INT) FROM users u WHERE u.username = ?";
+
+    /** Where the connections come from. Looked up when needed, as repositories can be made before connecting. */
+    private final Supplier<ConnectionPool> connections;
+    /** Where queries run */
+    private final BlockingPool pool;
+
+    /** A repository that queries on the calling thread, for use where blocking is fine (e.g. seeding at start-up) */
+    public UserRepositoryImpl() {
+        this(BlockingPool.INLINE);
+    }
+
+    /** A repository that runs its queries on the given pool, off the event loop */
+    public UserRepositoryImpl(BlockingPool pool) {
+        this(DatabaseUtils::connectionPool, pool);
+    }
+
+    /** A repository that queries through the given connections */
+    public UserRepositoryImpl(ConnectionPool connections, BlockingPool pool) {
+        this(() -> connections, pool);
+    }
+
+    private UserRepositoryImpl(Supplier<ConnectionPool> connections, BlockingPool pool) {
+        this.connections = connections;
+        this.pool = pool;
+    }
+
     @Override
     public Future<String> getHashedPassword(String username) {
-        Promise<String> promise = Promise.promise();
-        String query = "SELECT password FROM users WHERE username = '" + username + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                String hashedPassword = rs.getString("password");
-                promise.complete(hashedPassword);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_PASSWORD);
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getString("password") : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<Boolean> userExists(String username) {
-        Promise<Boolean> promise = Promise.promise();
-        String query = "SELECT * FROM users WHERE username = '" + username + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            promise.complete(rs != null && rs.next());
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_BY_USERNAME);
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
     }
 
     @Override
     public Future<Boolean> userExists(Long id) {
-        Promise<Boolean> promise = Promise.promise();
-        String query = "SELECT * FROM users WHERE id = '" + id + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            promise.complete(rs != null && rs.next());
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_BY_ID);
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
     }
 
     @Override
     public Future<Void> addUser(AppUser user) {
-        Promise<Void> promise = Promise.promise();
-        UserProperties properties = user.getProperties();
-        String query = "INSERT INTO users (username, password, email) VALUES ('" +
-                user.getUsername() + "', '" +
-                properties.getProperty(UserProperty.HASHED_PASSWORD) + "', '" +
-                properties.getProperty(UserProperty.EMAIL) + "')";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to add user");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            UserProperties properties = user.getProperties();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(INSERT);
+                ps.setString(1, user.getUsername());
+                ps.setString(2, (String) properties.getProperty(UserProperty.HASHED_PASSWORD));
+                ps.setString(3, (String) properties.getProperty(UserProperty.EMAIL));
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to add user");
+                }
+            }
+        });
     }
 
     @Override
     public Future<AppUser> getUserData(String username) {
-        Promise<AppUser> promise = Promise.promise();
-        String query = "SELECT * FROM users WHERE username = '" + username + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                JsonObject propertiesJson = new JsonObject()
-                        .put("hashed_password", rs.getString("password"))
-                        .put("email", rs.getString("email"))
-                        .put("created_at", rs.getTimestamp("created_at").toString())
-                        .put("last_login", rs.getTimestamp("last_login").toString());
-
-                UserProperties properties = new UserProperties(propertiesJson);
-                AppUser user = new AppUser(rs.getLong("id"), username, properties);
-                promise.complete(user);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_BY_USERNAME);
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? createUserFromResultSet(rs, username) : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<AppUser> getUserData(Long id) {
-        Promise<AppUser> promise = Promise.promise();
-        String query = "SELECT * FROM users WHERE id = '" + id + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                JsonObject propertiesJson = new JsonObject()
-                        .put("hashed_password", rs.getString("password"))
-                        .put("email", rs.getString("email"))
-                        .put("created_at", rs.getTimestamp("created_at").toString())
-                        .put("last_login", rs.getTimestamp("last_login").toString());
-
-                UserProperties properties = new UserProperties(propertiesJson);
-                AppUser user = new AppUser(rs.getLong("id"), rs.getString("username"), properties);
-                promise.complete(user);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_BY_ID);
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? createUserFromResultSet(rs, rs.getString("username")) : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     public Future<String> getUsernameFromEmail(String email) {
         logger.info("Looking up username for email '{}'", email);
-        Promise<String> promise = Promise.promise();
-        String query = "SELECT username FROM users WHERE email = '" + email + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                String username = rs.getString("username");
-                promise.complete(username);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_USERNAME_BY_EMAIL);
+                ps.setString(1, email);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getString("username") : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<List<AppUser>> getAllUsers() {
-        Promise<List<AppUser>> promise = Promise.promise();
-        String query = "SELECT * FROM users";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            List<AppUser> users = new ArrayList<>();
-            while (rs != null && rs.next()) {
-                JsonObject propertiesJson = new JsonObject()
-                        .put("hashed_password", rs.getString("password"))
-                        .put("email", rs.getString("email"))
-                        .put("created_at", rs.getTimestamp("created_at").toString())
-                        .put("last_login", rs.getTimestamp("last_login").toString());
-
-                UserProperties properties = new UserProperties(propertiesJson);
-                AppUser user = new AppUser(rs.getLong("id"), rs.getString("username"), properties);
-                users.add(user);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow();
+                 ResultSet rs = c.prepare(SELECT_ALL).executeQuery()) {
+                List<AppUser> users = new ArrayList<>();
+                while (rs.next()) {
+                    users.add(createUserFromResultSet(rs, rs.getString("username")));
+                }
+                return users;
             }
-            promise.complete(users);
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
+    }
+
+    @Override
+    public Future<Page<AppUser>> getUsers(String cursor, int limit) {
+        return pool.submit(() -> {
+            long afterId = cursor == null ? 0 : Page.keys(cursor, "users", 1)[0];
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_PAGE);
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit + 1);
+                List<AppUser> users = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        users.add(createUserFromResultSet(rs, rs.getString("username")));
+                    }
+                }
+                return Page.of(users, limit, (u) -> Page.cursor("users", u.getId()));
+            }
+        });
+    }
+
+    private AppUser createUserFromResultSet(ResultSet rs, String username) throws SQLException {
+        JsonObject propertiesJson = new JsonObject()
+                .put("hashed_password", rs.getString("password"))
+                .put("email", rs.getString("email"))
+                .put("created_at", rs.getTimestamp("created_at").toString())
+                .put("last_login", rs.getTimestamp("last_login").toString());
+
+        UserProperties properties = new UserProperties(propertiesJson);
+        return new AppUser(rs.getLong("id"), username, properties);
     }
 
     @Override
     public Future<Void> updateUser(AppUser user) {
-        Promise<Void> promise = Promise.promise();
-        UserProperties properties = user.getProperties();
-        String query = "UPDATE users SET " +
-                "password = '" + properties.getProperty(UserProperty.HASHED_PASSWORD) + "', " +
-                "email = '" + properties.getProperty(UserProperty.EMAIL) + "' " +
-                "WHERE username = '" + user.getUsername() + "'";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to update user");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            UserProperties properties = user.getProperties();
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(UPDATE);
+                ps.setString(1, (String) properties.getProperty(UserProperty.HASHED_PASSWORD));
+                ps.setString(2, (String) properties.getProperty(UserProperty.EMAIL));
+                ps.setString(3, user.getUsername());
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to update user");
+                }
+            }
+        });
     }
 
     @Override
     public Future<Void> incrementPlayTime(String username, long minutes) {
-        Promise<Void> promise = Promise.promise();
-        String query = "UPDATE users SET play_time = play_time + " + minutes +
-                " WHERE username = '" + username + "'";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to increment play time");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(INCREMENT_PLAY_TIME);
+                ps.setLong(1, minutes);
+                ps.setString(2, username);
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to increment play time");
+                }
+            }
+        });
     }
 
     @Override
     public Future<Achievement> getAchievement(String achievementId) {
-        Promise<Achievement> promise = Promise.promise();
-        String query = "SELECT * FROM achievements WHERE id = " + achievementId;
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            if (rs != null && rs.next()) {
-                Achievement achievement = createAchievementFromResultSet(rs);
-                promise.complete(achievement);
-            } else {
-                promise.complete(null);
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_ACHIEVEMENT);
+                ps.setInt(1, Integer.parseInt(achievementId));
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? createAchievementFromResultSet(rs) : null;
+                }
             }
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<List<Achievement>> getUserAchievements(String username) {
-        Promise<List<Achievement>> promise = Promise.promise();
-        String query = "SELECT a.*, aj.achieved_at FROM achievements a " +
-                       "JOIN achievement_join aj ON a.id = aj.achievement_id " +
-                       "JOIN users u ON u.id = aj.user_id " +
-                       "WHERE u.username = '" + username + "'";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            List<Achievement> achievements = new ArrayList<>();
-            while (rs != null && rs.next()) {
-                achievements.add(createAchievementFromResultSet(rs));
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_USER_ACHIEVEMENTS);
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<Achievement> achievements = new ArrayList<>();
+                    while (rs.next()) {
+                        achievements.add(createAchievementFromResultSet(rs));
+                    }
+                    return achievements;
+                }
             }
-            promise.complete(achievements);
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
     }
 
     @Override
     public Future<Void> addAchievement(Achievement achievement) {
-        Promise<Void> promise = Promise.promise();
-        
-        String escapedGame = achievement.getGame().replace("'", "''");
-        String escapedName = achievement.getName().replace("'", "''");
-        String escapedDescription = achievement.getDescription().replace("'", "''");
-        String escapedImage = achievement.getImage().replace("'", "''");
-        
-        String query = "INSERT INTO achievements (game, name, description, points, image) VALUES ('" +
-                escapedGame + "', '" +
-                escapedName + "', '" +
-                escapedDescription + "', " +
-                achievement.getPoints() + ", '" +
-                escapedImage + "')";
-        
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to add achievement");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(INSERT_ACHIEVEMENT);
+                ps.setString(1, achievement.getGame());
+                ps.setString(2, achievement.getName());
+                ps.setString(3, achievement.getDescription());
+                ps.setInt(4, achievement.getPoints());
+                ps.setString(5, achievement.getImage());
+                if (ps.executeUpdate() > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to add achievement");
+                }
+            }
+        });
     }
 
     @Override
     public Future<Void> unlockAchievement(String username, String achievementId) {
-        Promise<Void> promise = Promise.promise();
-        String query = "INSERT INTO achievement_join (user_id, achievement_id) " +
-                       "SELECT u.id, " + achievementId + " FROM users u " +
-                       "WHERE u.username = '" + username + "'";
-        int rowsAffected = DatabaseUtils.executeUpdate(query);
-        if (rowsAffected > 0) {
-            promise.complete();
-        } else {
-            promise.fail("Failed to unlock achievement");
-        }
-        return promise.future();
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow()) {
+                if (unlock(c, username, Integer.parseInt(achievementId)) > 0) {
+                    return null;
+                } else {
+                    throw new SQLException("Failed to unlock achievement");
+                }
+            }
+        });
     }
 
     @Override
     public Future<Void> unlockAchievementByName(String username, String achievementName) {
-        Promise<Void> promise = Promise.promise();
-        logger.info("Looking up achievement ID for '{}' to unlock for user '{}'", achievementName, username);
-    
-        String escapedAchievementName = achievementName.replace("'", "''");
-        
-        String lookupQuery = "SELECT id FROM achievements WHERE name = '" + escapedAchievementName + "'";
-        
-        try {
-            ResultSet rs = DatabaseUtils.executeQuery(lookupQuery);
-            if (rs != null && rs.next()) {
-                String achievementId = rs.getString("id");
+        return pool.submit(() -> {
+            logger.info("Looking up achievement ID for '{}' to unlock for user '{}'", achievementName, username);
+
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement lookup = c.prepare(SELECT_ACHIEVEMENT_ID_BY_NAME);
+                lookup.setString(1, achievementName);
+                Integer achievementId = null;
+                try (ResultSet rs = lookup.executeQuery()) {
+                    if (rs.next()) {
+                        achievementId = rs.getInt("id");
+                    }
+                }
+
+                if (achievementId == null) {
+                    logger.warn("Achievement '{}' not found", achievementName);
+                    throw new SQLException("Achievement not found");
+                }
                 logger.info("Found achievement ID {} for name '{}'", achievementId, achievementName);
-    
-                String unlockQuery = "INSERT INTO achievement_join (user_id, achievement_id) " +
-                                     "SELECT u.id, " + achievementId + " FROM users u " +
-                                     "WHERE u.username = '" + username + "'";
-                
-                int rowsAffected = DatabaseUtils.executeUpdate(unlockQuery);
-                if (rowsAffected > 0) {
+
+                if (unlock(c, username, achievementId) > 0) {
                     logger.info("Successfully unlocked achievement '{}' for user '{}'", achievementName, username);
-                    promise.complete();
+                    return null;
                 } else {
                     logger.warn("No rows affected when unlocking achievement '{}' for user '{}'", achievementName, username);
-                    promise.fail("Failed to unlock achievement");
+                    throw new SQLException("Failed to unlock achievement");
                 }
-            } else {
-                logger.warn("Achievement '{}' not found", achievementName);
-                promise.fail("Achievement not found");
+            } catch (SQLException e) {
+                logger.error("Error unlocking achievement '{}' for user '{}': {}", achievementName, username, e.getMessage());
+                throw e;
             }
-        } catch (SQLException e) {
-            logger.error("Error unlocking achievement '{}' for user '{}': {}", achievementName, username, e.getMessage());
-            promise.fail(e);
-        }
-    
-        return promise.future();
+        });
     }
 
+    private int unlock(PooledConnection c, String username, int achievementId) throws SQLException {
+        PreparedStatement ps = c.prepare(UNLOCK_ACHIEVEMENT);
+        ps.setInt(1, achievementId);
+        ps.setString(2, username);
+        return ps.executeUpdate();
+    }
 
     private Achievement createAchievementFromResultSet(ResultSet rs) throws SQLException {
         Long id = rs.getLong("id");
@@ -337,25 +366,41 @@ public class UserRepositoryImpl implements UserRepository {
             dateAchieved = timestamp.toString();
         }
         String image = rs.getString("image");
-    
+
         return new Achievement(id, game, name, description, points, dateAchieved, image);
     }
 
     @Override
     public Future<List<Achievement>> getAllAchievements() {
-        Promise<List<Achievement>> promise = Promise.promise();
-        String query = "SELECT * FROM achievements";
-        ResultSet rs = DatabaseUtils.executeQuery(query);
-        try {
-            List<Achievement> achievements = new ArrayList<>();
-            while (rs != null && rs.next()) {
-                achievements.add(createAchievementFromResultSetWithoutDate(rs));
+        return pool.submit(() -> {
+            try (PooledConnection c = connections.get().borrow();
+                 ResultSet rs = c.prepare(SELECT_ALL_ACHIEVEMENTS).executeQuery()) {
+                List<Achievement> achievements = new ArrayList<>();
+                while (rs.next()) {
+                    achievements.add(createAchievementFromResultSetWithoutDate(rs));
+                }
+                return achievements;
             }
-            promise.complete(achievements);
-        } catch (SQLException e) {
-            promise.fail(e);
-        }
-        return promise.future();
+        });
+    }
+
+    @Override
+    public Future<Page<Achievement>> getAchievements(String cursor, int limit) {
+        return pool.submit(() -> {
+            long afterId = cursor == null ? 0 : Page.keys(cursor, "achievements", 1)[0];
+            try (PooledConnection c = connections.get().borrow()) {
+                PreparedStatement ps = c.prepare(SELECT_ACHIEVEMENTS_PAGE);
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit + 1);
+                List<Achievement> achievements = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        achievements.add(createAchievementFromResultSetWithoutDate(rs));
+                    }
+                }
+                return Page.of(achievements, limit, (a) -> Page.cursor("achievements", a.getId()));
+            }
+        });
     }
 
     private Achievement createAchievementFromResultSetWithoutDate(ResultSet rs) throws SQLException {
@@ -365,7 +410,7 @@ public class UserRepositoryImpl implements UserRepository {
         String description = rs.getString("description");
         Integer points = rs.getInt("points");
         String image = rs.getString("image");
-    
+
         return new Achievement(id, game, name, description, points, null, image);
     }
 
@@ -388,4 +433,4 @@ public class UserRepositoryImpl implements UserRepository {
     public Future<JsonArray> getGlobalScoreboard() {
         return Future.failedFuture("Not implemented");
     }
-}
\ No newline at end of file
+}
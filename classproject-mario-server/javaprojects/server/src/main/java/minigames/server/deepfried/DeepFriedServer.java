@@ -9,7 +9,7 @@ import minigames.server.ClientType;
 import minigames.server.GameServer;
 
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 public class DeepFriedServer implements GameServer {
@@ -26,7 +26,7 @@ public class DeepFriedServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, DeepFriedGame> games = new HashMap<>();
+    ConcurrentHashMap<String, DeepFriedGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -63,5 +63,10 @@ public class DeepFriedServer implements GameServer {
         DeepFriedGame g = games.get(cp.gameId());
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
     
 }
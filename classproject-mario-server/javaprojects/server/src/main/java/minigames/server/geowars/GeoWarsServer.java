@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 /**
@@ -31,7 +31,7 @@ public class GeoWarsServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, GeoWarsGame> games = new HashMap<>();
+    ConcurrentHashMap<String, GeoWarsGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -71,4 +71,9 @@ public class GeoWarsServer implements GameServer {
         return Future.succeededFuture(g.runCommands(cp));
     }
 
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
+
 }
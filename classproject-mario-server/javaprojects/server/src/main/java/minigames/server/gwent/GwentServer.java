@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 import java.util.UUID;
 
@@ -19,7 +19,7 @@ import java.util.UUID;
 public class GwentServer implements GameServer {
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, GwentGame> games = new HashMap<>();
+    ConcurrentHashMap<String, GwentGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -60,5 +60,10 @@ public class GwentServer implements GameServer {
         GwentGame g = games.get(cp.gameId());
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
     
 }
@@ -1,7 +1,7 @@
 package minigames.server.hangman;
 
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import io.vertx.core.Future;
 import minigames.commands.CommandPackage;
 import minigames.rendering.GameMetadata;
@@ -14,7 +14,7 @@ import minigames.server.GameServer;
 public class HangmanServer implements GameServer {
     
     /**Hash map to store the games. */
-    private HashMap<String, HangmanGame> games = new HashMap<>(); 
+    private ConcurrentHashMap<String, HangmanGame> games = new ConcurrentHashMap<>(); 
 
     public HangmanServer() {
         // Here we will initialize the server with any necessary data.
@@ -108,4 +108,9 @@ public class HangmanServer implements GameServer {
         }
         return Future.failedFuture("Game not found");
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
 }
@@ -1,115 +1,143 @@
 package minigames.server.mario;
 
-import java.util.List;
 import java.util.Map;
-import java.awt.Rectangle;
+
+import minigames.server.EntityStore;
 
 /**
  * CollisionDetection class handles collision detection between players and enemies.
+ *
+ * Rather than testing every player against every enemy and herb, each check puts the entities in a SpatialGrid
+ * and only tests each player against those in the cells it covers, so a tick costs about the same however many
+ * enemies are spread across the map. The tests compare coordinates directly rather than making Rectangles, and
+ * what they find is reported to a CollisionListener.
  */
 public class CollisionDetection {
 
+    /** The play area the grid covers. Anything outside it still collides; the grid is just less help there. */
+    private static final int WORLD_WIDTH = 1280;
+    private static final int WORLD_HEIGHT = 960;
+    /** About the size of the largest entity, so most things are in no more than four cells */
+    private static final int CELL_SIZE = 64;
+
+    /** How far below the top of an enemy a player's feet can be and still count as landing on it */
+    private static final int STOMP_MARGIN = 5;
+
+    private final CollisionListener listener;
+    private final SpatialGrid grid = new SpatialGrid(WORLD_WIDTH, WORLD_HEIGHT, CELL_SIZE);
+
+    // The bounds of the entities being checked, by slot, reused from check to check
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int[] widths = new int[16];
+    private int[] heights = new int[16];
+
     /**
-     * Checks for collisions between players and enemies and updates player health if a collision is detected.
+     * @param listener told about each collision found
+     */
+    public CollisionDetection(CollisionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Checks for collisions between players and enemies or herbs, and tells the listener about each one.
+     * For each player, enemies are checked before herbs.
      *
      * @param players The map of players in the game.
-     * @param enemies The list of enemies in the game.
+     * @param entities The enemies and herbs in the game.
+     * @return true if a player ran into the side of an enemy
      */
-    public boolean checkCollisions(Map<String, Player> players, List<Enemy> enemies , List<Herb> herbs) {
+    public boolean checkCollisions(Map<String, Player> players, MarioEntities entities) {
+        if (players.isEmpty()) {
+            return false;
+        }
+        EntityStore store = entities.store();
+        int slots = store.slots();
+        copyBounds(store, slots);
+        // Free slots have no area, so the grid leaves them out
+        grid.build(slots, xs, ys, widths, heights);
+
         boolean collisionDetected = false;
         for (Player player : players.values()) {
-            for (Enemy enemy : enemies) {
-                if (isTopCollision(player, enemy)) {
-                    enemy.deactivate(); // Assuming deactivate method handles enemy defeat
-                    player.applyBounce();
-                    player.increasescore();
-                    System.out.println("Output: Enemy defeated by player jumping on top!");
-                } else if ( isCollision(player.getBounds(), enemy.getBounds())) {
-                    enemy.setCollisionDetected(true);
-                    player.decreaseHealth();
-                    System.out.println("Output: Collision detected between player and enemy!");
+            int px = player.getX(), py = player.getY();
+            int pw = player.getPlayerWidth(), ph = player.getPlayerHeight();
+            int n = grid.query(px, py, pw, ph);
+
+            for (int i = 0; i < n; i++) {
+                int e = grid.found(i);
+                if (store.kind(e) != MarioEntities.ENEMY
+                        || !intersects(px, py, pw, ph, xs[e], ys[e], widths[e], heights[e])) {
+                    continue;
+                }
+                if (isTopCollision(player.getDy(), py, ph, ys[e])) {
+                    listener.enemyStomped(player, e);
+                } else if (isSideCollision(px, py, pw, ph, xs[e], ys[e], widths[e], heights[e])) {
+                    listener.playerHit(player, e);
                     collisionDetected = true;
                 }
             }
 
-            // Add collision logic for herbs
-            for (Herb herb : herbs) {
-                if (herb.isActive() && isCollision(player.getBounds(), herb.getBounds())) {
-                    herb.collect();  // Mark the herb as collected
-                    player.increaseHealth();  // Increase player's health by 1
-                    System.out.println("Output: Herb collected by player!");
+            for (int i = 0; i < n; i++) {
+                int h = grid.found(i);
+                // Checked now rather than when the grid was built, as another player may have just collected it
+                if (store.kind(h) == MarioEntities.HERB && entities.isActive(h)
+                        && intersects(px, py, pw, ph, xs[h], ys[h], widths[h], heights[h])) {
+                    listener.herbTouched(player, h);
                 }
             }
         }
         return collisionDetected;
     }
 
-    /**
-     * Determines if two rectangles (bounding boxes) intersect.
-     *
-     * @param rect1 The bounding rectangle of the first object.
-     * @param rect2 The bounding rectangle of the second object.
-     * @return true if the rectangles intersect, false otherwise.
-     */
-    private boolean isCollision(Rectangle playerRect, Rectangle enemyRect) {
-        if (!playerRect.intersects(enemyRect)) {
-            return false;  // No collision if there is no intersection
+    private void copyBounds(EntityStore store, int slots) {
+        if (xs.length < slots) {
+            int capacity = Math.max(slots, xs.length * 2);
+            xs = new int[capacity];
+            ys = new int[capacity];
+            widths = new int[capacity];
+            heights = new int[capacity];
         }
-
-        // Calculate intersection details
-        int widthIntersection = Math.min(playerRect.x + playerRect.width, enemyRect.x + enemyRect.width) -
-                Math.max(playerRect.x, enemyRect.x);
-        int heightIntersection = Math.min(playerRect.y + playerRect.height, enemyRect.y + enemyRect.height) -
-                Math.max(playerRect.y, enemyRect.y);
-
-        // Check the nature of the intersection
-        if (widthIntersection > heightIntersection) {
-            // This is a top or bottom collision, which we do not want to count as harmful side collision
-            return false;
+        for (int slot = 0; slot < slots; slot++) {
+            xs[slot] = store.x(slot);
+            ys[slot] = store.y(slot);
+            widths[slot] = store.width(slot);
+            heights[slot] = store.height(slot);
         }
-
-        // At this point, it's either a side collision or a corner collision that involves the sides.
-        // You can further refine this by checking the center points to infer the likely direction of impact
-        // if necessary (e.g., distinguishing between side and corner impacts).
-
-        return true;  // Confirm side collision as it passed the above filters
     }
 
-    private boolean isTopCollision(Player player, Enemy enemy) {
-        Rectangle playerRect = player.getBounds();
-        Rectangle enemyRect = enemy.getBounds();
-
-        // Check if there is any intersection
-        if (!playerRect.intersects(enemyRect)) {
-            System.out.println("No intersection detected.");
-            return false; // No collision if there is no intersection
-        }
-
-        // Check if the player is moving downward
-        boolean isMovingDownward = player.getDy() > 0; // Assuming positive dy indicates downward movement
-        System.out.println("Player Y: " + playerRect.y + ", Enemy Y: " + enemyRect.y);
-        System.out.println("Player is moving downward: " + isMovingDownward);
+    /**
+     * Whether two boxes overlap, with the same rules as Rectangle.intersects: boxes with no area overlap nothing,
+     * and boxes that only share an edge don't overlap.
+     */
+    static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        return aw > 0 && ah > 0 && bw > 0 && bh > 0
+                && ax < bx + bw && bx < ax + aw
+                && ay < by + bh && by < ay + ah;
+    }
 
-        // Determine if the collision is at the top of the enemy
-        if (isMovingDownward) {
-            int playerBottom = playerRect.y + playerRect.height;
-            int enemyTop = enemyRect.y;
+    /**
+     * Determines if two overlapping boxes meet at the side, rather than the top or bottom, which is the kind of
+     * collision that hurts the player.
+     */
+    private static boolean isSideCollision(int px, int py, int pw, int ph, int ex, int ey, int ew, int eh) {
+        int widthIntersection = Math.min(px + pw, ex + ew) - Math.max(px, ex);
+        int heightIntersection = Math.min(py + ph, ey + eh) - Math.max(py, ey);
 
-            // Debugging output
-            System.out.println("Player Bottom: " + playerBottom + ", Enemy Top: " + enemyTop);
+        // A wider overlap than it is tall is a top or bottom collision, which we do not want to count as harmful.
+        // Anything else is a side collision, or a corner collision that involves the sides.
+        return widthIntersection <= heightIntersection;
+    }
 
-            // Check if the player's bottom edge is within a small threshold of the enemy's top edge
-            if (playerBottom >= enemyTop && playerBottom <= enemyTop + 5) {
-                System.out.println("Top collision detected!");
-                return true; // Collision detected at the top of the enemy
-            }
+    /**
+     * Determines if a player that overlaps an enemy is coming down onto its top: moving downward (positive dy),
+     * with their bottom edge within a small threshold of the enemy's top edge.
+     */
+    private static boolean isTopCollision(double playerDy, int playerY, int playerHeight, int enemyTop) {
+        if (playerDy <= 0) {
+            return false;
         }
-
-        System.out.println("No top collision detected.");
-        return false; // No top collision detected
+        int playerBottom = playerY + playerHeight;
+        return playerBottom >= enemyTop && playerBottom <= enemyTop + STOMP_MARGIN;
     }
 
-
-
-
 }
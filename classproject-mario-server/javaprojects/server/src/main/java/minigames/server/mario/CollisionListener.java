@@ -0,0 +1,21 @@
+package minigames.server.mario;
+
+/**
+ * What happens when CollisionDetection finds a player touching an enemy or a herb. MarioGame applies the effects
+ * (damage, score, bounces); CollisionDetection only finds them.
+ *
+ * Called during the tick, on the game's context. Enemies and herbs are given by their slot in the game's
+ * MarioEntities.
+ */
+public interface CollisionListener {
+
+    /** A player came down on top of an enemy */
+    void enemyStomped(Player player, int enemy);
+
+    /** A player ran into the side of an enemy */
+    void playerHit(Player player, int enemy);
+
+    /** A player touched a herb that hadn't been collected yet */
+    void herbTouched(Player player, int herb);
+
+}
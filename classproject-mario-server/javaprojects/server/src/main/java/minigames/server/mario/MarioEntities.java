@@ -0,0 +1,134 @@
+package minigames.server.mario;
+
+import minigames.server.EntityStore;
+
+/**
+ * The enemies and herbs in a Mario game, kept in an EntityStore, and the rules for how they move.
+ *
+ * Enemies walk left along the ground, and come back in from the right when they walk off the map. One that is
+ * stomped on stops and falls through the floor, and is removed once it's out of sight. Herbs fall from the top of
+ * the map to the ground, and are removed once they are collected.
+ *
+ * Entities are referred to by their slot in the store.
+ */
+public class MarioEntities {
+
+    public static final int ENEMY = 0;
+    public static final int HERB = 1;
+
+    /** An enemy that is walking, or a herb that hasn't been collected */
+    public static final int ACTIVE = 1;
+    /** An enemy that has fallen out of sight, and is removed on the next update */
+    public static final int DEFEATED = 2;
+    /** An enemy that has run into a player since it last came in from the right */
+    public static final int HIT = 4;
+    /** A herb that a player has collected, and is removed on the next update */
+    public static final int COLLECTED = 8;
+
+    /** Enemies always walk along the ground, wherever they were spawned */
+    static final int ENEMY_Y = 415;
+    /** Where an enemy that walks off the left comes back in */
+    static final int ENEMY_RESPAWN_X = 1200;
+    /** How fast a stomped enemy falls */
+    static final int ENEMY_FALL_SPEED = 5;
+    /** Once a stomped enemy is down here, it is out of sight and can go */
+    static final int ENEMY_FALL_LIMIT = 850;
+    static final int HERB_FALL_SPEED = 2;
+    /** The ground, where herbs stop falling */
+    static final int HERB_GROUND_Y = 480;
+
+    private final EntityStore store = new EntityStore(16);
+    private int enemies = 0;
+    private int herbs = 0;
+
+    /** The store the entities are kept in, for reading their positions */
+    public EntityStore store() {
+        return store;
+    }
+
+    /** Adds an enemy walking left at the given speed */
+    public int spawnEnemy(int x, int width, int height, int speed) {
+        enemies++;
+        return store.add(ENEMY, x, ENEMY_Y, width, height, -speed, 0, ACTIVE);
+    }
+
+    /** Adds a herb, which falls until it reaches the ground */
+    public int spawnHerb(int x, int y, int width, int height) {
+        herbs++;
+        return store.add(HERB, x, y, width, height, 0, HERB_FALL_SPEED, ACTIVE);
+    }
+
+    /** How many enemies there are, including those that have been stomped and are still falling */
+    public int enemyCount() {
+        return enemies;
+    }
+
+    /** How many herbs there are, including those collected since the last update */
+    public int herbCount() {
+        return herbs;
+    }
+
+    /**
+     * Moves every enemy and herb one tick, and removes those that are defeated or collected. This is one pass over
+     * the store, in slot order.
+     */
+    public void update() {
+        for (int slot = 0; slot < store.slots(); slot++) {
+            int kind = store.kind(slot);
+            if (kind == ENEMY) {
+                updateEnemy(slot);
+            } else if (kind == HERB) {
+                updateHerb(slot);
+            }
+        }
+    }
+
+    private void updateEnemy(int slot) {
+        if (store.is(slot, DEFEATED)) {
+            store.remove(slot);
+            enemies--;
+        } else if (store.is(slot, ACTIVE)) {
+            store.step(slot);
+            if (store.x(slot) + store.width(slot) < 0) {
+                store.moveTo(slot, ENEMY_RESPAWN_X, store.y(slot));
+                store.clear(slot, HIT);
+            }
+        } else if (store.y(slot) < ENEMY_FALL_LIMIT) {
+            // Stomped on, so falling through the floor
+            store.step(slot);
+        } else {
+            store.set(slot, DEFEATED | HIT);
+        }
+    }
+
+    private void updateHerb(int slot) {
+        if (store.is(slot, COLLECTED)) {
+            store.remove(slot);
+            herbs--;
+        } else if (store.is(slot, ACTIVE) && store.y(slot) < HERB_GROUND_Y) {
+            store.step(slot);
+        }
+    }
+
+    /** Stops an enemy that a player has landed on, and starts it falling */
+    public void stomp(int slot) {
+        store.clear(slot, ACTIVE | DEFEATED);
+        store.setVelocity(slot, 0, ENEMY_FALL_SPEED);
+    }
+
+    /** Marks an enemy as having run into a player */
+    public void hit(int slot) {
+        store.set(slot, HIT);
+    }
+
+    /** Marks a herb as collected, so it no longer heals anyone and is removed on the next update */
+    public void collect(int slot) {
+        store.clear(slot, ACTIVE);
+        store.set(slot, COLLECTED);
+    }
+
+    public boolean isActive(int slot) {
+        return store.is(slot, ACTIVE);
+    }
+
+}
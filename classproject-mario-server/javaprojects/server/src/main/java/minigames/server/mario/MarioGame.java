@@ -1,9 +1,7 @@
 package minigames.server.mario;
 
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +11,10 @@ import minigames.commands.CommandPackage;
 import minigames.rendering.GameMetadata;
 import minigames.rendering.NativeCommands.LoadClient;
 import minigames.rendering.RenderingPackage;
+import minigames.rendering.SnapshotDelta;
+import minigames.rendering.SnapshotEncoder;
+import minigames.server.EntityStore;
+import minigames.server.Main;
 
 /**
  * Represents an actual Mario game in progress.
@@ -23,21 +25,28 @@ public class MarioGame {
     private CollisionDetection collisionDetection;
     private String name;
     private Map<String, Player> players = new HashMap<>();
-    private List<Enemy> enemies = new ArrayList<>();
-    private Random random = new Random();
+    /** The enemies and herbs, which are moved in one pass each tick */
+    private final MarioEntities entities = new MarioEntities();
+    /** Everything random in the game comes from here, so a game can be run again from its seed */
+    private final Random random;
+    private final long seed;
+    private final TickClock clock;
     private static final int MIN_SPAWN_INTERVAL = 3000;
     private static final int MAX_SPAWN_INTERVAL = 10000;
     private int enemySpawnInterval = MIN_SPAWN_INTERVAL;
     private double lastEnemySpawnTime;
     private int score;
-    private final ScheduledExecutorService gameLoopExecutor;
+    private ScheduledFuture<?> gameLoop;
+
+    /** How often the game loop runs */
+    public static final int TICKS_PER_SECOND = 20;
 
     private static final int MIN_SPAWN_INTERVAL_TICKS = 30; // Minimum interval in game ticks
     private static final int MAX_SPAWN_INTERVAL_TICKS = 200; // Maximum interval in game ticks
     private int enemySpawnIntervalTicks = MIN_SPAWN_INTERVAL_TICKS; // Current spawn interval in ticks
     private int currentTick = 0; // Game tick counter
+    private long tickTime = 0; // When the current tick ran, sent with snapshots so clients can interpolate
     private int lastEnemySpawnTick = 0; // Last tick when an enemy was spawned
-    private List<Herb> herbs = new ArrayList<>();
     private static final int MIN_HERB_SPAWN_INTERVAL_TICKS = 50; // Minimum interval in game ticks for herb spawning
     private static final int MAX_HERB_SPAWN_INTERVAL_TICKS = 5000; // Maximum interval in game ticks for herb spawning
     private int herbSpawnIntervalTicks = MIN_HERB_SPAWN_INTERVAL_TICKS; // Current spawn interval for herbs
@@ -46,17 +55,65 @@ public class MarioGame {
     private static final int WAVE_SPAWN_INTERVAL_TICKS = 800; // Interval in ticks for wave spawning
     private int waveCounter = 0;
 
+    /** Remembers what each player has acknowledged, so UPDATEs only carry what changed */
+    private final SnapshotEncoder snapshots = new SnapshotEncoder();
+    /** Bumped whenever the game state may have changed, so the encoder knows when to take a new snapshot */
+    private volatile long stateVersion = 0;
+
 
     /**
-     * Constructs a new MarioGame object.
+     * Constructs a new MarioGame object. The game doesn't tick until it is started.
      *
      * @param name The name of the game.
      */
     public MarioGame(String name) {
+        this(name, new Random().nextLong(), TickClock.WALL);
+    }
+
+    /**
+     * Constructs a MarioGame that plays out the same way every time it is given the same seed, clock and input.
+     * With TickClock.SIMULATED and advance() instead of start(), it runs headless, as fast as it can be ticked.
+     *
+     * @param name The name of the game.
+     * @param seed Seeds the enemy and herb spawning.
+     * @param clock What time each tick is stamped with.
+     */
+    public MarioGame(String name, long seed, TickClock clock) {
         this.name = name;
-        this.gameLoopExecutor = Executors.newSingleThreadScheduledExecutor();
-        this.collisionDetection = new CollisionDetection();
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.clock = clock;
+        logger.info("Game {} seeded with {}", name, seed);
+        this.collisionDetection = new CollisionDetection(new CollisionListener() {
+            @Override
+            public void enemyStomped(Player player, int enemy) {
+                entities.stomp(enemy);
+                player.applyBounce();
+                player.increasescore();
+                logger.debug("Player {} defeated an enemy by jumping on it", player.getName());
+            }
+
+            @Override
+            public void playerHit(Player player, int enemy) {
+                entities.hit(enemy);
+                player.decreaseHealth();
+                logger.debug("Player {} ran into an enemy", player.getName());
+            }
+
+            @Override
+            public void herbTouched(Player player, int herb) {
+                entities.collect(herb);
+                player.increaseHealth();
+                logger.debug("Player {} collected a herb", player.getName());
+            }
+        });
         initGame();
+    }
+
+    /**
+     * Starts the game ticking. Called once the game has its first player, before anyone else can see it.
+     */
+    public void start() {
         startGameLoop();
     }
 
@@ -77,17 +134,35 @@ public class MarioGame {
     }
 
     /**
-     * Starts the game loop using a ScheduledExecutorService to regularly call updateGame().
-     * The game loop is called every 100ms.
+     * Starts the game loop on the server's shared GameLoopScheduler to regularly call updateGame().
+     * The game loop is called TICKS_PER_SECOND times a second (every 50ms), and each tick runs on the game's
+     * context, in order with the players' commands.
      */
     private void startGameLoop() {
-        gameLoopExecutor.scheduleAtFixedRate(() -> {
-            try {
-                updateGame();
-            } catch (Exception e) {
-                logger.error("Error during game update: ", e);
-            }
-        }, 0, 50, TimeUnit.MILLISECONDS);
+        Runnable tick = Main.gameLoopScheduler.timed("Mario", TICKS_PER_SECOND, this::updateGame);
+        gameLoop = Main.gameLoopScheduler.scheduleTicks(TICKS_PER_SECOND, Main.gameContexts.bind("Mario", name, tick));
+    }
+
+    /**
+     * Runs a number of ticks straight away, one after another, on the calling thread. This is for games that
+     * haven't been started, such as in tests and simulations.
+     */
+    public void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            updateGame();
+        }
+    }
+
+    /**
+     * Ends the game, stopping its game loop so it no longer uses any scheduler time.
+     */
+    public void endGame() {
+        if (gameLoop != null) {
+            gameLoop.cancel(false);
+            gameLoop = null;
+        }
+        Main.gameContexts.remove("Mario", name);
+        logger.info("Game {} ended", name);
     }
 
     /**
@@ -95,6 +170,8 @@ public class MarioGame {
      */
     public void updateGame() {
         currentTick++; // Increment the game tick counter
+        tickTime = clock.timeOf(currentTick);
+        stateVersion++;
         adjustSpawnRateBasedOnScore();
 
         // Check for herb spawning
@@ -111,29 +188,17 @@ public class MarioGame {
             lastEnemySpawnTick = currentTick; // Reset spawn timer after a wave
         }
 
-        moveEnemies();
-        removeDefeatedEnemies();
-        removeCollectedHerbs();
+        // Walks the enemies, drops stomped ones and herbs, and removes whatever is defeated or collected
+        entities.update();
 
-        collisionDetection.checkCollisions(players, enemies, herbs);
+        collisionDetection.checkCollisions(players, entities);
 
         for (Player player : players.values()) {
+            player.tick();
             if (player.isJumping()) {
                 player.jump();  // Continuously call jump until it completes
             }
         }
-
-        for (Enemy enemy : enemies) {
-            if (!enemy.isActive()) { // Check if the enemy is defeated
-                enemy.moveDown();  // Call moveDown to move the defeated enemy below the ground
-            }
-        }
-
-        for (Herb herb : herbs) {
-            if (herb.isActive()) { // Only move active herbs
-                herb.fall(); // Call the fall method to make the herb fall towards the ground
-            }
-        }
     }
 
 
@@ -147,11 +212,11 @@ public class MarioGame {
     }
 
     private void spawnHerb() {
-        if (herbs.size() < 2) { // Limit the number of herbs on the screen to 3 at a time
+        if (entities.herbCount() < 2) { // Limit the number of herbs on the screen to 3 at a time
             int spawnX = random.nextInt(1000); // Random X between 0 and the width of the map
             int spawnY = 0; // Start from the top of the map
 
-            herbs.add(new Herb(spawnX, spawnY, 30, 30)); // Create a new herb and add it to the list
+            entities.spawnHerb(spawnX, spawnY, 30, 30);
 
             // Log and adjust the next spawn interval
             herbSpawnIntervalTicks = random.nextInt(MAX_HERB_SPAWN_INTERVAL_TICKS - MIN_HERB_SPAWN_INTERVAL_TICKS + 1) + MIN_HERB_SPAWN_INTERVAL_TICKS;
@@ -173,12 +238,11 @@ public class MarioGame {
      */
     // Adjusted to use the random enemy speed and wave spawn pattern
     private void spawnEnemy() {
-        if (enemies.size() < 5) { // Allows up to 5 enemies at a time
+        if (entities.enemyCount() < 5) { // Allows up to 5 enemies at a time
             int randomSpeed = random.nextInt(5 , 11); // Random speed between 5 and 10
             int spawnX = random.nextInt(1150 - 100) + 100; // Random X between 100 and 1150
-            int spawnY = 820; // Fixed Y or can randomize further
 
-            enemies.add(new Enemy(spawnX, spawnY, 50, 50, randomSpeed));
+            entities.spawnEnemy(spawnX, 50, 50, randomSpeed); // Enemies always walk along the ground
 
             // Log and adjust the next spawn interval
             enemySpawnInterval = random.nextInt(MAX_SPAWN_INTERVAL - MIN_SPAWN_INTERVAL + 1) + MIN_SPAWN_INTERVAL;
@@ -191,9 +255,8 @@ public class MarioGame {
         for (int i = 0; i < 5; i++) {
             int randomSpeed = random.nextInt(6) + 5; // Random speed between 5 and 10
             int spawnX = (i * 200) % 1250; // Pattern-based spawn positions
-            int spawnY = 820;
 
-            enemies.add(new Enemy(spawnX, spawnY, 50, 50, randomSpeed));
+            entities.spawnEnemy(spawnX, 50, 50, randomSpeed);
         }
         logger.debug("Spawned a wave of enemies.");
     }
@@ -201,6 +264,7 @@ public class MarioGame {
     // Adjust the spawn rate based on the player's score
     private void adjustSpawnRateBasedOnScore() {
         int highestScore = getHighestPlayerScore();
+        int previousIntervalTicks = enemySpawnIntervalTicks;
 
         if (highestScore >= 100 && highestScore < 200) {
             enemySpawnIntervalTicks = Math.max(MIN_SPAWN_INTERVAL_TICKS, MAX_SPAWN_INTERVAL_TICKS - 10); // 190 ticks
@@ -218,7 +282,9 @@ public class MarioGame {
             enemySpawnIntervalTicks = Math.max(MIN_SPAWN_INTERVAL_TICKS, MAX_SPAWN_INTERVAL_TICKS - 120); // 80 ticks
         }
 
-        logger.debug("Adjusted enemy spawn rate: {} ticks for highest score: {}", enemySpawnIntervalTicks, highestScore);
+        if (enemySpawnIntervalTicks != previousIntervalTicks) {
+            logger.debug("Adjusted enemy spawn rate: {} ticks for highest score: {}", enemySpawnIntervalTicks, highestScore);
+        }
     }
 
 
@@ -232,15 +298,6 @@ public class MarioGame {
 return  highestScore;
     }
 
-    // Remove defeated enemies
-    private void removeDefeatedEnemies() {
-        enemies.removeIf(Enemy::getDefeated); // Using a lambda to remove defeated enemies
-    }
-    private void removeCollectedHerbs()
-    {
-        herbs.removeIf(Herb :: isCollected);
-    }
-
     private boolean shouldSpawnWave() {
         // Check if enough ticks have passed since the last wave spawn to spawn a new wave
         if (currentTick - lastWaveSpawnTick >= WAVE_SPAWN_INTERVAL_TICKS) {
@@ -252,13 +309,14 @@ return  highestScore;
     }
 
 
-    /**
-     * Moves all existing enemies in the game.
-     */
-    private void moveEnemies() {
-        for (Enemy enemy : enemies) {
-            enemy.move();
-        }
+    /** Adds an enemy directly, so benchmarks and tests can set up a game with a given number of them */
+    void addEnemy(int x, int speed) {
+        entities.spawnEnemy(x, 50, 50, speed);
+    }
+
+    /** The enemies and herbs, for tests to look at */
+    MarioEntities entities() {
+        return entities;
     }
 
     /**
@@ -269,25 +327,10 @@ return  highestScore;
         logger.debug("Player {} moved to position: ({}), direction: {}", player.getName(), player.getX(), direction);
     }
 
-    /**
-     * Handles the UPDATE request from the client.
-     */
-    public RenderingPackage handleUpdate(String playerName) {
-        Player player = players.get(playerName);
-
-        if (player == null) {
-            logger.warn("Player {} not found in game {}", playerName, name);
-            return errorPackage("Player not found");
-        }
-
-        logger.debug("Server: Sending position update for player {}: x={}, y={}, direction={}",
-                player.getName(), player.getX(), player.getY(), player.getDirection());
-
-        return createRenderingPackage();
-    }
-
     /**
      * Runs commands sent by the client and processes them for the player.
+     * Any command may carry an "ack" of the snapshot the client has applied. The player is only sent the
+     * state of the game if one of the commands is an UPDATE; otherwise the package has no commands.
      */
     public RenderingPackage runCommands(CommandPackage cp) {
         Player player = players.get(cp.player());
@@ -297,12 +340,36 @@ return  highestScore;
             return errorPackage("Player not found");
         }
 
+        boolean wantsState = false;
         for (JsonObject command : cp.commands()) {
             String type = command.getString("type");
-            processCommand(type, command, player);
+            snapshots.acknowledge(cp.player(), number(command, "ack", SnapshotDelta.FULL));
+            if ("UPDATE".equals(type)) {
+                wantsState = true;
+            } else {
+                processCommand(type, command, player);
+                // Inputs the client has predicted carry a sequence number, which goes back with the player's state
+                player.setLastInput(number(command, "seq", 0L));
+                stateVersion++;
+            }
         }
 
-        return createRenderingPackage();
+        return wantsState ? createDeltaPackage(cp.player()) : new RenderingPackage(gameMetadata(), List.of());
+    }
+
+    /**
+     * A number from a command, or the fallback if it is missing. Commands come from clients, so a value that isn't
+     * a number is logged and treated as missing rather than failing the whole package.
+     */
+    private long number(JsonObject command, String key, long fallback) {
+        Object value = command.getValue(key);
+        if (value instanceof Number n) {
+            return n.longValue();
+        }
+        if (value != null) {
+            logger.debug("Ignoring non-numeric {} {} in a command for game {}", key, value, name);
+        }
+        return fallback;
     }
 
     private void processCommand(String type, JsonObject command, Player player) {
@@ -325,6 +392,9 @@ return  highestScore;
                 int health = command.getInteger("health");
                 player.setHealth(health);
                 break;
+            case "ack":
+                // Only carries an acknowledgement, which has already been taken
+                break;
             default:
                 logger.warn("Unknown command type: {}", type);
                 break;
@@ -359,26 +429,48 @@ return  highestScore;
         ));
     }
 
-    private RenderingPackage createRenderingPackage() {
-        return new RenderingPackage(gameMetadata(), generateRenderingCommands());
+    /**
+     * Packages up what has changed since the player's acknowledged snapshot.
+     */
+    private RenderingPackage createDeltaPackage(String playerName) {
+        SnapshotDelta delta = snapshots.encode(playerName, stateVersion, this::snapshotScene);
+        return new RenderingPackage(gameMetadata(), List.of(delta.toJson()));
     }
 
-    private ArrayList<JsonObject> generateRenderingCommands() {
-        ArrayList<JsonObject> renderingCommands = new ArrayList<>();
+    /**
+     * The whole scene, keyed by each entity's stable id, stamped with the tick it was taken at.
+     */
+    private Map<String, JsonObject> snapshotScene() {
+        LinkedHashMap<String, JsonObject> scene = new LinkedHashMap<>();
+
+        // First, so that the client knows which tick the rest of the delta is from before it applies it
+        scene.put("clock", new JsonObject()
+                .put("command", "tick")
+                .put("tick", currentTick)
+                .put("time", tickTime)
+                .put("id", "clock"));
 
         for (Player player : players.values()) {
-            renderingCommands.add(createPlayerUpdate(player));
+            String id = "player:" + player.getName();
+            scene.put(id, createPlayerUpdate(player).put("id", id));
         }
 
-        for (int i = 0; i < enemies.size(); i++) {
-            renderingCommands.add(createEnemyUpdate(i, enemies.get(i)));
+        EntityStore store = entities.store();
+        for (int slot = 0; slot < store.slots(); slot++) {
+            if (store.kind(slot) == MarioEntities.ENEMY) {
+                String id = "enemy:" + store.id(slot);
+                scene.put(id, createEnemyUpdate(store, slot).put("id", id));
+            }
         }
-        for (int i = 0; i < herbs.size(); i++) {
-            renderingCommands.add(createHerbUpdate(i, herbs.get(i)));
+        for (int slot = 0; slot < store.slots(); slot++) {
+            if (store.kind(slot) == MarioEntities.HERB) {
+                String id = "herb:" + store.id(slot);
+                scene.put(id, createHerbUpdate(store, slot).put("id", id));
+            }
         }
-        renderingCommands.add(waveUpdate());
+        scene.put("wave", waveUpdate().put("id", "wave"));
 
-        return renderingCommands;
+        return scene;
     }
 
     private JsonObject createPlayerUpdate(Player player) {
@@ -386,20 +478,23 @@ return  highestScore;
                 .put("command", "updatePosition")
                 .put("x", player.getX())
                 .put("y", player.getY())
+                .put("dy", player.getDy())
+                .put("jumping", player.isJumping())
                 .put("onGround", player.isOnGround())
                 .put("direction", player.getDirection())
+                .put("lastInput", player.getLastInput())
                 .put("health", player.getHealth())
                 .put("score" , player.getScore());
     }
 
 
-    private JsonObject createEnemyUpdate(int index, Enemy enemy) {
+    private JsonObject createEnemyUpdate(EntityStore store, int slot) {
         return new JsonObject()
                 .put("command", "updateEnemy")
-                .put("index", index)
-                .put("x", enemy.getX())
-                .put("y", enemy.getY())
-                .put("active", enemy.isActive());
+                .put("index", store.id(slot))
+                .put("x", store.x(slot))
+                .put("y", store.y(slot))
+                .put("active", store.is(slot, MarioEntities.ACTIVE));
     }
     private JsonObject waveUpdate() {
         return new JsonObject()
@@ -407,18 +502,32 @@ return  highestScore;
                 .put("wave", waveCounter);
     }
 
-    private JsonObject createHerbUpdate(int index, Herb herb) {
+    private JsonObject createHerbUpdate(EntityStore store, int slot) {
         return new JsonObject()
                 .put("command", "updateHerb")
-                .put("index", index)
-                .put("x", herb.getX())
-                .put("y", herb.getY())
-                .put("active", herb.isActive());
+                .put("index", store.id(slot))
+                .put("x", store.x(slot))
+                .put("y", store.y(slot))
+                .put("active", store.is(slot, MarioEntities.ACTIVE));
     }
 
 
 
 
+    /**
+     * Returns the seed the game's randomness comes from, which is also logged when the game is created.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns how many ticks the game has run.
+     */
+    public int getCurrentTick() {
+        return currentTick;
+    }
+
     /**
      * Returns the name of the game.
      */
@@ -7,9 +7,7 @@ import minigames.rendering.GameServerDetails;
 import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
-import java.util.List; 
-import io.vertx.core.json.JsonObject;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 import org.apache.logging.log4j.LogManager;
@@ -35,7 +33,7 @@ public class MarioServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, MarioGame> games = new HashMap<>();
+    ConcurrentHashMap<String, MarioGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -57,9 +55,12 @@ public class MarioServer implements GameServer {
     @Override
     public Future<RenderingPackage> newGame(String playerName) {
         MarioGame g = new MarioGame(randomName());
+        // Join and start the game before it is put where anyone else can see it, so nothing races its first tick
+        RenderingPackage rp = g.joinGame(playerName);
+        g.start();
         games.put(g.getName(), g);
-        System.out.println("New game created with name: " + g.getName());
-        return Future.succeededFuture(g.joinGame(playerName));
+        logger.info("New game created with name: {}", g.getName());
+        return Future.succeededFuture(rp);
     }
 
     @Override
@@ -76,14 +77,15 @@ public class MarioServer implements GameServer {
 //        return Future.succeededFuture(g.runCommands(cp));
 //    }
 
+    /**
+     * Runs every command in the package against the game. Inputs (moves, jumps...) are applied in order; the
+     * game's state only comes back if an UPDATE was asked for. Over a WebSocket, the client sends just its
+     * inputs and the state is pushed at the game's tick rate.
+     */
     @Override
     public Future<RenderingPackage> callGame(CommandPackage commands) {
         String playerName = commands.player();
-        List<JsonObject> commandList = commands.commands();
-
-        // Log the received player name and command list
-        logger.debug("Received callGame request from player: {}", playerName);
-        logger.debug("Command list received: {}", commandList);
+        logger.debug("Received callGame request from player: {} with commands: {}", playerName, commands.commands());
 
         MarioGame g = games.get(commands.gameId());  // Get the game instance
 
@@ -92,29 +94,30 @@ public class MarioServer implements GameServer {
             return Future.failedFuture("Game not found");
         }
 
-        for (JsonObject command : commandList) {
-            String commandType = command.getString("type");
-
-            // Log each command type processed
-            logger.debug("Processing command of type: {}", commandType);
+        return Future.succeededFuture(g.runCommands(commands));
+    }
 
-            switch (commandType) {
-                case "move":
-                    logger.debug("Processing move command for player: {}", playerName);
-                    return Future.succeededFuture(g.runCommands(commands));
+    /** Each player is sent a delta against their own acknowledged snapshot */
+    @Override
+    public boolean sharesPushedState() {
+        return false;
+    }
 
-                case "UPDATE":
-                    logger.debug("Processing update command for player: {}", playerName);
-                    return Future.succeededFuture(g.handleUpdate(playerName));
+    /** State is pushed once per game tick - pushing more often would only resend the same snapshot */
+    @Override
+    public int pushRate() {
+        return MarioGame.TICKS_PER_SECOND;
+    }
 
-                default:
-                    logger.warn("Unknown command type: {}", commandType);
-            }
+    /** Ends an idle game, stopping its timers. Called by the GameLifecycleManager on the game's context. */
+    @Override
+    public boolean removeGame(String gameId) {
+        MarioGame g = games.remove(gameId);
+        if (g == null) {
+            return false;
         }
-
-        // Log when no valid command was processed
-        logger.warn("No valid commands were processed for player: {}", playerName);
-        return Future.failedFuture("No valid command received");
+        g.endGame();
+        return true;
     }
 
 }
@@ -0,0 +1,135 @@
+package minigames.server.mario;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the play area that finds which boxes might overlap a given box, without testing every box.
+ *
+ * It is rebuilt from scratch each tick from arrays of box coordinates, and boxes are referred to by their index in
+ * those arrays. Its arrays are kept between ticks and only grow, so once it has seen the largest wave, building
+ * and querying allocate nothing.
+ *
+ * Anything outside the grid is counted as being in the nearest edge cell. That keeps queries correct for things
+ * that have wandered off the map (enemies walk off the left edge before they respawn), just less selective.
+ */
+final class SpatialGrid {
+
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+
+    /** The boxes in cell c are entries[cellStart[c]] up to entries[cellStart[c + 1]] */
+    private final int[] cellStart;
+    /** Where the next box in each cell goes, while building */
+    private final int[] fill;
+    private int[] entries = new int[64];
+
+    /** The query each box was last found by, so that a box spanning several cells is only found once */
+    private int[] foundBy = new int[16];
+    private int query = 0;
+    private int[] found = new int[16];
+
+    SpatialGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (width + cellSize - 1) / cellSize);
+        this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+        this.cellStart = new int[columns * rows + 1];
+        this.fill = new int[columns * rows];
+    }
+
+    /**
+     * Puts boxes 0 to count - 1 in the grid, replacing whatever it held. Boxes with no area are left out, as they
+     * can't overlap anything.
+     */
+    void build(int count, int[] xs, int[] ys, int[] widths, int[] heights) {
+        Arrays.fill(cellStart, 0);
+        // Count the boxes in each cell, then turn the counts into where each cell's boxes start
+        for (int i = 0; i < count; i++) {
+            if (widths[i] <= 0 || heights[i] <= 0) {
+                continue;
+            }
+            int left = column(xs[i]), right = column(xs[i] + widths[i] - 1);
+            int top = row(ys[i]), bottom = row(ys[i] + heights[i] - 1);
+            for (int r = top; r <= bottom; r++) {
+                for (int c = left; c <= right; c++) {
+                    cellStart[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int c = 1; c < cellStart.length; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        if (entries.length < cellStart[cellStart.length - 1]) {
+            entries = new int[Math.max(cellStart[cellStart.length - 1], entries.length * 2)];
+        }
+
+        System.arraycopy(cellStart, 0, fill, 0, fill.length);
+        for (int i = 0; i < count; i++) {
+            if (widths[i] <= 0 || heights[i] <= 0) {
+                continue;
+            }
+            int left = column(xs[i]), right = column(xs[i] + widths[i] - 1);
+            int top = row(ys[i]), bottom = row(ys[i] + heights[i] - 1);
+            for (int r = top; r <= bottom; r++) {
+                for (int c = left; c <= right; c++) {
+                    entries[fill[r * columns + c]++] = i;
+                }
+            }
+        }
+
+        if (foundBy.length < count) {
+            foundBy = new int[Math.max(count, foundBy.length * 2)];
+            found = new int[foundBy.length];
+            query = 0;
+        }
+    }
+
+    /**
+     * Finds the boxes in the cells that the given box covers: every box that overlaps it, and maybe some nearby
+     * ones that don't. They can then be read, in index order, with found(0) to found(n - 1).
+     *
+     * @return how many were found
+     */
+    int query(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        if (++query == 0) {
+            // Wrapped around: forget every earlier query, so none is mistaken for this one
+            Arrays.fill(foundBy, 0);
+            query = 1;
+        }
+        int n = 0;
+        int left = column(x), right = column(x + width - 1);
+        int top = row(y), bottom = row(y + height - 1);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                int cell = r * columns + c;
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    int box = entries[e];
+                    if (foundBy[box] != query) {
+                        foundBy[box] = query;
+                        found[n++] = box;
+                    }
+                }
+            }
+        }
+        // In index order, so callers see boxes in the same order as they would checking every one
+        Arrays.sort(found, 0, n);
+        return n;
+    }
+
+    /** One of the boxes found by the last query */
+    int found(int i) {
+        return found[i];
+    }
+
+    private int column(int x) {
+        return Math.max(0, Math.min(columns - 1, Math.floorDiv(x, cellSize)));
+    }
+
+    private int row(int y) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+    }
+
+}
@@ -0,0 +1,23 @@
+package minigames.server.mario;
+
+/**
+ * Says what time each tick of a MarioGame happens at, which is sent to clients with each snapshot.
+ *
+ * Games being played use the wall clock. A headless game uses simulated time instead, so that it can be ticked
+ * as fast as updateGame can go and come out the same every time it is run with the same seed.
+ */
+public interface TickClock {
+
+    /** Real time: whenever the tick actually runs */
+    TickClock WALL = (tick) -> System.currentTimeMillis();
+
+    /** Ticks exactly 1000 / TICKS_PER_SECOND ms apart, counting from 0 */
+    TickClock SIMULATED = (tick) -> tick * 1000L / MarioGame.TICKS_PER_SECOND;
+
+    /**
+     * @param tick the tick number, counting from 1
+     * @return the time it runs at, in ms
+     */
+    long timeOf(long tick);
+
+}
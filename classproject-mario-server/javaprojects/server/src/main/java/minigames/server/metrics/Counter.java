@@ -0,0 +1,24 @@
+package minigames.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Backed by a LongAdder, so threads incrementing it at once don't contend.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void inc() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+}
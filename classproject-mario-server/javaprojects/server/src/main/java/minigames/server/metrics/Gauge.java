@@ -0,0 +1,29 @@
+package minigames.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that goes up and down, e.g. the number of sockets currently subscribed to games.
+ * For values that are cheaper to read when scraped than to track, register a callback gauge instead.
+ */
+public class Gauge {
+
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void dec() {
+        value.decrement();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+}
@@ -0,0 +1,91 @@
+package minigames.server.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of durations, counted into fixed buckets.
+ *
+ * The bucket bounds are set when the histogram is created, so recording a duration is a binary search and two
+ * LongAdder increments - no allocation and no locks - and is cheap enough to leave on in production.
+ */
+public class Histogram {
+
+    /** Bucket upper bounds (in seconds) suitable for request and tick latencies, from 100us to 10s */
+    public static final double[] LATENCY_BUCKETS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /** Upper bounds in seconds, for output */
+    private final double[] bounds;
+    /** The same bounds in nanoseconds, for recording */
+    private final long[] boundNanos;
+    /** One more than the bounds: the last bucket counts everything above the highest bound */
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        this(LATENCY_BUCKETS);
+    }
+
+    /** Creates a histogram with the given bucket upper bounds, in seconds, in increasing order */
+    public Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.boundNanos = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            boundNanos[i] = (long)(bounds[i] * TimeUnit.SECONDS.toNanos(1));
+            if (i > 0 && boundNanos[i] <= boundNanos[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be increasing");
+            }
+        }
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /** Records a duration */
+    public void record(long nanos) {
+        int i = Arrays.binarySearch(boundNanos, nanos);
+        // Not found gives -(insertion point) - 1; the insertion point is the first bound above nanos
+        buckets[i >= 0 ? i : -i - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /** Records the time since a System.nanoTime() reading */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /** The bucket upper bounds, in seconds (not including +Inf) */
+    public double[] bounds() {
+        return bounds.clone();
+    }
+
+    /** Cumulative counts: element i is the number of durations at or below bound i. The last element is the total. */
+    public long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /** The number of durations recorded */
+    public long count() {
+        long total = 0;
+        for (LongAdder b : buckets) {
+            total += b.sum();
+        }
+        return total;
+    }
+
+    /** The sum of every duration recorded, in seconds */
+    public double sumSeconds() {
+        return sumNanos.sum() / (double)TimeUnit.SECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,173 @@
+package minigames.server.metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the server's metrics and writes them out in the OpenMetrics text format, for /metrics.
+ *
+ * A metric family has a name, a type and a help string, and optionally a single label (e.g. "game_server")
+ * with a child metric per label value. Looking a metric up (e.g. histogram(...)) creates it the first time,
+ * and after that is just two map reads, so it is fine to do on every request. Recording is lock-free.
+ *
+ * Values that are cheaper to read when scraped than to track (e.g. the number of games in progress) are
+ * registered as callbacks, which run only when /metrics is requested.
+ */
+public class MetricsRegistry {
+
+    /** The Content-Type of scrape() */
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private enum Type { counter, gauge, histogram }
+
+    private static class Family {
+        final String name;
+        final Type type;
+        final String help;
+        final String label;
+        final Map<String, Object> children = new ConcurrentHashMap<>();
+
+        Family(String name, Type type, String help, String label) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.label = label;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    /** A counter with no labels */
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, "");
+    }
+
+    /** The counter for one value of a label */
+    public Counter counter(String name, String help, String label, String value) {
+        return child(name, Type.counter, help, label, value, (v) -> new Counter());
+    }
+
+    /** A gauge with no labels */
+    public Gauge gauge(String name, String help) {
+        return gauge(name, help, null, "");
+    }
+
+    /** The gauge for one value of a label */
+    public Gauge gauge(String name, String help, String label, String value) {
+        return child(name, Type.gauge, help, label, value, (v) -> new Gauge());
+    }
+
+    /** A latency histogram with no labels */
+    public Histogram histogram(String name, String help) {
+        return histogram(name, help, null, "");
+    }
+
+    /** The latency histogram for one value of a label */
+    public Histogram histogram(String name, String help, String label, String value) {
+        return child(name, Type.histogram, help, label, value, (v) -> new Histogram());
+    }
+
+    /** A gauge read from a callback when scraped */
+    public void gauge(String name, String help, LongSupplier callback) {
+        family(name, Type.gauge, help, null).children.put("", callback);
+    }
+
+    /** A gauge read from a callback when scraped, giving a value per label value */
+    public void gauge(String name, String help, String label, Supplier<Map<String, Long>> callback) {
+        family(name, Type.gauge, help, label).children.put("", callback);
+    }
+
+    /** A counter read from a callback when scraped */
+    public void counter(String name, String help, LongSupplier callback) {
+        family(name, Type.counter, help, null).children.put("", callback);
+    }
+
+    /** A counter read from a callback when scraped, giving a value per label value */
+    public void counter(String name, String help, String label, Supplier<Map<String, Long>> callback) {
+        family(name, Type.counter, help, label).children.put("", callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T child(String name, Type type, String help, String label, String value, Function<String, T> create) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = family(name, type, help, label);
+        }
+        Object child = family.children.get(value);
+        if (child == null) {
+            child = family.children.computeIfAbsent(value, create);
+        }
+        return (T)child;
+    }
+
+    private Family family(String name, Type type, String help, String label) {
+        Family family = families.computeIfAbsent(name, (n) -> new Family(n, type, help, label));
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /** Writes every metric in the OpenMetrics text format */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : new TreeMap<>(families).values()) {
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            sb.append("# HELP ").append(family.name).append(' ').append(escape(family.help)).append('\n');
+            for (Map.Entry<String, Object> child : new TreeMap<>(family.children).entrySet()) {
+                writeChild(sb, family, child.getKey(), child.getValue());
+            }
+        }
+        sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeChild(StringBuilder sb, Family family, String value, Object child) {
+        String suffix = family.type == Type.counter ? "_total" : "";
+        if (child instanceof Counter c) {
+            sample(sb, family.name + suffix, labels(family.label, value), c.get());
+        } else if (child instanceof Gauge g) {
+            sample(sb, family.name, labels(family.label, value), g.get());
+        } else if (child instanceof LongSupplier callback) {
+            sample(sb, family.name + suffix, "", callback.getAsLong());
+        } else if (child instanceof Supplier<?> callback) {
+            for (Map.Entry<String, Long> e : new TreeMap<>((Map<String, Long>)callback.get()).entrySet()) {
+                sample(sb, family.name + suffix, labels(family.label, e.getKey()), e.getValue());
+            }
+        } else if (child instanceof Histogram h) {
+            String labels = labels(family.label, value);
+            String prefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+            double[] bounds = h.bounds();
+            long[] counts = h.cumulativeCounts();
+            for (int i = 0; i < bounds.length; i++) {
+                String le = BigDecimal.valueOf(bounds[i]).toPlainString();
+                sample(sb, family.name + "_bucket", prefix + "le=\"" + le + "\"}", counts[i]);
+            }
+            sample(sb, family.name + "_bucket", prefix + "le=\"+Inf\"}", counts[bounds.length]);
+            sample(sb, family.name + "_count", labels, counts[bounds.length]);
+            sb.append(family.name).append("_sum").append(labels).append(' ').append(h.sumSeconds()).append('\n');
+        }
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String labels(String label, String value) {
+        if (label == null) {
+            return "";
+        }
+        return "{" + label + "=\"" + escape(value) + "\"}";
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
@@ -0,0 +1,159 @@
+package minigames.server.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import minigames.rendering.GameMetadata;
+import minigames.server.Main;
+import minigames.server.database.DatabaseUtils;
+import minigames.server.database.TtlCache;
+
+/**
+ * The metrics the server records, named in one place so every caller records into the same families.
+ *
+ * Game server metrics are labelled with the GameServer's name rather than the game's id, so the number of
+ * series stays fixed however many games are played. Names that come from clients are only used as labels if a
+ * GameServer is registered under them; anything else is counted as "unknown".
+ */
+public final class ServerMetrics {
+
+    private ServerMetrics() {}
+
+    private static final String GAME_SERVER = "game_server";
+
+    /** The label for game server names that aren't in the registry */
+    private static final String UNKNOWN_GAME_SERVER = "unknown";
+
+    /** A client-supplied game server name, as a label that can only be one of the registered names */
+    private static String gameServerLabel(String gameServer) {
+        return gameServer != null && Main.gameRegistry.getGameServer(gameServer) != null
+            ? gameServer : UNKNOWN_GAME_SERVER;
+    }
+
+    public static Histogram newGame(String gameServer) {
+        return Main.metrics.histogram("minigames_new_game_seconds",
+            "Time to create a game, including waiting for its server's context", GAME_SERVER,
+            gameServerLabel(gameServer));
+    }
+
+    public static Histogram joinGame(String gameServer) {
+        return Main.metrics.histogram("minigames_join_game_seconds",
+            "Time to join a game, including waiting for its context", GAME_SERVER, gameServerLabel(gameServer));
+    }
+
+    public static Histogram callGame(String gameServer) {
+        return Main.metrics.histogram("minigames_call_game_seconds",
+            "Time to run a command package, including waiting for the game's context", GAME_SERVER,
+            gameServerLabel(gameServer));
+    }
+
+    public static Histogram tickDuration(String gameServer) {
+        return Main.metrics.histogram("minigames_tick_duration_seconds",
+            "Time taken by each tick of a game loop", GAME_SERVER, gameServer);
+    }
+
+    public static Counter tickOverruns(String gameServer) {
+        return Main.metrics.counter("minigames_tick_overruns",
+            "Ticks that took longer than the loop's period", GAME_SERVER, gameServer);
+    }
+
+    public static Histogram dbQuery(String kind) {
+        return Main.metrics.histogram("minigames_db_query_seconds",
+            "Time to execute a database statement", "kind", kind);
+    }
+
+    public static Histogram dbConnectionWait() {
+        return Main.metrics.histogram("minigames_db_connection_wait_seconds",
+            "Time spent waiting to borrow a database connection from the pool");
+    }
+
+    public static Histogram dbConnectionHeld() {
+        return Main.metrics.histogram("minigames_db_connection_held_seconds",
+            "Time a database connection was borrowed for");
+    }
+
+    public static Histogram blockingQueueWait(String pool) {
+        return Main.metrics.histogram("minigames_blocking_queue_wait_seconds",
+            "Time blocking work waited for a thread in its pool", "pool", pool);
+    }
+
+    public static Counter blockingRejected(String pool) {
+        return Main.metrics.counter("minigames_blocking_rejected",
+            "Blocking work refused because its pool was full", "pool", pool);
+    }
+
+    public static Gauge webSocketSubscribers() {
+        return Main.metrics.gauge("minigames_websocket_subscribers", "WebSockets subscribed to a game");
+    }
+
+    public static Gauge webSocketFeeds() {
+        return Main.metrics.gauge("minigames_websocket_feeds", "Games being pushed to at least one WebSocket");
+    }
+
+    public static Gauge webSocketPendingWrites() {
+        return Main.metrics.gauge("minigames_websocket_pending_writes",
+            "Frames written to WebSockets that have not yet been flushed to the network");
+    }
+
+    public static Counter webSocketDroppedFrames() {
+        return Main.metrics.counter("minigames_websocket_dropped_frames",
+            "Frames not sent because the socket's write queue was full");
+    }
+
+    /**
+     * Registers the metrics that are read when scraped: games, players, contexts, database
+     * connections and buffered writes, cache hits and misses, blocking work waiting, and the lifecycle counters.
+     */
+    public static void registerCallbacks() {
+        Main.metrics.gauge("minigames_live_games", "Games in progress", GAME_SERVER, () -> {
+            Map<String, Long> games = new HashMap<>();
+            for (String name : Main.gameRegistry.getGameServerNames()) {
+                games.put(name, (long)Main.gameRegistry.getGameServer(name).getGamesInProgress().length);
+            }
+            return games;
+        });
+        Main.metrics.gauge("minigames_live_players", "Players in games in progress", GAME_SERVER, () -> {
+            Map<String, Long> players = new HashMap<>();
+            for (String name : Main.gameRegistry.getGameServerNames()) {
+                long count = 0;
+                for (GameMetadata game : Main.gameRegistry.getGameServer(name).getGamesInProgress()) {
+                    count += game.players() == null ? 0 : game.players().length;
+                }
+                players.put(name, count);
+            }
+            return players;
+        });
+        Main.metrics.gauge("minigames_game_contexts", "Games with an execution context", Main.gameContexts::size);
+        Main.metrics.gauge("minigames_scheduled_tasks", "Game loops and timers on the GameLoopScheduler",
+            Main.gameLoopScheduler::scheduledCount);
+        Main.metrics.gauge("minigames_db_connections_in_use", "Database connections borrowed from the pool",
+            DatabaseUtils::connectionsInUse);
+        Main.metrics.gauge("minigames_db_pending_writes", "Scores and play time buffered, waiting to be written",
+            Main.writeBehind::pending);
+        Main.metrics.counter("minigames_cache_hits", "Repository reads answered from a cache", "cache",
+            () -> perCache(TtlCache::hits));
+        Main.metrics.counter("minigames_cache_misses", "Repository reads that had to query the database", "cache",
+            () -> perCache(TtlCache::misses));
+        Main.metrics.gauge("minigames_blocking_waiting", "Blocking work waiting for a thread", "pool", () -> Map.of(
+            Main.databasePool.name(), (long)Main.databasePool.waiting(),
+            Main.hashingPool.name(), (long)Main.hashingPool.waiting()));
+        Main.metrics.counter("minigames_games_evicted", "Games evicted for being idle",
+            Main.gameLifecycle::evictionCount);
+        Main.metrics.counter("minigames_games_refused", "New games refused because their server was at its cap",
+            Main.gameLifecycle::refusalCount);
+    }
+
+    private static Map<String, Long> perCache(ToLongFunction<TtlCache<?, ?>> value) {
+        List<TtlCache<?, ?>> caches = new ArrayList<>(Main.userRepository.caches());
+        caches.add(Main.profileRepository.cache());
+        Map<String, Long> values = new HashMap<>();
+        for (TtlCache<?, ?> cache : caches) {
+            values.put(cache.name(), value.applyAsLong(cache));
+        }
+        return values;
+    }
+
+}
@@ -11,7 +11,7 @@ import minigames.server.GameServer;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 /**
@@ -27,7 +27,7 @@ public class MinesweeperServer implements GameServer {
     }
 
     /** Holds the saved games in memory (no db) */
-    HashMap<String, MinesweeperGame> games = new HashMap<>();
+    ConcurrentHashMap<String, MinesweeperGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -80,5 +80,10 @@ public class MinesweeperServer implements GameServer {
         MinesweeperGame g = games.get(gameId);
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
     
 }
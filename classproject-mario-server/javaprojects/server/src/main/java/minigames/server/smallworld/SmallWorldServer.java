@@ -8,7 +8,7 @@ import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 
 /**
@@ -30,7 +30,7 @@ public class SmallWorldServer implements GameServer {
     }
 
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, SmallWorldGame> games = new HashMap<>();
+    ConcurrentHashMap<String, SmallWorldGame> games = new ConcurrentHashMap<>();
 
     @Override
     public GameServerDetails getDetails() {
@@ -67,5 +67,10 @@ public class SmallWorldServer implements GameServer {
         SmallWorldGame g = games.get(cp.gameId());
         return Future.succeededFuture(g.runCommands(cp));
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
     
 }
@@ -7,7 +7,7 @@ import minigames.rendering.GameServerDetails;
 import minigames.rendering.RenderingPackage;
 import minigames.server.ClientType;
 import minigames.server.GameServer;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Random;
 /**
  * The TicTacToeServer holds TicTacToe games
@@ -25,7 +25,7 @@ public class TicTacToeServer implements GameServer {
         return sb.toString();
     }
     /** Holds the games in progress in memory (no db) */
-    HashMap<String, TicTacToeGame> games = new HashMap<>();
+    ConcurrentHashMap<String, TicTacToeGame> games = new ConcurrentHashMap<>();
     @Override
     public GameServerDetails getDetails() {
         return new GameServerDetails("TicTacToe", "TicTacToe is a classic game where players take turns marking spaces in a 3x3 grid.");
@@ -68,4 +68,9 @@ public class TicTacToeServer implements GameServer {
             return Future.failedFuture(new Exception("Game not found"));
         }
     }
+
+    @Override
+    public boolean removeGame(String gameId) {
+        return games.remove(gameId) != null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+
+/**
+ * Tests of the pools blocking work runs on
+ */
+public class BlockingPoolTests {
+
+    /** Waits for a Future that is completed on another thread */
+    private static <T> Future<T> await(Future<T> future) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        future.onComplete((r) -> done.countDown());
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        return future;
+    }
+
+    @Test
+    @DisplayName("Work runs off the calling thread, and its result comes back")
+    public void runsOffThread() throws InterruptedException {
+        BlockingPool pool = new BlockingPool("test", 2, 4, false);
+        Thread caller = Thread.currentThread();
+
+        Future<Thread> ran = await(pool.submit(Thread::currentThread));
+        assertTrue(ran.succeeded());
+        assertNotSame(caller, ran.result());
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Virtual thread pools run no more than their thread count at once")
+    public void virtualRespectsConcurrency() throws InterruptedException {
+        BlockingPool pool = new BlockingPool("test-virtual", 1, 100, true);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Future<Integer> last = null;
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            last = pool.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                running.decrementAndGet();
+                return n;
+            });
+        }
+
+        assertTrue(await(last).succeeded());
+        assertEquals(1, maxRunning.get());
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("A full pool refuses work straight away")
+    public void failsFastWhenSaturated() throws InterruptedException {
+        BlockingPool pool = new BlockingPool("test-full", 1, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Void> running = pool.submit(() -> {
+            release.await();
+            return null;
+        });
+        Future<Void> queued = pool.submit(() -> null);
+        Future<Void> refused = pool.submit(() -> null);
+
+        assertTrue(refused.failed());
+        assertTrue(refused.cause() instanceof RejectedExecutionException);
+        assertEquals(1, pool.rejectionCount());
+
+        release.countDown();
+        assertTrue(await(running).succeeded());
+        assertTrue(await(queued).succeeded());
+
+        // Once there's room again, work is accepted
+        assertTrue(await(pool.submit(() -> null)).succeeded());
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Work that throws fails its Future")
+    public void failures() throws InterruptedException {
+        BlockingPool pool = new BlockingPool("test-failure", 1, 1, false);
+        Future<Void> failed = await(pool.submit(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(failed.failed());
+        assertEquals("boom", failed.cause().getMessage());
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("The inline pool runs work on the calling thread")
+    public void inline() {
+        Future<Thread> ran = BlockingPool.INLINE.submit(Thread::currentThread);
+        assertTrue(ran.succeeded());
+        assertSame(Thread.currentThread(), ran.result());
+    }
+
+}
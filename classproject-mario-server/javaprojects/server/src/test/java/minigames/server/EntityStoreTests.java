@@ -0,0 +1,100 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the EntityStore that games keep their moving things in
+ */
+public class EntityStoreTests {
+
+    @Test
+    @DisplayName("An entity keeps what it was added with, and moves by its velocity")
+    public void addAndStep() {
+        EntityStore store = new EntityStore(4);
+        int slot = store.add(3, 10, 20, 30, 40, -5, 2, 1);
+
+        assertTrue(store.isLive(slot));
+        assertEquals(3, store.kind(slot));
+        assertEquals(30, store.width(slot));
+        assertEquals(40, store.height(slot));
+        assertTrue(store.is(slot, 1));
+
+        store.step(slot);
+        assertEquals(5, store.x(slot));
+        assertEquals(22, store.y(slot));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("Removed slots are reused, with a new id and no area while free")
+    public void reusesSlots() {
+        EntityStore store = new EntityStore(4);
+        int a = store.add(0, 0, 0, 10, 10, 0, 0, 0);
+        int b = store.add(0, 0, 0, 10, 10, 0, 0, 0);
+        int idOfA = store.id(a);
+
+        store.remove(a);
+        assertFalse(store.isLive(a));
+        assertEquals(EntityStore.FREE, store.kind(a));
+        assertEquals(0, store.width(a));
+        assertEquals(1, store.size());
+
+        int c = store.add(1, 0, 0, 10, 10, 0, 0, 0);
+        assertEquals(a, c);
+        assertNotEquals(idOfA, store.id(c));
+        assertNotEquals(store.id(b), store.id(c));
+        assertEquals(2, store.slots());
+    }
+
+    @Test
+    @DisplayName("Removing the same slot twice only frees it once")
+    public void removeTwice() {
+        EntityStore store = new EntityStore(4);
+        int a = store.add(0, 0, 0, 10, 10, 0, 0, 0);
+        store.remove(a);
+        store.remove(a);
+
+        assertEquals(0, store.size());
+        int b = store.add(0, 0, 0, 10, 10, 0, 0, 0);
+        int c = store.add(0, 0, 0, 10, 10, 0, 0, 0);
+        assertNotEquals(b, c);
+    }
+
+    @Test
+    @DisplayName("Grows when full, then stops growing once things are removed as fast as they're added")
+    public void growsThenRecycles() {
+        EntityStore store = new EntityStore(2);
+        int[] slots = new int[100];
+        for (int i = 0; i < 100; i++) {
+            slots[i] = store.add(0, i, 0, 10, 10, 0, 0, 0);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, store.x(slots[i]));
+        }
+        int capacity = store.capacity();
+
+        for (int round = 0; round < 1000; round++) {
+            int i = round % 100;
+            store.remove(slots[i]);
+            slots[i] = store.add(0, round, 0, 10, 10, 0, 0, 0);
+        }
+        assertEquals(capacity, store.capacity());
+        assertEquals(100, store.size());
+        assertEquals(100, store.slots());
+    }
+
+    @Test
+    @DisplayName("Flags can be set and cleared independently")
+    public void flags() {
+        EntityStore store = new EntityStore(1);
+        int slot = store.add(0, 0, 0, 1, 1, 0, 0, 1);
+
+        store.set(slot, 4);
+        assertTrue(store.is(slot, 1 | 4));
+        store.clear(slot, 1);
+        assertFalse(store.is(slot, 1));
+        assertTrue(store.is(slot, 4));
+    }
+
+}
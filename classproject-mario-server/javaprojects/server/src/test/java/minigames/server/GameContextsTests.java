@@ -0,0 +1,149 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+
+/**
+ * Tests of the per-game execution contexts
+ */
+public class GameContextsTests {
+
+    @Test
+    @DisplayName("Work for one game runs one at a time, in the order it was submitted")
+    public void sequentialPerGame() throws InterruptedException {
+        GameContexts contexts = new GameContexts(4);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            contexts.bind("Test", "game", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            }).run();
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Different games run in parallel")
+    public void parallelAcrossGames() throws InterruptedException {
+        GameContexts contexts = new GameContexts(2);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        for (String game : new String[] { "a", "b" }) {
+            contexts.bind("Test", game, () -> {
+                bothStarted.countDown();
+                try {
+                    // Only returns promptly if the other game is running at the same time
+                    bothStarted.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }).run();
+        }
+
+        assertTrue(bothStarted.await(1, TimeUnit.SECONDS));
+    }
+
+    /** Waits for everything already queued on the test game's context to run */
+    private static void awaitQueued(GameContexts contexts) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        contexts.bind("Test", "game", done::countDown).run();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("A bound task run again while it is still queued or running is skipped, not queued up")
+    public void slowTasksSkipRuns() throws InterruptedException {
+        GameContexts contexts = new GameContexts(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable tick = contexts.bind("Test", "game", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        tick.run();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            tick.run();
+        }
+        release.countDown();
+
+        awaitQueued(contexts);
+        assertEquals(1, runs.get());
+
+        // Once the slow run has finished, the task runs again
+        tick.run();
+        awaitQueued(contexts);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    @DisplayName("Submitted calls complete with their result, and fail if they throw")
+    public void submitCompletes() throws InterruptedException {
+        GameContexts contexts = new GameContexts(1);
+        CountDownLatch done = new CountDownLatch(2);
+        contexts.created("Test", "game");
+
+        Future<String> ok = contexts.submit("Test", "game", () -> Future.succeededFuture("ok"));
+        Future<String> boom = contexts.submit("Test", "game", () -> { throw new IllegalStateException("boom"); });
+        ok.onComplete((r) -> done.countDown());
+        boom.onComplete((r) -> done.countDown());
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals("ok", ok.result());
+        assertTrue(boom.failed());
+    }
+
+    @Test
+    @DisplayName("Calls to a game that was never created fail, without making it a context")
+    public void unknownGames() throws InterruptedException {
+        GameContexts contexts = new GameContexts(1);
+
+        Future<String> call = contexts.submit("Test", "made-up", () -> Future.succeededFuture("ran"));
+        assertTrue(call.failed());
+        assertInstanceOf(NoSuchElementException.class, call.cause());
+        assertFalse(contexts.has("Test", "made-up"));
+        assertEquals(0, contexts.size());
+
+        // Creating a game runs on its server's context, and then the game has one of its own
+        CountDownLatch done = new CountDownLatch(1);
+        Future<String> created = contexts.submitNew("Test", () -> Future.succeededFuture("game"));
+        created.onComplete((r) -> done.countDown());
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        contexts.created("Test", created.result());
+        assertTrue(contexts.has("Test", "game"));
+
+        contexts.remove("Test", "game");
+        assertFalse(contexts.has("Test", "game"));
+        assertTrue(contexts.submit("Test", "game", () -> Future.succeededFuture("ran")).failed());
+    }
+
+}
@@ -0,0 +1,95 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests of idle game eviction and the per-server cap
+ */
+public class GameLifecycleManagerTests {
+
+    @Test
+    @DisplayName("Games idle for longer than the TTL are removed from their server, and active ones are kept")
+    public void evictsIdleGames() throws InterruptedException {
+        GameServer gs = mock(GameServer.class);
+        when(gs.removeGame(anyString())).thenReturn(true);
+        Main.gameRegistry.registerGameServer("LifecycleTest", gs);
+
+        AtomicLong now = new AtomicLong();
+        GameLifecycleManager lifecycle = new GameLifecycleManager(10, TimeUnit.MINUTES, 100, now::get);
+        CountDownLatch evicted = new CountDownLatch(1);
+        lifecycle.onEviction((server, game) -> evicted.countDown());
+
+        lifecycle.created("LifecycleTest", "idle");
+        lifecycle.created("LifecycleTest", "active");
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        lifecycle.touch("LifecycleTest", "active");
+        assertEquals(0, lifecycle.reap());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        assertEquals(1, lifecycle.reap());
+        assertTrue(evicted.await(1, TimeUnit.SECONDS));
+
+        verify(gs).removeGame("idle");
+        verify(gs, never()).removeGame("active");
+        assertEquals(1, lifecycle.liveGames("LifecycleTest"));
+        assertEquals(1, lifecycle.evictionCount());
+    }
+
+    @Test
+    @DisplayName("A server at its cap has no room for new games until one is evicted")
+    public void capsGamesPerServer() {
+        AtomicLong now = new AtomicLong();
+        GameLifecycleManager lifecycle = new GameLifecycleManager(10, TimeUnit.MINUTES, 2, now::get);
+
+        lifecycle.created("CapTest", "a");
+        assertTrue(lifecycle.hasRoom("CapTest"));
+        lifecycle.created("CapTest", "b");
+        assertFalse(lifecycle.hasRoom("CapTest"));
+        assertTrue(lifecycle.hasRoom("OtherServer"));
+        assertEquals(1, lifecycle.refusalCount());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        lifecycle.reap();
+        assertTrue(lifecycle.hasRoom("CapTest"));
+    }
+
+    @Test
+    @DisplayName("Games being created hold their slot, so concurrent creations can't go over the cap")
+    public void reservesSlots() throws InterruptedException {
+        GameLifecycleManager lifecycle = new GameLifecycleManager(10, TimeUnit.MINUTES, 5);
+        AtomicInteger reservations = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (lifecycle.reserve("ReserveTest")) {
+                        reservations.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(5, reservations.get());
+
+        // A failed creation gives its slot back
+        lifecycle.release("ReserveTest");
+        assertTrue(lifecycle.reserve("ReserveTest"));
+        assertFalse(lifecycle.reserve("ReserveTest"));
+
+        // A successful one keeps it
+        lifecycle.created("ReserveTest", "a");
+        assertEquals(1, lifecycle.liveGames("ReserveTest"));
+        assertFalse(lifecycle.reserve("ReserveTest"));
+    }
+
+}
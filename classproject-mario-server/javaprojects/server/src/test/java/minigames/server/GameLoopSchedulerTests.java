@@ -0,0 +1,64 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests of the shared GameLoopScheduler
+ */
+public class GameLoopSchedulerTests {
+
+    @Test
+    @DisplayName("Ticks keep running after a tick throws")
+    public void survivesExceptions() throws InterruptedException {
+        GameLoopScheduler scheduler = new GameLoopScheduler(1);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        ScheduledFuture<?> loop = scheduler.scheduleTicks(100, () -> {
+            latch.countDown();
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        loop.cancel(false);
+        scheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("A cancelled game loop stops ticking")
+    public void cancelStopsTicks() throws InterruptedException {
+        GameLoopScheduler scheduler = new GameLoopScheduler(2);
+        AtomicInteger ticks = new AtomicInteger();
+
+        ScheduledFuture<?> loop = scheduler.scheduleTicks(100, ticks::incrementAndGet);
+        Thread.sleep(100);
+        loop.cancel(false);
+        assertTrue(loop.isDone());
+        // cancel(false) lets a tick that has already started finish, so let any such tick land before counting
+        Thread.sleep(50);
+        int afterCancel = ticks.get();
+        Thread.sleep(100);
+
+        assertTrue(afterCancel > 0);
+        assertEquals(afterCancel, ticks.get());
+        scheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("One-shot timers fire once")
+    public void oneShotFires() throws InterruptedException {
+        GameLoopScheduler scheduler = new GameLoopScheduler(1);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        scheduler.schedule(10, TimeUnit.MILLISECONDS, latch::countDown);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        scheduler.shutdown();
+    }
+
+}
@@ -0,0 +1,153 @@
+package minigames.server;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.GameMetadata;
+import minigames.rendering.RenderingPackage;
+
+/**
+ * Tests of the WebSocket subscription manager
+ */
+public class GameSubscriptionsTests {
+
+    @BeforeEach
+    void createGame() {
+        // Games are only called once they have been created
+        Main.gameContexts.created("Test", "game");
+    }
+
+    @AfterEach
+    void endGame() {
+        Main.gameContexts.remove("Test", "game");
+    }
+
+    private GameServer gameServer() {
+        GameServer gs = mock(GameServer.class);
+        RenderingPackage rp = new RenderingPackage(
+            new GameMetadata("Test", "game", new String[] { "a", "b" }, true),
+            List.of(new JsonObject().put("command", "state")));
+        when(gs.callGame(any())).thenReturn(Future.succeededFuture(rp));
+        when(gs.pushRate()).thenReturn(GameSubscriptions.DEFAULT_PUSH_RATE);
+        when(gs.sharesPushedState()).thenReturn(true);
+        return gs;
+    }
+
+    private CommandPackage subscribeTo(String game, String player) {
+        return new CommandPackage("Test", game, player, List.of(new JsonObject().put("command", "getState")));
+    }
+
+    @Test
+    @DisplayName("Sockets subscribed to the same game share one feed, and it stops when the last one leaves")
+    public void sharesFeedPerGame() throws InterruptedException {
+        GameSubscriptions subs = new GameSubscriptions();
+        GameServer gs = gameServer();
+        ServerWebSocket a = mock(ServerWebSocket.class);
+        ServerWebSocket b = mock(ServerWebSocket.class);
+
+        subs.subscribe(a, gs, subscribeTo("game", "a"));
+        subs.subscribe(b, gs, subscribeTo("game", "b"));
+        assertEquals(2, subs.subscriberCount());
+        assertEquals(1, subs.feedCount());
+
+        Thread.sleep(5 * 1000 / GameSubscriptions.DEFAULT_PUSH_RATE);
+        verify(a, atLeastOnce()).write(any(Buffer.class), any());
+        verify(b, atLeastOnce()).write(any(Buffer.class), any());
+
+        subs.unsubscribe(a);
+        assertEquals(1, subs.feedCount());
+        subs.unsubscribe(b);
+        assertEquals(0, subs.subscriberCount());
+        assertEquals(0, subs.feedCount());
+    }
+
+    @Test
+    @DisplayName("Games that don't share pushed state are polled once per subscriber, with its own commands")
+    public void perSubscriberPush() throws InterruptedException {
+        GameSubscriptions subs = new GameSubscriptions();
+        GameServer gs = gameServer();
+        when(gs.sharesPushedState()).thenReturn(false);
+        ServerWebSocket a = mock(ServerWebSocket.class);
+        ServerWebSocket b = mock(ServerWebSocket.class);
+        CommandPackage forA = subscribeTo("game", "a");
+        CommandPackage forB = subscribeTo("game", "b");
+
+        subs.subscribe(a, gs, forA);
+        subs.subscribe(b, gs, forB);
+        Thread.sleep(5 * 1000 / GameSubscriptions.DEFAULT_PUSH_RATE);
+        subs.unsubscribe(a);
+        subs.unsubscribe(b);
+
+        verify(gs, atLeastOnce()).callGame(forA);
+        verify(gs, atLeastOnce()).callGame(forB);
+        verify(a, atLeastOnce()).write(any(Buffer.class), any());
+    }
+
+    @Test
+    @DisplayName("Subscribing a socket again replaces its previous subscription")
+    public void resubscribeReplaces() {
+        GameSubscriptions subs = new GameSubscriptions();
+        GameServer gs = gameServer();
+        ServerWebSocket a = mock(ServerWebSocket.class);
+
+        subs.subscribe(a, gs, subscribeTo("first", "a"));
+        subs.subscribe(a, gs, subscribeTo("second", "a"));
+
+        assertEquals(1, subs.subscriberCount());
+        assertEquals(1, subs.feedCount());
+        subs.unsubscribe(a);
+        assertEquals(0, subs.feedCount());
+    }
+
+    @Test
+    @DisplayName("A game that hasn't answered the last push isn't polled again until it does")
+    public void slowGamesSkipPushes() throws InterruptedException {
+        GameSubscriptions subs = new GameSubscriptions();
+        GameServer gs = gameServer();
+        Promise<RenderingPackage> answer = Promise.promise();
+        when(gs.callGame(any())).thenReturn(answer.future());
+        ServerWebSocket a = mock(ServerWebSocket.class);
+        ServerWebSocket b = mock(ServerWebSocket.class);
+
+        subs.subscribe(a, gs, subscribeTo("game", "a"));
+        subs.subscribe(b, gs, subscribeTo("game", "b"));
+        Thread.sleep(5 * 1000 / GameSubscriptions.DEFAULT_PUSH_RATE);
+        subs.unsubscribe(a);
+        subs.unsubscribe(b);
+
+        verify(gs, times(1)).callGame(any());
+    }
+
+    @Test
+    @DisplayName("With state that isn't shared, each subscriber waits for its own last poll")
+    public void slowGamesSkipPushesPerSubscriber() throws InterruptedException {
+        GameSubscriptions subs = new GameSubscriptions();
+        GameServer gs = gameServer();
+        when(gs.sharesPushedState()).thenReturn(false);
+        Promise<RenderingPackage> answer = Promise.promise();
+        when(gs.callGame(any())).thenReturn(answer.future());
+        ServerWebSocket a = mock(ServerWebSocket.class);
+        ServerWebSocket b = mock(ServerWebSocket.class);
+        CommandPackage forA = subscribeTo("game", "a");
+        CommandPackage forB = subscribeTo("game", "b");
+
+        subs.subscribe(a, gs, forA);
+        subs.subscribe(b, gs, forB);
+        Thread.sleep(5 * 1000 / GameSubscriptions.DEFAULT_PUSH_RATE);
+        subs.unsubscribe(a);
+        subs.unsubscribe(b);
+
+        verify(gs, times(1)).callGame(forA);
+        verify(gs, times(1)).callGame(forB);
+    }
+
+}
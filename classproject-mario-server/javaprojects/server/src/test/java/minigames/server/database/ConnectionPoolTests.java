@@ -0,0 +1,70 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Tests of the database connection pool, against an in-memory Derby database
+ */
+public class ConnectionPoolTests {
+
+    private static final String URL = "jdbc:derby:memory:connectionPoolTests;create=true";
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool(URL, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Borrowed connections are counted until they are given back")
+    public void borrowAndRelease() throws SQLException {
+        assertEquals(2, pool.size());
+        assertEquals(0, pool.inUse());
+
+        try (PooledConnection a = pool.borrow()) {
+            assertEquals(1, pool.inUse());
+            try (PooledConnection b = pool.borrow()) {
+                assertNotSame(a, b);
+                assertEquals(2, pool.inUse());
+            }
+            assertEquals(1, pool.inUse());
+        }
+        assertEquals(0, pool.inUse());
+    }
+
+    @Test
+    @DisplayName("A connection prepares each query once, and clears its parameters for reuse")
+    public void statementCache() throws SQLException {
+        String sql = "VALUES CAST(? AS INT)";
+        try (PooledConnection c = pool.borrow()) {
+            PreparedStatement first = c.prepare(sql);
+            first.setInt(1, 42);
+            try (ResultSet rs = first.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(42, rs.getInt(1));
+            }
+
+            PreparedStatement second = c.prepare(sql);
+            assertSame(first, second);
+            assertThrows(SQLException.class, second::executeQuery);
+        }
+    }
+
+    @Test
+    @DisplayName("A pool needs at least one connection")
+    public void emptyPool() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(URL, 0));
+    }
+
+}
@@ -0,0 +1,110 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests of seeding the database, against an in-memory Derby database
+ */
+public class DatabaseSeederTests {
+
+    private static int databases = 0;
+
+    private ConnectionPool pool;
+    private DatabaseSeeder seeder;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:derby:memory:databaseSeederTests" + (databases++) + ";create=true", 1);
+        DatabaseTables.createTables(pool);
+        new MigrationRunner(pool, Migrations.ALL).run();
+        seeder = new DatabaseSeeder(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private static JsonObject seedData() {
+        return new JsonObject()
+                .put("users", new JsonArray()
+                        .add(new JsonObject().put("username", "jane").put("password", "pw").put("email", "j@x")
+                                .put("profile", new JsonObject().put("first_name", "Jane")
+                                        .put("total_play_time_minutes", "120"))))
+                .put("achievements", new JsonArray()
+                        .add(new JsonObject().put("game", "Snake").put("name", "Champion").put("points", 5)))
+                .put("userAchievements", new JsonArray()
+                        .add(new JsonObject().put("username", "jane").put("achievementName", "Champion")))
+                .put("leaderboards", new JsonArray()
+                        .add(new JsonObject().put("name", "jane").put("score", 100).put("gametype", "Snake")));
+    }
+
+    private static byte[] bytes(JsonObject json) {
+        return json.encode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int count(String table) throws SQLException {
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement();
+             ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement()) {
+            s.executeUpdate(sql);
+        }
+    }
+
+    @Test
+    @DisplayName("Seeding loads every table, and is skipped when the seed file hasn't changed")
+    public void seedsOnce() throws SQLException {
+        assertTrue(seeder.seed(bytes(seedData()), false));
+        assertEquals(1, count("users"));
+        assertEquals(1, count("profiles"));
+        assertEquals(1, count("achievements"));
+        assertEquals(1, count("achievement_join"));
+        assertEquals(1, count("leaderboards"));
+
+        assertFalse(seeder.seed(bytes(seedData()), false));
+        assertEquals(1, count("leaderboards"));
+    }
+
+    @Test
+    @DisplayName("Changed seed data adds only what is missing, and keeps real data")
+    public void changedSeedKeepsData() throws SQLException {
+        seeder.seed(bytes(seedData()), false);
+        execute("INSERT INTO leaderboards (name, gametype, score) VALUES ('real', 'Snake', 7)");
+
+        JsonObject changed = seedData();
+        changed.getJsonArray("leaderboards")
+                .add(new JsonObject().put("name", "jane").put("score", 200).put("gametype", "Snake"));
+        assertTrue(seeder.seed(bytes(changed), false));
+
+        assertEquals(1, count("users"));
+        assertEquals(1, count("achievement_join"));
+        assertEquals(3, count("leaderboards"));
+    }
+
+    @Test
+    @DisplayName("Resetting empties the tables before seeding")
+    public void reset() throws SQLException {
+        seeder.seed(bytes(seedData()), false);
+        execute("INSERT INTO leaderboards (name, gametype, score) VALUES ('real', 'Snake', 7)");
+
+        assertTrue(seeder.seed(bytes(seedData()), true));
+        assertEquals(1, count("users"));
+        assertEquals(1, count("leaderboards"));
+    }
+
+}
@@ -0,0 +1,169 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests of the in-memory leaderboards
+ */
+public class LeaderboardIndexTests {
+
+    @Test
+    @DisplayName("Top scores come back highest first, with ties in the order they were added")
+    public void top() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.add("Mario", "alice", 10);
+        index.add("Mario", "bob", 30);
+        index.add("Mario", "carol", 20);
+        index.add("Mario", "dave", 30);
+        index.add("Snake", "erin", 99);
+
+        assertEquals(List.of(
+                new LeaderboardIndex.Score("bob", 30),
+                new LeaderboardIndex.Score("dave", 30),
+                new LeaderboardIndex.Score("carol", 20)
+        ), index.top("Mario", 3));
+        assertEquals(4, index.all("Mario").size());
+        assertTrue(index.top("Tetris", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A player is ranked by their best score, and equal scores share a rank")
+    public void rank() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.add("Mario", "alice", 10);
+        index.add("Mario", "bob", 30);
+        index.add("Mario", "carol", 30);
+        index.add("Mario", "alice", 25);
+
+        assertEquals(new LeaderboardIndex.Rank("alice", 25, 3, 4), index.rank("Mario", "alice"));
+        assertEquals(1, index.rank("Mario", "carol").rank());
+        assertNull(index.rank("Mario", "nobody"));
+        assertNull(index.rank("Tetris", "alice"));
+    }
+
+    @Test
+    @DisplayName("A player's ranks cover every game type they have a score for")
+    public void ranks() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.add("Snake", "alice", 5);
+        index.add("Mario", "alice", 10);
+        index.add("Mario", "bob", 30);
+        index.add("Tetris", "bob", 1);
+
+        assertEquals(List.of("Mario", "Snake"), new ArrayList<>(index.ranks("alice").keySet()));
+        assertEquals(new LeaderboardIndex.Rank("alice", 10, 2, 2), index.ranks("alice").get("Mario"));
+        assertTrue(index.ranks("nobody").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Lots of scores agree with sorting them")
+    public void agreesWithSorting() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        List<LeaderboardIndex.Score> added = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            LeaderboardIndex.Score s = new LeaderboardIndex.Score("p" + random.nextInt(100), random.nextInt(1000));
+            index.add("Mario", s.name(), s.score());
+            added.add(s);
+        }
+
+        // A stable sort keeps ties in the order they were added, as the index does
+        added.sort(Comparator.comparingInt(LeaderboardIndex.Score::score).reversed());
+        assertEquals(added.subList(0, 50), index.top("Mario", 50));
+        assertEquals(added, index.all("Mario"));
+
+        LeaderboardIndex.Rank rank = index.rank("Mario", "p7");
+        long above = added.stream().filter((s) -> s.score() > rank.score()).count();
+        assertEquals(above + 1, rank.rank());
+        assertEquals(5000, rank.of());
+    }
+
+    @Test
+    @DisplayName("A removed score comes out of the board and out of the player's rank")
+    public void remove() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.add("Mario", "alice", 10);
+        index.add("Mario", "bob", 30);
+        index.add("Mario", "alice", 40);
+        index.add("Mario", "carol", 40);
+
+        index.remove("Mario", "alice", 40);
+        assertEquals(List.of(
+                new LeaderboardIndex.Score("carol", 40),
+                new LeaderboardIndex.Score("bob", 30),
+                new LeaderboardIndex.Score("alice", 10)
+        ), index.all("Mario"));
+        // Back to their next best
+        assertEquals(new LeaderboardIndex.Rank("alice", 10, 3, 3), index.rank("Mario", "alice"));
+
+        index.remove("Mario", "alice", 10);
+        assertNull(index.rank("Mario", "alice"));
+        // Nothing to remove
+        index.remove("Mario", "alice", 10);
+        index.remove("Tetris", "alice", 10);
+        assertEquals(2, index.all("Mario").size());
+    }
+
+    @Test
+    @DisplayName("Lots of removals agree with a list")
+    public void removesAgreeWithList() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        List<LeaderboardIndex.Score> added = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            LeaderboardIndex.Score s = new LeaderboardIndex.Score("p" + random.nextInt(20), random.nextInt(50));
+            index.add("Mario", s.name(), s.score());
+            added.add(s);
+        }
+        for (int i = 0; i < 1000; i++) {
+            LeaderboardIndex.Score s = added.remove(random.nextInt(added.size()));
+            index.remove("Mario", s.name(), s.score());
+        }
+
+        // Entries with the same name and score are interchangeable, so only what is left is compared, not its order
+        Comparator<LeaderboardIndex.Score> byScoreThenName = Comparator
+                .comparingInt(LeaderboardIndex.Score::score).reversed()
+                .thenComparing(LeaderboardIndex.Score::name);
+        List<LeaderboardIndex.Score> left = new ArrayList<>(index.all("Mario"));
+        left.sort(byScoreThenName);
+        added.sort(byScoreThenName);
+        assertEquals(added, left);
+        for (int p = 0; p < 20; p++) {
+            String name = "p" + p;
+            int best = added.stream().filter((s) -> s.name().equals(name)).mapToInt(LeaderboardIndex.Score::score)
+                    .max().orElse(-1);
+            LeaderboardIndex.Rank rank = index.rank("Mario", name);
+            assertEquals(best, rank == null ? -1 : rank.score());
+        }
+    }
+
+    @Test
+    @DisplayName("Walking every page gives every score once, in order")
+    public void pages() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            index.add("Mario", "p" + random.nextInt(50), random.nextInt(100));
+        }
+
+        List<LeaderboardIndex.Score> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<LeaderboardIndex.Score> page = index.page("Mario", cursor, 37);
+            assertTrue(page.items().size() <= 37);
+            paged.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+
+        assertEquals(index.all("Mario"), paged);
+        assertTrue(index.page("Tetris", null, 10).items().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.page("Mario", Page.cursor("scores", 1, 1), 10));
+    }
+
+}
@@ -0,0 +1,97 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests of applying schema migrations, against an in-memory Derby database
+ */
+public class MigrationRunnerTests {
+
+    private static int databases = 0;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // A fresh database for each test
+        pool = new ConnectionPool("jdbc:derby:memory:migrationRunnerTests" + (databases++) + ";create=true", 1);
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement()) {
+            s.executeUpdate("CREATE TABLE things (id INT PRIMARY KEY, name VARCHAR(50))");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private List<Integer> applied() throws SQLException {
+        List<Integer> versions = new ArrayList<>();
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement();
+             ResultSet rs = s.executeQuery("SELECT version FROM schema_migrations ORDER BY version")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    @Test
+    @DisplayName("Migrations are applied in order, and only once")
+    public void appliesOnce() throws SQLException {
+        List<Migration> migrations = List.of(
+                new Migration(1, "Index things by name", "CREATE INDEX things_name ON things (name)"),
+                new Migration(2, "Add a thing", "INSERT INTO things VALUES (1, 'widget')")
+        );
+
+        assertEquals(2, new MigrationRunner(pool, migrations).run());
+        assertEquals(List.of(1, 2), applied());
+
+        // Running again (e.g. at the next start-up) does nothing
+        assertEquals(0, new MigrationRunner(pool, migrations).run());
+
+        // ...until a new migration is added
+        List<Migration> more = new ArrayList<>(migrations);
+        more.add(new Migration(3, "Add another thing", "INSERT INTO things VALUES (2, 'gadget')"));
+        assertEquals(1, new MigrationRunner(pool, more).run());
+        assertEquals(List.of(1, 2, 3), applied());
+    }
+
+    @Test
+    @DisplayName("A failing migration is rolled back, and later ones aren't run")
+    public void failureRollsBack() throws SQLException {
+        List<Migration> migrations = List.of(
+                new Migration(1, "Index things by name", "CREATE INDEX things_name ON things (name)"),
+                new Migration(2, "Half works",
+                        "INSERT INTO things VALUES (1, 'widget')",
+                        "INSERT INTO nowhere VALUES (1)"),
+                new Migration(3, "Add another thing", "INSERT INTO things VALUES (2, 'gadget')")
+        );
+
+        assertThrows(SQLException.class, () -> new MigrationRunner(pool, migrations).run());
+        assertEquals(List.of(1), applied());
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement();
+             ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM things")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Migrations must be in version order")
+    public void outOfOrder() {
+        List<Migration> migrations = List.of(
+                new Migration(2, "Second", "CREATE INDEX things_name ON things (name)"),
+                new Migration(1, "First", "INSERT INTO things VALUES (1, 'widget')")
+        );
+        assertThrows(IllegalArgumentException.class, () -> new MigrationRunner(pool, migrations));
+    }
+
+}
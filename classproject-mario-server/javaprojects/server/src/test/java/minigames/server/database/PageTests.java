@@ -0,0 +1,53 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Tests of paging and cursors
+ */
+public class PageTests {
+
+    @Test
+    @DisplayName("A cursor decodes to the keys it was made from")
+    public void cursorRoundTrip() {
+        String cursor = Page.cursor("scores", 42, -7);
+        assertArrayEquals(new long[] { 42, -7 }, Page.keys(cursor, "scores", 2));
+    }
+
+    @Test
+    @DisplayName("Cursors of the wrong kind, or that aren't cursors at all, are rejected")
+    public void invalidCursors() {
+        String cursor = Page.cursor("users", 5);
+        assertThrows(IllegalArgumentException.class, () -> Page.keys(cursor, "achievements", 1));
+        assertThrows(IllegalArgumentException.class, () -> Page.keys(cursor, "users", 2));
+        assertThrows(IllegalArgumentException.class, () -> Page.keys("!!not base64!!", "users", 1));
+        assertThrows(IllegalArgumentException.class, () -> Page.keys(Page.cursor("users:x"), "users", 1));
+    }
+
+    @Test
+    @DisplayName("There is a next page only if more items were fetched than the limit")
+    public void of() {
+        Page<Integer> last = Page.of(List.of(1, 2, 3), 3, (i) -> Page.cursor("ints", i));
+        assertEquals(List.of(1, 2, 3), last.items());
+        assertNull(last.next());
+
+        Page<Integer> more = Page.of(List.of(1, 2, 3, 4), 3, (i) -> Page.cursor("ints", i));
+        assertEquals(List.of(1, 2, 3), more.items());
+        assertArrayEquals(new long[] { 3 }, Page.keys(more.next(), "ints", 1));
+    }
+
+    @Test
+    @DisplayName("Limits default when absent and are kept within bounds")
+    public void limit() {
+        assertEquals(Page.DEFAULT_LIMIT, Page.limit(null));
+        assertEquals(Page.DEFAULT_LIMIT, Page.limit(""));
+        assertEquals(20, Page.limit("20"));
+        assertEquals(Page.MAX_LIMIT, Page.limit("1000000"));
+        assertEquals(1, Page.limit("0"));
+        assertThrows(IllegalArgumentException.class, () -> Page.limit("lots"));
+    }
+
+}
@@ -0,0 +1,83 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Tests of the read-through cache in front of the repositories
+ */
+public class TtlCacheTests {
+
+    @Test
+    @DisplayName("A value is loaded once and then read from the cache until it expires")
+    public void expires() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("alice", cache.get("a", () -> {
+            loads.incrementAndGet();
+            return Future.succeededFuture("alice");
+        }).result());
+        assertEquals("alice", cache.get("a", () -> {
+            loads.incrementAndGet();
+            return Future.succeededFuture("bob");
+        }).result());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    @DisplayName("Absent values and failures aren't cached")
+    public void absentNotCached() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+
+        assertNull(cache.get("a", () -> Future.succeededFuture(null)).result());
+        assertTrue(cache.get("a", () -> Future.failedFuture("down")).failed());
+        assertEquals(0, cache.size());
+        assertEquals("alice", cache.get("a", () -> Future.succeededFuture("alice")).result());
+    }
+
+    @Test
+    @DisplayName("Once full, the least recently read entry makes room")
+    public void bounded() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 2, 1, TimeUnit.MINUTES);
+        cache.put("a", "alice");
+        cache.put("b", "bob");
+        cache.get("a");
+        cache.put("c", "carol");
+
+        assertEquals(2, cache.size());
+        assertEquals("alice", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("carol", cache.get("c"));
+    }
+
+    @Test
+    @DisplayName("A load that was running when the cache was invalidated isn't kept")
+    public void invalidatedDuringLoad() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+        Promise<String> load = Promise.promise();
+
+        Future<String> stale = cache.get("a", load::future);
+        cache.invalidate("a");
+        load.complete("old");
+
+        assertEquals("old", stale.result());
+        assertNull(cache.get("a"));
+    }
+
+}
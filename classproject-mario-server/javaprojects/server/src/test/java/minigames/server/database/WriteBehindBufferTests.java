@@ -0,0 +1,159 @@
+package minigames.server.database;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+
+/**
+ * Tests of batching writes, against an in-memory Derby database
+ */
+public class WriteBehindBufferTests {
+
+    private static int databases = 0;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:derby:memory:writeBehindBufferTests" + (databases++) + ";create=true", 1);
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement()) {
+            s.executeUpdate("CREATE TABLE leaderboards (id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, " +
+                    "name VARCHAR(255) NOT NULL, score INT NOT NULL, gametype VARCHAR(50) NOT NULL)");
+            s.executeUpdate("CREATE TABLE profiles (username VARCHAR(255) PRIMARY KEY, total_play_time_minutes INT)");
+            s.executeUpdate("INSERT INTO profiles VALUES ('alice', 10)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    /** Waits for a Future that is completed on another thread */
+    private static <T> Future<T> await(Future<T> future) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        future.onComplete((r) -> done.countDown());
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (PooledConnection c = pool.borrow(); Statement s = c.connection().createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Writes wait in memory until flushed, with play time summed per user")
+    public void flush() throws SQLException {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(() -> pool, 60_000, 100);
+        Future<Void> score = buffer.addScore("alice", "Mario", 100);
+        Future<Void> first = buffer.addPlayTime("alice", 5);
+        Future<Void> second = buffer.addPlayTime("alice", 7);
+
+        assertEquals(3, buffer.pending());
+        assertEquals(12, buffer.pendingPlayTime("alice"));
+        assertFalse(score.isComplete());
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM leaderboards"));
+
+        buffer.flush();
+        assertTrue(score.succeeded());
+        assertTrue(first.succeeded());
+        assertTrue(second.succeeded());
+        assertEquals(0, buffer.pending());
+        assertEquals(0, buffer.pendingPlayTime("alice"));
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM leaderboards WHERE gametype = 'Mario'"));
+        assertEquals(22, queryInt("SELECT total_play_time_minutes FROM profiles WHERE username = 'alice'"));
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("Writes still count as pending while they are being flushed")
+    public void pendingWhileFlushing() throws Exception {
+        CountDownLatch borrowing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        // Holds the flush up after it has taken the batch, but before writing it
+        WriteBehindBuffer buffer = new WriteBehindBuffer(() -> {
+            borrowing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pool;
+        }, 60_000, 100);
+        buffer.addPlayTime("alice", 5);
+
+        Thread flusher = new Thread(() -> {
+            try {
+                buffer.flush();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        flusher.start();
+        assertTrue(borrowing.await(2, TimeUnit.SECONDS));
+        buffer.addPlayTime("alice", 2);
+        assertEquals(2, buffer.pending());
+        assertEquals(7, buffer.pendingPlayTime("alice"));
+
+        proceed.countDown();
+        flusher.join(2000);
+        assertEquals(1, buffer.pending());
+        assertEquals(2, buffer.pendingPlayTime("alice"));
+        assertEquals(15, queryInt("SELECT total_play_time_minutes FROM profiles WHERE username = 'alice'"));
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("Enough pending writes flush without waiting for the timer")
+    public void flushesWhenFull() throws InterruptedException, SQLException {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(() -> pool, 60_000, 3);
+        buffer.start();
+        buffer.addScore("a", "Mario", 1);
+        buffer.addScore("b", "Mario", 2);
+        Future<Void> last = buffer.addScore("c", "Mario", 3);
+
+        assertTrue(await(last).succeeded());
+        assertEquals(3, queryInt("SELECT COUNT(*) FROM leaderboards"));
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("Play time for a user without a profile fails, without failing the rest of the batch")
+    public void missingProfile() throws SQLException {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(() -> pool, 60_000, 100);
+        Future<Void> alice = buffer.addPlayTime("alice", 5);
+        Future<Void> nobody = buffer.addPlayTime("nobody", 5);
+
+        buffer.flush();
+        assertTrue(alice.succeeded());
+        assertTrue(nobody.failed());
+        assertEquals("Profile not found", nobody.cause().getMessage());
+        assertEquals(15, queryInt("SELECT total_play_time_minutes FROM profiles WHERE username = 'alice'"));
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("Closing flushes what is pending, and refuses anything after")
+    public void close() throws SQLException {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(() -> pool, 60_000, 100);
+        buffer.start();
+        Future<Void> score = buffer.addScore("alice", "Mario", 100);
+
+        buffer.close();
+        assertTrue(score.succeeded());
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM leaderboards"));
+        assertTrue(buffer.addScore("alice", "Mario", 200).failed());
+    }
+
+}
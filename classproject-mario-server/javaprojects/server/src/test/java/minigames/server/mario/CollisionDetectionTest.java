@@ -0,0 +1,167 @@
+package minigames.server.mario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import minigames.server.EntityStore;
+
+class CollisionDetectionTest {
+
+    /** Writes down what it's told, rather than changing anything */
+    private final List<String> events = new ArrayList<>();
+
+    private final CollisionListener recorder = new CollisionListener() {
+        @Override
+        public void enemyStomped(Player player, int enemy) {
+            events.add("stomp " + player.getName() + " " + enemy);
+        }
+
+        @Override
+        public void playerHit(Player player, int enemy) {
+            events.add("hit " + player.getName() + " " + enemy);
+        }
+
+        @Override
+        public void herbTouched(Player player, int herb) {
+            events.add("herb " + player.getName() + " " + herb);
+        }
+    };
+
+    private CollisionDetection collisions;
+    private Map<String, Player> players;
+    private MarioEntities entities;
+
+    @BeforeEach
+    void setUp() {
+        events.clear();
+        collisions = new CollisionDetection(recorder);
+        players = new LinkedHashMap<>();
+        entities = new MarioEntities();
+    }
+
+    @Test
+    void testStomp() {
+        // Enemies are always at y 415, so a 64 high player at 353 has their feet 2 below its top
+        int enemy = entities.spawnEnemy(100, 50, 50, 5);
+        Player player = new Player("Mario", 100, 353, 32, 64, 4);
+        player.setDy(2);
+        players.put(player.getName(), player);
+
+        assertFalse(collisions.checkCollisions(players, entities));
+        assertEquals(List.of("stomp Mario " + enemy), events);
+    }
+
+    @Test
+    void testSideHit() {
+        int enemy = entities.spawnEnemy(100, 50, 50, 5);
+        Player player = new Player("Mario", 80, 415, 32, 64, 4);
+        players.put(player.getName(), player);
+
+        assertTrue(collisions.checkCollisions(players, entities));
+        assertEquals(List.of("hit Mario " + enemy), events);
+    }
+
+    @Test
+    void testHerb() {
+        int herb = entities.spawnHerb(100, 430, 30, 30);
+        Player player = new Player("Mario", 100, 415, 32, 64, 4);
+        players.put(player.getName(), player);
+
+        assertFalse(collisions.checkCollisions(players, entities));
+        assertEquals(List.of("herb Mario " + herb), events);
+
+        events.clear();
+        entities.collect(herb);
+        collisions.checkCollisions(players, entities);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testNothingNearby() {
+        entities.spawnEnemy(800, 50, 50, 5);
+        entities.spawnHerb(600, 100, 30, 30);
+        Player player = new Player("Mario", 100, 415, 32, 64, 4);
+        players.put(player.getName(), player);
+
+        assertFalse(collisions.checkCollisions(players, entities));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testSameAsCheckingEveryPair() {
+        Random random = new Random(21);
+        for (int round = 0; round < 50; round++) {
+            setUp();
+            for (int i = 0; i < 4; i++) {
+                // Some start off the map, as players and enemies can walk off it
+                Player player = new Player("p" + i, random.nextInt(1500) - 100, 330 + random.nextInt(150), 32, 64, 4);
+                player.setDy(random.nextInt(5) - 2);
+                players.put(player.getName(), player);
+            }
+            for (int i = 0; i < 200; i++) {
+                entities.spawnEnemy(random.nextInt(1500) - 100, 20 + random.nextInt(60), 50, 5);
+                if (i % 10 == 0) {
+                    entities.spawnHerb(random.nextInt(1500) - 100, random.nextInt(600), 30, 30);
+                }
+            }
+            // Leave some free slots, which shouldn't be found
+            for (int slot = 0; slot < entities.store().slots(); slot += 7) {
+                entities.store().remove(slot);
+            }
+
+            boolean hit = collisions.checkCollisions(players, entities);
+            List<String> expected = new ArrayList<>();
+            boolean expectedHit = everyPair(expected);
+            assertEquals(expected, events);
+            assertEquals(expectedHit, hit);
+        }
+    }
+
+    /** What checking each player against every enemy and herb with Rectangles finds */
+    private boolean everyPair(List<String> expected) {
+        EntityStore store = entities.store();
+        boolean hit = false;
+        for (Player player : players.values()) {
+            Rectangle p = player.getBounds();
+            for (int slot = 0; slot < store.slots(); slot++) {
+                if (store.kind(slot) != MarioEntities.ENEMY) {
+                    continue;
+                }
+                Rectangle e = bounds(store, slot);
+                if (!p.intersects(e)) {
+                    continue;
+                }
+                int bottom = p.y + p.height;
+                if (player.getDy() > 0 && bottom >= e.y && bottom <= e.y + 5) {
+                    expected.add("stomp " + player.getName() + " " + slot);
+                } else if (p.intersection(e).width <= p.intersection(e).height) {
+                    expected.add("hit " + player.getName() + " " + slot);
+                    hit = true;
+                }
+            }
+            for (int slot = 0; slot < store.slots(); slot++) {
+                if (store.kind(slot) == MarioEntities.HERB && entities.isActive(slot)
+                        && p.intersects(bounds(store, slot))) {
+                    expected.add("herb " + player.getName() + " " + slot);
+                }
+            }
+        }
+        return hit;
+    }
+
+    private static Rectangle bounds(EntityStore store, int slot) {
+        return new Rectangle(store.x(slot), store.y(slot), store.width(slot), store.height(slot));
+    }
+
+}
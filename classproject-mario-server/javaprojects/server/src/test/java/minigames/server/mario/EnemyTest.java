@@ -6,31 +6,62 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import minigames.server.EntityStore;
+
 class EnemyTest {
 
-    private Enemy enemy;
+    private MarioEntities entities;
+    private EntityStore store;
+    private int enemy;
 
     @BeforeEach
     void setUp() {
-        enemy = new Enemy(100, 100, 50, 50, 10);
+        entities = new MarioEntities();
+        store = entities.store();
+        enemy = entities.spawnEnemy(100, 50, 50, 10);
     }
 
     @Test
     void testInitialEnemyState() {
-        assertEquals(100, enemy.getX());
-        assertEquals(100, enemy.getY());
-        assertTrue(enemy.isActive());
+        assertEquals(100, store.x(enemy));
+        assertEquals(MarioEntities.ENEMY_Y, store.y(enemy));
+        assertTrue(entities.isActive(enemy));
     }
 
     @Test
     void testMoveEnemy() {
-        enemy.move();
-        // Depending on implementation, assert the expected new position
+        entities.update();
+        assertEquals(90, store.x(enemy));
+    }
+
+    @Test
+    void testRespawnEnemy() {
+        entities.hit(enemy);
+        // 100 to -60 takes 16 ticks, when it has walked off the left
+        for (int i = 0; i < 16; i++) {
+            entities.update();
+        }
+        assertEquals(MarioEntities.ENEMY_RESPAWN_X, store.x(enemy));
+        assertFalse(store.is(enemy, MarioEntities.HIT));
     }
 
     @Test
     void testDeactivateEnemy() {
-        enemy.deactivate();
-        assertFalse(enemy.isActive());
+        entities.stomp(enemy);
+        assertFalse(entities.isActive(enemy));
+    }
+
+    @Test
+    void testStompedEnemyFallsAndIsRemoved() {
+        entities.stomp(enemy);
+        entities.update();
+        assertEquals(100, store.x(enemy));
+        assertEquals(MarioEntities.ENEMY_Y + MarioEntities.ENEMY_FALL_SPEED, store.y(enemy));
+
+        for (int i = 0; i < 200 && store.isLive(enemy); i++) {
+            entities.update();
+        }
+        assertFalse(store.isLive(enemy));
+        assertEquals(0, entities.enemyCount());
     }
-}
\ No newline at end of file
+}
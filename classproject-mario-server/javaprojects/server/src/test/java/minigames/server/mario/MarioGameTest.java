@@ -1,10 +1,18 @@
 package minigames.server.mario;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import io.vertx.core.json.JsonObject;
+import minigames.commands.CommandPackage;
+import minigames.rendering.RenderingPackage;
+import minigames.server.EntityStore;
+
 class MarioGameTest {
 
     private MarioGame game;
@@ -37,4 +45,61 @@ class MarioGameTest {
         game.processMovementCommand(player, "right");
         // Verify player's new position
     }
+
+    /** A headless game with a player in it, run for a while */
+    private static MarioGame simulate(long seed, int ticks) {
+        MarioGame game = new MarioGame("Simulated", seed, TickClock.SIMULATED);
+        game.joinGame("Mario");
+        game.advance(ticks);
+        return game;
+    }
+
+    /** Where all the enemies and herbs are, and what state they are in */
+    private static String describeEntities(MarioGame game) {
+        StringBuilder description = new StringBuilder();
+        EntityStore store = game.entities().store();
+        for (int slot = 0; slot < store.slots(); slot++) {
+            if (store.isLive(slot)) {
+                description.append(store.kind(slot)).append(':').append(store.id(slot))
+                        .append(" at ").append(store.x(slot)).append(',').append(store.y(slot))
+                        .append(store.is(slot, MarioEntities.ACTIVE) ? " active" : "").append('\n');
+            }
+        }
+        return description.toString();
+    }
+
+    @Test
+    void testAdvance() {
+        MarioGame simulated = simulate(1, 1000);
+        assertEquals(1000, simulated.getCurrentTick());
+        assertEquals(1, simulated.getSeed());
+        assertTrue(simulated.entities().enemyCount() > 0);
+    }
+
+    @Test
+    void testSameSeedPlaysTheSame() {
+        MarioGame first = simulate(1234, 2000);
+        MarioGame second = simulate(1234, 2000);
+        assertEquals(describeEntities(first), describeEntities(second));
+    }
+
+    @Test
+    void testSeedChangesTheGame() {
+        assertNotEquals(describeEntities(simulate(1, 2000)), describeEntities(simulate(2, 2000)));
+    }
+
+    @Test
+    void testNonNumericSeqIsIgnored() {
+        RenderingPackage rp = game.runCommands(new CommandPackage("Mario", "TestGame", "Mario", List.of(
+                new JsonObject().put("type", "jump").put("seq", 5),
+                new JsonObject().put("type", "jump").put("seq", "not a number"),
+                new JsonObject().put("type", "UPDATE"))));
+
+        // The first snapshot is a full one, so has the player in it
+        JsonObject mario = rp.renderingCommands().get(0).getJsonArray("updated").stream()
+                .map((o) -> (JsonObject)o)
+                .filter((u) -> "player:Mario".equals(u.getString("id")))
+                .findFirst().orElseThrow();
+        assertEquals(5L, (long) mario.getLong("lastInput"));
+    }
 }
\ No newline at end of file
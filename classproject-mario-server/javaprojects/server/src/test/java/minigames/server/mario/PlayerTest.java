@@ -70,9 +70,13 @@ class PlayerTest {
     }
 
     @Test
-    void testHitFlagReset() throws InterruptedException {
+    void testHitFlagReset() {
         player.setHitFlag(true);
-        Thread.sleep(2100); // Wait for 2 seconds
+        for (int i = 0; i < Player.HIT_TICKS - 1; i++) {
+            player.tick();
+        }
+        assertTrue(player.isHit());
+        player.tick(); // Two seconds of ticks
         assertFalse(player.isHit());
     }
 }
\ No newline at end of file
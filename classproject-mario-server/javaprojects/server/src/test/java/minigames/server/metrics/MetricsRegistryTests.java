@@ -0,0 +1,57 @@
+package minigames.server.metrics;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the metrics primitives and their OpenMetrics output
+ */
+public class MetricsRegistryTests {
+
+    @Test
+    @DisplayName("Durations land in the first bucket whose bound is at least as large")
+    public void histogramBuckets() {
+        Histogram h = new Histogram(new double[] { 0.001, 0.01 });
+        h.record(TimeUnit.MICROSECONDS.toNanos(500));
+        h.record(TimeUnit.MILLISECONDS.toNanos(1));
+        h.record(TimeUnit.MILLISECONDS.toNanos(5));
+        h.record(TimeUnit.SECONDS.toNanos(1));
+
+        assertArrayEquals(new long[] { 2, 3, 4 }, h.cumulativeCounts());
+        assertEquals(4, h.count());
+        assertEquals(1.0065, h.sumSeconds(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Looking a metric up again returns the same one")
+    public void sameChild() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("c", "help", "game_server", "Mario"), registry.counter("c", "help", "game_server", "Mario"));
+        assertNotSame(registry.counter("c", "help", "game_server", "Mario"), registry.counter("c", "help", "game_server", "Gwent"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("c", "help"));
+    }
+
+    @Test
+    @DisplayName("Scrapes are in the OpenMetrics text format")
+    public void scrapeFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("minigames_ticks", "Ticks", "game_server", "Mario").add(3);
+        registry.gauge("minigames_live_games", "Games", "game_server", () -> Map.of("Mario", 2L));
+        registry.histogram("minigames_call_game_seconds", "Calls").record(TimeUnit.MILLISECONDS.toNanos(2));
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# TYPE minigames_ticks counter\n"));
+        assertTrue(text.contains("minigames_ticks_total{game_server=\"Mario\"} 3\n"));
+        assertTrue(text.contains("minigames_live_games{game_server=\"Mario\"} 2\n"));
+        assertTrue(text.contains("# TYPE minigames_call_game_seconds histogram\n"));
+        assertTrue(text.contains("minigames_call_game_seconds_bucket{le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("minigames_call_game_seconds_bucket{le=\"0.0025\"} 1\n"));
+        assertTrue(text.contains("minigames_call_game_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("minigames_call_game_seconds_count 1\n"));
+        assertTrue(text.endsWith("# EOF\n"));
+    }
+
+}
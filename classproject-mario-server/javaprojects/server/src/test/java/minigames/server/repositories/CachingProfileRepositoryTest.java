@@ -0,0 +1,77 @@
+package minigames.server.repositories;
+
+import io.vertx.core.Future;
+import minigames.server.api.profile.Profile;
+import minigames.server.database.repositories.CachingProfileRepository;
+import minigames.server.database.repositories.ProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingProfileRepositoryTest {
+
+    @Mock
+    private ProfileRepository repository;
+
+    private CachingProfileRepository cachingRepository;
+
+    @BeforeEach
+    void setUp() {
+        cachingRepository = new CachingProfileRepository(repository, 100, 1, TimeUnit.MINUTES);
+    }
+
+    private Profile profile(String playTime) {
+        Profile profile = new Profile();
+        profile.set(Profile.Field.FIRST_NAME, "Alice");
+        profile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, playTime);
+        return profile;
+    }
+
+    @Test
+    @DisplayName("A profile read twice is queried once")
+    void cachesProfiles() {
+        when(repository.getProfile("alice")).thenReturn(Future.succeededFuture(profile("10")));
+
+        assertEquals("Alice", cachingRepository.getProfile("alice").result().get(Profile.Field.FIRST_NAME));
+        assertEquals("Alice", cachingRepository.getProfile("alice").result().get(Profile.Field.FIRST_NAME));
+
+        verify(repository, times(1)).getProfile("alice");
+        assertEquals(1, cachingRepository.cache().hits());
+    }
+
+    @Test
+    @DisplayName("Adding play time drops the cached profile")
+    void playTimeInvalidates() {
+        when(repository.getProfile("alice"))
+                .thenReturn(Future.succeededFuture(profile("10")), Future.succeededFuture(profile("15")));
+        when(repository.incrementPlayTime("alice", 5)).thenReturn(Future.succeededFuture());
+
+        cachingRepository.getProfile("alice");
+        cachingRepository.incrementPlayTime("alice", 5);
+
+        assertEquals("15", cachingRepository.getProfile("alice").result().get(Profile.Field.TOTAL_PLAY_TIME_MINUTES));
+    }
+
+    @Test
+    @DisplayName("Updating a profile drops the cached one")
+    void updateInvalidates() {
+        when(repository.getProfile("alice"))
+                .thenReturn(Future.succeededFuture(profile("10")), Future.succeededFuture(profile("10")));
+        when(repository.updateProfile(eq("alice"), any())).thenReturn(Future.succeededFuture());
+
+        cachingRepository.getProfile("alice");
+        cachingRepository.updateProfile("alice", profile("10"));
+        cachingRepository.getProfile("alice");
+
+        verify(repository, times(2)).getProfile("alice");
+    }
+}
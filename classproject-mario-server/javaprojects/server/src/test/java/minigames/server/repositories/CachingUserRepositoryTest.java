@@ -0,0 +1,106 @@
+package minigames.server.repositories;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import minigames.server.api.achievement.Achievement;
+import minigames.server.api.user.AppUser;
+import minigames.server.api.user.UserProperties;
+import minigames.server.api.user.UserProperty;
+import minigames.server.database.repositories.CachingUserRepository;
+import minigames.server.database.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserRepositoryTest {
+
+    @Mock
+    private UserRepository repository;
+
+    private CachingUserRepository cachingRepository;
+
+    @BeforeEach
+    void setUp() {
+        cachingRepository = new CachingUserRepository(repository, 100, 1, TimeUnit.MINUTES);
+    }
+
+    private AppUser user(String password) {
+        return new AppUser(7L, "alice", new UserProperties(new JsonObject()
+                .put("hashed_password", password)
+                .put("email", "alice@example.com")));
+    }
+
+    @Test
+    @DisplayName("Checking a password, then fetching the user, queries once")
+    void authenticationQueriesOnce() {
+        when(repository.getUserData("alice")).thenReturn(Future.succeededFuture(user("hash")));
+
+        assertTrue(cachingRepository.userExists("alice").result());
+        assertEquals("hash", cachingRepository.getHashedPassword("alice").result());
+        assertEquals(7L, cachingRepository.getUserData("alice").result().getId());
+
+        verify(repository, times(1)).getUserData("alice");
+        verify(repository, never()).getHashedPassword(anyString());
+    }
+
+    @Test
+    @DisplayName("Callers can't change the cached user")
+    void returnsCopies() {
+        when(repository.getUserData("alice")).thenReturn(Future.succeededFuture(user("hash")));
+
+        cachingRepository.getUserData("alice").result().getProperties()
+                .setProperty(UserProperty.HASHED_PASSWORD, "changed");
+
+        assertEquals("hash", cachingRepository.getHashedPassword("alice").result());
+    }
+
+    @Test
+    @DisplayName("Updating a user drops them from the cache")
+    void updateInvalidates() {
+        when(repository.getUserData("alice"))
+                .thenReturn(Future.succeededFuture(user("old")), Future.succeededFuture(user("new")));
+        when(repository.updateUser(any())).thenReturn(Future.succeededFuture());
+
+        assertEquals("old", cachingRepository.getHashedPassword("alice").result());
+        cachingRepository.updateUser(user("new"));
+
+        assertEquals("new", cachingRepository.getHashedPassword("alice").result());
+        verify(repository, times(2)).getUserData("alice");
+    }
+
+    @Test
+    @DisplayName("Unlocking an achievement drops the user's cached achievements")
+    void unlockInvalidates() {
+        Achievement jump = new Achievement(1L, "Mario", "Jump", "Jumped", 10, null, null);
+        when(repository.getUserAchievements("alice"))
+                .thenReturn(Future.succeededFuture(List.of()), Future.succeededFuture(List.of(jump)));
+        when(repository.unlockAchievementByName("alice", "Jump")).thenReturn(Future.succeededFuture());
+
+        assertTrue(cachingRepository.getUserAchievements("alice").result().isEmpty());
+        assertTrue(cachingRepository.getUserAchievements("alice").result().isEmpty());
+        cachingRepository.unlockAchievementByName("alice", "Jump");
+
+        assertEquals(List.of(jump), cachingRepository.getUserAchievements("alice").result());
+        verify(repository, times(2)).getUserAchievements("alice");
+    }
+
+    @Test
+    @DisplayName("Users that don't exist aren't cached")
+    void missingUserNotCached() {
+        when(repository.getUserData("bob"))
+                .thenReturn(Future.succeededFuture(null), Future.succeededFuture(user("hash")));
+
+        assertFalse(cachingRepository.userExists("bob").result());
+        assertTrue(cachingRepository.userExists("bob").result());
+    }
+}
@@ -12,6 +12,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.sql.SQLException;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -118,18 +120,13 @@ class ProfileServiceImplTest {
     void incrementExistingProfilePlayTime() {
         String username = "gamer";
         long minutes = 30;
-        Profile existingProfile = new Profile();
-        existingProfile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, "60");
 
-        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(existingProfile));
-        when(profileRepository.updateProfile(eq(username), any(Profile.class))).thenReturn(Future.succeededFuture());
+        when(profileRepository.incrementPlayTime(username, minutes)).thenReturn(Future.succeededFuture());
 
         Future<Void> result = profileService.incrementPlayTime(username, minutes);
 
         assertTrue(result.succeeded());
-        verify(profileRepository).updateProfile(eq(username), argThat(profile -> 
-            "90".equals(profile.get(Profile.Field.TOTAL_PLAY_TIME_MINUTES))
-        ));
+        verify(profileRepository).incrementPlayTime(username, minutes);
     }
 
     @Test
@@ -138,7 +135,8 @@ class ProfileServiceImplTest {
         String username = "nonExistingUser";
         long minutes = 30;
 
-        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(null));
+        when(profileRepository.incrementPlayTime(username, minutes))
+                .thenReturn(Future.failedFuture(new SQLException("Profile not found")));
 
         Future<Void> result = profileService.incrementPlayTime(username, minutes);
 
@@ -4,14 +4,17 @@ import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
 import minigames.server.api.user.AppUser;
 import minigames.server.api.user.UserProperties;
-import minigames.server.database.DatabaseUtils;
+import minigames.server.BlockingPool;
+import minigames.server.database.ConnectionPool;
+import minigames.server.database.Page;
+import minigames.server.database.PooledConnection;
 import minigames.server.database.repositories.UserRepositoryImpl;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -23,175 +26,209 @@ import static org.mockito.Mockito.*;
 class UserRepositoryImplTest {
 
     private UserRepositoryImpl userRepository;
+    private PreparedStatement statement;
     private ResultSet mockResultSet;
 
     @BeforeEach
-    void setUp() {
-        userRepository = new UserRepositoryImpl();
+    void setUp() throws SQLException {
+        ConnectionPool connections = mock(ConnectionPool.class);
+        PooledConnection connection = mock(PooledConnection.class);
+        statement = mock(PreparedStatement.class);
+        when(connections.borrow()).thenReturn(connection);
+        when(connection.prepare(anyString())).thenReturn(statement);
+
+        userRepository = new UserRepositoryImpl(connections, BlockingPool.INLINE);
         mockResultSet = mock(ResultSet.class);
     }
 
     @Test
     @DisplayName("Get hashed password for existing user")
     void getHashedPasswordForExistingUser() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true);
-            when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
 
-            Future<String> future = userRepository.getHashedPassword("existingUser");
+        Future<String> future = userRepository.getHashedPassword("existingUser");
 
-            assertTrue(future.succeeded());
-            assertEquals("hashedPassword123", future.result());
-        }
+        assertTrue(future.succeeded());
+        assertEquals("hashedPassword123", future.result());
+        verify(statement).setString(1, "existingUser");
     }
 
     @Test
     @DisplayName("Get hashed password for non-existing user")
     void getHashedPasswordForNonExistingUser() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(false);
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
 
-            Future<String> future = userRepository.getHashedPassword("nonExistingUser");
+        Future<String> future = userRepository.getHashedPassword("nonExistingUser");
 
-            assertTrue(future.succeeded());
-            assertNull(future.result());
-        }
+        assertTrue(future.succeeded());
+        assertNull(future.result());
     }
 
     @Test
     @DisplayName("Check if user exists by username")
     void userExistsByUsername() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true);
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
 
-            Future<Boolean> future = userRepository.userExists("existingUser");
+        Future<Boolean> future = userRepository.userExists("existingUser");
 
-            assertTrue(future.succeeded());
-            assertTrue(future.result());
-        }
+        assertTrue(future.succeeded());
+        assertTrue(future.result());
     }
 
     @Test
     @DisplayName("Check if user exists by id")
     void userExistsById() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true);
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
 
-            Future<Boolean> future = userRepository.userExists("existingUser");
+        Future<Boolean> future = userRepository.userExists("existingUser");
 
-            assertTrue(future.succeeded());
-            assertTrue(future.result());
-        }
+        assertTrue(future.succeeded());
+        assertTrue(future.result());
     }
 
     @Test
     @DisplayName("Add new user")
-    void addUser() {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeUpdate(anyString())).thenReturn(1);
+    void addUser() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
 
-            UserProperties properties = new UserProperties(new JsonObject()
-                    .put("hashed_password", "hashedPassword123")
-                    .put("email", "user@example.com"));
-            AppUser user = new AppUser(1L, "newUser", properties);
+        UserProperties properties = new UserProperties(new JsonObject()
+                .put("hashed_password", "hashedPassword123")
+                .put("email", "user@example.com"));
+        AppUser user = new AppUser(1L, "newUser", properties);
 
-            Future<Void> future = userRepository.addUser(user);
+        Future<Void> future = userRepository.addUser(user);
 
-            assertTrue(future.succeeded());
-        }
+        assertTrue(future.succeeded());
     }
 
     @Test
     @DisplayName("Get user data for existing user by username")
     void getUserDataForExistingUserByUsername() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true);
-            when(mockResultSet.getLong("id")).thenReturn(1L);
-            when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
-            when(mockResultSet.getString("email")).thenReturn("user@example.com");
-            when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
-            when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
-
-            Future<AppUser> future = userRepository.getUserData("existingUser");
-
-            assertTrue(future.succeeded());
-            assertNotNull(future.result());
-            assertEquals("existingUser", future.result().getUsername());
-        }
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong("id")).thenReturn(1L);
+        when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
+        when(mockResultSet.getString("email")).thenReturn("user@example.com");
+        when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
+
+        Future<AppUser> future = userRepository.getUserData("existingUser");
+
+        assertTrue(future.succeeded());
+        assertNotNull(future.result());
+        assertEquals("existingUser", future.result().getUsername());
     }
 
     @Test
     @DisplayName("Get user data for existing user by id")
     void getUserDataForExistingUserById() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true);
-            when(mockResultSet.getLong("id")).thenReturn(1L);
-            when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
-            when(mockResultSet.getString("email")).thenReturn("user@example.com");
-            when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
-            when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
-
-            Future<AppUser> future = userRepository.getUserData(1L);
-
-            assertTrue(future.succeeded());
-            assertNotNull(future.result());
-            assertEquals(1L, future.result().getId());
-        }
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong("id")).thenReturn(1L);
+        when(mockResultSet.getString("password")).thenReturn("hashedPassword123");
+        when(mockResultSet.getString("email")).thenReturn("user@example.com");
+        when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
+
+        Future<AppUser> future = userRepository.getUserData(1L);
+
+        assertTrue(future.succeeded());
+        assertNotNull(future.result());
+        assertEquals(1L, future.result().getId());
     }
 
     @Test
     @DisplayName("Get all users")
     void getAllUsers() throws SQLException {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeQuery(anyString())).thenReturn(mockResultSet);
-            when(mockResultSet.next()).thenReturn(true, true, false);
-            when(mockResultSet.getLong("id")).thenReturn(1L, 2L);
-            when(mockResultSet.getString("username")).thenReturn("user1", "user2");
-            when(mockResultSet.getString("password")).thenReturn("hashedPassword1", "hashedPassword2");
-            when(mockResultSet.getString("email")).thenReturn("user1@example.com", "user2@example.com");
-            when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
-            when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
-
-            Future<List<AppUser>> future = userRepository.getAllUsers();
-
-            assertTrue(future.succeeded());
-            assertNotNull(future.result());
-            assertEquals(2, future.result().size());
-        }
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getLong("id")).thenReturn(1L, 2L);
+        when(mockResultSet.getString("username")).thenReturn("user1", "user2");
+        when(mockResultSet.getString("password")).thenReturn("hashedPassword1", "hashedPassword2");
+        when(mockResultSet.getString("email")).thenReturn("user1@example.com", "user2@example.com");
+        when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
+
+        Future<List<AppUser>> future = userRepository.getAllUsers();
+
+        assertTrue(future.succeeded());
+        assertNotNull(future.result());
+        assertEquals(2, future.result().size());
+    }
+
+    @Test
+    @DisplayName("A page of users fetches one extra row to find out whether there is another page")
+    void getUsersPage() throws SQLException {
+        when(statement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, true, false);
+        when(mockResultSet.getLong("id")).thenReturn(1L, 2L, 3L);
+        when(mockResultSet.getString("username")).thenReturn("user1", "user2", "user3");
+        when(mockResultSet.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(mockResultSet.getTimestamp("last_login")).thenReturn(new Timestamp(System.currentTimeMillis()));
+
+        Future<Page<AppUser>> first = userRepository.getUsers(null, 2);
+
+        assertTrue(first.succeeded());
+        assertEquals(2, first.result().items().size());
+        assertNotNull(first.result().next());
+        verify(statement).setLong(1, 0L);
+        verify(statement).setInt(2, 3);
+
+        // The next page starts after the last user on this one
+        userRepository.getUsers(first.result().next(), 2);
+        verify(statement).setLong(1, 2L);
+    }
+
+    @Test
+    @DisplayName("A page of users with a bad cursor fails")
+    void getUsersBadCursor() {
+        Future<Page<AppUser>> future = userRepository.getUsers("not a cursor", 2);
+
+        assertTrue(future.failed());
+        assertInstanceOf(IllegalArgumentException.class, future.cause());
     }
 
     @Test
     @DisplayName("Update existing user")
-    void updateUser() {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeUpdate(anyString())).thenReturn(1);
+    void updateUser() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
 
-            UserProperties properties = new UserProperties(new JsonObject()
-                    .put("hashed_password", "newHashedPassword")
-                    .put("email", "updated@example.com"));
-            AppUser user = new AppUser(1L, "existingUser", properties);
+        UserProperties properties = new UserProperties(new JsonObject()
+                .put("hashed_password", "newHashedPassword")
+                .put("email", "updated@example.com"));
+        AppUser user = new AppUser(1L, "existingUser", properties);
 
-            Future<Void> future = userRepository.updateUser(user);
+        Future<Void> future = userRepository.updateUser(user);
 
-            assertTrue(future.succeeded());
-        }
+        assertTrue(future.succeeded());
     }
 
     @Test
     @DisplayName("Increment play time for user")
-    void incrementPlayTime() {
-        try (MockedStatic<DatabaseUtils> mockedDatabaseUtils = mockStatic(DatabaseUtils.class)) {
-            mockedDatabaseUtils.when(() -> DatabaseUtils.executeUpdate(anyString())).thenReturn(1);
+    void incrementPlayTime() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
+
+        Future<Void> future = userRepository.incrementPlayTime("existingUser", 30);
+
+        assertTrue(future.succeeded());
+    }
+
+    @Test
+    @DisplayName("An update that changes nothing fails")
+    void updateOfMissingUserFails() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(0);
 
-            Future<Void> future = userRepository.incrementPlayTime("existingUser", 30);
+        UserProperties properties = new UserProperties(new JsonObject()
+                .put("hashed_password", "newHashedPassword")
+                .put("email", "updated@example.com"));
+        Future<Void> future = userRepository.updateUser(new AppUser(1L, "missingUser", properties));
 
-            assertTrue(future.succeeded());
-        }
+        assertTrue(future.failed());
+        assertEquals("Failed to update user", future.cause().getMessage());
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import minigames.server.api.leaderboard.LeaderboardService;
+import minigames.server.database.Page;
 import minigames.server.database.repositories.LeaderboardRepository;
 
 import javax.inject.Inject;
@@ -43,6 +44,21 @@ public class LeaderboardServiceImpl implements LeaderboardService {
         return null;    
     }
 
+    @Override
+    public Future<Page<JsonObject>> getScores(String gameType, String cursor, int limit) {
+        return null;
+    }
+
+    @Override
+    public Future<JsonObject> getRank(String gameType, String name) {
+        return null;
+    }
+
+    @Override
+    public Future<JsonArray> getBestScores(String name) {
+        return null;
+    }
+
     /* EDITED by Corey Wilford  11/09/2024
     @Inject
     public LeaderboardServiceImpl(LeaderboardRepository leaderboardRepository) {
@@ -0,0 +1,118 @@
+package minigames.server.services;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import minigames.server.api.achievement.Achievement;
+import minigames.server.api.profile.Profile;
+import minigames.server.api.summary.SummaryServiceImpl;
+import minigames.server.api.user.AppUser;
+import minigames.server.api.user.UserProperties;
+import minigames.server.database.repositories.LeaderboardRepository;
+import minigames.server.database.repositories.ProfileRepository;
+import minigames.server.database.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SummaryServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProfileRepository profileRepository;
+
+    @Mock
+    private LeaderboardRepository leaderboardRepository;
+
+    private SummaryServiceImpl summaryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        summaryService = new SummaryServiceImpl(userRepository, profileRepository, leaderboardRepository);
+    }
+
+    @Test
+    @DisplayName("A summary combines the user, their profile, achievements and best scores")
+    void getSummary() {
+        String username = "testUser";
+        AppUser user = new AppUser(1L, username, new UserProperties(new JsonObject()
+                .put("hashed_password", "hash")
+                .put("email", "test@example.com")));
+        Profile profile = new Profile();
+        profile.set(Profile.Field.FIRST_NAME, "Test");
+        profile.set(Profile.Field.TOTAL_PLAY_TIME_MINUTES, "90");
+        Achievement achievement = new Achievement(2L, "Mario", "Jump", "Jumped", 10, "2024-01-01 00:00:00", null);
+        JsonArray bestScores = new JsonArray().add(new JsonObject().put("gameType", "Mario").put("score", 500));
+
+        when(userRepository.getUserData(username)).thenReturn(Future.succeededFuture(user));
+        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(profile));
+        when(userRepository.getUserAchievements(username)).thenReturn(Future.succeededFuture(List.of(achievement)));
+        when(leaderboardRepository.getBestScores(username)).thenReturn(Future.succeededFuture(bestScores));
+
+        Future<JsonObject> result = summaryService.getSummary(username);
+
+        assertTrue(result.succeeded());
+        JsonObject summary = result.result();
+        assertEquals(username, summary.getString("username"));
+        assertEquals("test@example.com", summary.getString("email"));
+        assertFalse(summary.containsKey("hashed_password"));
+        assertEquals("Test", summary.getJsonObject("profile").getString("first_name"));
+        assertEquals(90L, summary.getLong("totalPlayTimeMinutes"));
+        assertEquals("2024-01-01 00:00:00", summary.getJsonArray("achievements").getJsonObject(0).getString("dateAchieved"));
+        assertEquals(bestScores, summary.getJsonArray("bestScores"));
+    }
+
+    @Test
+    @DisplayName("A user without a profile gets an empty one and no play time")
+    void getSummaryWithoutProfile() {
+        String username = "newUser";
+        AppUser user = new AppUser(1L, username, new UserProperties(new JsonObject()));
+
+        when(userRepository.getUserData(username)).thenReturn(Future.succeededFuture(user));
+        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(null));
+        when(userRepository.getUserAchievements(username)).thenReturn(Future.succeededFuture(List.of()));
+        when(leaderboardRepository.getBestScores(username)).thenReturn(Future.succeededFuture(new JsonArray()));
+
+        JsonObject summary = summaryService.getSummary(username).result();
+
+        assertTrue(summary.getJsonObject("profile").isEmpty());
+        assertEquals(0L, summary.getLong("totalPlayTimeMinutes"));
+    }
+
+    @Test
+    @DisplayName("There is no summary for a user that doesn't exist")
+    void getSummaryForMissingUser() {
+        String username = "nonExistingUser";
+        when(userRepository.getUserData(username)).thenReturn(Future.succeededFuture(null));
+        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(null));
+        when(userRepository.getUserAchievements(username)).thenReturn(Future.succeededFuture(List.of()));
+        when(leaderboardRepository.getBestScores(username)).thenReturn(Future.succeededFuture(new JsonArray()));
+
+        Future<JsonObject> result = summaryService.getSummary(username);
+
+        assertTrue(result.succeeded());
+        assertNull(result.result());
+    }
+
+    @Test
+    @DisplayName("If any part of a summary fails, the summary fails")
+    void getSummaryFailure() {
+        String username = "testUser";
+        when(userRepository.getUserData(username)).thenReturn(Future.succeededFuture(null));
+        when(profileRepository.getProfile(username)).thenReturn(Future.succeededFuture(null));
+        when(userRepository.getUserAchievements(username)).thenReturn(Future.failedFuture("Database error"));
+        when(leaderboardRepository.getBestScores(username)).thenReturn(Future.succeededFuture(new JsonArray()));
+
+        assertTrue(summaryService.getSummary(username).failed());
+    }
+}